@@ -0,0 +1,125 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent.GCounter;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent.GCounterState;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.EventDrivenStateDeliveryChannel;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.LocalDeliveryExchange;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.PeriodicStateDeiveryChannel;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.StateDeliveryChannel;
+import uk.ac.soton.ecs.fl4g12.crdt.idenitifier.IncrementalIntegerIdentifierFactory;
+import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
+
+/**
+ * Benchmarks the time taken for an increment of one {@linkplain GCounter} replica to be seen by
+ * every other replica over a {@link LocalDeliveryExchange}, for both the periodic and the event
+ * driven state delivery channels. The latency is dominated by the delivery periods, which are set
+ * to {@value #PERIOD} {@code ms}, so results should be compared between channels and replica counts
+ * rather than read as absolute values.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConvergenceBenchmark {
+
+  private static final long PERIOD = 1;
+  private static final TimeUnit TIME_UNIT = TimeUnit.MILLISECONDS;
+
+  /**
+   * The time to wait for the replicas to converge before failing the benchmark.
+   */
+  private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(10);
+
+  @Param({"periodic", "event"})
+  public String channel;
+
+  @Param({"2", "8"})
+  public int replicas;
+
+  private LocalDeliveryExchange<Integer, GCounterState<Integer, Integer>> exchange;
+  private List<GCounter<Integer, Integer>> counters;
+
+  @Setup
+  public void setup() {
+    exchange =
+        new LocalDeliveryExchange<>(new IncrementalIntegerIdentifierFactory(), PERIOD, TIME_UNIT);
+    counters = new ArrayList<>(replicas);
+    for (int i = 0; i < replicas; i++) {
+      counters.add(GCounter.newIntegerGCounter(createChannel()));
+    }
+  }
+
+  private StateDeliveryChannel<Integer, GCounterState<Integer, Integer>> createChannel() {
+    switch (channel) {
+      case "periodic":
+        return new PeriodicStateDeiveryChannel<>(exchange, PERIOD, TIME_UNIT);
+      case "event":
+        return new EventDrivenStateDeliveryChannel<>(exchange);
+      default:
+        throw new IllegalArgumentException("Unknown channel: " + channel);
+    }
+  }
+
+  @TearDown
+  public void teardown() throws Exception {
+    for (GCounter<Integer, Integer> counter : counters) {
+      counter.getDeliveryChannel().close();
+    }
+    exchange.close();
+  }
+
+  /**
+   * Increment the first replica and wait until every replica has applied the increment.
+   *
+   * @throws Exception if the replicas did not converge within the timeout.
+   */
+  @Benchmark
+  public void increment() throws Exception {
+    final GCounter<Integer, Integer> source = counters.get(0);
+    source.increment();
+
+    final VersionVector<Integer, Integer> version = source.getVersion();
+    for (GCounter<Integer, Integer> counter : counters.subList(1, counters.size())) {
+      counter.getDeliveryChannel().whenApplied(version).get(TIMEOUT, TimeUnit.NANOSECONDS);
+    }
+  }
+
+}
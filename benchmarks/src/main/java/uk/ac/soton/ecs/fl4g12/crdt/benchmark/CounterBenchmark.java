@@ -0,0 +1,147 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.AtomicIntegerCounter;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.Counter;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative.BatchPolicy;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative.CommutativeCounter;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative.CommutativeCounterUpdate;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent.GCounter;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent.GCounterState;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent.PNCounter;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent.PNCounterState;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeliveryChannel;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.LocalDeliveryExchange;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.PeriodicReliableDeliveryChannel;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.PeriodicStateDeiveryChannel;
+import uk.ac.soton.ecs.fl4g12.crdt.idenitifier.IncrementalIntegerIdentifierFactory;
+import uk.ac.soton.ecs.fl4g12.crdt.order.HashVersionVector;
+import uk.ac.soton.ecs.fl4g12.crdt.order.IntegerVersion;
+
+/**
+ * Benchmarks the throughput of local operations on a single replica of each counter when
+ * incremented by several threads at once. The replica is registered with a
+ * {@link LocalDeliveryExchange} so the cost of publishing each operation is included.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class CounterBenchmark {
+
+  private static final long PERIOD = 10;
+  private static final TimeUnit TIME_UNIT = TimeUnit.MILLISECONDS;
+
+  /**
+   * Maximum number of operations in a batch for {@code CommutativeCounterBatched}.
+   */
+  private static final int BATCH_SIZE = 64;
+
+  @Param({"GCounter", "PNCounter", "CommutativeCounter", "CommutativeCounterBatched"})
+  public String type;
+
+  private LocalDeliveryExchange<Integer, ?> exchange;
+  private DeliveryChannel<Integer, ?, ?> channel;
+  private Counter<Integer> counter;
+
+  @Setup
+  public void setup() {
+    switch (type) {
+      case "GCounter": {
+        LocalDeliveryExchange<Integer, GCounterState<Integer, Integer>> exchange =
+            new LocalDeliveryExchange<>(new IncrementalIntegerIdentifierFactory(), PERIOD,
+                TIME_UNIT);
+        PeriodicStateDeiveryChannel<Integer, GCounterState<Integer, Integer>> channel =
+            new PeriodicStateDeiveryChannel<>(exchange, PERIOD, TIME_UNIT);
+        this.exchange = exchange;
+        this.channel = channel;
+        this.counter = GCounter.newIntegerGCounter(channel);
+        break;
+      }
+      case "PNCounter": {
+        LocalDeliveryExchange<Integer, PNCounterState<Integer, Integer>> exchange =
+            new LocalDeliveryExchange<>(new IncrementalIntegerIdentifierFactory(), PERIOD,
+                TIME_UNIT);
+        PeriodicStateDeiveryChannel<Integer, PNCounterState<Integer, Integer>> channel =
+            new PeriodicStateDeiveryChannel<>(exchange, PERIOD, TIME_UNIT);
+        this.exchange = exchange;
+        this.channel = channel;
+        this.counter = PNCounter.newIntegerPNCounter(channel);
+        break;
+      }
+      case "CommutativeCounter":
+        setupCommutative(BatchPolicy.NONE);
+        break;
+      case "CommutativeCounterBatched":
+        setupCommutative(new BatchPolicy(BATCH_SIZE, PERIOD, TIME_UNIT));
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown counter type: " + type);
+    }
+  }
+
+  private void setupCommutative(BatchPolicy batchPolicy) {
+    LocalDeliveryExchange<Integer, CommutativeCounterUpdate<Integer, Integer, Integer>> exchange =
+        new LocalDeliveryExchange<>(new IncrementalIntegerIdentifierFactory(), PERIOD, TIME_UNIT);
+    PeriodicReliableDeliveryChannel<Integer, CommutativeCounterUpdate<Integer, Integer, Integer>> channel =
+        new PeriodicReliableDeliveryChannel<>(exchange, PERIOD, TIME_UNIT);
+    this.exchange = exchange;
+    this.channel = channel;
+    this.counter = new CommutativeCounter<>(new AtomicIntegerCounter(),
+        new HashVersionVector<Integer, Integer>(new IntegerVersion()), null, channel, batchPolicy);
+  }
+
+  @TearDown
+  public void teardown() throws Exception {
+    channel.close();
+    exchange.close();
+  }
+
+  @Benchmark
+  public void increment() {
+    counter.increment();
+  }
+
+  @Benchmark
+  public Integer value() {
+    return counter.value();
+  }
+
+}
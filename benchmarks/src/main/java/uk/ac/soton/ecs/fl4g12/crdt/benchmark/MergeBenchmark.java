@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent.GSet;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent.GSetState;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent.TwoPhaseSet;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent.TwoPhaseSetState;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.LocalDeliveryExchange;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.PeriodicStateDeiveryChannel;
+import uk.ac.soton.ecs.fl4g12.crdt.idenitifier.IncrementalIntegerIdentifierFactory;
+import uk.ac.soton.ecs.fl4g12.crdt.order.IntegerVersion;
+
+/**
+ * Benchmarks the cost of taking a snapshot of the state based sets and of merging a snapshot from
+ * another replica as the size of the state grows. The two replicas share half of their elements
+ * and, as in steady state gossip, the merge is repeated with a state which has already been seen.
+ *
+ * The replicas are registered with a {@link LocalDeliveryExchange} which never delivers within a
+ * benchmark so only the data types are measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MergeBenchmark {
+
+  private static final long PERIOD = 1;
+  private static final TimeUnit TIME_UNIT = TimeUnit.HOURS;
+
+  @Param({"10", "1000", "100000"})
+  public int size;
+
+  private LocalDeliveryExchange<Integer, GSetState<Integer, Integer, Integer>> gSetExchange;
+  private GSet<Integer, Integer, Integer> gSet;
+  private GSetState<Integer, Integer, Integer> gSetState;
+
+  private LocalDeliveryExchange<Integer, TwoPhaseSetState<Integer, Integer, Integer>> twoPhaseSetExchange;
+  private TwoPhaseSet<Integer, Integer, Integer> twoPhaseSet;
+  private TwoPhaseSetState<Integer, Integer, Integer> twoPhaseSetState;
+
+  @Setup
+  public void setup() throws Exception {
+    gSetExchange =
+        new LocalDeliveryExchange<>(new IncrementalIntegerIdentifierFactory(), PERIOD, TIME_UNIT);
+    gSet = new GSet<>(new IntegerVersion(), null,
+        new PeriodicStateDeiveryChannel<>(gSetExchange, PERIOD, TIME_UNIT));
+    GSet<Integer, Integer, Integer> otherGSet = new GSet<>(new IntegerVersion(), null,
+        new PeriodicStateDeiveryChannel<>(gSetExchange, PERIOD, TIME_UNIT));
+
+    twoPhaseSetExchange =
+        new LocalDeliveryExchange<>(new IncrementalIntegerIdentifierFactory(), PERIOD, TIME_UNIT);
+    twoPhaseSet = new TwoPhaseSet<>(new IntegerVersion(), null,
+        new PeriodicStateDeiveryChannel<>(twoPhaseSetExchange, PERIOD, TIME_UNIT));
+    TwoPhaseSet<Integer, Integer, Integer> otherTwoPhaseSet = new TwoPhaseSet<>(
+        new IntegerVersion(), null,
+        new PeriodicStateDeiveryChannel<>(twoPhaseSetExchange, PERIOD, TIME_UNIT));
+
+    for (int i = 0; i < size; i++) {
+      gSet.add(i);
+      otherGSet.add(i + size / 2);
+      twoPhaseSet.add(i);
+      otherTwoPhaseSet.add(i + size / 2);
+    }
+    // Remove a tenth of the elements of the other replica.
+    for (int i = 0; i < size; i += 10) {
+      otherTwoPhaseSet.remove(i + size / 2);
+    }
+
+    gSetState = otherGSet.snapshot();
+    twoPhaseSetState = otherTwoPhaseSet.snapshot();
+
+    // Only the snapshots of the other replicas are needed.
+    otherGSet.getDeliveryChannel().close();
+    otherTwoPhaseSet.getDeliveryChannel().close();
+  }
+
+  @TearDown
+  public void teardown() throws Exception {
+    gSet.getDeliveryChannel().close();
+    twoPhaseSet.getDeliveryChannel().close();
+    gSetExchange.close();
+    twoPhaseSetExchange.close();
+  }
+
+  @Benchmark
+  public GSetState<Integer, Integer, Integer> gSetSnapshot() {
+    return gSet.snapshot();
+  }
+
+  @Benchmark
+  public GSet<Integer, Integer, Integer> gSetUpdate() throws Exception {
+    gSet.update(gSetState);
+    return gSet;
+  }
+
+  @Benchmark
+  public TwoPhaseSetState<Integer, Integer, Integer> twoPhaseSetSnapshot() {
+    return twoPhaseSet.snapshot();
+  }
+
+  @Benchmark
+  public TwoPhaseSet<Integer, Integer, Integer> twoPhaseSetUpdate() throws Exception {
+    twoPhaseSet.update(twoPhaseSetState);
+    return twoPhaseSet;
+  }
+
+}
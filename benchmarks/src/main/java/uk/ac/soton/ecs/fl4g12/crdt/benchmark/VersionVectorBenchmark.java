@@ -0,0 +1,137 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.soton.ecs.fl4g12.crdt.order.ArrayVersionVector;
+import uk.ac.soton.ecs.fl4g12.crdt.order.AtomicIntLongVersionVector;
+import uk.ac.soton.ecs.fl4g12.crdt.order.HashVersionVector;
+import uk.ac.soton.ecs.fl4g12.crdt.order.IntLongVersionVector;
+import uk.ac.soton.ecs.fl4g12.crdt.order.LongVersion;
+import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
+
+/**
+ * Benchmarks of the {@linkplain VersionVector} operations performed for every message: copying,
+ * comparing and synchronising. Each implementation is measured with vectors of between 2 and 1000
+ * replicas, where the second vector has advanced a few entries of the first so that it is neither
+ * identical nor concurrent.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VersionVectorBenchmark {
+
+  /**
+   * Number of entries of the second vector which are ahead of the first.
+   */
+  private static final int ADVANCED = 3;
+
+  @Param({"hash", "array", "intlong", "atomic"})
+  public String implementation;
+
+  @Param({"2", "10", "100", "1000"})
+  public int replicas;
+
+  private VersionVector<Integer, Long> version;
+  private VersionVector<Integer, Long> successor;
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(0);
+    version = create(implementation);
+    for (int id = 0; id < replicas; id++) {
+      version.sync(id, (long) random.nextInt(1000));
+    }
+    successor = version.copy();
+    for (int i = 0; i < ADVANCED; i++) {
+      successor.increment(random.nextInt(replicas));
+    }
+  }
+
+  /**
+   * Create an empty {@link VersionVector} of the given implementation.
+   *
+   * @param implementation the name of the implementation.
+   * @return an empty {@link VersionVector}.
+   */
+  static VersionVector<Integer, Long> create(String implementation) {
+    switch (implementation) {
+      case "hash":
+        return new HashVersionVector<>(new LongVersion());
+      case "array":
+        return new ArrayVersionVector<>(new LongVersion());
+      case "intlong":
+        return new IntLongVersionVector();
+      case "atomic":
+        return new AtomicIntLongVersionVector();
+      default:
+        throw new IllegalArgumentException("Unknown implementation: " + implementation);
+    }
+  }
+
+  @Benchmark
+  public VersionVector<Integer, Long> copy() {
+    return version.copy();
+  }
+
+  @Benchmark
+  public int compareTo() {
+    return version.compareTo(successor);
+  }
+
+  @Benchmark
+  public boolean happenedBefore() {
+    return version.happenedBefore(successor);
+  }
+
+  @Benchmark
+  public boolean identical() {
+    return version.identical(successor);
+  }
+
+  /**
+   * Synchronise a copy of the vector with its successor, as done when a replica receives state.
+   * The cost of the copy is measured by {@link #copy()}.
+   */
+  @Benchmark
+  public VersionVector<Integer, Long> copyAndSync() {
+    VersionVector<Integer, Long> copy = version.copy();
+    copy.sync(successor);
+    return copy;
+  }
+
+}
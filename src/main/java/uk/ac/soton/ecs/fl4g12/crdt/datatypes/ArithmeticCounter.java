@@ -27,8 +27,8 @@ import uk.ac.soton.ecs.fl4g12.crdt.util.Arithmetic;
 /**
  * A generic counter that can count using any type which has an {@linkplain Arithmetic}
  * implementation. The counter is initialised using {@link Arithmetic#getZero()} and
- * increments/decrements are performed by {@link Arithmetic#add(Iterable)}ing or
- * {@link Arithmetic#sub(Object, Iterable)}ing {@link Arithmetic#getUnit()} respectively. By using
+ * increments/decrements are performed by {@link Arithmetic#add(Object, Object)}ing or
+ * {@link Arithmetic#sub(Object, Object)}ing {@link Arithmetic#getUnit()} respectively. By using
  * an {@link AtomicReference} and {@link AtomicReference#compareAndSet(Object, Object)} operations
  * are performed atomically and this type is thread safe.
  * 
@@ -52,20 +52,44 @@ public class ArithmeticCounter<E> implements Counter<E> {
 
   @Override
   public void increment() {
+    add(arithmetic.getUnit());
+  }
+
+  @Override
+  public void decrement() {
+    sub(arithmetic.getUnit());
+  }
+
+  @Override
+  public void increment(int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Count cannot be negative: " + count);
+    }
+    add(arithmetic.valueOf(count));
+  }
+
+  @Override
+  public void decrement(int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Count cannot be negative: " + count);
+    }
+    sub(arithmetic.valueOf(count));
+  }
+
+  private void add(E amount) {
     while (true) {
       E current = value.get();
-      E next = arithmetic.add(current, arithmetic.getUnit());
+      E next = arithmetic.add(current, amount);
       if (value.compareAndSet(current, next)) {
         return;
       }
     }
   }
 
-  @Override
-  public void decrement() {
+  private void sub(E amount) {
     while (true) {
       E current = value.get();
-      E next = arithmetic.sub(current, arithmetic.getUnit());
+      E next = arithmetic.sub(current, amount);
       if (value.compareAndSet(current, next)) {
         return;
       }
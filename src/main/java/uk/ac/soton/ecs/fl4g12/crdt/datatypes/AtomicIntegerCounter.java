@@ -40,6 +40,22 @@ public class AtomicIntegerCounter implements Counter<Integer> {
     integer.decrementAndGet();
   }
 
+  @Override
+  public void increment(int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Count cannot be negative: " + count);
+    }
+    integer.addAndGet(count);
+  }
+
+  @Override
+  public void decrement(int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Count cannot be negative: " + count);
+    }
+    integer.addAndGet(-count);
+  }
+
   @Override
   public Integer value() {
     return integer.get();
@@ -40,6 +40,22 @@ public class AtomicLongCounter implements Counter<Long> {
     counter.decrementAndGet();
   }
 
+  @Override
+  public void increment(int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Count cannot be negative: " + count);
+    }
+    counter.addAndGet(count);
+  }
+
+  @Override
+  public void decrement(int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Count cannot be negative: " + count);
+    }
+    counter.addAndGet(-count);
+  }
+
   @Override
   public Long value() {
     return counter.get();
@@ -46,6 +46,40 @@ public interface Counter<E> {
    */
   void decrement();
 
+  /**
+   * Increment the counter by the given number of units. By default this increments the counter
+   * {@code count} times, implementations should override this if they can increment by many units
+   * in a single step.
+   *
+   * @param count the number of units to increment the counter by.
+   * @throws IllegalArgumentException if {@code count} is negative.
+   */
+  default void increment(int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Count cannot be negative: " + count);
+    }
+    for (int i = 0; i < count; i++) {
+      increment();
+    }
+  }
+
+  /**
+   * Decrement the counter by the given number of units. By default this decrements the counter
+   * {@code count} times, implementations should override this if they can decrement by many units
+   * in a single step.
+   *
+   * @param count the number of units to decrement the counter by.
+   * @throws IllegalArgumentException if {@code count} is negative.
+   */
+  default void decrement(int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Count cannot be negative: " + count);
+    }
+    for (int i = 0; i < count; i++) {
+      decrement();
+    }
+  }
+
   /**
    * Get the current value of the counter.
    *
@@ -24,6 +24,7 @@ package uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.AbstractVersionedUpdatable;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeliveryUpdateException;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.ReliableDeliveryChannel;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.ReplicaGroup;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.UpdateMessage;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.VersionedUpdatable;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.VersionedUpdateMessage;
@@ -48,6 +49,10 @@ public abstract class AbstractCmRDT<K, T extends Comparable<T>, M extends Versio
     super(initialVersion, identifier, deliveryChannel);
   }
 
+  public AbstractCmRDT(ReplicaGroup<K, T, ?> group, ReliableDeliveryChannel<K, M> deliveryChannel) {
+    super(group, deliveryChannel);
+  }
+
   /**
    * Determine if the {@linkplain VersionVector} of this {@linkplain VersionedUpdatable} precedes
    * the {@linkplain Version} in the {@linkplain VersionedUpdateMessage}.
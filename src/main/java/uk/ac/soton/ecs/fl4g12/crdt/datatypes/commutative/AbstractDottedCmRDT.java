@@ -21,16 +21,45 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative;
 
+import java.io.Flushable;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.DottedUpdateMessage;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.ReliableDeliveryChannel;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.ReplicaGroup;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.UpdateMessage;
 import uk.ac.soton.ecs.fl4g12.crdt.order.Dot;
+import uk.ac.soton.ecs.fl4g12.crdt.order.DottedVersionVector;
 import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
 
 /**
  * Abstract base class for {@linkplain CmRDT}s where the {@linkplain UpdateMessage} uses a
- * {@linkplain Dot}. Messages are not applied in causal order but exactly-once delivery is
- * respected.
+ * {@linkplain Dot}. Messages are not applied in causal order, other than to respect any
+ * dependencies declared by each message, but exactly-once delivery is respected.
+ *
+ * Local operations are published in batches according to a {@linkplain BatchPolicy}.
+ * Implementations record each local operation in a pending batch and call {@link #batched(int)},
+ * and build the update message for the whole batch in {@link #createBatchUpdate()} when it is
+ * {@linkplain #flush() flushed}. A batch uses a single {@linkplain Dot} so that a replica which
+ * receives it sees the same gap-free sequence of updates as if each batch was a single operation.
+ * The delivery channel flushes any pending batch when it is closed.
+ *
+ * While the delivery channel {@linkplain ReliableDeliveryChannel#isCongested() is congested},
+ * batches are not flushed automatically by a {@linkplain BatchPolicy#isBatching() batching}
+ * policy, instead the operations keep being added to the pending batch and the flush is retried
+ * after a short delay. This holds back a node which updates faster
+ * than its replicas can receive the updates, without losing any operations. An explicit
+ * {@link #flush()} always publishes the pending batch.
+ *
+ * By default, the updates from each node are applied in the order of their dots and an update which
+ * arrives ahead of its predecessors is rejected so that it is delivered again later. If the object
+ * is constructed with a {@linkplain DottedVersionVector}, the dots which have been applied are
+ * tracked individually instead, so an update is applied as soon as it arrives, provided its
+ * declared dependencies have been applied, and only duplicates are skipped.
  *
  * @param <K> the type of identifier used to identify nodes.
  * @param <T> the type of timestamps which are used by each node.
@@ -38,26 +67,235 @@ import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
  * @see AbstractCmRDT for the guarantees which this provides and implementation details.
  */
 public abstract class AbstractDottedCmRDT<K, T extends Comparable<T>, M extends DottedUpdateMessage<K, T>>
-    extends AbstractCmRDT<K, T, M> {
+    extends AbstractCmRDT<K, T, M> implements Flushable {
+
+  private static final Logger LOGGER = Logger.getLogger(AbstractDottedCmRDT.class.getName());
+
+  private static final long RETRY_DELAY = 100;
+  private static final TimeUnit RETRY_DELAY_UNIT = TimeUnit.MILLISECONDS;
+
+  private final BatchPolicy batchPolicy;
+  private final DottedVersionVector<K, T> dots;
+  private long batchSize = 0;
+  private ScheduledFuture<?> lingerFlush = null;
+  private ScheduledFuture<?> retryFlush = null;
 
   public AbstractDottedCmRDT(VersionVector<K, T> initialVersion, K identifier,
       ReliableDeliveryChannel<K, M> deliveryChannel) {
+    this(initialVersion, identifier, deliveryChannel, BatchPolicy.NONE);
+  }
+
+  public AbstractDottedCmRDT(VersionVector<K, T> initialVersion, K identifier,
+      ReliableDeliveryChannel<K, M> deliveryChannel, BatchPolicy batchPolicy) {
     super(initialVersion, identifier, deliveryChannel);
+    this.batchPolicy = batchPolicy;
+    final VersionVector<K, T> vector = version.getVersionVector();
+    this.dots = vector instanceof DottedVersionVector ? (DottedVersionVector<K, T>) vector : null;
+  }
+
+  /**
+   * Instantiate the {@linkplain AbstractDottedCmRDT} as a member of a {@linkplain ReplicaGroup},
+   * sharing the {@linkplain DottedVersionVector} of the group to track the dots which have been
+   * applied.
+   *
+   * @param group the {@link ReplicaGroup} to join.
+   * @param deliveryChannel the {@link ReliableDeliveryChannel} provided by
+   *        {@link ReplicaGroup#channel}.
+   * @param batchPolicy the {@link BatchPolicy} which determines when local operations are
+   *        published.
+   */
+  public AbstractDottedCmRDT(ReplicaGroup<K, T, ?> group,
+      ReliableDeliveryChannel<K, M> deliveryChannel, BatchPolicy batchPolicy) {
+    super(group, deliveryChannel);
+    this.batchPolicy = batchPolicy;
+    this.dots = (DottedVersionVector<K, T>) version.getVersionVector();
   }
 
+  /**
+   * Get the {@linkplain BatchPolicy} which determines when local operations are published.
+   *
+   * @return the {@linkplain BatchPolicy} of this object.
+   */
+  public final BatchPolicy getBatchPolicy() {
+    return batchPolicy;
+  }
+
+  /**
+   * Record that operations have been added to the pending batch. If the batch has reached the
+   * maximum size it is flushed, otherwise if this is the first operation in the batch, a flush is
+   * scheduled for when the linger time has passed.
+   *
+   * @param operations the number of operations added to the batch.
+   */
+  protected final synchronized void batched(int operations) {
+    if (operations == 0) {
+      return;
+    }
+    boolean first = batchSize == 0;
+    batchSize += operations;
+    if (batchSize >= batchPolicy.getMaxSize()) {
+      automaticFlush();
+    } else if (first) {
+      lingerFlush = scheduleFlush(batchPolicy.getLinger(), batchPolicy.getUnit(), false);
+    }
+  }
+
+  /**
+   * Flush the pending batch unless the policy is batching and the delivery channel is congested,
+   * in which case the flush is retried after {@link #RETRY_DELAY}. Must be called while holding the
+   * lock of this object.
+   */
+  private void automaticFlush() {
+    if (!batchPolicy.isBatching() || !getDeliveryChannel().isCongested()) {
+      flush();
+      return;
+    }
+    if (retryFlush != null) {
+      // A retry is already waiting.
+      return;
+    }
+    try {
+      retryFlush = scheduleFlush(RETRY_DELAY, RETRY_DELAY_UNIT, true);
+    } catch (RejectedExecutionException ex) {
+      LOGGER.log(Level.WARNING, "Retry rejected, flushing batch while congested", ex);
+      flush();
+    }
+  }
+
+  /**
+   * Schedule an automatic flush of the pending batch on the scheduler of the
+   * {@linkplain BatchPolicy}. Must be called while holding the lock of this object.
+   *
+   * @param delay the time to wait before flushing.
+   * @param unit the {@link TimeUnit} of the {@code delay} parameter.
+   * @param retry whether this is the retry of a flush held back by congestion.
+   * @return the {@link ScheduledFuture} of the flush.
+   */
+  private ScheduledFuture<?> scheduleFlush(long delay, TimeUnit unit, final boolean retry) {
+    return batchPolicy.getScheduler().schedule(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          synchronized (AbstractDottedCmRDT.this) {
+            if (retry) {
+              retryFlush = null;
+            }
+            if (batchSize > 0) {
+              automaticFlush();
+            }
+          }
+        } catch (Throwable t) {
+          LOGGER.log(Level.SEVERE,
+              "Throwable while flushing batch of " + AbstractDottedCmRDT.this, t);
+        }
+      }
+    }, delay, unit);
+  }
+
+  /**
+   * Publish any pending operations as a single update message.
+   */
+  @Override
+  public final synchronized void flush() {
+    if (lingerFlush != null) {
+      lingerFlush.cancel(false);
+      lingerFlush = null;
+    }
+    if (retryFlush != null) {
+      retryFlush.cancel(false);
+      retryFlush = null;
+    }
+    if (batchSize == 0) {
+      return;
+    }
+    batchSize = 0;
+    M message = createBatchUpdate();
+    if (message != null) {
+      getDeliveryChannel().publish(message);
+    }
+  }
+
+  /**
+   * Create the update message for the pending batch and clear the batch. This is called while
+   * synchronized on this object. The version should be incremented using {@link #nextDot()} only if
+   * a message is created.
+   *
+   * @return the update message for the pending batch or {@code null} if the operations in the batch
+   *         have no overall effect.
+   */
+  protected abstract M createBatchUpdate();
+
+  /**
+   * Increment the local version and get the {@linkplain Dot} for the next update of this node.
+   * The version may be shared with the other members of a {@linkplain ReplicaGroup}, so the dot is
+   * taken while holding the lock of the version.
+   *
+   * @return the {@linkplain Dot} for the next update message.
+   */
+  protected final Dot<K, T> nextDot() {
+    synchronized (version) {
+      version.increment();
+      return version.getDot(identifier).copy();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * Only the entry of the local {@linkplain VersionVector} for the node which created the update is
+   * compared with the {@linkplain Dot} of the update, followed by the entries for each of the
+   * dependencies of the update. This makes the check independent of the number of nodes.
+   *
+   * When the dots are tracked by a {@linkplain DottedVersionVector}, any update whose dot has not
+   * been applied can be applied once its dependencies have been.
+   */
   @Override
   protected final boolean precedes(M message) {
-    return version.precedes(message.getVersion());
+    if (dots != null) {
+      return !dots.contains(message.getVersion()) && dependenciesSatisfied(message);
+    }
+    return version.precedes(message.getVersion()) && dependenciesSatisfied(message);
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * An update has been applied if the entry of the local {@linkplain VersionVector} for the node
+   * which created the update is greater than or equal to the timestamp of the update's
+   * {@linkplain Dot}, or if the dot has been recorded by a {@linkplain DottedVersionVector}.
+   */
   @Override
   protected final boolean hasBeenApplied(M message) {
-    return message.getVersion().happenedBefore(version) || message.getVersion().identical(version);
+    Dot<K, T> dot = message.getVersion();
+    if (dots != null) {
+      return dots.contains(dot);
+    }
+    return dot.get().compareTo(version.get(dot.getIdentifier())) <= 0;
   }
 
   @Override
   protected final void sync(M message) {
-    version.sync(message.getVersion());
+    if (dots != null) {
+      dots.add(message.getVersion());
+    } else {
+      version.sync(message.getVersion());
+    }
+  }
+
+  /**
+   * Determine whether all of the causal dependencies of the given message have been applied.
+   *
+   * @param message the message to check the dependencies of.
+   * @return {@code true} if every dependency of the message has been applied locally,
+   *         {@code false} otherwise.
+   */
+  private boolean dependenciesSatisfied(M message) {
+    for (Map.Entry<K, T> dependency : message.getDependencies().entrySet()) {
+      if (version.get(dependency.getKey()).compareTo(dependency.getValue()) < 0) {
+        return false;
+      }
+    }
+    return true;
   }
 
 }
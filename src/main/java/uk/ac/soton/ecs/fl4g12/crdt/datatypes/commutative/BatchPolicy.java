@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative;
+
+import java.util.concurrent.TimeUnit;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeliveryScheduler;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.PooledDeliveryScheduler;
+
+/**
+ * Determines how local operations on an {@link AbstractDottedCmRDT} are batched into update
+ * messages. Operations are held until the batch reaches the maximum size or until the linger time
+ * has passed since the first operation in the batch, whichever happens first, and are then
+ * published as a single update message with a single {@link uk.ac.soton.ecs.fl4g12.crdt.order.Dot}.
+ *
+ * Operations are always applied to the local replica immediately, only their replication is
+ * delayed.
+ */
+public final class BatchPolicy {
+
+  /**
+   * A {@linkplain BatchPolicy} which publishes every operation as soon as it is performed.
+   */
+  public static final BatchPolicy NONE = new BatchPolicy(1, 0, TimeUnit.MILLISECONDS, null);
+
+  private final int maxSize;
+  private final long linger;
+  private final TimeUnit unit;
+  private final DeliveryScheduler scheduler;
+
+  /**
+   * Create a {@linkplain BatchPolicy} which uses the
+   * {@linkplain PooledDeliveryScheduler#getShared() shared scheduler} to publish batches which
+   * have reached the linger time.
+   *
+   * @param maxSize the maximum number of operations in a batch.
+   * @param linger the maximum time to hold an operation before publishing it.
+   * @param unit the {@link TimeUnit} of the {@code linger} parameter.
+   */
+  public BatchPolicy(int maxSize, long linger, TimeUnit unit) {
+    this(maxSize, linger, unit, PooledDeliveryScheduler.getShared());
+  }
+
+  /**
+   * Create a {@linkplain BatchPolicy} which uses the given {@link DeliveryScheduler} to publish
+   * batches which have reached the linger time.
+   *
+   * @param maxSize the maximum number of operations in a batch.
+   * @param linger the maximum time to hold an operation before publishing it.
+   * @param unit the {@link TimeUnit} of the {@code linger} parameter.
+   * @param scheduler the {@link DeliveryScheduler} used to publish batches after the linger time.
+   */
+  public BatchPolicy(int maxSize, long linger, TimeUnit unit, DeliveryScheduler scheduler) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+    }
+    if (linger < 0) {
+      throw new IllegalArgumentException("linger must not be negative: " + linger);
+    }
+    this.maxSize = maxSize;
+    this.linger = linger;
+    this.unit = unit;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Get the maximum number of operations in a batch.
+   *
+   * @return the maximum number of operations in a batch.
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Get the maximum time to hold an operation before publishing it.
+   *
+   * @return the linger time in the {@link #getUnit() unit} of this policy.
+   */
+  public long getLinger() {
+    return linger;
+  }
+
+  /**
+   * Get the {@link TimeUnit} of the {@link #getLinger() linger time}.
+   *
+   * @return the {@link TimeUnit} of the linger time.
+   */
+  public TimeUnit getUnit() {
+    return unit;
+  }
+
+  /**
+   * Get the {@link DeliveryScheduler} used to publish batches which have reached the linger time.
+   *
+   * @return the {@link DeliveryScheduler} for this policy.
+   */
+  public DeliveryScheduler getScheduler() {
+    return scheduler;
+  }
+
+  /**
+   * Determine if this policy holds operations at all.
+   *
+   * @return {@code true} if operations may be held before being published, {@code false} if every
+   *         operation is published immediately.
+   */
+  public boolean isBatching() {
+    return maxSize > 1;
+  }
+
+  @Override
+  public String toString() {
+    return "BatchPolicy{" + "maxSize=" + maxSize + ", linger=" + linger + " " + unit + '}';
+  }
+
+}
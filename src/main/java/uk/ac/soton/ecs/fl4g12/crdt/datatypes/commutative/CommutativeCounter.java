@@ -24,11 +24,15 @@ package uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative;
 import uk.ac.soton.ecs.fl4g12.crdt.datatypes.Counter;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeliveryChannel;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.ReliableDeliveryChannel;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.ReplicaGroup;
 import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
 
 /**
  * A {@link CmRDT} {@link Counter} which wraps a local counter to provide commutative replication.
  *
+ * When a {@link BatchPolicy} is used, the increments and decrements in a batch are folded into a
+ * single update for their net effect.
+ *
  * @param <E> the type of the counter value.
  * @param <K> the type of identifier used to identify nodes.
  * @param <T> the type of the timestamp stored in the {@link VersionVector}
@@ -37,6 +41,7 @@ public class CommutativeCounter<E, K, T extends Comparable<T>>
     extends AbstractDottedCmRDT<K, T, CommutativeCounterUpdate<E, K, T>> implements Counter<E> {
 
   private final Counter<E> counter;
+  private long pendingDelta = 0;
 
   /**
    * Create a commutative counter which is replicated by delivering operations to replicas. This
@@ -53,7 +58,56 @@ public class CommutativeCounter<E, K, T extends Comparable<T>>
    */
   public CommutativeCounter(Counter<E> counter, VersionVector<K, T> initialVersion, K identifier,
       ReliableDeliveryChannel<K, CommutativeCounterUpdate<E, K, T>> deliveryChannel) {
-    super(initialVersion, identifier, deliveryChannel);
+    this(counter, initialVersion, identifier, deliveryChannel, BatchPolicy.NONE);
+  }
+
+  /**
+   * Create a commutative counter which is replicated by delivering batches of operations to
+   * replicas. This wraps the provided {@link Counter} and replicates the updates using the provided
+   * {@link DeliveryChannel}.
+   *
+   * @param counter the {@link Counter} which will be used as the local counter.
+   * @param initialVersion the initial {@link VersionVector} which the {@link Counter} should be
+   *        initialised with.
+   * @param identifier the identifier of this instance or {@code null} for it to be assigned by the
+   *        {@link DeliveryChannel}.
+   * @param deliveryChannel the {@link DeliveryChannel} which this {@link Counter} should
+   *        communicate changes over.
+   * @param batchPolicy the {@link BatchPolicy} which determines when operations are published.
+   */
+  public CommutativeCounter(Counter<E> counter, VersionVector<K, T> initialVersion, K identifier,
+      ReliableDeliveryChannel<K, CommutativeCounterUpdate<E, K, T>> deliveryChannel,
+      BatchPolicy batchPolicy) {
+    super(initialVersion, identifier, deliveryChannel, batchPolicy);
+    this.counter = counter;
+  }
+
+  /**
+   * Create a commutative counter which is a member of a {@linkplain ReplicaGroup}. The counter
+   * shares the version and channel of the group and publishes each operation immediately.
+   *
+   * @param <O> the type of identifier used to identify objects within the group.
+   * @param counter the {@link Counter} which will be used as the local counter.
+   * @param group the {@link ReplicaGroup} to join.
+   * @param object the identifier of this object within the group.
+   */
+  public <O> CommutativeCounter(Counter<E> counter, ReplicaGroup<K, T, O> group, O object) {
+    this(counter, group, object, BatchPolicy.NONE);
+  }
+
+  /**
+   * Create a commutative counter which is a member of a {@linkplain ReplicaGroup} and publishes
+   * batches of operations.
+   *
+   * @param <O> the type of identifier used to identify objects within the group.
+   * @param counter the {@link Counter} which will be used as the local counter.
+   * @param group the {@link ReplicaGroup} to join.
+   * @param object the identifier of this object within the group.
+   * @param batchPolicy the {@link BatchPolicy} which determines when operations are published.
+   */
+  public <O> CommutativeCounter(Counter<E> counter, ReplicaGroup<K, T, O> group, O object,
+      BatchPolicy batchPolicy) {
+    super(group, group.<CommutativeCounterUpdate<E, K, T>>channel(object), batchPolicy);
     this.counter = counter;
   }
 
@@ -61,10 +115,10 @@ public class CommutativeCounter<E, K, T extends Comparable<T>>
   protected void effectUpdate(CommutativeCounterUpdate<E, K, T> message) {
     switch (message.getOperation()) {
       case INCREMENT:
-        counter.increment();
+        counter.increment(message.getCount());
         break;
       case DECREMENT:
-        counter.decrement();
+        counter.decrement(message.getCount());
         break;
       default:
         throw new UnsupportedOperationException(
@@ -72,22 +126,69 @@ public class CommutativeCounter<E, K, T extends Comparable<T>>
     }
   }
 
-  public synchronized CommutativeCounterUpdate<E, K, T> createUpdateMessage(
-      CommutativeCounterUpdate.Operation operation) {
-    version.increment();
-    return new CommutativeCounterUpdate<>(version.getDot(identifier), operation);
+  @Override
+  protected CommutativeCounterUpdate<E, K, T> createBatchUpdate() {
+    // The net change is kept within the range of a count by addPending.
+    final int delta = (int) pendingDelta;
+    pendingDelta = 0;
+    if (delta > 0) {
+      return new CommutativeCounterUpdate<>(nextDot(), CommutativeCounterUpdate.Operation.INCREMENT,
+          delta);
+    } else if (delta < 0) {
+      return new CommutativeCounterUpdate<>(nextDot(), CommutativeCounterUpdate.Operation.DECREMENT,
+          -delta);
+    }
+    // Increments and decrements cancelled out.
+    return null;
   }
 
   @Override
   public void increment() {
     counter.increment();
-    getDeliveryChannel().publish(createUpdateMessage(CommutativeCounterUpdate.Operation.INCREMENT));
+    synchronized (this) {
+      addPending(1, 1);
+    }
   }
 
   @Override
   public void decrement() {
     counter.decrement();
-    getDeliveryChannel().publish(createUpdateMessage(CommutativeCounterUpdate.Operation.DECREMENT));
+    synchronized (this) {
+      addPending(-1, 1);
+    }
+  }
+
+  @Override
+  public void increment(int count) {
+    counter.increment(count);
+    synchronized (this) {
+      addPending(count, count);
+    }
+  }
+
+  @Override
+  public void decrement(int count) {
+    counter.decrement(count);
+    synchronized (this) {
+      addPending(-(long) count, count);
+    }
+  }
+
+  /**
+   * Add a change to the net change of the pending batch. If the net change would no longer fit in
+   * the count of a single {@link CommutativeCounterUpdate}, the pending batch is flushed first. Must
+   * be called while holding the lock of this counter.
+   *
+   * @param delta the change to the value of the counter.
+   * @param operations the number of operations which made the change.
+   */
+  private void addPending(long delta, int operations) {
+    final long net = pendingDelta + delta;
+    if (net > Integer.MAX_VALUE || net < -Integer.MAX_VALUE) {
+      flush();
+    }
+    pendingDelta += delta;
+    batched(operations);
   }
 
   @Override
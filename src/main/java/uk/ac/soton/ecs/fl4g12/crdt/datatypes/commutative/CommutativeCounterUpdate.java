@@ -21,13 +21,18 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative;
 
+import java.nio.ByteBuffer;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.AbstractDottedUpdateMessage;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codec;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codecs;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.DotCodec;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.UpdateMessage;
 import uk.ac.soton.ecs.fl4g12.crdt.order.Dot;
 import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
 
 /**
- * {@linkplain UpdateMessage} for {@link CommutativeCounter} representing an increment or decrement.
+ * {@linkplain UpdateMessage} for {@link CommutativeCounter} representing one or more increments or
+ * decrements.
  *
  * @param <E> the type counted by the {@link CommutativeCounter}.
  * @param <K> the type of identifier used to identify nodes.
@@ -37,6 +42,7 @@ public final class CommutativeCounterUpdate<E, K, T extends Comparable<T>>
     extends AbstractDottedUpdateMessage<K, T> {
 
   private final Operation operation;
+  private final int count;
 
   /**
    * Construct a {@link CommutativeTwoPhaseSetUpdate} with a list of elements that were added.
@@ -45,16 +51,72 @@ public final class CommutativeCounterUpdate<E, K, T extends Comparable<T>>
    * @param operation the {@link Operation} that triggered the message.
    */
   public CommutativeCounterUpdate(Dot<K, T> dot, Operation operation) {
+    this(dot, operation, 1);
+  }
+
+  /**
+   * Construct a {@link CommutativeCounterUpdate} representing a batch of the same operation.
+   *
+   * @param dot the {@link Dot} for the update.
+   * @param operation the {@link Operation} that triggered the message.
+   * @param count the number of times the operation was performed.
+   */
+  public CommutativeCounterUpdate(Dot<K, T> dot, Operation operation, int count) {
     super(dot);
+    if (count < 1) {
+      throw new IllegalArgumentException("count must be positive: " + count);
+    }
     this.operation = operation;
+    this.count = count;
   }
 
   public Operation getOperation() {
     return operation;
   }
 
+  /**
+   * Get the number of times the {@link Operation} was performed.
+   *
+   * @return the number of times the {@link Operation} should be applied.
+   */
+  public int getCount() {
+    return count;
+  }
+
   public static enum Operation {
     INCREMENT, DECREMENT;
   }
 
+  /**
+   * Get a {@linkplain Codec} for {@linkplain CommutativeCounterUpdate}s. The update is written as
+   * its dot, the operation and then the count.
+   *
+   * @param <E> the type counted by the {@link CommutativeCounter}.
+   * @param <K> the type of identifier used to identify nodes.
+   * @param <T> the type of the timestamp stored in the {@link VersionVector}
+   * @param dots the {@link Codec} for the dot of the update.
+   * @return a {@link Codec} for {@link CommutativeCounterUpdate}s.
+   */
+  public static <E, K, T extends Comparable<T>> Codec<CommutativeCounterUpdate<E, K, T>> codec(
+      final DotCodec<K, T> dots) {
+    final Codec<Operation> operations = Codecs.enumeration(Operation.class);
+    return new Codec<CommutativeCounterUpdate<E, K, T>>() {
+
+      @Override
+      public void encode(CommutativeCounterUpdate<E, K, T> value, ByteBuffer buffer) {
+        dots.encode(value.version, buffer);
+        operations.encode(value.operation, buffer);
+        Codecs.putVarInt(value.count, buffer);
+      }
+
+      @Override
+      public CommutativeCounterUpdate<E, K, T> decode(ByteBuffer buffer) {
+        Dot<K, T> dot = dots.decode(buffer);
+        Operation operation = operations.decode(buffer);
+        return new CommutativeCounterUpdate<>(dot, operation, Codecs.getVarInt(buffer));
+      }
+
+    };
+  }
+
 }
@@ -30,9 +30,11 @@ import org.openimaj.citation.annotation.ReferenceType;
 import uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent.GSet;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeliveryChannel;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.ReliableDeliveryChannel;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.ReplicaGroup;
 import uk.ac.soton.ecs.fl4g12.crdt.order.HashVersionVector;
 import uk.ac.soton.ecs.fl4g12.crdt.order.LogicalVersion;
 import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
+import uk.ac.soton.ecs.fl4g12.crdt.util.ConcurrentHashSet;
 import uk.ac.soton.ecs.fl4g12.crdt.util.StringUtils;
 
 /**
@@ -44,6 +46,13 @@ import uk.ac.soton.ecs.fl4g12.crdt.util.StringUtils;
  * object cannot be changed by an update message that is out of order for the node it is being
  * delivered from and as such, that no messages have been missed.
  *
+ * When a {@link BatchPolicy} is used, the elements added in a batch are published together in a
+ * single update.
+ *
+ * The elements are held in a {@link ConcurrentHashSet} so that membership checks and iteration do
+ * not lock and concurrent additions of different elements do not contend with each other. Only
+ * additions which change the set synchronise on the object to record them in the pending batch.
+ *
  * @param <E> the type of values stored in the {@link GSet}.
  * @param <K> the type of identifier used to identify nodes.
  * @param <T> the type of the timestamp stored in the {@link VersionVector}
@@ -56,7 +65,8 @@ import uk.ac.soton.ecs.fl4g12.crdt.util.StringUtils;
 public final class CommutativeGSet<E, K, T extends Comparable<T>>
     extends AbstractDottedCmRDT<K, T, CommutativeGSetUpdate<E, K, T>> implements Set<E> {
 
-  private final Set<E> state = new HashSet<>();
+  private final ConcurrentHashSet<E> state = new ConcurrentHashSet<>();
+  private Set<E> pending = new HashSet<>();
 
   /**
    * Construct a {@linkplain GSet}, grow-only set.
@@ -71,7 +81,23 @@ public final class CommutativeGSet<E, K, T extends Comparable<T>>
    */
   public CommutativeGSet(VersionVector<K, T> initialVersion, K identifier,
       ReliableDeliveryChannel<K, CommutativeGSetUpdate<E, K, T>> deliveryChannel) {
-    super(initialVersion, identifier, deliveryChannel);
+    this(initialVersion, identifier, deliveryChannel, BatchPolicy.NONE);
+  }
+
+  /**
+   * Construct a {@linkplain GSet}, grow-only set, which publishes additions in batches.
+   *
+   * @param initialVersion the initial {@link VersionVector} value to use for the {@code version}.
+   * @param identifier the identifier of this instance or {@code null} for it to be assigned by the
+   *        {@link DeliveryChannel}.
+   * @param deliveryChannel the {@link DeliveryChannel} which this object should communicate changes
+   *        over.
+   * @param batchPolicy the {@link BatchPolicy} which determines when additions are published.
+   */
+  public CommutativeGSet(VersionVector<K, T> initialVersion, K identifier,
+      ReliableDeliveryChannel<K, CommutativeGSetUpdate<E, K, T>> deliveryChannel,
+      BatchPolicy batchPolicy) {
+    super(initialVersion, identifier, deliveryChannel, batchPolicy);
   }
 
   /**
@@ -89,35 +115,61 @@ public final class CommutativeGSet<E, K, T extends Comparable<T>>
     this(new HashVersionVector<K, T>(zero), identifier, deliveryChannel);
   }
 
+  /**
+   * Construct a {@linkplain GSet}, grow-only set, as a member of a {@linkplain ReplicaGroup}. The
+   * set shares the version and channel of the group and publishes each addition immediately.
+   *
+   * @param <O> the type of identifier used to identify objects within the group.
+   * @param group the {@link ReplicaGroup} to join.
+   * @param object the identifier of this object within the group.
+   */
+  public <O> CommutativeGSet(ReplicaGroup<K, T, O> group, O object) {
+    this(group, object, BatchPolicy.NONE);
+  }
+
+  /**
+   * Construct a {@linkplain GSet}, grow-only set, as a member of a {@linkplain ReplicaGroup} which
+   * publishes additions in batches.
+   *
+   * @param <O> the type of identifier used to identify objects within the group.
+   * @param group the {@link ReplicaGroup} to join.
+   * @param object the identifier of this object within the group.
+   * @param batchPolicy the {@link BatchPolicy} which determines when additions are published.
+   */
+  public <O> CommutativeGSet(ReplicaGroup<K, T, O> group, O object, BatchPolicy batchPolicy) {
+    super(group, group.<CommutativeGSetUpdate<E, K, T>>channel(object), batchPolicy);
+  }
+
   @Override
-  protected synchronized void effectUpdate(CommutativeGSetUpdate<E, K, T> message) {
+  protected void effectUpdate(CommutativeGSetUpdate<E, K, T> message) {
     state.addAll(message.getElements());
   }
 
-  private CommutativeGSetUpdate<E, K, T> createUpdateMessage(E... elements) {
-    Set<E> elementsSet = new HashSet<>();
-    for (E element : elements) {
-      elementsSet.add(element);
+  @Override
+  protected CommutativeGSetUpdate<E, K, T> createBatchUpdate() {
+    if (pending.isEmpty()) {
+      return null;
     }
-    return createUpdateMessage(elementsSet);
-  }
-
-  private CommutativeGSetUpdate<E, K, T> createUpdateMessage(Set<E> elements) {
-    version.increment();
-    return new CommutativeGSetUpdate<>(version.getDot(identifier), elements);
+    // The message takes ownership of the pending set.
+    CommutativeGSetUpdate<E, K, T> message = new CommutativeGSetUpdate<>(nextDot(), pending);
+    pending = new HashSet<>();
+    return message;
   }
 
   @Override
-  public synchronized boolean add(E element) {
+  public boolean add(E element) {
     if (state.add(element)) {
-      getDeliveryChannel().publish(createUpdateMessage(element));
+      synchronized (this) {
+        pending.add(element);
+        batched(1);
+      }
       return true;
     }
     return false;
   }
 
   @Override
-  public synchronized boolean addAll(Collection<? extends E> collection) {
+  public boolean addAll(Collection<? extends E> collection) {
     Set<E> elements = new HashSet<>(collection.size());
     for (E element : collection) {
       if (state.add(element)) {
@@ -125,7 +177,10 @@ public final class CommutativeGSet<E, K, T extends Comparable<T>>
       }
     }
     if (!elements.isEmpty()) {
-      getDeliveryChannel().publish(createUpdateMessage(elements));
+      synchronized (this) {
+        pending.addAll(elements);
+        batched(elements.size());
+      }
       return true;
     }
     return false;
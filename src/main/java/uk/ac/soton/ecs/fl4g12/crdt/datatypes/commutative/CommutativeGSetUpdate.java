@@ -21,7 +21,12 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative;
 
+import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.Set;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codec;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codecs;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.DotCodec;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.UpdateMessage;
 import uk.ac.soton.ecs.fl4g12.crdt.order.Dot;
 import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
@@ -48,4 +53,35 @@ public final class CommutativeGSetUpdate<E, K, T extends Comparable<T>>
     super(dot, elements);
   }
 
+  /**
+   * Get a {@linkplain Codec} for {@linkplain CommutativeGSetUpdate}s. The update is written as its
+   * dot followed by the elements that were added.
+   *
+   * @param <E> the type of values stored in the {@link CommutativeGSet}.
+   * @param <K> the type of identifier used to identify nodes.
+   * @param <T> the type of the timestamp stored in the {@link VersionVector}
+   * @param dots the {@link Codec} for the dot of the update.
+   * @param elements the {@link Codec} for the elements of the set.
+   * @return a {@link Codec} for {@link CommutativeGSetUpdate}s.
+   */
+  public static <E, K, T extends Comparable<T>> Codec<CommutativeGSetUpdate<E, K, T>> codec(
+      final DotCodec<K, T> dots, Codec<E> elements) {
+    final Codec<Set<E>> set = Codecs.set(elements);
+    return new Codec<CommutativeGSetUpdate<E, K, T>>() {
+
+      @Override
+      public void encode(CommutativeGSetUpdate<E, K, T> value, ByteBuffer buffer) {
+        dots.encode(value.version, buffer);
+        set.encode(Collections.unmodifiableSet(value.elements), buffer);
+      }
+
+      @Override
+      public CommutativeGSetUpdate<E, K, T> decode(ByteBuffer buffer) {
+        Dot<K, T> dot = dots.decode(buffer);
+        return new CommutativeGSetUpdate<>(dot, set.decode(buffer));
+      }
+
+    };
+  }
+
 }
@@ -21,8 +21,8 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative;
 
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -33,9 +33,12 @@ import uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative.SetUpdateMessage.Operat
 import uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent.GSet;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeliveryChannel;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.ReliableDeliveryChannel;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.ReplicaGroup;
 import uk.ac.soton.ecs.fl4g12.crdt.order.HashVersionVector;
 import uk.ac.soton.ecs.fl4g12.crdt.order.LogicalVersion;
 import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
+import uk.ac.soton.ecs.fl4g12.crdt.util.ConcurrentTombstoneSet;
+import uk.ac.soton.ecs.fl4g12.crdt.util.ConcurrentTombstoneSet.State;
 import uk.ac.soton.ecs.fl4g12.crdt.util.StringUtils;
 
 /**
@@ -50,6 +53,16 @@ import uk.ac.soton.ecs.fl4g12.crdt.util.StringUtils;
  * object cannot be changed by an update message that is out of order for the node it is being
  * delivered from and as such, that no messages have been missed.
  *
+ * When a {@link BatchPolicy} is used, consecutive operations of the same kind are published
+ * together in a single update. The pending batch is flushed whenever the kind of operation changes
+ * so that additions and removals are replicated in the order they were performed.
+ *
+ * The elements are held in a {@link ConcurrentTombstoneSet} which maps each element to whether it
+ * has been added or removed, so that a removed element is only stored once, the size is maintained
+ * rather than derived, membership checks and iteration do not lock and concurrent operations on
+ * different elements do not contend with each other. Only operations which change the set
+ * synchronise on the object to record them in the pending batch.
+ *
  * @param <E> the type of values stored in the {@link GSet}.
  * @param <K> the type of identifier used to identify nodes.
  * @param <T> the type of the timestamp stored in the {@link VersionVector}
@@ -62,8 +75,9 @@ import uk.ac.soton.ecs.fl4g12.crdt.util.StringUtils;
 public final class CommutativeTwoPhaseSet<E, K, T extends Comparable<T>>
     extends AbstractDottedCmRDT<K, T, CommutativeTwoPhaseSetUpdate<E, K, T>> implements Set<E> {
 
-  private final Set<E> additions = new HashSet<>();
-  private final Set<E> removals = new HashSet<>();
+  private final ConcurrentTombstoneSet<E> elements = new ConcurrentTombstoneSet<>();
+  private Set<E> pending = new HashSet<>();
+  private Operation pendingOperation = null;
 
   /**
    * Construct a {@linkplain GSet}, grow-only set.
@@ -78,7 +92,23 @@ public final class CommutativeTwoPhaseSet<E, K, T extends Comparable<T>>
    */
   public CommutativeTwoPhaseSet(VersionVector<K, T> initialVersion, K identifier,
       ReliableDeliveryChannel<K, CommutativeTwoPhaseSetUpdate<E, K, T>> deliveryChannel) {
-    super(initialVersion, identifier, deliveryChannel);
+    this(initialVersion, identifier, deliveryChannel, BatchPolicy.NONE);
+  }
+
+  /**
+   * Construct a {@linkplain CommutativeTwoPhaseSet} which publishes operations in batches.
+   *
+   * @param initialVersion the initial {@link VersionVector} value to use for the {@code version}.
+   * @param identifier the identifier of this instance or {@code null} for it to be assigned by the
+   *        {@link DeliveryChannel}.
+   * @param deliveryChannel the {@link DeliveryChannel} which this object should communicate changes
+   *        over.
+   * @param batchPolicy the {@link BatchPolicy} which determines when operations are published.
+   */
+  public CommutativeTwoPhaseSet(VersionVector<K, T> initialVersion, K identifier,
+      ReliableDeliveryChannel<K, CommutativeTwoPhaseSetUpdate<E, K, T>> deliveryChannel,
+      BatchPolicy batchPolicy) {
+    super(initialVersion, identifier, deliveryChannel, batchPolicy);
   }
 
   /**
@@ -96,34 +126,79 @@ public final class CommutativeTwoPhaseSet<E, K, T extends Comparable<T>>
     this(new HashVersionVector<K, T>(zero), identifier, deliveryChannel);
   }
 
+  /**
+   * Construct a {@linkplain CommutativeTwoPhaseSet} as a member of a {@linkplain ReplicaGroup}. The
+   * set shares the version and channel of the group and publishes each operation immediately.
+   *
+   * @param <O> the type of identifier used to identify objects within the group.
+   * @param group the {@link ReplicaGroup} to join.
+   * @param object the identifier of this object within the group.
+   */
+  public <O> CommutativeTwoPhaseSet(ReplicaGroup<K, T, O> group, O object) {
+    this(group, object, BatchPolicy.NONE);
+  }
+
+  /**
+   * Construct a {@linkplain CommutativeTwoPhaseSet} as a member of a {@linkplain ReplicaGroup}
+   * which publishes operations in batches.
+   *
+   * @param <O> the type of identifier used to identify objects within the group.
+   * @param group the {@link ReplicaGroup} to join.
+   * @param object the identifier of this object within the group.
+   * @param batchPolicy the {@link BatchPolicy} which determines when operations are published.
+   */
+  public <O> CommutativeTwoPhaseSet(ReplicaGroup<K, T, O> group, O object,
+      BatchPolicy batchPolicy) {
+    super(group, group.<CommutativeTwoPhaseSetUpdate<E, K, T>>channel(object), batchPolicy);
+  }
+
   @Override
-  protected synchronized void effectUpdate(CommutativeTwoPhaseSetUpdate<E, K, T> message) {
-    // Add to the add set regardless of if this is an add or remove
-    additions.addAll(message.getElements());
-    // Add to the remove set if the operation was a remove operation
+  protected void effectUpdate(CommutativeTwoPhaseSetUpdate<E, K, T> message) {
     if (message.getOperation() == Operation.REMOVE) {
-      removals.addAll(message.getElements());
+      for (E element : message.getElements()) {
+        elements.tombstone(element);
+      }
+    } else {
+      elements.addAll(message.getElements());
     }
   }
 
-  private CommutativeTwoPhaseSetUpdate<E, K, T> createUpdateMessage(Operation operation,
-      E... elements) {
-    return createUpdateMessage(operation, new HashSet<>(Arrays.asList(elements)));
+  @Override
+  protected CommutativeTwoPhaseSetUpdate<E, K, T> createBatchUpdate() {
+    if (pending.isEmpty()) {
+      return null;
+    }
+    // The message takes ownership of the pending set.
+    CommutativeTwoPhaseSetUpdate<E, K, T> message =
+        new CommutativeTwoPhaseSetUpdate<>(nextDot(), pendingOperation, pending);
+    pending = new HashSet<>();
+    return message;
   }
 
-  private CommutativeTwoPhaseSetUpdate<E, K, T> createUpdateMessage(Operation operation,
-      Set<? extends E> elements) {
-    version.increment();
-    return new CommutativeTwoPhaseSetUpdate<E, K, T>(version.getDot(identifier), operation,
-        elements);
+  /**
+   * Add elements to the pending batch, flushing the batch first if it holds a different operation.
+   * Must be called while synchronized on this object.
+   *
+   * @param operation the {@link Operation} performed on the elements.
+   * @param elements the elements which the operation was performed on.
+   */
+  private void batch(Operation operation, Collection<? extends E> elements) {
+    if (operation != pendingOperation) {
+      flush();
+      pendingOperation = operation;
+    }
+    pending.addAll(elements);
+    batched(elements.size());
   }
 
   @Override
-  public synchronized boolean add(E element) {
-    if (additions.add(element)) {
-      getDeliveryChannel().publish(createUpdateMessage(Operation.ADD, element));
+  public boolean add(E element) {
+    if (elements.add(element)) {
+      synchronized (this) {
+        batch(Operation.ADD, Collections.singleton(element));
+      }
       return true;
-    } else if (removals.contains(element)) {
+    } else if (elements.isRemoved(element)) {
       throw new IllegalInsertionException("Can't add an element that has already been removed.",
           element);
     }
@@ -131,28 +206,34 @@ public final class CommutativeTwoPhaseSet<E, K, T extends Comparable<T>>
   }
 
   @Override
-  public synchronized boolean addAll(Collection<? extends E> collection) {
+  public boolean addAll(Collection<? extends E> collection) {
     // If there are no elements to add, return early.
     if (collection.isEmpty()) {
       return false;
     }
 
     // Determine if attempting to add elements that have already been removed.
-    HashSet<? extends E> failedElements = new HashSet<>(collection);
-    failedElements.retainAll(removals);
+    HashSet<E> failedElements = new HashSet<>();
+    for (E element : collection) {
+      if (elements.isRemoved(element)) {
+        failedElements.add(element);
+      }
+    }
     if (!failedElements.isEmpty()) {
       throw new IllegalInsertionException(failedElements);
     }
 
     // Add the elements
-    Set<E> elements = new HashSet<>(collection.size());
+    Set<E> added = new HashSet<>(collection.size());
     for (E element : collection) {
-      if (additions.add(element)) {
-        elements.add(element);
+      if (elements.add(element)) {
+        added.add(element);
       }
     }
-    if (!elements.isEmpty()) {
-      getDeliveryChannel().publish(createUpdateMessage(Operation.ADD, elements));
+    if (!added.isEmpty()) {
+      synchronized (this) {
+        batch(Operation.ADD, added);
+      }
       return true;
     }
     return false;
@@ -162,14 +243,13 @@ public final class CommutativeTwoPhaseSet<E, K, T extends Comparable<T>>
   public boolean remove(Object object) {
     try {
       E element = (E) object;
-      synchronized (this) {
-        boolean added = additions.add(element);
-        boolean removed = removals.add(element);
-        if (removed) {
-          getDeliveryChannel().publish(createUpdateMessage(Operation.REMOVE, element));
+      State previous = elements.tombstone(element);
+      if (previous != State.REMOVED) {
+        synchronized (this) {
+          batch(Operation.REMOVE, Collections.singleton(element));
         }
-        return !added && removed;
       }
+      return previous == State.ADDED;
     } catch (ClassCastException ex) {
       // Catch the exception, element can't have been an element of removals and so false will be
       // returned.
@@ -179,16 +259,16 @@ public final class CommutativeTwoPhaseSet<E, K, T extends Comparable<T>>
 
   @Override
   public boolean removeAll(Collection<?> collection) {
-    final Collection<E> elements = new HashSet<>();
+    final Collection<E> remove = new HashSet<>();
     for (Object obj : collection) {
       try {
-        elements.add((E) obj);
+        remove.add((E) obj);
       } catch (ClassCastException ex) {
         // Catch the exception, element can't have been an element of removals and so we won't try
         // to remove it.
       }
     }
-    return removeAllInternal(elements);
+    return removeAllInternal(remove);
   }
 
   /**
@@ -201,28 +281,29 @@ public final class CommutativeTwoPhaseSet<E, K, T extends Comparable<T>>
     if (collection.isEmpty()) {
       return false;
     }
-    synchronized (this) {
-      Set<E> elements = new HashSet<>();
-      boolean modified = false;
-      for (E element : collection) {
-        // If its already in the remove set, assume it doesn't need to be added to the additions set
-        if (removals.add(element)) {
-          if (!additions.add(element)) {
-            // If the element already existed then the set can be considered modified.
-            modified = true;
-          }
-          elements.add(element);
+    Set<E> removed = new HashSet<>();
+    boolean modified = false;
+    for (E element : collection) {
+      // If its already been removed, there is nothing to publish.
+      State previous = elements.tombstone(element);
+      if (previous != State.REMOVED) {
+        if (previous == State.ADDED) {
+          // If the element already existed then the set can be considered modified.
+          modified = true;
         }
+        removed.add(element);
       }
-      if (!elements.isEmpty()) {
-        getDeliveryChannel().publish(createUpdateMessage(Operation.REMOVE, elements));
+    }
+    if (!removed.isEmpty()) {
+      synchronized (this) {
+        batch(Operation.REMOVE, removed);
       }
-      return modified;
     }
+    return modified;
   }
 
   @Override
-  public synchronized boolean retainAll(Collection<?> c) {
+  public boolean retainAll(Collection<?> c) {
     final Collection<E> remove = new HashSet<>();
     for (E element : this) {
       if (!c.contains(element)) {
@@ -233,36 +314,38 @@ public final class CommutativeTwoPhaseSet<E, K, T extends Comparable<T>>
   }
 
   @Override
-  public synchronized void clear() {
+  public void clear() {
     // Avoid publishing to the network if there are no changes to make.
     if (isEmpty()) {
       return;
     }
 
-    Set<E> elements = new HashSet<>();
-    for (E element : additions) {
-      if (removals.add(element)) {
-        elements.add(element);
+    Set<E> removed = new HashSet<>();
+    for (E element : elements) {
+      if (elements.tombstone(element) == State.ADDED) {
+        removed.add(element);
       }
     }
-    if (!elements.isEmpty()) {
-      getDeliveryChannel().publish(createUpdateMessage(Operation.REMOVE, elements));
+    if (!removed.isEmpty()) {
+      synchronized (this) {
+        batch(Operation.REMOVE, removed);
+      }
     }
   }
 
   @Override
   public boolean contains(Object o) {
-    return additions.contains(o) && !removals.contains(o);
+    return elements.contains(o);
   }
 
   @Override
   public boolean containsAll(Collection<?> c) {
-    return getElements().containsAll(c);
+    return elements.containsAll(c);
   }
 
   @Override
   public int size() {
-    return additions.size() - removals.size();
+    return elements.size();
   }
 
   @Override
@@ -270,46 +353,35 @@ public final class CommutativeTwoPhaseSet<E, K, T extends Comparable<T>>
     return size() == 0;
   }
 
-  protected HashSet<E> getElements() {
-    HashSet<E> elements;
-    HashSet<E> notElements;
-    synchronized (this) {
-      elements = new HashSet<>(additions);
-      notElements = new HashSet<>(removals);
-    }
-    elements.removeAll(notElements);
-    return elements;
-  }
-
   @Override
   public Iterator<E> iterator() {
-    return new CommutativeTwoPhaseSet.IteratorWrapper(getElements().iterator());
+    return new CommutativeTwoPhaseSet.IteratorWrapper(elements.iterator());
   }
 
   @Override
   public Object[] toArray() {
-    return getElements().toArray();
+    return elements.toArray();
   }
 
   @Override
   public <T> T[] toArray(T[] a) {
-    return getElements().toArray(a);
+    return elements.toArray(a);
   }
 
   @Override
   public boolean equals(Object o) {
-    return getElements().equals(o);
+    return elements.equals(o);
   }
 
   @Override
   public int hashCode() {
-    return getElements().hashCode();
+    return elements.hashCode();
   }
 
   @Override
   protected String toStringMore() {
-    return super.toStringMore() + "additions=" + StringUtils.getCollectionString(additions)
-        + ", removals=" + StringUtils.getCollectionString(removals) + ", ";
+    return super.toStringMore() + "elements=" + StringUtils.getCollectionString(elements)
+        + ", removed=" + elements.removedSize() + ", ";
   }
 
   /**
@@ -21,8 +21,13 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative;
 
+import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.Set;
 import uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative.SetUpdateMessage.Operation;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codec;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codecs;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.DotCodec;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.UpdateMessage;
 import uk.ac.soton.ecs.fl4g12.crdt.order.Dot;
 import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
@@ -51,4 +56,38 @@ public final class CommutativeTwoPhaseSetUpdate<E, K, T extends Comparable<T>>
     super(dot, operation, elements);
   }
 
+  /**
+   * Get a {@linkplain Codec} for {@linkplain CommutativeTwoPhaseSetUpdate}s. The update is written
+   * as its dot, the operation and then the elements that were added or removed.
+   *
+   * @param <E> the type of values stored in the {@link CommutativeTwoPhaseSet}.
+   * @param <K> the type of identifier used to identify nodes.
+   * @param <T> the type of the timestamp stored in the {@link VersionVector}
+   * @param dots the {@link Codec} for the dot of the update.
+   * @param elements the {@link Codec} for the elements of the set.
+   * @return a {@link Codec} for {@link CommutativeTwoPhaseSetUpdate}s.
+   */
+  public static <E, K, T extends Comparable<T>> Codec<CommutativeTwoPhaseSetUpdate<E, K, T>> codec(
+      final DotCodec<K, T> dots, Codec<E> elements) {
+    final Codec<Operation> operations = Codecs.enumeration(Operation.class);
+    final Codec<Set<E>> set = Codecs.set(elements);
+    return new Codec<CommutativeTwoPhaseSetUpdate<E, K, T>>() {
+
+      @Override
+      public void encode(CommutativeTwoPhaseSetUpdate<E, K, T> value, ByteBuffer buffer) {
+        dots.encode(value.version, buffer);
+        operations.encode(value.getOperation(), buffer);
+        set.encode(Collections.unmodifiableSet(value.elements), buffer);
+      }
+
+      @Override
+      public CommutativeTwoPhaseSetUpdate<E, K, T> decode(ByteBuffer buffer) {
+        Dot<K, T> dot = dots.decode(buffer);
+        Operation operation = operations.decode(buffer);
+        return new CommutativeTwoPhaseSetUpdate<>(dot, operation, set.decode(buffer));
+      }
+
+    };
+  }
+
 }
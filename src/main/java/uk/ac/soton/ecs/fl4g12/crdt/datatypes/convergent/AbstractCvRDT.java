@@ -39,9 +39,26 @@ public abstract class AbstractCvRDT<K, T extends Comparable<T>, M extends StateS
     extends AbstractVersionedUpdatable<K, T, M, StateDeliveryChannel<K, M>, AbstractCvRDT<K, T, M>>
     implements CvRDT<K, VersionVector<K, T>, M> {
 
+  private final VersionVector<K, T> deltaBase;
+
   public AbstractCvRDT(VersionVector<K, T> initialVersion, K identifier,
       StateDeliveryChannel<K, M> deliveryChannel) {
     super(initialVersion, identifier, deliveryChannel);
+    this.deltaBase = initialVersion.copy();
+  }
+
+  /**
+   * Create the version vector of a delta state from one of the version vectors of this
+   * {@linkplain AbstractCvRDT}. Since a delta state only contains local changes, only the timestamp
+   * of this node is taken from the {@code source}; the rest of the vector is the initial version.
+   *
+   * @param source the version vector to take the timestamp of this node from.
+   * @return a new version vector for use in a delta state.
+   */
+  protected final VersionVector<K, T> deltaVersion(VersionVector<K, T> source) {
+    VersionVector<K, T> delta = deltaBase.copy();
+    delta.sync(source.getDot(identifier));
+    return delta;
   }
 
 }
@@ -21,12 +21,14 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent;
 
+import java.util.concurrent.atomic.LongAdder;
 import org.openimaj.citation.annotation.Reference;
 import org.openimaj.citation.annotation.ReferenceType;
 import uk.ac.soton.ecs.fl4g12.crdt.datatypes.CRDT;
 import uk.ac.soton.ecs.fl4g12.crdt.datatypes.Counter;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeliveryChannel;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeliveryUpdateException;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeltaStatefulUpdatable;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.StateDeliveryChannel;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.UpdateMessage;
 import uk.ac.soton.ecs.fl4g12.crdt.order.HashVersionVector;
@@ -41,6 +43,14 @@ import uk.ac.soton.ecs.fl4g12.crdt.util.LongArithmetic;
  * Grow only {@linkplain CRDT} {@linkplain Counter} using the version vector as the counter of
  * increments at each node.
  *
+ * Local increments are accumulated in a striped {@link LongAdder} so that many threads can
+ * increment the same replica without contending on its monitor. The accumulated increments are
+ * folded into the version vector whenever the value, version or state of the counter is read, so
+ * these remain consistent with each other and include every increment which has completed.
+ *
+ * The value of the counter is maintained as the timestamps advance so that reading it does not
+ * require summing the version vector.
+ *
  * @param <E> the type of the counter value.
  * @param <K> the type of identifier used to identify nodes.
  */
@@ -50,9 +60,21 @@ import uk.ac.soton.ecs.fl4g12.crdt.util.LongArithmetic;
     institution = "inria", year = "2011", url = "https://hal.inria.fr/inria-00555588",
     pages = {"14", "15"})
 public final class GCounter<E extends Comparable<E>, K>
-    extends AbstractCvRDT<K, E, GCounterState<E, K>> implements Counter<E> {
+    extends AbstractCvRDT<K, E, GCounterState<E, K>>
+    implements Counter<E>, DeltaStatefulUpdatable<K, VersionVector<K, E>, GCounterState<E, K>> {
 
   private final Arithmetic<E> arithmetic;
+  private final LongAdder increments = new LongAdder();
+
+  /**
+   * The sum of the timestamps of the version vector, excluding increments which are yet to be
+   * folded.
+   */
+  private E total;
+  private boolean deltaTracking = false;
+  private boolean deltaChanged = false;
+  // Set once folding the increments has overflowed, after which increments are rejected.
+  private volatile boolean overflowed = false;
 
   /**
    * Construct a grow only counter that uses its {@linkplain VersionVector} as the state.
@@ -71,11 +93,21 @@ public final class GCounter<E extends Comparable<E>, K>
       StateDeliveryChannel<K, GCounterState<E, K>> deliveryChannel) {
     super(initialVersion, identifier, deliveryChannel);
     this.arithmetic = arithmetic;
+    this.total = arithmetic.add(version.get().values());
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @throws ArithmeticException if folding earlier increments has overflowed the timestamp of this
+   *         node.
+   */
   @Override
-  public synchronized void increment() {
-    version.increment();
+  public void increment() {
+    if (overflowed) {
+      throw new ArithmeticException("Arithmetic overflow");
+    }
+    increments.increment();
     getDeliveryChannel().publish();
   }
 
@@ -85,20 +117,110 @@ public final class GCounter<E extends Comparable<E>, K>
   }
 
   @Override
-  public E value() {
-    return arithmetic.add(version.get().values());
+  public synchronized E value() {
+    foldLocalChanges();
+    return total;
   }
 
   @Override
   public synchronized void update(GCounterState<E, K> message) throws DeliveryUpdateException {
-    version.sync(message.getVersion());
+    total = arithmetic.add(total, sync(arithmetic, version, message.getVersion()));
   }
 
   @Override
   public synchronized GCounterState<E, K> snapshot() {
+    foldLocalChanges();
     return new GCounterState<>(identifier, version);
   }
 
+  @Override
+  public synchronized GCounterState<E, K> delta() {
+    foldLocalChanges();
+    if (!deltaTracking) {
+      return restartDelta();
+    }
+    if (!deltaChanged) {
+      return null;
+    }
+    deltaChanged = false;
+    return new GCounterState<>(identifier, deltaVersion(version));
+  }
+
+  @Override
+  public synchronized GCounterState<E, K> restartDelta() {
+    final GCounterState<E, K> snapshot = snapshot();
+    deltaTracking = true;
+    deltaChanged = false;
+    return snapshot;
+  }
+
+  /**
+   * Fold the increments accumulated by {@link #increment()} into the timestamp of this node. If
+   * the timestamp would overflow, the increments are kept and any further increments are rejected.
+   *
+   * @throws ArithmeticException if the timestamp of this node would overflow.
+   */
+  @Override
+  protected synchronized void foldLocalChanges() {
+    final long pending = increments.sum();
+    if (pending == 0) {
+      return;
+    }
+    final E timestamp;
+    try {
+      timestamp = advance(version.get(identifier), pending);
+    } catch (ArithmeticException ex) {
+      overflowed = true;
+      throw ex;
+    }
+    // Only remove what has been folded so that concurrent increments are kept for the next fold.
+    increments.add(-pending);
+    version.sync(identifier, timestamp);
+    total = arithmetic.add(total, arithmetic.valueOf(pending));
+    deltaChanged = true;
+  }
+
+  /**
+   * Synchronise a local version vector with a remote one, computing how much the sum of the
+   * timestamps of the local vector increased by. Only the entries of the remote vector are visited.
+   *
+   * @param <K> the type of identifier used to identify nodes.
+   * @param <E> the type of the timestamps.
+   * @param arithmetic the {@link Arithmetic} used to sum the timestamps.
+   * @param local the version vector to synchronise.
+   * @param remote the version vector to synchronise with.
+   * @return the increase in the sum of the timestamps of {@code local}.
+   */
+  static <K, E extends Comparable<E>> E sync(Arithmetic<E> arithmetic,
+      VersionVector<K, E> local, VersionVector<K, E> remote) {
+    E increase = arithmetic.getZero();
+    for (K id : remote.getIdentifiers()) {
+      final E remoteTimestamp = remote.get(id);
+      final E localTimestamp = local.get(id);
+      if (remoteTimestamp.compareTo(localTimestamp) > 0) {
+        increase = arithmetic.add(increase, arithmetic.sub(remoteTimestamp, localTimestamp));
+      }
+    }
+    local.sync(remote);
+    return increase;
+  }
+
+  /**
+   * Advance a timestamp by the given number of increments.
+   *
+   * @param timestamp the timestamp to advance.
+   * @param increments the number of increments to advance the timestamp by.
+   * @return the advanced timestamp.
+   * @throws ArithmeticException if the timestamp would overflow.
+   */
+  private E advance(E timestamp, long increments) {
+    final E advanced = arithmetic.add(timestamp, arithmetic.valueOf(increments));
+    if (advanced.compareTo(timestamp) < 0) {
+      throw new ArithmeticException("Arithmetic overflow");
+    }
+    return advanced;
+  }
+
   @Override
   protected String toStringMore() {
     return super.toStringMore() + "value=" + value() + ", ";
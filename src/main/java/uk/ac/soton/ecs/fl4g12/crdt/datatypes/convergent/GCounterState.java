@@ -21,8 +21,11 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent;
 
+import java.nio.ByteBuffer;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.AbstractVersionedUpdateMessage;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codec;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.StateSnapshot;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.VersionVectorCodec;
 import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
 
 /**
@@ -50,4 +53,34 @@ public final class GCounterState<E extends Comparable<E>, K>
     return "GCounterState{" + "identifier=" + identifier + ", version=" + version + '}';
   }
 
+
+  /**
+   * Get a {@linkplain Codec} for {@linkplain GCounterState}s. The state is written as the
+   * identifier and then the version, which holds the value of the counter.
+   *
+   * @param <E> the type of counter value.
+   * @param <K> the type of identifier used to identify nodes.
+   * @param versions the {@link Codec} for identifiers and versions.
+   * @return a {@link Codec} for {@link GCounterState}s.
+   */
+  public static <E extends Comparable<E>, K> Codec<GCounterState<E, K>> codec(
+      final VersionVectorCodec<K, E> versions) {
+    final Codec<K> identifiers = versions.getIdentifierCodec();
+    return new Codec<GCounterState<E, K>>() {
+
+      @Override
+      public void encode(GCounterState<E, K> value, ByteBuffer buffer) {
+        identifiers.encode(value.identifier, buffer);
+        versions.encode(value.version, buffer);
+      }
+
+      @Override
+      public GCounterState<E, K> decode(ByteBuffer buffer) {
+        K identifier = identifiers.decode(buffer);
+        return new GCounterState<>(identifier, versions.decode(buffer));
+      }
+
+    };
+  }
+
 }
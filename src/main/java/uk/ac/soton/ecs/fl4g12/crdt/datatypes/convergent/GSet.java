@@ -22,17 +22,18 @@
 package uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent;
 
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 import org.openimaj.citation.annotation.Reference;
 import org.openimaj.citation.annotation.ReferenceType;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeliveryChannel;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeliveryUpdateException;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeltaStatefulUpdatable;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.StateDeliveryChannel;
 import uk.ac.soton.ecs.fl4g12.crdt.order.HashVersionVector;
 import uk.ac.soton.ecs.fl4g12.crdt.order.LogicalVersion;
 import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
+import uk.ac.soton.ecs.fl4g12.crdt.util.PersistentHashSet;
 import uk.ac.soton.ecs.fl4g12.crdt.util.StringUtils;
 
 /**
@@ -48,9 +49,19 @@ import uk.ac.soton.ecs.fl4g12.crdt.util.StringUtils;
     institution = "inria", year = "2011", url = "https://hal.inria.fr/inria-00555588",
     pages = {"21", "22"})
 public final class GSet<E, K, T extends Comparable<T>>
-    extends AbstractCvRDT<K, T, GSetState<E, K, T>> implements Set<E> {
+    extends AbstractCvRDT<K, T, GSetState<E, K, T>>
+    implements Set<E>, DeltaStatefulUpdatable<K, VersionVector<K, T>, GSetState<E, K, T>> {
 
-  private final Set<E> state = new HashSet<>();
+  /**
+   * The elements of the set. Since the set is persistent it can be shared with snapshots and
+   * iterators and is replaced, rather than modified, when elements are added.
+   */
+  private volatile PersistentHashSet<E> state = PersistentHashSet.empty();
+
+  /**
+   * The elements added since the last state message or {@code null} until delta tracking starts.
+   */
+  private PersistentHashSet<E> delta = null;
 
   /**
    * Construct a {@linkplain GSet}, grow-only set.
@@ -85,7 +96,7 @@ public final class GSet<E, K, T extends Comparable<T>>
 
   @Override
   public synchronized void update(GSetState<E, K, T> message) throws DeliveryUpdateException {
-    state.addAll(message.getState());
+    state = state.plusAll(message.getState());
     version.sync(message.getVersion());
   }
 
@@ -94,9 +105,33 @@ public final class GSet<E, K, T extends Comparable<T>>
     return new GSetState<>(identifier, version, state);
   }
 
+  @Override
+  public synchronized GSetState<E, K, T> delta() {
+    if (delta == null) {
+      return restartDelta();
+    }
+    if (delta.isEmpty()) {
+      return null;
+    }
+    GSetState<E, K, T> message = new GSetState<>(identifier, deltaVersion(version), delta, true);
+    delta = PersistentHashSet.empty();
+    return message;
+  }
+
+  @Override
+  public synchronized GSetState<E, K, T> restartDelta() {
+    delta = PersistentHashSet.empty();
+    return snapshot();
+  }
+
   @Override
   public synchronized boolean add(E element) {
-    if (state.add(element)) {
+    final PersistentHashSet<E> newState = state.plus(element);
+    if (newState != state) {
+      state = newState;
+      if (delta != null) {
+        delta = delta.plus(element);
+      }
       version.increment();
       getDeliveryChannel().publish();
       return true;
@@ -106,7 +141,12 @@ public final class GSet<E, K, T extends Comparable<T>>
 
   @Override
   public synchronized boolean addAll(Collection<? extends E> collection) {
-    if (state.addAll(collection)) {
+    final PersistentHashSet<E> newState = state.plusAll(collection);
+    if (newState != state) {
+      state = newState;
+      if (delta != null) {
+        delta = delta.plusAll(collection);
+      }
       version.increment();
       getDeliveryChannel().publish();
       return true;
@@ -21,10 +21,14 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent;
 
-import java.util.HashSet;
+import java.nio.ByteBuffer;
 import java.util.Set;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.AbstractVersionedUpdateMessage;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codec;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codecs;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.VersionVectorCodec;
 import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
+import uk.ac.soton.ecs.fl4g12.crdt.util.PersistentHashSet;
 
 /**
  * Representation of the state for a {@linkplain GSet}.
@@ -37,34 +41,56 @@ public final class GSetState<E, K, T extends Comparable<T>>
     extends AbstractVersionedUpdateMessage<K, VersionVector<K, T>>
     implements SetState<E, K, VersionVector<K, T>> {
 
-  private final Set<E> state;
+  private final PersistentHashSet<E> state;
+  private final boolean delta;
 
   /**
-   * Instantiate a new {@linkplain GSetState}.
+   * Instantiate a new {@linkplain GSetState}. The state is only copied if it is not already a
+   * {@link PersistentHashSet}.
    *
    * @param identifier the identifier of the instance that was updated.
    * @param versionVector the version as a result of the update.
    * @param state the state of the {@linkplain GSet}.
    */
   GSetState(K identifier, VersionVector<K, T> versionVector, Set<E> state) {
+    this(identifier, versionVector, state, false);
+  }
+
+  /**
+   * Instantiate a new {@linkplain GSetState} which may be a delta. The state is only copied if it
+   * is not already a {@link PersistentHashSet}.
+   *
+   * @param identifier the identifier of the instance that was updated.
+   * @param versionVector the version as a result of the update.
+   * @param state the state of the {@linkplain GSet}.
+   * @param delta whether the state only holds the elements added since the previous message.
+   */
+  GSetState(K identifier, VersionVector<K, T> versionVector, Set<E> state, boolean delta) {
     super(identifier, versionVector);
-    this.state = new HashSet<>(state);
+    this.state = PersistentHashSet.copyOf(state);
+    this.delta = delta;
   }
 
   /**
-   * Get a copy of the set of elements that have been added to the {@link GSet}.
+   * Get the immutable set of elements that have been added to the {@link GSet}.
    *
-   * @return a copy of the set of elements that have been added to the {@link GSet}.
+   * @return the immutable set of elements that have been added to the {@link GSet}.
    */
   @Override
   public Set<E> getState() {
-    return new HashSet<>(state);
+    return state;
+  }
+
+  @Override
+  public boolean isDelta() {
+    return delta;
   }
 
   @Override
   public int hashCode() {
     int hash = super.hashCode();
     hash = 97 * hash + this.state.hashCode();
+    hash = 97 * hash + (this.delta ? 1 : 0);
     return hash;
   }
 
@@ -74,6 +100,9 @@ public final class GSetState<E, K, T extends Comparable<T>>
       return false;
     }
     final GSetState<?, ?, ?> other = (GSetState<?, ?, ?>) obj;
+    if (this.delta != other.delta) {
+      return false;
+    }
     if (!this.state.equals(other.state)) {
       return false;
     }
@@ -83,7 +112,44 @@ public final class GSetState<E, K, T extends Comparable<T>>
   @Override
   public String toString() {
     return "GSetState{" + "identifier=" + identifier + ", version=" + version + ", state=" + state
-        + '}';
+        + ", delta=" + delta + '}';
+  }
+
+
+  /**
+   * Get a {@linkplain Codec} for {@linkplain GSetState}s. The state is written as the identifier,
+   * the version, a byte which is {@code 1} for a delta and then the elements of the set.
+   *
+   * @param <E> the type of values stored in the {@link GSet}.
+   * @param <K> the type of identifier used to identify nodes.
+   * @param <T> the type of the timestamp stored in the {@link VersionVector}
+   * @param versions the {@link Codec} for identifiers and versions.
+   * @param elements the {@link Codec} for the elements of the set.
+   * @return a {@link Codec} for {@link GSetState}s.
+   */
+  public static <E, K, T extends Comparable<T>> Codec<GSetState<E, K, T>> codec(
+      final VersionVectorCodec<K, T> versions, Codec<E> elements) {
+    final Codec<K> identifiers = versions.getIdentifierCodec();
+    final Codec<Set<E>> set = Codecs.set(elements);
+    return new Codec<GSetState<E, K, T>>() {
+
+      @Override
+      public void encode(GSetState<E, K, T> value, ByteBuffer buffer) {
+        identifiers.encode(value.identifier, buffer);
+        versions.encode(value.version, buffer);
+        buffer.put((byte) (value.delta ? 1 : 0));
+        set.encode(value.state, buffer);
+      }
+
+      @Override
+      public GSetState<E, K, T> decode(ByteBuffer buffer) {
+        K identifier = identifiers.decode(buffer);
+        VersionVector<K, T> version = versions.decode(buffer);
+        boolean delta = buffer.get() != 0;
+        return new GSetState<>(identifier, version, set.decode(buffer), delta);
+      }
+
+    };
   }
 
 }
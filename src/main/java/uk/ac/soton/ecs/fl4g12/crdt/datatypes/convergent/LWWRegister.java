@@ -24,14 +24,13 @@ package uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent;
 import java.io.Serializable;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 import org.openimaj.citation.annotation.Reference;
 import org.openimaj.citation.annotation.ReferenceType;
 import uk.ac.soton.ecs.fl4g12.crdt.datatypes.Register;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeliveryChannel;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeliveryUpdateException;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.StateDeliveryChannel;
+import uk.ac.soton.ecs.fl4g12.crdt.order.HybridLogicalClock;
 import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
 
 /**
@@ -40,15 +39,15 @@ import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
  * Last-writer is determines by the first of the following to provide a total order:
  * <ul>
  * <li>Order of the {@link VersionVector};
- * <li>Order of the UTC timestamp stored with the element;
+ * <li>Order of the {@link HybridLogicalClock} timestamp stored with the element;
  * <li>Order of the unique identifiers (lowest wins).
  * </ul>
  *
- * Ordering by UTC timestamp requires that clock synchronisation is used between nodes to ensure
- * that the correct last writer is chosen.
+ * Ordering by the physical part of the timestamp requires that clock synchronisation is used
+ * between nodes to ensure that the correct last writer is chosen.
  *
- * Sub-millisecond local reassignment will block until enough time has passed to distinguish the
- * values. Only the successful assignment will be replicated to other nodes.
+ * Each local assignment is stamped with a strictly greater timestamp than any the register has
+ * assigned or received, so sub-millisecond local reassignment never needs to wait for the clock.
  *
  * @param <E> the type of value stored in the {@link Register}.
  * @param <K> the type of identifier used to identify nodes.
@@ -62,9 +61,8 @@ import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
 public final class LWWRegister<E extends Serializable, K extends Comparable<K>, T extends Comparable<T>>
     extends AbstractCvRDT<K, T, LWWRegisterState<E, K, T>> implements Register<E> {
 
-  private static final Logger LOGGER = Logger.getLogger(LWWRegister.class.getName());
-
   private final AtomicReference<Element<E>> element;
+  private final HybridLogicalClock clock;
 
   /**
    * Construct a new Last-Writer-Wins {@linkplain Register}.
@@ -78,14 +76,33 @@ public final class LWWRegister<E extends Serializable, K extends Comparable<K>,
    */
   public LWWRegister(VersionVector<K, T> initialVersion, K identifier,
       StateDeliveryChannel<K, LWWRegisterState<E, K, T>> deliveryChannel) {
+    this(initialVersion, identifier, deliveryChannel, new HybridLogicalClock());
+  }
+
+  /**
+   * Construct a new Last-Writer-Wins {@linkplain Register} which stamps assignments using the given
+   * {@linkplain HybridLogicalClock}. The clock may be shared with other objects on the same node.
+   *
+   * @param initialVersion the initial {@link VersionVector} value to use. This should be a zero
+   *        version.
+   * @param identifier the identifier of this instance or {@code null} for it to be assigned by the
+   *        {@link DeliveryChannel}.
+   * @param deliveryChannel the {@link DeliveryChannel} which this object should communicate changes
+   *        over.
+   * @param clock the {@link HybridLogicalClock} used to timestamp assignments.
+   */
+  public LWWRegister(VersionVector<K, T> initialVersion, K identifier,
+      StateDeliveryChannel<K, LWWRegisterState<E, K, T>> deliveryChannel,
+      HybridLogicalClock clock) {
     super(initialVersion, identifier, deliveryChannel);
     this.element = new AtomicReference<>(new Element<E>(null, 0));
+    this.clock = clock;
   }
 
   @Override
   public synchronized void assign(E value) {
     version.increment();
-    assign(new Element<>(value), identifier);
+    assign(new Element<>(value, clock.tick()), identifier);
     getDeliveryChannel().publish();
   }
 
@@ -99,29 +116,15 @@ public final class LWWRegister<E extends Serializable, K extends Comparable<K>,
   private synchronized void assign(Element<E> elem, K id) {
     while (true) {
       Element<E> current = element.get();
-      if (elem.getTimestamp() < current.getTimestamp()) {
+      if (elem.getTime() < current.getTime()) {
         return;
       }
-      if (current.getTimestamp() == elem.getTimestamp()) {
+      if (current.getTime() == elem.getTime()) {
         // If the elements values are equal, nothing to do
-        if (current.getValue().equals(elem.getValue())) {
-          return;
-        }
-        // If a very fast local re-assignment is taking place, wait a 100 nanoseconds and retry
-        // Sleep theoretically caps the max recursion depth at 10
-        // Blocking is required to ensure the correctness of programs using this datatype.
-        if (identifier.equals(id)) {
-          try {
-            Thread.sleep(0, 100);
-          } catch (InterruptedException ex) {
-            LOGGER.log(Level.WARNING,
-                "Interupted exception while waiting between fast re-assignment. "
-                    + "This will not cause a problem, retry will occur.",
-                ex);
-          }
-          assign(new Element<>(elem.getValue()), id);
+        if (Objects.equals(current.getValue(), elem.getValue())) {
           return;
         }
+        // Local timestamps are strictly increasing so only a remote assignment can tie.
         // Only continue to assigment if the new ID is less than the current ID
         if (identifier.compareTo(id) > 0) {
           return;
@@ -136,13 +139,16 @@ public final class LWWRegister<E extends Serializable, K extends Comparable<K>,
   @Override
   public synchronized void update(LWWRegisterState<E, K, T> message)
       throws DeliveryUpdateException {
-    if (message.getVersion().happenedBefore(version)) {
-      return;
-    }
-    // If message is either concurrent on in future (not identical) perform assignment
-    if (!message.getVersion().identical(version)) {
-      version.sync(message.getVersion());
-      assign(message.getElement(), message.getIdentifier());
+    VersionVector<K, T> messageVersion = message.getVersion();
+    switch (messageVersion.compare(version)) {
+      case BEFORE:
+      case EQUAL:
+        return;
+      default:
+        // If message is either concurrent on in future (not identical) perform assignment
+        version.sync(messageVersion);
+        clock.sync(message.getElement().getTime());
+        assign(message.getElement(), message.getIdentifier());
     }
   }
 
@@ -168,28 +174,21 @@ public final class LWWRegister<E extends Serializable, K extends Comparable<K>,
    */
   public static class Element<E extends Serializable> implements Serializable {
 
+    private static final long serialVersionUID = 1L;
+
     private final E value;
-    private final long timestamp;
+    private final long time;
 
     /**
-     * Construct a new {@linkplain Element}. The {@code timestamp} should be a UTC timestamp from
-     * {@link System#currentTimeMillis()} at the time the element was first created.
+     * Construct a new {@linkplain Element}. The {@code time} should be a
+     * {@link HybridLogicalClock} timestamp taken when the element was first created.
      *
      * @param value the element value.
-     * @param timestamp a UTC timestamp of when the value was assigned.
+     * @param time a {@link HybridLogicalClock} timestamp of when the value was assigned.
      */
-    private Element(E value, long timestamp) {
+    Element(E value, long time) {
       this.value = value;
-      this.timestamp = timestamp;
-    }
-
-    /**
-     * Construct a new {@linkplain Element} using the time of instantiation as the timestamp.
-     *
-     * @param value the element value.
-     */
-    private Element(E value) {
-      this(value, System.currentTimeMillis());
+      this.time = time;
     }
 
     /**
@@ -202,19 +201,29 @@ public final class LWWRegister<E extends Serializable, K extends Comparable<K>,
     }
 
     /**
-     * Get the timestamp that the element was first created.
+     * Get the UTC timestamp, in milliseconds, that the element was first created.
      *
-     * @return the timestamp that the element was first created.
+     * @return the UTC timestamp that the element was first created.
      */
     public long getTimestamp() {
-      return timestamp;
+      return HybridLogicalClock.getPhysicalTime(time);
+    }
+
+    /**
+     * Get the {@link HybridLogicalClock} timestamp that the element was first created. This orders
+     * elements created within the same millisecond.
+     *
+     * @return the {@link HybridLogicalClock} timestamp that the element was first created.
+     */
+    public long getTime() {
+      return time;
     }
 
     @Override
     public int hashCode() {
       int hash = 7;
       hash = 97 * hash + Objects.hashCode(this.value);
-      hash = 97 * hash + (int) (this.timestamp ^ (this.timestamp >>> 32));
+      hash = 97 * hash + (int) (this.time ^ (this.time >>> 32));
       return hash;
     }
 
@@ -230,7 +239,7 @@ public final class LWWRegister<E extends Serializable, K extends Comparable<K>,
         return false;
       }
       final Element<?> other = (Element<?>) obj;
-      if (this.timestamp != other.timestamp) {
+      if (this.time != other.time) {
         return false;
       }
       if (!Objects.equals(this.value, other.value)) {
@@ -241,7 +250,7 @@ public final class LWWRegister<E extends Serializable, K extends Comparable<K>,
 
     @Override
     public String toString() {
-      return "Element{" + "value=" + value + ", timestamp=" + timestamp + '}';
+      return "Element{" + "value=" + value + ", time=" + time + '}';
     }
 
   }
@@ -22,9 +22,13 @@
 package uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import uk.ac.soton.ecs.fl4g12.crdt.datatypes.Register;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.AbstractVersionedUpdateMessage;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codec;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codecs;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.StateSnapshot;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.VersionVectorCodec;
 import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
 
 /**
@@ -69,5 +73,44 @@ public final class LWWRegisterState<E extends Serializable, K extends Comparable
   }
 
 
+  /**
+   * Get a {@linkplain Codec} for {@linkplain LWWRegisterState}s. The state is written as the
+   * identifier, the version, the value of the register and then the time it was assigned. The
+   * value of the register may be {@code null}.
+   *
+   * @param <E> the type of value stored in the {@link Register}.
+   * @param <K> the type of identifier used to identify nodes.
+   * @param <T> the type of the timestamp stored in the {@link VersionVector}
+   * @param versions the {@link Codec} for identifiers and versions.
+   * @param values the {@link Codec} for the value of the register.
+   * @return a {@link Codec} for {@link LWWRegisterState}s.
+   */
+  public static <E extends Serializable, K extends Comparable<K>, T extends Comparable<T>>
+      Codec<LWWRegisterState<E, K, T>> codec(final VersionVectorCodec<K, T> versions,
+          Codec<E> values) {
+    final Codec<K> identifiers = versions.getIdentifierCodec();
+    final Codec<E> nullableValues = Codecs.nullable(values);
+    return new Codec<LWWRegisterState<E, K, T>>() {
+
+      @Override
+      public void encode(LWWRegisterState<E, K, T> value, ByteBuffer buffer) {
+        identifiers.encode(value.identifier, buffer);
+        versions.encode(value.version, buffer);
+        nullableValues.encode(value.element.getValue(), buffer);
+        Codecs.putVarLong(value.element.getTime(), buffer);
+      }
+
+      @Override
+      public LWWRegisterState<E, K, T> decode(ByteBuffer buffer) {
+        K identifier = identifiers.decode(buffer);
+        VersionVector<K, T> version = versions.decode(buffer);
+        E elementValue = nullableValues.decode(buffer);
+        long time = Codecs.getVarLong(buffer);
+        return new LWWRegisterState<>(identifier, version,
+            new LWWRegister.Element<>(elementValue, time));
+      }
+
+    };
+  }
 
 }
@@ -21,12 +21,14 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent;
 
+import java.util.concurrent.atomic.LongAdder;
 import org.openimaj.citation.annotation.Reference;
 import org.openimaj.citation.annotation.ReferenceType;
 import uk.ac.soton.ecs.fl4g12.crdt.datatypes.CRDT;
 import uk.ac.soton.ecs.fl4g12.crdt.datatypes.Counter;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeliveryChannel;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeliveryUpdateException;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeltaStatefulUpdatable;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.StateDeliveryChannel;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.UpdateMessage;
 import uk.ac.soton.ecs.fl4g12.crdt.order.HashVersionVector;
@@ -42,6 +44,13 @@ import uk.ac.soton.ecs.fl4g12.crdt.util.LongArithmetic;
  * A {@linkplain CRDT} {@linkplain Counter} using a positive and negative vector that are used to
  * count increments and decrements at each node.
  *
+ * Local increments and decrements are accumulated in striped {@link LongAdder}s so that many
+ * threads can change the same replica without contending on its monitor. They are folded into the
+ * vectors whenever the value, version or state of the counter is read.
+ *
+ * The value of the counter is maintained as the vectors advance so that reading it does not
+ * require summing both vectors.
+ *
  * @param <E> the type of the counter value.
  * @param <K> the type of identifier used to identify nodes.
  */
@@ -51,11 +60,24 @@ import uk.ac.soton.ecs.fl4g12.crdt.util.LongArithmetic;
     institution = "inria", year = "2011", url = "https://hal.inria.fr/inria-00555588",
     pages = {"15", "16"})
 public final class PNCounter<E extends Comparable<E>, K>
-    extends AbstractCvRDT<K, E, PNCounterState<E, K>> implements Counter<E> {
+    extends AbstractCvRDT<K, E, PNCounterState<E, K>>
+    implements Counter<E>, DeltaStatefulUpdatable<K, VersionVector<K, E>, PNCounterState<E, K>> {
 
   private final Arithmetic<E> arithmetic;
   private final LocalVersionVector<K, E> p;
   private final LocalVersionVector<K, E> n;
+  private final LongAdder increments = new LongAdder();
+  private final LongAdder decrements = new LongAdder();
+
+  /**
+   * The difference between the sums of {@code p} and {@code n}, excluding changes which are yet to
+   * be folded.
+   */
+  private E total;
+  private boolean deltaTracking = false;
+  private boolean deltaChanged = false;
+  // Set once folding the local changes has overflowed, after which changes are rejected.
+  private volatile boolean overflowed = false;
 
   /**
    * Construct a pn-counter that uses its two {@linkplain VersionVector}'s as state.
@@ -76,39 +98,132 @@ public final class PNCounter<E extends Comparable<E>, K>
     this.arithmetic = arithmetic;
     this.p = new LocalVersionVector<>(initialVersion.copy(), this.identifier);
     this.n = new LocalVersionVector<>(initialVersion.copy(), this.identifier);
+    this.total = arithmetic.sub(arithmetic.add(p.get().values()), n.get().values());
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @throws ArithmeticException if folding earlier changes has overflowed a timestamp of this
+   *         node.
+   */
   @Override
-  public synchronized void increment() {
-    version.increment();
-    p.increment();
+  public void increment() {
+    if (overflowed) {
+      throw new ArithmeticException("Arithmetic overflow");
+    }
+    increments.increment();
     getDeliveryChannel().publish();
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @throws ArithmeticException if folding earlier changes has overflowed a timestamp of this
+   *         node.
+   */
   @Override
-  public synchronized void decrement() {
-    version.increment();
-    n.increment();
+  public void decrement() {
+    if (overflowed) {
+      throw new ArithmeticException("Arithmetic overflow");
+    }
+    decrements.increment();
     getDeliveryChannel().publish();
   }
 
   @Override
-  public E value() {
-    return arithmetic.sub(arithmetic.add(p.get().values()), n.get().values());
+  public synchronized E value() {
+    foldLocalChanges();
+    return total;
   }
 
   @Override
   public synchronized void update(PNCounterState<E, K> message) throws DeliveryUpdateException {
     version.sync(message.getVersion());
-    p.sync(message.getP());
-    n.sync(message.getN());
+    total = arithmetic.add(total, GCounter.sync(arithmetic, p, message.getP()));
+    total = arithmetic.sub(total, GCounter.sync(arithmetic, n, message.getN()));
   }
 
   @Override
   public synchronized PNCounterState<E, K> snapshot() {
+    foldLocalChanges();
     return new PNCounterState<>(identifier, version, p, n);
   }
 
+  @Override
+  public synchronized PNCounterState<E, K> delta() {
+    foldLocalChanges();
+    if (!deltaTracking) {
+      return restartDelta();
+    }
+    if (!deltaChanged) {
+      return null;
+    }
+    deltaChanged = false;
+    return new PNCounterState<>(identifier, deltaVersion(version), deltaVersion(p),
+        deltaVersion(n));
+  }
+
+  @Override
+  public synchronized PNCounterState<E, K> restartDelta() {
+    final PNCounterState<E, K> snapshot = snapshot();
+    deltaTracking = true;
+    deltaChanged = false;
+    return snapshot;
+  }
+
+  /**
+   * Fold the increments and decrements accumulated by {@link #increment()} and
+   * {@link #decrement()} into {@code p}, {@code n} and the timestamp of this node. If a timestamp
+   * would overflow, the changes are kept and any further changes are rejected.
+   *
+   * @throws ArithmeticException if a timestamp of this node would overflow.
+   */
+  @Override
+  protected synchronized void foldLocalChanges() {
+    final long pendingIncrements = increments.sum();
+    final long pendingDecrements = decrements.sum();
+    if (pendingIncrements == 0 && pendingDecrements == 0) {
+      return;
+    }
+    final E timestamp;
+    final E positive;
+    final E negative;
+    try {
+      timestamp = advance(version.get(identifier), pendingIncrements + pendingDecrements);
+      positive = advance(p.get(identifier), pendingIncrements);
+      negative = advance(n.get(identifier), pendingDecrements);
+    } catch (ArithmeticException ex) {
+      overflowed = true;
+      throw ex;
+    }
+    // Only remove what has been folded so that concurrent changes are kept for the next fold.
+    increments.add(-pendingIncrements);
+    decrements.add(-pendingDecrements);
+    version.sync(identifier, timestamp);
+    p.sync(identifier, positive);
+    n.sync(identifier, negative);
+    total = arithmetic.sub(arithmetic.add(total, arithmetic.valueOf(pendingIncrements)),
+        arithmetic.valueOf(pendingDecrements));
+    deltaChanged = true;
+  }
+
+  /**
+   * Advance a timestamp by the given number of increments.
+   *
+   * @param timestamp the timestamp to advance.
+   * @param increments the number of increments to advance the timestamp by.
+   * @return the advanced timestamp.
+   * @throws ArithmeticException if the timestamp would overflow.
+   */
+  private E advance(E timestamp, long increments) {
+    final E advanced = arithmetic.add(timestamp, arithmetic.valueOf(increments));
+    if (advanced.compareTo(timestamp) < 0) {
+      throw new ArithmeticException("Arithmetic overflow");
+    }
+    return advanced;
+  }
+
   @Override
   protected String toStringMore() {
     return super.toStringMore() + "p=" + p + ", n=" + n + ", value=" + value() + ", ";
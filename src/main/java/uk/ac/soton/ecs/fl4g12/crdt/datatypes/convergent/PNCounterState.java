@@ -21,8 +21,11 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent;
 
+import java.nio.ByteBuffer;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.AbstractVersionedUpdateMessage;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codec;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.StateSnapshot;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.VersionVectorCodec;
 import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
 
 /**
@@ -79,4 +82,39 @@ public final class PNCounterState<E extends Comparable<E>, K>
         + ", n=" + n + '}';
   }
 
+
+  /**
+   * Get a {@linkplain Codec} for {@linkplain PNCounterState}s. The state is written as the
+   * identifier, the version and then the increment and decrement vectors.
+   *
+   * @param <E> the type of counter value.
+   * @param <K> the type of identifier used to identify nodes.
+   * @param versions the {@link Codec} for identifiers, versions and the counter vectors.
+   * @return a {@link Codec} for {@link PNCounterState}s.
+   */
+  public static <E extends Comparable<E>, K> Codec<PNCounterState<E, K>> codec(
+      final VersionVectorCodec<K, E> versions) {
+    final Codec<K> identifiers = versions.getIdentifierCodec();
+    return new Codec<PNCounterState<E, K>>() {
+
+      @Override
+      public void encode(PNCounterState<E, K> value, ByteBuffer buffer) {
+        identifiers.encode(value.identifier, buffer);
+        versions.encode(value.version, buffer);
+        versions.encode(value.p, buffer);
+        versions.encode(value.n, buffer);
+      }
+
+      @Override
+      public PNCounterState<E, K> decode(ByteBuffer buffer) {
+        K identifier = identifiers.decode(buffer);
+        VersionVector<K, E> version = versions.decode(buffer);
+        VersionVector<K, E> p = versions.decode(buffer);
+        VersionVector<K, E> n = versions.decode(buffer);
+        return new PNCounterState<>(identifier, version, p, n);
+      }
+
+    };
+  }
+
 }
@@ -30,10 +30,12 @@ import org.openimaj.citation.annotation.ReferenceType;
 import uk.ac.soton.ecs.fl4g12.crdt.datatypes.IllegalInsertionException;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeliveryChannel;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeliveryUpdateException;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeltaStatefulUpdatable;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.StateDeliveryChannel;
 import uk.ac.soton.ecs.fl4g12.crdt.order.HashVersionVector;
 import uk.ac.soton.ecs.fl4g12.crdt.order.LogicalVersion;
 import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
+import uk.ac.soton.ecs.fl4g12.crdt.util.PersistentHashSet;
 import uk.ac.soton.ecs.fl4g12.crdt.util.StringUtils;
 
 /**
@@ -57,10 +59,24 @@ import uk.ac.soton.ecs.fl4g12.crdt.util.StringUtils;
     institution = "inria", year = "2011", url = "https://hal.inria.fr/inria-00555588",
     pages = {"22", "23"})
 public final class TwoPhaseSet<E, K, T extends Comparable<T>>
-    extends AbstractCvRDT<K, T, TwoPhaseSetState<E, K, T>> implements Set<E> {
+    extends AbstractCvRDT<K, T, TwoPhaseSetState<E, K, T>>
+    implements Set<E>, DeltaStatefulUpdatable<K, VersionVector<K, T>, TwoPhaseSetState<E, K, T>> {
 
-  private final Set<E> additions = new HashSet<>();
-  private final Set<E> removals = new HashSet<>();
+  /**
+   * The elements of the set and the elements which have been removed from it. Each element is
+   * stored in at most one of the two disjoint sets; a removed element is implicitly an addition.
+   * Since the sets are persistent they can be shared with snapshots and are replaced, rather than
+   * modified, by changes. Membership, size and iteration only read {@code elements}.
+   */
+  private volatile PersistentHashSet<E> elements = PersistentHashSet.empty();
+  private volatile PersistentHashSet<E> removals = PersistentHashSet.empty();
+
+  /**
+   * The elements added and removed since the last state message or {@code null} until delta
+   * tracking starts. Like {@code elements} and {@code removals}, the two sets are disjoint.
+   */
+  private PersistentHashSet<E> deltaElements = null;
+  private PersistentHashSet<E> deltaRemovals = null;
 
   /**
    * Construct a {@linkplain GSet}, grow-only set.
@@ -96,25 +112,69 @@ public final class TwoPhaseSet<E, K, T extends Comparable<T>>
   @Override
   public synchronized void update(TwoPhaseSetState<E, K, T> message)
       throws DeliveryUpdateException {
-    additions.addAll(message.getAdditions());
-    removals.addAll(message.getRemovals());
+    if (elements.isEmpty() && removals.isEmpty()) {
+      // Share the structure of the state when this replica has none of its own.
+      removals = PersistentHashSet.copyOf(message.getRemovals());
+      elements = message.getElements();
+    } else {
+      final PersistentHashSet<E> newRemovals = removals.plusAll(message.getRemovals());
+      PersistentHashSet<E> newElements = elements;
+      if (newRemovals != removals) {
+        newElements = newElements.minusAll(message.getRemovals());
+      }
+      for (E element : message.getElements()) {
+        if (!newRemovals.contains(element)) {
+          newElements = newElements.plus(element);
+        }
+      }
+      removals = newRemovals;
+      elements = newElements;
+    }
     version.sync(message.getVersion());
   }
 
   @Override
   public synchronized TwoPhaseSetState<E, K, T> snapshot() {
-    return new TwoPhaseSetState<>(identifier, version, additions, removals);
+    return TwoPhaseSetState.partitioned(identifier, version, elements, removals);
+  }
+
+  @Override
+  public synchronized TwoPhaseSetState<E, K, T> delta() {
+    if (deltaElements == null) {
+      return restartDelta();
+    }
+    if (deltaElements.isEmpty() && deltaRemovals.isEmpty()) {
+      return null;
+    }
+    TwoPhaseSetState<E, K, T> message = TwoPhaseSetState.partitioned(identifier,
+        deltaVersion(version), deltaElements, deltaRemovals, true);
+    deltaElements = PersistentHashSet.empty();
+    deltaRemovals = PersistentHashSet.empty();
+    return message;
+  }
+
+  @Override
+  public synchronized TwoPhaseSetState<E, K, T> restartDelta() {
+    deltaElements = PersistentHashSet.empty();
+    deltaRemovals = PersistentHashSet.empty();
+    return snapshot();
   }
 
   @Override
   public synchronized boolean add(E element) {
-    if (additions.add(element)) {
+    if (removals.contains(element)) {
+      throw new IllegalInsertionException("Can't add an element that has already been removed.",
+          element);
+    }
+    final PersistentHashSet<E> newElements = elements.plus(element);
+    if (newElements != elements) {
+      elements = newElements;
+      if (deltaElements != null) {
+        deltaElements = deltaElements.plus(element);
+      }
       version.increment();
       getDeliveryChannel().publish();
       return true;
-    } else if (removals.contains(element)) {
-      throw new IllegalInsertionException("Can't add an element that has already been removed.",
-          element);
     }
     return false;
   }
@@ -134,7 +194,12 @@ public final class TwoPhaseSet<E, K, T extends Comparable<T>>
     }
 
     // Add the elements
-    if (additions.addAll(collection)) {
+    final PersistentHashSet<E> newElements = elements.plusAll(collection);
+    if (newElements != elements) {
+      elements = newElements;
+      if (deltaElements != null) {
+        deltaElements = deltaElements.plusAll(collection);
+      }
       version.increment();
       getDeliveryChannel().publish();
       return true;
@@ -148,12 +213,20 @@ public final class TwoPhaseSet<E, K, T extends Comparable<T>>
       E element = (E) object;
       synchronized (this) {
         version.increment();
-        boolean added = additions.add(element);
-        boolean removed = removals.add(element);
-        if (removed) {
-          getDeliveryChannel().publish();
+        final PersistentHashSet<E> newRemovals = removals.plus(element);
+        if (newRemovals == removals) {
+          return false;
+        }
+        final PersistentHashSet<E> newElements = elements.minus(element);
+        boolean present = newElements != elements;
+        removals = newRemovals;
+        elements = newElements;
+        if (deltaElements != null) {
+          deltaElements = deltaElements.minus(element);
+          deltaRemovals = deltaRemovals.plus(element);
         }
-        return !added && removed;
+        getDeliveryChannel().publish();
+        return present;
       }
     } catch (ClassCastException ex) {
       // Catch the exception, element can't have been an element of removals and so false will be
@@ -164,16 +237,16 @@ public final class TwoPhaseSet<E, K, T extends Comparable<T>>
 
   @Override
   public boolean removeAll(Collection<?> collection) {
-    final Collection<E> elements = new HashSet<>();
+    final Collection<E> remove = new HashSet<>();
     for (Object obj : collection) {
       try {
-        elements.add((E) obj);
+        remove.add((E) obj);
       } catch (ClassCastException ex) {
         // Catch the exception, element can't have been an element of removals and so we won't try
         // to remove it.
       }
     }
-    return removeAllInternal(elements);
+    return removeAllInternal(remove);
   }
 
   protected boolean removeAllInternal(Collection<? extends E> collection) {
@@ -182,8 +255,29 @@ public final class TwoPhaseSet<E, K, T extends Comparable<T>>
     }
     synchronized (this) {
       version.increment();
-      boolean added = additions.addAll(collection);
-      boolean removed = removals.addAll(collection);
+      PersistentHashSet<E> newElements = elements;
+      PersistentHashSet<E> newRemovals = removals;
+      boolean added = false;
+      boolean removed = false;
+      for (E element : collection) {
+        final PersistentHashSet<E> withElement = newRemovals.plus(element);
+        if (withElement != newRemovals) {
+          newRemovals = withElement;
+          removed = true;
+          final PersistentHashSet<E> withoutElement = newElements.minus(element);
+          if (withoutElement == newElements) {
+            // The element was not known, so removing it is also its addition.
+            added = true;
+          }
+          newElements = withoutElement;
+          if (deltaElements != null) {
+            deltaElements = deltaElements.minus(element);
+            deltaRemovals = deltaRemovals.plus(element);
+          }
+        }
+      }
+      removals = newRemovals;
+      elements = newElements;
       if (removed) {
         getDeliveryChannel().publish();
       }
@@ -210,71 +304,64 @@ public final class TwoPhaseSet<E, K, T extends Comparable<T>>
     }
 
     version.increment();
-    removals.addAll(additions);
+    if (deltaElements != null) {
+      // Every element added since the last delta is still an element, so is now a removal.
+      deltaElements = PersistentHashSet.empty();
+      deltaRemovals = deltaRemovals.plusAll(elements);
+    }
+    removals = removals.plusAll(elements);
+    elements = PersistentHashSet.empty();
     getDeliveryChannel().publish();
   }
 
   @Override
   public boolean contains(Object o) {
-    return !removals.contains(o) && additions.contains(o);
+    return elements.contains(o);
   }
 
   @Override
   public boolean containsAll(Collection<?> c) {
-    // TODO: Review if this is actually more or less efficient that itterating through and checking
-    // both sets.
-    return getElements().containsAll(c);
+    return elements.containsAll(c);
   }
 
   @Override
   public int size() {
-    return additions.size() - removals.size();
+    return elements.size();
   }
 
   @Override
   public boolean isEmpty() {
-    return size() == 0;
-  }
-
-  protected HashSet<E> getElements() {
-    HashSet<E> elements;
-    HashSet<E> notElements;
-    synchronized (this) {
-      elements = new HashSet<>(additions);
-      notElements = new HashSet<>(removals);
-    }
-    elements.removeAll(notElements);
-    return elements;
+    return elements.isEmpty();
   }
 
   @Override
   public Iterator<E> iterator() {
-    return new IteratorWrapper(getElements().iterator());
+    return new IteratorWrapper(elements.iterator());
   }
 
   @Override
   public Object[] toArray() {
-    return getElements().toArray();
+    return elements.toArray();
   }
 
   @Override
   public <T> T[] toArray(T[] a) {
-    return getElements().toArray(a);
+    return elements.toArray(a);
   }
 
   @Override
   public boolean equals(Object o) {
-    return getElements().equals(o);
+    return elements.equals(o);
   }
 
   @Override
   public int hashCode() {
-    return getElements().hashCode();
+    return elements.hashCode();
   }
 
   @Override
   protected String toStringMore() {
-    return super.toStringMore() + "additions=" + StringUtils.getCollectionString(additions)
+    return super.toStringMore() + "elements=" + StringUtils.getCollectionString(elements)
         + ", removals=" + StringUtils.getCollectionString(removals) + ", ";
   }
 
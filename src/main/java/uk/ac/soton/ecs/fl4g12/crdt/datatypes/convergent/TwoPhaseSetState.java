@@ -21,15 +21,23 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent;
 
-import java.util.HashSet;
+import java.nio.ByteBuffer;
 import java.util.Set;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.AbstractVersionedUpdateMessage;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codec;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codecs;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.VersionVectorCodec;
 import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
-
+import uk.ac.soton.ecs.fl4g12.crdt.util.PersistentHashSet;
 
 /**
  * Representation of the state for a {@linkplain TwoPhaseSet}.
  *
+ * Each element is stored once, either in the set of elements which are in the
+ * {@link TwoPhaseSet} or in the set of elements which have been removed from it. An element which
+ * has been removed is implicitly an element which has been added, so the additions are never
+ * stored separately.
+ *
  * @param <E> the type of values stored in the {@link GSet}.
  * @param <K> the type of identifier used to identify nodes.
  * @param <T> the type of the timestamp stored in the {@link VersionVector}
@@ -38,8 +46,9 @@ public final class TwoPhaseSetState<E, K, T extends Comparable<T>>
     extends AbstractVersionedUpdateMessage<K, VersionVector<K, T>>
     implements SetState<E, K, VersionVector<K, T>> {
 
-  private final Set<E> additions;
-  private final Set<E> removals;
+  private final PersistentHashSet<E> elements;
+  private final PersistentHashSet<E> removals;
+  private final boolean delta;
 
   /**
    * Instantiate a new {@linkplain GSetState}. Arguments provided that are not expected to be
@@ -52,47 +61,113 @@ public final class TwoPhaseSetState<E, K, T extends Comparable<T>>
    */
   TwoPhaseSetState(K identifier, VersionVector<K, T> versionVector, Set<E> additions,
       Set<E> removals) {
+    this(identifier, versionVector,
+        PersistentHashSet.<E>copyOf(additions).minusAll(removals),
+        PersistentHashSet.copyOf(removals), false);
+  }
+
+  private TwoPhaseSetState(K identifier, VersionVector<K, T> versionVector,
+      PersistentHashSet<E> elements, PersistentHashSet<E> removals, boolean delta) {
     super(identifier, versionVector);
-    this.additions = new HashSet<>(additions);
-    this.removals = new HashSet<>(removals);
+    this.elements = elements;
+    this.removals = removals;
+    this.delta = delta;
   }
 
   /**
-   * Get the set of elements that have been added to the {@linkplain TwoPhaseSet}.
+   * Instantiate a new {@linkplain TwoPhaseSetState} from the disjoint sets of elements which are in
+   * the {@linkplain TwoPhaseSet} and which have been removed from it, without copying them.
    *
-   * @return the set of elements that have been added to the {@link TwoPhaseSet}.
+   * @param <E> the type of values stored in the {@link TwoPhaseSet}.
+   * @param <K> the type of identifier used to identify nodes.
+   * @param <T> the type of the timestamp stored in the {@link VersionVector}
+   * @param identifier the identifier of the instance that was updated.
+   * @param versionVector the version as a result of the update.
+   * @param elements the elements of the {@link TwoPhaseSet}.
+   * @param removals the elements removed from the {@link TwoPhaseSet}, none of which may be in
+   *        {@code elements}.
+   * @return the {@link TwoPhaseSetState}.
+   */
+  static <E, K, T extends Comparable<T>> TwoPhaseSetState<E, K, T> partitioned(K identifier,
+      VersionVector<K, T> versionVector, PersistentHashSet<E> elements,
+      PersistentHashSet<E> removals) {
+    return partitioned(identifier, versionVector, elements, removals, false);
+  }
+
+  /**
+   * Instantiate a new {@linkplain TwoPhaseSetState} which may be a delta from the disjoint sets of
+   * elements which are in the {@linkplain TwoPhaseSet} and which have been removed from it, without
+   * copying them.
+   *
+   * @param <E> the type of values stored in the {@link TwoPhaseSet}.
+   * @param <K> the type of identifier used to identify nodes.
+   * @param <T> the type of the timestamp stored in the {@link VersionVector}
+   * @param identifier the identifier of the instance that was updated.
+   * @param versionVector the version as a result of the update.
+   * @param elements the elements of the {@link TwoPhaseSet}.
+   * @param removals the elements removed from the {@link TwoPhaseSet}, none of which may be in
+   *        {@code elements}.
+   * @param delta whether the sets only hold the changes since the previous message.
+   * @return the {@link TwoPhaseSetState}.
+   */
+  static <E, K, T extends Comparable<T>> TwoPhaseSetState<E, K, T> partitioned(K identifier,
+      VersionVector<K, T> versionVector, PersistentHashSet<E> elements,
+      PersistentHashSet<E> removals, boolean delta) {
+    return new TwoPhaseSetState<>(identifier, versionVector, elements, removals, delta);
+  }
+
+  /**
+   * Get the immutable set of elements that have been added to the {@linkplain TwoPhaseSet}. As the
+   * additions are not stored separately, this is the union of the {@linkplain #getState() state}
+   * and the {@linkplain #getRemovals() removals}.
+   *
+   * @return the immutable set of elements that have been added to the {@link TwoPhaseSet}.
    */
   public Set<E> getAdditions() {
-    return new HashSet<>(additions);
+    return elements.plusAll(removals);
   }
 
   /**
-   * Get the set of elements that have been removed from the {@linkplain TwoPhaseSet}.
+   * Get the immutable set of elements that have been removed from the {@linkplain TwoPhaseSet}.
    *
-   * @return the set of elements that have been removed from the {@link TwoPhaseSet}.
+   * @return the immutable set of elements that have been removed from the {@link TwoPhaseSet}.
    */
   public Set<E> getRemovals() {
-    return new HashSet<>(removals);
+    return removals;
   }
 
   /**
-   * Compute the effective of the {@linkplain TwoPhaseSet}. This is the set difference between the
+   * Get the effective of the {@linkplain TwoPhaseSet}. This is the set difference between the
    * elements added and elements removed.
    *
-   * @return the effective of the {@link TwoPhaseSet}.
+   * @return the immutable effective of the {@link TwoPhaseSet}.
    */
   @Override
   public Set<E> getState() {
-    Set<E> state = getAdditions();
-    state.removeAll(removals);
-    return state;
+    return elements;
+  }
+
+  /**
+   * Get the effective of the {@linkplain TwoPhaseSet} as a {@linkplain PersistentHashSet} so that
+   * it can be merged without copying.
+   *
+   * @return the effective of the {@link TwoPhaseSet}.
+   */
+  PersistentHashSet<E> getElements() {
+    return elements;
+  }
+
+  @Override
+  public boolean isDelta() {
+    return delta;
   }
 
   @Override
   public int hashCode() {
     int hash = super.hashCode();
-    hash = 97 * hash + this.additions.hashCode();
+    hash = 97 * hash + this.elements.hashCode();
     hash = 97 * hash + this.removals.hashCode();
+    hash = 97 * hash + (this.delta ? 1 : 0);
     return hash;
   }
 
@@ -102,7 +177,10 @@ public final class TwoPhaseSetState<E, K, T extends Comparable<T>>
       return false;
     }
     final TwoPhaseSetState<?, ?, ?> other = (TwoPhaseSetState<?, ?, ?>) obj;
-    if (!this.additions.equals(other.additions)) {
+    if (this.delta != other.delta) {
+      return false;
+    }
+    if (!this.elements.equals(other.elements)) {
       return false;
     }
     if (!this.removals.equals(other.removals)) {
@@ -114,7 +192,50 @@ public final class TwoPhaseSetState<E, K, T extends Comparable<T>>
   @Override
   public String toString() {
     return "TwoPhaseSetState{" + "identifier=" + identifier + ", version=" + version
-        + ", additions=" + additions + ", removals=" + removals + '}';
+        + ", elements=" + elements + ", removals=" + removals + ", delta=" + delta
+        + '}';
+  }
+
+  /**
+   * Get a {@linkplain Codec} for {@linkplain TwoPhaseSetState}s. The state is written as the
+   * identifier, the version, a byte which is {@code 1} for a delta, the elements of the set and
+   * then the elements removed from it. As the two sets are disjoint, each element is only written
+   * once.
+   *
+   * @param <E> the type of values stored in the {@link TwoPhaseSet}.
+   * @param <K> the type of identifier used to identify nodes.
+   * @param <T> the type of the timestamp stored in the {@link VersionVector}
+   * @param versions the {@link Codec} for identifiers and versions.
+   * @param elements the {@link Codec} for the elements of the set.
+   * @return a {@link Codec} for {@link TwoPhaseSetState}s.
+   */
+  public static <E, K, T extends Comparable<T>> Codec<TwoPhaseSetState<E, K, T>> codec(
+      final VersionVectorCodec<K, T> versions, Codec<E> elements) {
+    final Codec<K> identifiers = versions.getIdentifierCodec();
+    final Codec<Set<E>> set = Codecs.set(elements);
+    return new Codec<TwoPhaseSetState<E, K, T>>() {
+
+      @Override
+      public void encode(TwoPhaseSetState<E, K, T> value, ByteBuffer buffer) {
+        identifiers.encode(value.identifier, buffer);
+        versions.encode(value.version, buffer);
+        buffer.put((byte) (value.delta ? 1 : 0));
+        set.encode(value.elements, buffer);
+        set.encode(value.removals, buffer);
+      }
+
+      @Override
+      public TwoPhaseSetState<E, K, T> decode(ByteBuffer buffer) {
+        K identifier = identifiers.decode(buffer);
+        VersionVector<K, T> version = versions.decode(buffer);
+        boolean delta = buffer.get() != 0;
+        PersistentHashSet<E> elements = PersistentHashSet.copyOf(set.decode(buffer));
+        PersistentHashSet<E> removals = PersistentHashSet.copyOf(set.decode(buffer));
+        // Ensure that the sets are disjoint, even if they were not encoded that way.
+        return partitioned(identifier, version, elements.minusAll(removals), removals, delta);
+      }
+
+    };
   }
 
 }
@@ -21,7 +21,14 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.delivery;
 
+import java.io.Flushable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Dot;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Version;
 
 /**
  * Abstract base class for {@link DeliveryChannel} implementations.
@@ -43,6 +50,29 @@ public abstract class AbstractDeliveryChannel<K, M extends UpdateMessage<K, ?>,
    */
   private volatile boolean open = true;
 
+  /**
+   * Messages sent through this channel which are yet to be acknowledged, or which were sent after a
+   * message which is yet to be acknowledged, in the order they were sent and keyed by their
+   * identity.
+   *
+   * @see #identify(UpdateMessage)
+   */
+  private final LinkedHashMap<Object, Sent<M>> outstanding = new LinkedHashMap<>();
+  private volatile M replicatedUpTo = null;
+
+  /**
+   * Monitor which is notified whenever messages have been sent to the {@link DeliveryExchange}.
+   */
+  private final Object sendMonitor = new Object();
+  private final AppliedFutures applied = new AppliedFutures();
+
+  /**
+   * The number of received messages which can be held before new messages are rejected.
+   */
+  private volatile int inboxCapacity = Integer.MAX_VALUE;
+  private final AtomicLong rejected = new AtomicLong();
+  private final AtomicLong collapsed = new AtomicLong();
+
   /**
    * Instantiate a {@linkplain AbstractDeliveryChannel} using the provided
    * {@link LocalDeliveryExchange} and inbox.
@@ -104,6 +134,11 @@ public abstract class AbstractDeliveryChannel<K, M extends UpdateMessage<K, ?>,
     return exchange;
   }
 
+  @Override
+  public boolean isCongested() {
+    return exchange.isCongested(getIdentifier());
+  }
+
   @Override
   public final U getUpdatable() {
     if (updatable == null) {
@@ -125,14 +160,253 @@ public abstract class AbstractDeliveryChannel<K, M extends UpdateMessage<K, ?>,
     if (updatable == null) {
       throw new IllegalStateException("Channel has not been registered with an Updatable yet");
     }
-    inbox.add(message);
+    final int capacity = inboxCapacity;
+    if (capacity == Integer.MAX_VALUE || getHeldUpdates() < capacity) {
+      inbox.add(message);
+    } else {
+      int count = collapse(message);
+      if (count <= 0) {
+        rejected.incrementAndGet();
+        throw new InboxFullException(this, capacity);
+      }
+      collapsed.addAndGet(count);
+    }
+
+    // Post-receive hook
+    postReceive(message);
+  }
+
+  /**
+   * Get the number of received messages which are held by this {@linkplain DeliveryChannel} and
+   * have not yet been applied. This is compared with the {@linkplain #getInboxCapacity() inbox
+   * capacity} when a message is received and so should be fast.
+   *
+   * @return the number of received messages which have not yet been applied.
+   */
+  protected int getHeldUpdates() {
+    return inbox.size();
+  }
+
+  /**
+   * Hook to make room for a received message when the inbox is full. Implementations which can
+   * combine or discard held messages without losing updates should do so, adding the message to
+   * the inbox if it is still needed. By default nothing is collapsed and the message is rejected.
+   *
+   * @param message the message that has been received.
+   * @return the number of messages which were removed or discarded to make room, or {@code 0} if
+   *         the message should be rejected.
+   */
+  protected int collapse(M message) {
+    return 0;
+  }
+
+  /**
+   * Set the number of received messages which this {@linkplain DeliveryChannel} will hold before
+   * rejecting new messages with an {@link InboxFullException}. The {@link DeliveryExchange} pauses
+   * delivery to the channel while it is full. The capacity is checked as each message is received,
+   * so messages requeued while applying updates may briefly exceed it. By default the inbox is
+   * unbounded.
+   *
+   * @param capacity the number of received messages which can be held, or
+   *        {@link Integer#MAX_VALUE} for an unbounded inbox.
+   * @throws IllegalArgumentException if the capacity is less than {@code 1}.
+   */
+  public final void setInboxCapacity(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Inbox capacity must be at least 1, given: " + capacity);
+    }
+    this.inboxCapacity = capacity;
   }
 
+  /**
+   * Get the number of received messages which this {@linkplain DeliveryChannel} will hold before
+   * rejecting new messages.
+   *
+   * @return the capacity of the inbox, {@link Integer#MAX_VALUE} if it is unbounded.
+   */
+  public final int getInboxCapacity() {
+    return inboxCapacity;
+  }
+
+  /**
+   * Get the number of messages which have been rejected because the inbox was full.
+   *
+   * @return the number of times a message has been rejected by a full inbox.
+   */
+  public final long getRejectedCount() {
+    return rejected.get();
+  }
+
+  /**
+   * Get the number of messages which have been removed or discarded to make room in a full inbox.
+   *
+   * @return the number of messages collapsed into more recent messages.
+   */
+  public final long getCollapsedCount() {
+    return collapsed.get();
+  }
+
+  /**
+   * Hook for additional tasks to be performed after a message has been added to the inbox. This is
+   * called on the thread that delivered the message and so should return quickly, scheduling any
+   * work that needs to be done rather than performing it.
+   *
+   * @param message the message that has been received.
+   */
+  protected void postReceive(M message) {}
+
   @Override
-  public final boolean hasPendingUpdates() {
+  public boolean hasPendingUpdates() {
     return !inbox.isEmpty();
   }
 
+  @Override
+  public final CompletableFuture<Void> whenApplied(Version<?, ?, ?> version) {
+    return applied.add(getUpdatable(), version);
+  }
+
+  /**
+   * Complete the futures returned by {@link #whenApplied(Version)} for versions which are now
+   * applied. Implementations should call this after each cycle of applying updates.
+   */
+  protected final void notifyApplied() {
+    applied.check(getUpdatable());
+  }
+
+  /**
+   * Notify threads waiting for {@link #hasPendingDeliveries()} to change. Implementations should
+   * call this whenever messages have been sent to the {@link DeliveryExchange}.
+   */
+  protected final void notifySent() {
+    synchronized (sendMonitor) {
+      sendMonitor.notifyAll();
+    }
+  }
+
+  /**
+   * Wait until there are no messages waiting to be sent to the {@link DeliveryExchange}.
+   *
+   * @throws InterruptedException if interrupted while waiting.
+   * @see DeliveryUtils#waitForDelivery(DeliveryChannel)
+   */
+  void awaitDelivery() throws InterruptedException {
+    synchronized (sendMonitor) {
+      while (hasPendingDeliveries()) {
+        sendMonitor.wait();
+      }
+    }
+  }
+
+  /**
+   * Publish a message to the {@link DeliveryExchange}, recording it so that the replication
+   * watermark can be advanced when it is acknowledged. The futures waiting for the version of the
+   * local update are completed, without waiting for the next cycle of applying updates.
+   * Implementations should publish every message through this method.
+   *
+   * @param message the message to publish.
+   * @return the {@link CompletableFuture} returned by the {@link DeliveryExchange}.
+   */
+  protected final CompletableFuture<Void> send(M message) {
+    final Object identity = identify(message);
+    final boolean recorded;
+    synchronized (outstanding) {
+      recorded = outstanding.put(identity, new Sent<>(message)) == null;
+    }
+    final CompletableFuture<Void> future;
+    try {
+      future = exchange.publish(message);
+    } catch (RuntimeException | Error ex) {
+      if (recorded) {
+        synchronized (outstanding) {
+          outstanding.remove(identity);
+        }
+      }
+      throw ex;
+    }
+    notifyApplied();
+    return future;
+  }
+
+  /**
+   * Get the identity of a message sent through this channel, which is used to track the message in
+   * place of the message itself so that the message never needs to be hashed or compared. A
+   * {@link DottedUpdateMessage} is identified by its {@link Dot}, as it is by the
+   * {@link LocalDeliveryExchange}. Other messages are identified by reference, as exchanges
+   * acknowledge the instance which was sent.
+   *
+   * @param message the message sent through this channel.
+   * @return the identity of the message.
+   */
+  private static Object identify(UpdateMessage<?, ?> message) {
+    if (message instanceof DottedUpdateMessage) {
+      return ((DottedUpdateMessage<?, ?>) message).getVersion();
+    }
+    return new Reference(message);
+  }
+
+  @Override
+  public final void acknowledge(M message) {
+    final Object identity = identify(message);
+    M replicated = null;
+    synchronized (outstanding) {
+      Sent<M> sent = outstanding.get(identity);
+      if (sent == null) {
+        // Not sent through this channel or already replicated.
+        return;
+      }
+      sent.acknowledged = true;
+      // Advance the watermark past the acknowledged prefix.
+      Iterator<Sent<M>> it = outstanding.values().iterator();
+      while (it.hasNext()) {
+        Sent<M> next = it.next();
+        if (!next.acknowledged) {
+          break;
+        }
+        replicated = next.message;
+        it.remove();
+      }
+      if (replicated != null) {
+        replicatedUpTo = replicated;
+      }
+    }
+    if (replicated != null) {
+      // Post-acknowledge hook
+      postAcknowledge(replicated);
+    }
+  }
+
+  /**
+   * Hook for additional tasks to be performed after the replication watermark has advanced. This is
+   * called on the thread that acknowledged the message and so should return quickly.
+   *
+   * @param replicatedUpTo the message which the updates from this channel have now been fully
+   *        replicated up to.
+   */
+  protected void postAcknowledge(M replicatedUpTo) {}
+
+  @Override
+  public final M getReplicatedUpTo() {
+    return replicatedUpTo;
+  }
+
+  /**
+   * Determine if the replication watermark has passed a message sent through this channel, that
+   * is if the message and every message sent before it have been acknowledged.
+   *
+   * @param message the message sent through this channel, may be {@code null}.
+   * @return {@code false} if the message has been sent and is still waiting for acknowledgements,
+   *         {@code true} otherwise.
+   */
+  protected final boolean isReplicated(M message) {
+    if (message == null) {
+      return true;
+    }
+    final Object identity = identify(message);
+    synchronized (outstanding) {
+      return !outstanding.containsKey(identity);
+    }
+  }
+
   /**
    * Determine if this {@link DeliveryChannel} is accepting new messages. After the
    * {@link DeliveryChannel} has been closed, this will return {@code false}.
@@ -146,11 +420,22 @@ public abstract class AbstractDeliveryChannel<K, M extends UpdateMessage<K, ?>,
 
   @Override
   public final void close() throws Exception {
+    // Publish anything the updatable is holding back while the channel still accepts messages.
+    if (open && updatable instanceof Flushable) {
+      ((Flushable) updatable).flush();
+    }
+
     // Set the state to closed
     open = false;
 
     // Shutdown the channel.
     shutdown();
+
+    // Versions which have not been applied by now never will be.
+    if (updatable != null) {
+      applied.check(updatable);
+    }
+    applied.fail(new IllegalStateException("Channel was closed before the version was applied"));
   }
 
   /**
@@ -170,4 +455,45 @@ public abstract class AbstractDeliveryChannel<K, M extends UpdateMessage<K, ?>,
         + (updatable == null ? "unregistered" : updatable.getIdentifier()) + "} on " + exchange;
   }
 
+  /**
+   * A message sent through the channel and whether it has been acknowledged. Guarded by the map of
+   * outstanding messages.
+   *
+   * @param <M> the type of the message.
+   */
+  private static final class Sent<M> {
+
+    private final M message;
+    private boolean acknowledged = false;
+
+    Sent(M message) {
+      this.message = message;
+    }
+
+  }
+
+  /**
+   * The identity of a message which is not a {@link DottedUpdateMessage}, which is equal only to
+   * the identity of the same instance.
+   */
+  private static final class Reference {
+
+    private final Object message;
+
+    Reference(Object message) {
+      this.message = message;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(message);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Reference && ((Reference) obj).message == message;
+    }
+
+  }
+
 }
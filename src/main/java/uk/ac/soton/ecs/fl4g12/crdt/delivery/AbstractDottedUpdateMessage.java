@@ -21,6 +21,9 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.delivery;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import uk.ac.soton.ecs.fl4g12.crdt.order.Dot;
 
 /**
@@ -32,6 +35,8 @@ import uk.ac.soton.ecs.fl4g12.crdt.order.Dot;
 public class AbstractDottedUpdateMessage<K, T extends Comparable<T>>
     extends AbstractVersionedUpdateMessage<K, Dot<K, T>> implements DottedUpdateMessage<K, T> {
 
+  private final Map<K, T> dependencies;
+
   /**
    * Instantiate a {@linkplain AbstractDottedUpdateMessage} with the given {@linkplain Dot} as the
    * version. The {@link UpdateMessage} identifier will be captured from the {@link Dot} using
@@ -41,6 +46,29 @@ public class AbstractDottedUpdateMessage<K, T extends Comparable<T>>
    */
   public AbstractDottedUpdateMessage(Dot<K, T> dot) {
     super(dot.getIdentifier(), dot);
+    this.dependencies = Collections.emptyMap();
+  }
+
+  /**
+   * Instantiate a {@linkplain AbstractDottedUpdateMessage} with the given {@linkplain Dot} as the
+   * version and the given causal dependencies. Any dependency on the node which created the update
+   * is discarded as it is implied by the {@link Dot}.
+   *
+   * @param dot the {@link Dot} for the update.
+   * @param dependencies the causal dependencies of the update. This value is copied.
+   * @see DottedUpdateMessage#getDependencies() for details of the dependencies.
+   */
+  public AbstractDottedUpdateMessage(Dot<K, T> dot, Map<K, T> dependencies) {
+    super(dot.getIdentifier(), dot);
+    Map<K, T> copy = new HashMap<>(dependencies);
+    copy.remove(dot.getIdentifier());
+    this.dependencies =
+        copy.isEmpty() ? Collections.<K, T>emptyMap() : Collections.unmodifiableMap(copy);
+  }
+
+  @Override
+  public final Map<K, T> getDependencies() {
+    return dependencies;
   }
 
 }
@@ -0,0 +1,119 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Abstract base class for {@link ReliableDeliveryChannel} implementations. Messages provided to the
+ * {@link #publish(VersionedUpdateMessage)} are immediately published to the
+ * {@link DeliveryExchange} and received messages are held in a {@link CausalDeliveryBuffer} until
+ * they can be applied, so a message which arrives out of order only delays the messages which
+ * depend on it. Implementations determine when {@link #doUpdates()} is called.
+ *
+ * @param <K> The type of the identifier that is assigned to the {@link Updatable}.
+ * @param <M> The type of updates sent via the delivery channel.
+ */
+public abstract class AbstractReliableDeliveryChannel<K, M extends VersionedUpdateMessage<K, ?>>
+    extends AbstractDeliveryChannel<K, M, VersionedUpdatable<K, ?, M>>
+    implements ReliableDeliveryChannel<K, M> {
+
+  private final AtomicInteger publishCounter = new AtomicInteger();
+
+  private final CausalDeliveryBuffer<K, M> buffer = new CausalDeliveryBuffer<>();
+  private volatile int buffered = 0;
+
+  /**
+   * Instantiate an {@linkplain AbstractReliableDeliveryChannel} using the provided
+   * {@link DeliveryExchange}.
+   *
+   * @param exchange the {@link DeliveryExchange} which messages will be published to.
+   */
+  public AbstractReliableDeliveryChannel(DeliveryExchange<K, M> exchange) {
+    super(exchange, new LinkedBlockingQueue<M>());
+  }
+
+  @Override
+  public boolean hasPendingDeliveries() {
+    return publishCounter.get() > 0;
+  }
+
+  @Override
+  public CompletableFuture<Void> publish(M message) {
+    if (!isOpen()) {
+      throw new IllegalStateException("Channel has been closed, not accepting new messages.");
+    }
+    // Increment the counter
+    publishCounter.incrementAndGet();
+    try {
+      // Send the message to the exchange
+      return send(message);
+    } finally {
+      // Make sure that the counter is always decremented
+      publishCounter.decrementAndGet();
+      // Notify anyone waiting for the value to change
+      notifySent();
+    }
+  }
+
+  @Override
+  public boolean hasPendingUpdates() {
+    return super.hasPendingUpdates() || buffered > 0;
+  }
+
+  @Override
+  protected int getHeldUpdates() {
+    return super.getHeldUpdates() + buffered;
+  }
+
+  /**
+   * Apply all of the received messages which can be applied to the {@linkplain Updatable}. Messages
+   * which cannot yet be applied are kept until a later call.
+   */
+  public final synchronized void doUpdates() {
+    // Move received messages into the buffer
+    M message;
+    while ((message = inbox.poll()) != null) {
+      buffer.add(message);
+    }
+
+    buffer.deliver(getUpdatable());
+    buffered = buffer.size();
+    if (buffer.hasFailed()) {
+      postFailure();
+    }
+
+    // Notify any threads waiting for the next update cycle to complete.
+    notifyApplied();
+    notifyAll();
+  }
+
+  /**
+   * Hook called by {@link #doUpdates()} while holding the lock of the channel when a message failed
+   * for a reason other than its dependencies. Such messages are retried by the next call to
+   * {@link #doUpdates()}, implementations which do not call it periodically should make sure that
+   * there is one.
+   */
+  protected void postFailure() {}
+
+}
@@ -62,11 +62,34 @@ public abstract class AbstractVersionedUpdatable<K, T extends Comparable<T>, M e
     this.version = new LocalVersionVector<>(initialVersion.copy(), this.identifier);
   }
 
+  /**
+   * Instantiate the {@linkplain AbstractVersionedUpdatable} as a member of a
+   * {@linkplain ReplicaGroup}. The identifier and the {@linkplain LocalVersionVector} of the group
+   * are shared rather than copied, so every update made through any member of the group increments
+   * the same version.
+   *
+   * @param group the {@link ReplicaGroup} to join.
+   * @param deliveryChannel the {@link DeliveryChannel} provided by {@link ReplicaGroup#channel}.
+   */
+  public AbstractVersionedUpdatable(ReplicaGroup<K, T, ?> group, D deliveryChannel) {
+    super(group.getIdentifier(), deliveryChannel);
+    this.version = group.getSharedVersion();
+  }
+
   @Override
   public final VersionVector<K, T> getVersion() {
+    foldLocalChanges();
     return version.copy();
   }
 
+  /**
+   * Fold any local changes which have been accumulated outside of the {@code version} into it.
+   * This is called before the version is returned by {@link #getVersion()} and should be called by
+   * implementations which accumulate changes before any other use of the version. Implementations
+   * which always update the version directly do not need to override this.
+   */
+  protected void foldLocalChanges() {}
+
   @Override
   protected String toStringMore() {
     return "version=" + getVersion() + ", ";
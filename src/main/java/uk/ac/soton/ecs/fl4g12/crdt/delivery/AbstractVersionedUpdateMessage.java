@@ -60,6 +60,10 @@ public abstract class AbstractVersionedUpdateMessage<K, V extends Version<?, ? s
 
   @Override
   public final int compareTo(VersionedUpdateMessage<K, V> o) {
+    // Versions are only read while comparing, so avoid copying them where possible.
+    if (o instanceof AbstractVersionedUpdateMessage) {
+      return version.compareTo(((AbstractVersionedUpdateMessage<K, V>) o).version);
+    }
     return version.compareTo(o.getVersion());
   }
 
@@ -0,0 +1,147 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Version;
+
+/**
+ * The futures returned by {@link DeliveryChannel#whenApplied(Version)} which have not yet been
+ * completed. The {@link DeliveryChannel} which owns the futures should call
+ * {@link #check(Updatable)} whenever updates have been applied to its {@link Updatable}.
+ */
+final class AppliedFutures {
+
+  private final List<AppliedFuture> waiting = new ArrayList<>();
+
+  /**
+   * Get a future which is completed once the given {@linkplain Updatable} has applied every update
+   * up to the given version.
+   *
+   * @param updatable the {@link Updatable} which the version is being waited for on.
+   * @param version the version to wait for.
+   * @return a {@link CompletableFuture} which is completed once the version has been applied.
+   * @throws UnsupportedOperationException if the {@link Updatable} is not a
+   *         {@link VersionedUpdatable}.
+   */
+  CompletableFuture<Void> add(Updatable<?, ?> updatable, Version<?, ?, ?> version) {
+    if (!(updatable instanceof VersionedUpdatable)) {
+      throw new UnsupportedOperationException(
+          "Cannot wait for a version to be applied to an Updatable which is not versioned");
+    }
+    AppliedFuture future = new AppliedFuture(version.copy());
+    synchronized (waiting) {
+      waiting.add(future);
+    }
+    // Check after adding so that updates applied before adding are not missed.
+    check(updatable);
+    return future;
+  }
+
+  /**
+   * Complete the futures for every version which the given {@linkplain Updatable} has now applied.
+   *
+   * @param updatable the {@link Updatable} which has applied updates.
+   */
+  void check(Updatable<?, ?> updatable) {
+    List<AppliedFuture> applied = new ArrayList<>();
+    synchronized (waiting) {
+      if (waiting.isEmpty()) {
+        return;
+      }
+      Version<?, ?, ?> current = ((VersionedUpdatable<?, ?, ?>) updatable).getVersion();
+      Iterator<AppliedFuture> it = waiting.iterator();
+      while (it.hasNext()) {
+        AppliedFuture future = it.next();
+        if (future.isAppliedBy(current)) {
+          applied.add(future);
+          it.remove();
+        }
+      }
+    }
+    // Complete outside of the lock as dependent actions may run on this thread.
+    for (AppliedFuture future : applied) {
+      future.complete(null);
+    }
+  }
+
+  /**
+   * Complete every future which is still waiting exceptionally. This is used when the versions can
+   * no longer be applied.
+   *
+   * @param cause the exception to complete the futures with.
+   */
+  void fail(Throwable cause) {
+    List<AppliedFuture> failed;
+    synchronized (waiting) {
+      failed = new ArrayList<>(waiting);
+      waiting.clear();
+    }
+    for (AppliedFuture future : failed) {
+      future.completeExceptionally(cause);
+    }
+  }
+
+  /**
+   * A future which is completed once a version has been applied.
+   */
+  private static final class AppliedFuture extends CompletableFuture<Void> {
+
+    private final Version<?, ?, ?> version;
+
+    AppliedFuture(Version<?, ?, ?> version) {
+      this.version = version;
+    }
+
+    /**
+     * Determine if the version being waited for has been applied. It has been applied if it is
+     * identical to or happened-before the current version.
+     *
+     * @param current the current version of the {@link Updatable}.
+     * @return {@code true} if the version has been applied, {@code false} otherwise.
+     */
+    boolean isAppliedBy(Version<?, ?, ?> current) {
+      return isAppliedBy(version, current);
+    }
+
+    /**
+     * Compare the version being waited for with the current version. The versions are of the same
+     * type as both come from the same {@link VersionedUpdatable}, so the unchecked cast is safe.
+     *
+     * @param <V> the type of the versions.
+     * @param version the version being waited for.
+     * @param current the current version of the {@link Updatable}.
+     * @return {@code true} if the version has been applied, {@code false} otherwise.
+     */
+    @SuppressWarnings("unchecked")
+    private static <V extends Version<?, V, ?>> boolean isAppliedBy(Version<?, ?, ?> version,
+        Version<?, ?, ?> current) {
+      final V waiting = (V) version;
+      return waiting.identical((V) current) || waiting.happenedBefore((V) current);
+    }
+
+  }
+
+}
@@ -0,0 +1,343 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Version;
+import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
+
+/**
+ * Buffer of {@linkplain VersionedUpdateMessage}s awaiting causal delivery to a
+ * {@linkplain VersionedUpdatable}. Pending messages are indexed by the identifier of the node which
+ * sent them and ordered by their {@link Version} so that only the next message from each sender is
+ * ever attempted.
+ *
+ * When the next message from a sender cannot be applied, the sender is blocked on what the message
+ * is waiting for and is not attempted again until that changes. A {@link DottedUpdateMessage}
+ * which is waiting for one of its {@linkplain DottedUpdateMessage#getDependencies() dependencies}
+ * is indexed by the node and timestamp of that dependency, and its sender is only woken once a
+ * message from that node with that timestamp or later has been applied. A
+ * {@link DottedUpdateMessage} whose dependencies have been applied is waiting for the previous
+ * message from its sender, and its sender is woken when an earlier message from the sender is
+ * added. The dependencies of other messages are not known, so their senders are woken whenever any
+ * message is applied or an earlier message from the sender is added.
+ *
+ * Messages which the {@link VersionedUpdatable} rejects with a {@link DeliveryUpdateException} are
+ * assumed to be waiting for their causal dependencies to be applied. Messages which fail with any
+ * other {@link Throwable} are attempted again at the start of the next delivery.
+ *
+ * This class is not thread safe and should be guarded by the {@link DeliveryChannel} using it.
+ *
+ * @param <K> the type of the identifier of the nodes sending messages.
+ * @param <M> the type of messages being buffered.
+ */
+public final class CausalDeliveryBuffer<K, M extends VersionedUpdateMessage<K, ?>> {
+
+  private static final Logger LOGGER = Logger.getLogger(CausalDeliveryBuffer.class.getName());
+
+  /**
+   * Reason for a sender being blocked when its next message is waiting for an earlier message from
+   * the same sender.
+   */
+  private static final Object PREDECESSOR = new Object();
+
+  /**
+   * Reason for a sender being blocked when the dependencies of its next message are not known.
+   */
+  private static final Object UNKNOWN = new Object();
+
+  /**
+   * Reason for a sender being blocked when its next message failed for a reason other than its
+   * dependencies.
+   */
+  private static final Object FAILED = new Object();
+
+  private final Map<K, Queue<M>> pending = new HashMap<>();
+  private final Deque<K> ready = new ArrayDeque<>();
+
+  /**
+   * The reason each blocked sender is blocked, which is either a {@link Waiter} in
+   * {@link #waiting}, {@link #PREDECESSOR}, {@link #UNKNOWN} or {@link #FAILED}.
+   */
+  private final Map<K, Object> blocked = new HashMap<>();
+
+  /**
+   * The senders waiting for a dependency, indexed by the node of the dependency and ordered by its
+   * timestamp.
+   */
+  private final Map<Object, Queue<Waiter>> waiting = new HashMap<>();
+  private final Comparator<Waiter> waiterOrder = new Comparator<Waiter>() {
+    @Override
+    public int compare(Waiter o1, Waiter o2) {
+      return CausalDeliveryBuffer.compare(o1.timestamp, o2.timestamp);
+    }
+  };
+  private final Set<K> unknown = new HashSet<>();
+  private final Set<K> failed = new HashSet<>();
+
+  private int size = 0;
+
+  /**
+   * Add a message to the buffer. The message will be attempted during the next call to
+   * {@link #deliver(VersionedUpdatable)} if it is the earliest pending message from its sender.
+   *
+   * @param message the message to add to the buffer.
+   */
+  public void add(M message) {
+    final K sender = message.getIdentifier();
+    Queue<M> messages = pending.get(sender);
+    if (messages == null) {
+      messages = new PriorityQueue<>();
+      pending.put(sender, messages);
+      ready.add(sender);
+    }
+    messages.add(message);
+    size++;
+
+    // A blocked sender only needs reconsidering if the new message is now its earliest message.
+    if (messages.peek() == message) {
+      wake(sender);
+    }
+  }
+
+  /**
+   * Apply all of the messages in the buffer which can be applied to the given
+   * {@linkplain VersionedUpdatable}. Messages which cannot be applied remain in the buffer.
+   *
+   * @param updatable the {@link VersionedUpdatable} to deliver the messages to.
+   * @return the number of messages which were applied.
+   */
+  public int deliver(VersionedUpdatable<K, ?, M> updatable) {
+    // Messages which failed for a reason other than their dependencies are always retried.
+    for (K sender : failed) {
+      wake(sender);
+    }
+    failed.clear();
+
+    int delivered = 0;
+    K sender;
+    while ((sender = ready.poll()) != null) {
+      final Queue<M> messages = pending.get(sender);
+      final M message = messages.peek();
+      try {
+        updatable.update(message);
+      } catch (DeliveryUpdateException ex) {
+        LOGGER.log(Level.FINE, "Message not yet deliverable, waiting for dependencies", ex);
+        block(sender, message, updatable.getVersion());
+        continue;
+      } catch (Throwable ex) {
+        LOGGER.log(Level.SEVERE, "Throwable caught while trying to deliver message to " + updatable,
+            ex);
+        blocked.put(sender, FAILED);
+        failed.add(sender);
+        continue;
+      }
+
+      messages.remove();
+      size--;
+      delivered++;
+
+      // Continue with the next message from the same sender before any other sender.
+      if (messages.isEmpty()) {
+        pending.remove(sender);
+      } else {
+        ready.addFirst(sender);
+      }
+      applied(message);
+    }
+    return delivered;
+  }
+
+  /**
+   * Block a sender whose next message could not be applied until what the message is waiting for
+   * changes.
+   *
+   * @param sender the sender of the message.
+   * @param message the message which could not be applied.
+   * @param version the version of the {@link VersionedUpdatable} which rejected the message.
+   */
+  private void block(K sender, M message, Object version) {
+    final Waiter waiter = awaited(sender, message, version);
+    if (waiter == null) {
+      blocked.put(sender, UNKNOWN);
+      unknown.add(sender);
+    } else if (waiter.node == null) {
+      blocked.put(sender, PREDECESSOR);
+    } else {
+      blocked.put(sender, waiter);
+      Queue<Waiter> waiters = waiting.get(waiter.node);
+      if (waiters == null) {
+        waiters = new PriorityQueue<>(waiterOrder);
+        waiting.put(waiter.node, waiters);
+      }
+      waiters.add(waiter);
+    }
+  }
+
+  /**
+   * Wake the senders which were waiting for a message which has been applied.
+   *
+   * @param message the message which has been applied.
+   */
+  private void applied(M message) {
+    final Queue<Waiter> waiters = waiting.get(message.getIdentifier());
+    if (waiters != null) {
+      final Object timestamp = message instanceof DottedUpdateMessage
+          ? ((DottedUpdateMessage<?, ?>) message).getVersion().get() : null;
+      Waiter waiter;
+      while ((waiter = waiters.peek()) != null
+          && (timestamp == null || compare(waiter.timestamp, timestamp) <= 0)) {
+        waiters.remove();
+        // The sender may have been woken for another reason since it started waiting.
+        if (blocked.get(waiter.sender) == waiter) {
+          wake(waiter.sender);
+        }
+      }
+      if (waiters.isEmpty()) {
+        waiting.remove(message.getIdentifier());
+      }
+    }
+    if (!unknown.isEmpty()) {
+      final List<K> senders = new ArrayList<>(unknown);
+      unknown.clear();
+      for (K sender : senders) {
+        wake(sender);
+      }
+    }
+  }
+
+  /**
+   * Make a blocked sender ready to be attempted again.
+   *
+   * @param sender the sender to wake.
+   */
+  private void wake(K sender) {
+    if (blocked.remove(sender) != null) {
+      ready.add(sender);
+    }
+  }
+
+  /**
+   * Find what a {@linkplain DottedUpdateMessage} which could not be applied is waiting for: the
+   * first of its dependencies which the version of the {@link VersionedUpdatable} does not include,
+   * or otherwise the previous message from its sender.
+   *
+   * The cast is safe as the dependencies of the messages delivered to a
+   * {@link VersionedUpdatable} use the same identifiers and timestamps as its
+   * {@link VersionVector}.
+   *
+   * @param sender the sender of the message.
+   * @param message the message which could not be applied.
+   * @param version the version of the {@link VersionedUpdatable} which rejected the message.
+   * @return a {@link Waiter} for the dependency, a {@link Waiter} without a node if the message is
+   *         waiting for the previous message from its sender, or {@code null} if it is not known
+   *         what the message is waiting for.
+   */
+  @SuppressWarnings("unchecked")
+  private Waiter awaited(K sender, M message, Object version) {
+    if (!(message instanceof DottedUpdateMessage) || !(version instanceof VersionVector)) {
+      return null;
+    }
+    final VersionVector<Object, ?> vector = (VersionVector<Object, ?>) version;
+    final Map<?, ?> dependencies = ((DottedUpdateMessage<?, ?>) message).getDependencies();
+    for (Map.Entry<?, ?> dependency : dependencies.entrySet()) {
+      if (compare(vector.get(dependency.getKey()), dependency.getValue()) < 0) {
+        return new Waiter(sender, dependency.getKey(), dependency.getValue());
+      }
+    }
+    return new Waiter(sender, null, null);
+  }
+
+  /**
+   * Compare two timestamps of the same node.
+   *
+   * The cast is safe as the timestamps of a node are always of the same {@link Comparable} type.
+   *
+   * @param timestamp the first timestamp.
+   * @param other the second timestamp.
+   * @return the result of comparing the first timestamp to the second.
+   */
+  @SuppressWarnings("unchecked")
+  private static int compare(Object timestamp, Object other) {
+    return ((Comparable<Object>) timestamp).compareTo(other);
+  }
+
+  /**
+   * Get the number of messages held in the buffer.
+   *
+   * @return the number of messages which are waiting to be delivered.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Determine if there are any messages in the buffer.
+   *
+   * @return {@code true} if there are no messages waiting to be delivered, {@code false} otherwise.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Determine if any messages failed for a reason other than their dependencies during the last
+   * call to {@link #deliver(VersionedUpdatable)}. Such messages are only retried by a later call,
+   * which nothing else may trigger.
+   *
+   * @return {@code true} if there are messages which should be retried, {@code false} otherwise.
+   */
+  public boolean hasFailed() {
+    return !failed.isEmpty();
+  }
+
+  /**
+   * A sender whose next message is waiting for the message with the given timestamp from the given
+   * node to be applied.
+   */
+  private final class Waiter {
+
+    private final K sender;
+    private final Object node;
+    private final Object timestamp;
+
+    Waiter(K sender, Object node, Object timestamp) {
+      this.sender = sender;
+      this.node = node;
+      this.timestamp = timestamp;
+    }
+
+  }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary encoding of values, such as {@linkplain UpdateMessage}s, into a {@link ByteBuffer}. Values
+ * are written at the buffer's position so that a single buffer can be reused for many values.
+ *
+ * @param <T> the type of value encoded by this {@linkplain Codec}.
+ * @see Codecs for the codecs of common types and the primitive encodings they share.
+ */
+public interface Codec<T> {
+
+  /**
+   * Write the value to the buffer, starting at the buffer's current position and advancing it past
+   * the encoded value.
+   *
+   * @param value the value to encode.
+   * @param buffer the buffer to write the value to.
+   * @throws BufferOverflowException if there is not enough space remaining in the buffer. The
+   *         position of the buffer is undefined after this is thrown.
+   */
+  void encode(T value, ByteBuffer buffer) throws BufferOverflowException;
+
+  /**
+   * Read a value from the buffer, starting at the buffer's current position and advancing it past
+   * the encoded value.
+   *
+   * @param buffer the buffer to read the value from.
+   * @return the decoded value.
+   * @throws BufferUnderflowException if the buffer ends before the value does.
+   * @throws IllegalArgumentException if the buffer does not contain a valid encoding.
+   */
+  T decode(ByteBuffer buffer) throws BufferUnderflowException, IllegalArgumentException;
+
+}
@@ -0,0 +1,460 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Primitive encodings and {@linkplain Codec}s for common types.
+ *
+ * Integers are written as variable length integers (varints) of seven bits per byte, with the
+ * highest bit of each byte set when more bytes follow, so that small values take a single byte.
+ * Signed values are zigzag encoded first so that small negative values are also small.
+ */
+public final class Codecs {
+
+  /**
+   * {@linkplain OrderedCodec} for {@link Integer}s as zigzag encoded varints.
+   */
+  public static final OrderedCodec<Integer> INTEGER = new OrderedCodec<Integer>() {
+
+    @Override
+    public void encode(Integer value, ByteBuffer buffer) {
+      putSignedVarInt(value, buffer);
+    }
+
+    @Override
+    public Integer decode(ByteBuffer buffer) {
+      return getSignedVarInt(buffer);
+    }
+
+    @Override
+    public void encodeDelta(Integer value, Integer previous, ByteBuffer buffer) {
+      if (value < previous) {
+        throw new IllegalArgumentException(
+            "Cannot encode " + value + " as a difference from " + previous);
+      }
+      putVarLong((long) value - previous, buffer);
+    }
+
+    @Override
+    public Integer decodeDelta(Integer previous, ByteBuffer buffer) {
+      long value = previous + getVarLong(buffer);
+      if (value > Integer.MAX_VALUE || value < previous) {
+        throw new IllegalArgumentException("Difference is out of range for an integer");
+      }
+      return (int) value;
+    }
+
+    @Override
+    public int compare(Integer o1, Integer o2) {
+      return o1.compareTo(o2);
+    }
+
+  };
+
+  /**
+   * {@linkplain OrderedCodec} for {@link Long}s as zigzag encoded varints.
+   */
+  public static final OrderedCodec<Long> LONG = new OrderedCodec<Long>() {
+
+    @Override
+    public void encode(Long value, ByteBuffer buffer) {
+      putSignedVarLong(value, buffer);
+    }
+
+    @Override
+    public Long decode(ByteBuffer buffer) {
+      return getSignedVarLong(buffer);
+    }
+
+    @Override
+    public void encodeDelta(Long value, Long previous, ByteBuffer buffer) {
+      if (value < previous) {
+        throw new IllegalArgumentException(
+            "Cannot encode " + value + " as a difference from " + previous);
+      }
+      // The difference always fits in 64 bits when treated as unsigned.
+      putVarLong(value - previous, buffer);
+    }
+
+    @Override
+    public Long decodeDelta(Long previous, ByteBuffer buffer) {
+      long value = previous + getVarLong(buffer);
+      if (value < previous) {
+        throw new IllegalArgumentException("Difference is out of range for a long");
+      }
+      return value;
+    }
+
+    @Override
+    public int compare(Long o1, Long o2) {
+      return o1.compareTo(o2);
+    }
+
+  };
+
+  /**
+   * {@linkplain Codec} for {@link String}s as their length in bytes followed by their UTF-8
+   * encoding.
+   */
+  public static final Codec<String> STRING = new Codec<String>() {
+
+    @Override
+    public void encode(String value, ByteBuffer buffer) {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      putLength(bytes.length, buffer);
+      buffer.put(bytes);
+    }
+
+    @Override
+    public String decode(ByteBuffer buffer) {
+      byte[] bytes = getBytes(buffer);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+  };
+
+  private static final Codec<Serializable> SERIALIZABLE = new Codec<Serializable>() {
+
+    @Override
+    public void encode(Serializable value, ByteBuffer buffer) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+        out.writeObject(value);
+      } catch (IOException ex) {
+        throw new IllegalArgumentException("Value could not be serialised: " + value, ex);
+      }
+      putLength(bytes.size(), buffer);
+      buffer.put(bytes.toByteArray());
+    }
+
+    @Override
+    public Serializable decode(ByteBuffer buffer) {
+      byte[] bytes = getBytes(buffer);
+      try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+        return (Serializable) in.readObject();
+      } catch (IOException | ClassNotFoundException ex) {
+        throw new IllegalArgumentException("Value could not be deserialised", ex);
+      }
+    }
+
+  };
+
+  // Util class cannot be constructed.
+  private Codecs() {}
+
+  /**
+   * Get a {@linkplain Codec} which uses Java serialisation. This is intended for values which do
+   * not have a more compact {@linkplain Codec} and supports {@code null}.
+   *
+   * As with {@link ObjectInputStream#readObject()}, the type of a decoded value can not be checked,
+   * so the values must be decoded as the same type that they were encoded as.
+   *
+   * @param <T> the type of the values.
+   * @return a {@link Codec} which serialises values.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T extends Serializable> Codec<T> serializable() {
+    return (Codec<T>) SERIALIZABLE;
+  }
+
+  /**
+   * Get a {@linkplain Codec} which supports {@code null} as well as the values supported by another
+   * {@linkplain Codec}. Each value is preceded by a byte indicating whether it is {@code null}.
+   *
+   * @param <T> the type of the values.
+   * @param codec the {@link Codec} for values which are not {@code null}.
+   * @return a {@link Codec} which supports {@code null}.
+   */
+  public static <T> Codec<T> nullable(final Codec<T> codec) {
+    return new Codec<T>() {
+
+      @Override
+      public void encode(T value, ByteBuffer buffer) {
+        if (value == null) {
+          buffer.put((byte) 0);
+        } else {
+          buffer.put((byte) 1);
+          codec.encode(value, buffer);
+        }
+      }
+
+      @Override
+      public T decode(ByteBuffer buffer) {
+        switch (buffer.get()) {
+          case 0:
+            return null;
+          case 1:
+            return codec.decode(buffer);
+          default:
+            throw new IllegalArgumentException("Invalid null marker");
+        }
+      }
+
+    };
+  }
+
+  /**
+   * Get a {@linkplain Codec} for the constants of an enum type, written as their ordinal.
+   *
+   * @param <T> the enum type.
+   * @param type the class of the enum type.
+   * @return a {@link Codec} for the constants of the enum type.
+   */
+  public static <T extends Enum<T>> Codec<T> enumeration(Class<T> type) {
+    final T[] constants = type.getEnumConstants();
+    return new Codec<T>() {
+
+      @Override
+      public void encode(T value, ByteBuffer buffer) {
+        putVarInt(value.ordinal(), buffer);
+      }
+
+      @Override
+      public T decode(ByteBuffer buffer) {
+        int ordinal = getVarInt(buffer);
+        if (ordinal < 0 || ordinal >= constants.length) {
+          throw new IllegalArgumentException("Invalid ordinal: " + (ordinal & 0xffffffffl));
+        }
+        return constants[ordinal];
+      }
+
+    };
+  }
+
+  /**
+   * Get a {@linkplain Codec} for {@link Set}s as their size followed by each of their elements.
+   * Decoded sets are mutable.
+   *
+   * @param <E> the type of the elements.
+   * @param elements the {@link Codec} for the elements of the {@link Set}.
+   * @return a {@link Codec} for {@link Set}s.
+   */
+  public static <E> Codec<Set<E>> set(final Codec<E> elements) {
+    return new Codec<Set<E>>() {
+
+      @Override
+      public void encode(Set<E> value, ByteBuffer buffer) {
+        putLength(value.size(), buffer);
+        for (E element : value) {
+          elements.encode(element, buffer);
+        }
+      }
+
+      @Override
+      public Set<E> decode(ByteBuffer buffer) {
+        int size = getLength(buffer);
+        Set<E> set = new HashSet<>(Math.min(size, buffer.remaining()) * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+          set.add(elements.decode(buffer));
+        }
+        return set;
+      }
+
+    };
+  }
+
+  /**
+   * Encode a value into a buffer, replacing the buffer with a larger one if the value does not fit.
+   * The buffer is cleared before the value is written so that it can be reused for each value.
+   *
+   * @param <T> the type of the value.
+   * @param codec the {@link Codec} to encode the value with.
+   * @param value the value to encode.
+   * @param buffer the buffer to reuse for the value.
+   * @return the buffer containing the value, flipped ready to be read. This is {@code buffer}
+   *         unless it was too small.
+   */
+  public static <T> ByteBuffer encode(Codec<T> codec, T value, ByteBuffer buffer) {
+    while (true) {
+      buffer.clear();
+      try {
+        codec.encode(value, buffer);
+        buffer.flip();
+        return buffer;
+      } catch (BufferOverflowException ex) {
+        buffer = ByteBuffer.allocate(Math.max(buffer.capacity(), 16) * 2);
+      }
+    }
+  }
+
+  /**
+   * Write an unsigned varint.
+   *
+   * @param value the value to write, treated as unsigned.
+   * @param buffer the buffer to write to.
+   */
+  public static void putVarLong(long value, ByteBuffer buffer) {
+    while ((value & ~0x7fl) != 0) {
+      buffer.put((byte) ((value & 0x7f) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  /**
+   * Read an unsigned varint.
+   *
+   * @param buffer the buffer to read from.
+   * @return the value read, which is negative if its highest bit is set.
+   * @throws IllegalArgumentException if the varint is longer than 64 bits.
+   */
+  public static long getVarLong(ByteBuffer buffer) {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = buffer.get();
+      if (shift == 63 && (b & 0x7e) != 0) {
+        // Only the lowest bit of the tenth byte fits in a long.
+        throw new IllegalArgumentException("Varint is out of range for a long");
+      }
+      value |= (long) (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Malformed varint");
+  }
+
+  /**
+   * Write an unsigned 32 bit varint.
+   *
+   * @param value the value to write, treated as unsigned.
+   * @param buffer the buffer to write to.
+   */
+  public static void putVarInt(int value, ByteBuffer buffer) {
+    putVarLong(value & 0xffffffffl, buffer);
+  }
+
+  /**
+   * Read an unsigned 32 bit varint.
+   *
+   * @param buffer the buffer to read from.
+   * @return the value read, which is negative if its highest bit is set.
+   * @throws IllegalArgumentException if the varint is longer than 32 bits.
+   */
+  public static int getVarInt(ByteBuffer buffer) {
+    long value = getVarLong(buffer);
+    if ((value >>> 32) != 0) {
+      throw new IllegalArgumentException("Varint is out of range for an integer");
+    }
+    return (int) value;
+  }
+
+  /**
+   * Write a signed varint using zigzag encoding.
+   *
+   * @param value the value to write.
+   * @param buffer the buffer to write to.
+   */
+  public static void putSignedVarLong(long value, ByteBuffer buffer) {
+    putVarLong((value << 1) ^ (value >> 63), buffer);
+  }
+
+  /**
+   * Read a signed varint written with zigzag encoding.
+   *
+   * @param buffer the buffer to read from.
+   * @return the value read.
+   */
+  public static long getSignedVarLong(ByteBuffer buffer) {
+    long value = getVarLong(buffer);
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Write a signed 32 bit varint using zigzag encoding.
+   *
+   * @param value the value to write.
+   * @param buffer the buffer to write to.
+   */
+  public static void putSignedVarInt(int value, ByteBuffer buffer) {
+    putVarInt((value << 1) ^ (value >> 31), buffer);
+  }
+
+  /**
+   * Read a signed 32 bit varint written with zigzag encoding.
+   *
+   * @param buffer the buffer to read from.
+   * @return the value read.
+   */
+  public static int getSignedVarInt(ByteBuffer buffer) {
+    int value = getVarInt(buffer);
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Write the length of a collection or array.
+   *
+   * @param length the non-negative length.
+   * @param buffer the buffer to write to.
+   */
+  public static void putLength(int length, ByteBuffer buffer) {
+    if (length < 0) {
+      throw new IllegalArgumentException("Length must not be negative: " + length);
+    }
+    putVarInt(length, buffer);
+  }
+
+  /**
+   * Read the length of a collection or array.
+   *
+   * @param buffer the buffer to read from.
+   * @return the non-negative length.
+   * @throws IllegalArgumentException if the length is negative.
+   */
+  public static int getLength(ByteBuffer buffer) {
+    int length = getVarInt(buffer);
+    if (length < 0) {
+      throw new IllegalArgumentException("Length is out of range: " + (length & 0xffffffffl));
+    }
+    return length;
+  }
+
+  /**
+   * Read a length prefixed array of bytes.
+   *
+   * @param buffer the buffer to read from.
+   * @return the bytes read.
+   */
+  private static byte[] getBytes(ByteBuffer buffer) {
+    int length = getLength(buffer);
+    if (length > buffer.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+}
@@ -21,7 +21,10 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.delivery;
 
+import java.util.concurrent.CompletableFuture;
 import uk.ac.soton.ecs.fl4g12.crdt.idenitifier.Identifiable;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Dot;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Version;
 
 /**
  * A channel that handles delivering {@linkplain UpdateMessage}s to an {@linkplain Updatable} object
@@ -84,6 +87,8 @@ public interface DeliveryChannel<K, M extends UpdateMessage<K, ?>, U extends Upd
    * {@link DeliveryChannel} of other replicas.
    *
    * @param message the message to be applied to the {@link Updatable}.
+   * @throws InboxFullException if the channel is holding as many received messages as it can, in
+   *         which case the message should be delivered again later.
    */
   void receive(M message);
 
@@ -117,4 +122,56 @@ public interface DeliveryChannel<K, M extends UpdateMessage<K, ?>, U extends Upd
    */
   boolean hasPendingUpdates();
 
+  /**
+   * Determine if the {@linkplain DeliveryExchange} is backed up delivering messages from this
+   * {@linkplain DeliveryChannel}. An {@link Updatable} which batches its messages should hold back
+   * new messages while the channel is congested, however, messages published anyway are still
+   * delivered.
+   *
+   * @return {@code true} if the destinations of this channel are backed up, {@code false}
+   *         otherwise. By default a channel is never congested.
+   * @see DeliveryExchange#isCongested(Object)
+   */
+  default boolean isCongested() {
+    return false;
+  }
+
+  /**
+   * Get a future which is completed once the {@linkplain Updatable} registered with this
+   * {@linkplain DeliveryChannel} has applied every update up to the given version, that is once the
+   * version of the {@link Updatable} is identical to or happened-after the given version. This can
+   * be used to wait for an update made on another replica to be visible on this one.
+   *
+   * @param version the version to wait for.
+   * @return a {@link CompletableFuture} which is completed once the version has been applied, or
+   *         is completed exceptionally if the channel is closed first.
+   * @throws UnsupportedOperationException if the {@link Updatable} is not a
+   *         {@link VersionedUpdatable}.
+   */
+  CompletableFuture<Void> whenApplied(Version<?, ?, ?> version);
+
+  /**
+   * Acknowledge that a message which was published through this {@linkplain DeliveryChannel} has
+   * been received by every destination it was published to. This is used by
+   * {@link DeliveryExchange}s once they no longer hold the message for delivery. Acknowledgements
+   * may arrive in any order and acknowledgements for messages which were not published through
+   * this channel are ignored. A {@link DottedUpdateMessage} may be acknowledged with any message
+   * which has the same {@link Dot}, other messages must be acknowledged with the instance which was
+   * published.
+   *
+   * @param message the message which has been received by every destination.
+   */
+  void acknowledge(M message);
+
+  /**
+   * Get the most recent message published through this {@linkplain DeliveryChannel} which, along
+   * with every message published through this channel before it, has been acknowledged. Anything
+   * which is only retained so that these messages can be sent again, such as an operation log or a
+   * retransmission buffer, can be discarded up to this message.
+   *
+   * @return the message which the updates from this channel have been fully replicated up to, or
+   *         {@code null} if no message has been fully replicated.
+   */
+  M getReplicatedUpTo();
+
 }
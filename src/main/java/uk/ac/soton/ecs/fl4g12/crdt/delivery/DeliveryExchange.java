@@ -21,6 +21,8 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.delivery;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Exchanges wrap the functionality of the underlying communication layer allowing for messages to
  * be delivered. When a {@link DeliveryChannel} needs to communicate, it uses the exchange to do so.
@@ -79,8 +81,26 @@ public interface DeliveryExchange<K, M extends UpdateMessage<K, ?>> extends Auto
    * After a successful delivery, {@link Object#notifyAll()} should be called.
    *
    * @param message the {@link UpdateMessage} to send via the {@linkplain DeliveryChannel}.
+   * @return a {@link CompletableFuture} which is completed once every destination has received
+   *         the message.
+   */
+  CompletableFuture<Void> publish(M message); // TODO: Move this to ReliableDeliveryChannel
+
+  /**
+   * Publish messages via this {@linkplain DeliveryExchange}, returning a future which completes once
+   * a quorum of the destinations have received the message. Delivery to the remaining destinations
+   * continues after the future has completed.
+   *
+   * @param message the {@link UpdateMessage} to send via the {@linkplain DeliveryChannel}.
+   * @param quorum the number of destinations which must receive the message before the returned
+   *        future is completed. If there are fewer destinations than this, the future is completed
+   *        once every destination has received the message.
+   * @return a {@link CompletableFuture} which is completed once the quorum of destinations have
+   *         received the message.
+   * @throws IllegalArgumentException if the quorum is negative.
+   * @see #publish(UpdateMessage) for details on publishing.
    */
-  void publish(M message); // TODO: Move this to ReliableDeliveryChannel
+  CompletableFuture<Void> publish(M message, int quorum);
 
   /**
    * Determine if there are any messages waiting to be delivered. If the
@@ -103,4 +123,17 @@ public interface DeliveryExchange<K, M extends UpdateMessage<K, ?>> extends Auto
    */
   boolean hasPendingDeliveries();
 
+  /**
+   * Determine if the destinations of messages published by a {@linkplain DeliveryChannel} are
+   * backed up, such that the source should hold back new messages until they have caught up. This
+   * is only a hint: messages published while congested are still delivered.
+   *
+   * @param source the identifier of the {@link DeliveryChannel} which would publish messages.
+   * @return {@code true} if messages from the source would be queued behind too many others,
+   *         {@code false} otherwise. By default the exchange is never congested.
+   */
+  default boolean isCongested(K source) {
+    return false;
+  }
+
 }
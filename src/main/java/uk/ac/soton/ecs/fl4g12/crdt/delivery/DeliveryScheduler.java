@@ -0,0 +1,74 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the background work of {@link DeliveryChannel}s and {@link DeliveryExchange}s. A single
+ * {@linkplain DeliveryScheduler} can be shared by many instances so that the number of threads
+ * does not grow with the number of replicas.
+ *
+ * Implementations must guarantee that a periodic task is never run concurrently with itself, so
+ * that each {@link DeliveryChannel} or {@link DeliveryExchange} performs its work serially. Tasks
+ * given to {@link #execute(Runnable)} have no such guarantee and should be wrapped in a
+ * {@link SerialTask} where this is required.
+ */
+public interface DeliveryScheduler extends Executor {
+
+  /**
+   * Run the given task once after the given delay, unless the returned {@link ScheduledFuture} is
+   * cancelled first.
+   *
+   * @param task the task to run.
+   * @param delay the delay before the task is run.
+   * @param unit the {@link TimeUnit} of the {@code delay} parameter.
+   * @return a {@link ScheduledFuture} which can be used to cancel the task.
+   */
+  ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit);
+
+  /**
+   * Run the given task periodically until the returned {@link ScheduledFuture} is cancelled or the
+   * {@linkplain DeliveryScheduler} is shut down. If a run takes longer than the period, the next
+   * run starts late rather than concurrently.
+   *
+   * @param task the task to run periodically.
+   * @param initialDelay the delay before the first run.
+   * @param period the period between successive runs.
+   * @param unit the {@link TimeUnit} of the {@code initialDelay} and {@code period} parameters.
+   * @return a {@link ScheduledFuture} which can be used to cancel the task.
+   */
+  ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelay, long period,
+      TimeUnit unit);
+
+  /**
+   * Stop accepting new tasks. Periodic tasks will no longer be run, but tasks which have already
+   * been submitted will be completed.
+   *
+   * @throws IllegalStateException if this {@linkplain DeliveryScheduler} is shared and cannot be
+   *         shut down.
+   */
+  void shutdown();
+
+}
@@ -31,17 +31,24 @@ public final class DeliveryUtils {
 
   private static final Logger LOGGER = Logger.getLogger(DeliveryUtils.class.getName());
 
+  /**
+   * The time in milliseconds between checks for objects which do not notify waiting threads.
+   */
+  private static final long POLL_PERIOD = 100;
+
   // Util class cannot be constructed.
   private DeliveryUtils() {}
 
   /**
    * Wait until there are no messages waiting to be delivered via the {@link DeliveryChannel}. This
-   * method periodically checks {@link DeliveryChannel#hasPendingDeliveries()} and will return once
-   * all pending deliveries are sent. If new messages are published while waiting, these will block
-   * this method from returning however, there is no guarantee that concurrent published will be
-   * waited upon (only that all messages that existed when making the call have now been delivered
-   * and that at some time there were no more messages to be delivered). This method may block for a
-   * long time if the {@link Updatable} is actively producing update messages.
+   * method waits until {@link DeliveryChannel#hasPendingDeliveries()} returns {@code false}, being
+   * notified by {@link AbstractDeliveryChannel}s whenever they send messages and otherwise checking
+   * periodically, and will return once all pending deliveries are sent. If new messages are
+   * published while waiting, these will block this method from returning however, there is no
+   * guarantee that concurrent published will be waited upon (only that all messages that existed
+   * when making the call have now been delivered and that at some time there were no more messages
+   * to be delivered). This method may block for a long time if the {@link Updatable} is actively
+   * producing update messages.
    *
    * If the {@link DeliveryChannel} is implemented correctly and is using a
    * {@link DeliveryExchange}, then at the time this method returns,
@@ -55,10 +62,21 @@ public final class DeliveryUtils {
    * @see #waitForDelivery(DeliveryChannel, DeliveryChannel...) to wait for end-to-end delivery.
    */
   public static void waitForDelivery(DeliveryChannel channel) {
+    if (channel instanceof AbstractDeliveryChannel) {
+      while (true) {
+        try {
+          ((AbstractDeliveryChannel) channel).awaitDelivery();
+          return;
+        } catch (InterruptedException ex) {
+          LOGGER.log(Level.WARNING,
+              "Wait was interrupted: will check again if wait needs to continue.", ex);
+        }
+      }
+    }
     while (channel.hasPendingDeliveries()) {
       try {
-        // TODO: Use a lock
-        Thread.sleep(100);
+        // Other channels give no notification that messages have been sent
+        Thread.sleep(POLL_PERIOD);
       } catch (InterruptedException ex) {
         LOGGER.log(Level.WARNING,
             "Sleep was interrupted: will check again if wait needs to continue.", ex);
@@ -69,11 +87,13 @@ public final class DeliveryUtils {
   /**
    * Wait until the {@link DeliveryExchange} has delivered all its messages. This method waits on
    * the {@link DeliveryExchange} until {@link DeliveryExchange#hasPendingDeliveries()} returns
-   * {@code false}. If new messages are published while waiting, these will block this method from
-   * returning however, there is no guarantee that concurrent published will be waited upon (only
-   * that all messages that existed when making the call have now been delivered and that at some
-   * time there were no more messages to be delivered). This method may block for a long time if the
-   * {@link DeliveryChannel}s are actively producing update messages.
+   * {@code false}, checking periodically in case the {@link DeliveryExchange} is an adapter which
+   * is not notified, such as that of a member of a {@link ReplicaGroup}. If new messages are
+   * published while waiting, these will block this method from returning however, there is no
+   * guarantee that concurrent published will be waited upon (only that all messages that existed
+   * when making the call have now been delivered and that at some time there were no more messages
+   * to be delivered). This method may block for a long time if the {@link DeliveryChannel}s are
+   * actively producing update messages.
    *
    * If the {@link DeliveryExchange} is implemented correctly, then at the time this method returns,
    * {@link DeliveryExchange#hasPendingDeliveries()} and {@link DeliveryChannel#hasPendingUpdates()}
@@ -91,7 +111,7 @@ public final class DeliveryUtils {
     synchronized (exchange) {
       while (exchange.hasPendingDeliveries()) {
         try {
-          exchange.wait();
+          exchange.wait(POLL_PERIOD);
         } catch (InterruptedException ex) {
           LOGGER.log(Level.WARNING,
               "Wait was interrupted: will check again if wait needs to continue.", ex);
@@ -103,12 +123,13 @@ public final class DeliveryUtils {
   /**
    * Wait for all pending updates held by the {@link DeliveryChannel} to be applied to the
    * {@link Updatable}. This method waits on the {@link DeliveryChannel} while it
-   * {@link DeliveryChannel#hasPendingUpdates()} that have not been applied. If new messages are
-   * published while waiting, these will block this method from returning however, there is no
-   * guarantee that concurrent published will be waited upon (only that all messages that existed
-   * when making the call have now been delivered and that at some time there were no more messages
-   * to be delivered). This method may block for a long time if the {@link DeliveryChannel}s are
-   * actively producing update messages.
+   * {@link DeliveryChannel#hasPendingUpdates()} that have not been applied, checking periodically
+   * in case the {@link DeliveryChannel} is not notified, such as that of a member of a
+   * {@link ReplicaGroup}. If new messages are published while waiting, these will block this method
+   * from returning however, there is no guarantee that concurrent published will be waited upon
+   * (only that all messages that existed when making the call have now been delivered and that at
+   * some time there were no more messages to be delivered). This method may block for a long time
+   * if the {@link DeliveryChannel}s are actively producing update messages.
    *
    * @param channel the {@link DeliveryChannel} to wait on.
    */
@@ -116,7 +137,7 @@ public final class DeliveryUtils {
     synchronized (channel) {
       while (channel.hasPendingUpdates()) {
         try {
-          channel.wait();
+          channel.wait(POLL_PERIOD);
         } catch (InterruptedException ex) {
           LOGGER.log(Level.WARNING,
               "Wait was interrupted: will check again if wait needs to continue.", ex);
@@ -141,7 +162,8 @@ public final class DeliveryUtils {
   public static void waitForDelivery(DeliveryChannel source, DeliveryChannel... destinations) {
     waitForDelivery(source);
     waitForDelivery(source.getExchange());
-    // TODO: Multi-thread and use thread join
+    // Delivery to the destinations happens concurrently so waiting on each in turn only waits for
+    // the slowest.
     for (DeliveryChannel destination : destinations) {
       // Wait for the destination exchange if it uses a different one from the source
       if (!source.getExchange().equals(destination.getExchange())) {
@@ -0,0 +1,102 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+/**
+ * Chooses the {@linkplain StateSnapshot} which a {@link StateDeliveryChannel} publishes next. When
+ * the {@link StatefulUpdatable} is a {@link DeltaStatefulUpdatable}, deltas are published with a
+ * full snapshot every {@code fullStateInterval} messages. The full snapshots bring replicas which
+ * have missed a delta, or which joined after it was published, back up to date.
+ *
+ * A full snapshot which is due is deferred while the previous full snapshot has not yet been
+ * replicated, since it is still on its way to every destination and the deltas which follow it
+ * are delivered after it. This stops full snapshots piling up for a slow destination. A full
+ * snapshot is deferred for at most another {@code fullStateInterval} messages, so that replicas
+ * still catch up when the exchange does not acknowledge messages.
+ *
+ * @param <M> the type of {@link StateSnapshot} which is published.
+ */
+final class DeltaStateSelector<M extends StateSnapshot<?, ?>> {
+
+  private final int fullStateInterval;
+  private int sinceFullState = 0;
+  private M fullState = null;
+
+  /**
+   * Create a {@linkplain DeltaStateSelector}.
+   *
+   * @param fullStateInterval the number of messages between full snapshots, {@code 1} to always
+   *        publish full snapshots.
+   * @throws IllegalArgumentException if {@code fullStateInterval} is less than {@code 1}.
+   */
+  DeltaStateSelector(int fullStateInterval) {
+    if (fullStateInterval < 1) {
+      throw new IllegalArgumentException(
+          "fullStateInterval must be at least 1, given: " + fullStateInterval);
+    }
+    this.fullStateInterval = fullStateInterval;
+  }
+
+  /**
+   * Get the number of messages between full snapshots.
+   *
+   * @return the number of messages between full snapshots.
+   */
+  int getFullStateInterval() {
+    return fullStateInterval;
+  }
+
+  /**
+   * Get the most recent full snapshot which was published while deltas were being published.
+   *
+   * @return the most recent full snapshot or {@code null} if none has been published.
+   */
+  M getFullState() {
+    return fullState;
+  }
+
+  /**
+   * Get the next message to publish for the given {@link StatefulUpdatable}.
+   *
+   * @param updatable the {@link StatefulUpdatable} to get the message from.
+   * @param replicated whether the {@linkplain #getFullState() most recent full snapshot} has been
+   *        replicated to every destination.
+   * @return the message to publish or {@code null} if there is nothing to publish.
+   */
+  M next(StatefulUpdatable<?, ?, M> updatable, boolean replicated) {
+    if (fullStateInterval == 1 || !(updatable instanceof DeltaStatefulUpdatable)) {
+      return updatable.snapshot();
+    }
+    if (sinceFullState >= fullStateInterval - 1
+        && (replicated || sinceFullState >= 2 * fullStateInterval - 1)) {
+      sinceFullState = 0;
+      fullState = ((DeltaStatefulUpdatable<?, ?, M>) updatable).restartDelta();
+      return fullState;
+    }
+    M delta = ((DeltaStatefulUpdatable<?, ?, M>) updatable).delta();
+    if (delta != null) {
+      sinceFullState++;
+    }
+    return delta;
+  }
+
+}
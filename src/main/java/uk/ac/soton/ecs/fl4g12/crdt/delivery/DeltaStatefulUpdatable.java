@@ -0,0 +1,64 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import uk.ac.soton.ecs.fl4g12.crdt.order.Version;
+
+/**
+ * Interface for {@link StatefulUpdatable}s which can also produce delta states. A delta state is a
+ * {@link StateSnapshot} containing only the changes made locally since the previous state message
+ * was produced. Since updating with a state is a join, applying a delta has the same effect on a
+ * replica which has seen the previous state messages as applying a full snapshot, while being much
+ * smaller to deliver.
+ *
+ * Delta tracking starts with the first call to {@link #delta()}, which returns a full snapshot.
+ * Each subsequent call returns the changes made since the previous call or since the last
+ * {@link #restartDelta()}, whichever was more recent, as the full snapshot it returns already
+ * contains them. Calls to {@link #snapshot()} do not affect the delta states.
+ *
+ * @param <K> the type of identifier used to identify nodes.
+ * @param <V> the type of the {@link Version}.
+ * @param <M> the type of {@link StateSnapshot} made from this {@link DeltaStatefulUpdatable}.
+ */
+public interface DeltaStatefulUpdatable<K, V extends Version<?, ?, ?>,
+    M extends StateSnapshot<K, V>> extends StatefulUpdatable<K, V, M> {
+
+  /**
+   * Creates a delta state containing the local changes made since the previous state message was
+   * produced by this {@linkplain DeltaStatefulUpdatable}. The first call returns a full
+   * {@linkplain #snapshot() snapshot}.
+   *
+   * @return a delta state which can be used as an {@linkplain UpdateMessage} or {@code null} if
+   *         there have been no local changes.
+   */
+  M delta();
+
+  /**
+   * Creates a full {@linkplain #snapshot() snapshot} which is published in place of a delta state.
+   * The snapshot contains all of the local changes, so the next {@link #delta()} only contains the
+   * changes made after this call.
+   *
+   * @return a full snapshot which can be used as an {@linkplain UpdateMessage}.
+   */
+  M restartDelta();
+
+}
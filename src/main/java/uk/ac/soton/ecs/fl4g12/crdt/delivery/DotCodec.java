@@ -0,0 +1,87 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.nio.ByteBuffer;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Dot;
+import uk.ac.soton.ecs.fl4g12.crdt.order.LogicalVersion;
+
+/**
+ * {@linkplain Codec} for {@linkplain Dot}s. A dot is written as the identifier of its node
+ * followed by its timestamp.
+ *
+ * @param <K> the type of identifier used to identify nodes.
+ * @param <T> the type of the timestamp stored in the {@link Dot}.
+ */
+public final class DotCodec<K, T extends Comparable<T>> implements Codec<Dot<K, T>> {
+
+  private final Codec<K> identifiers;
+  private final Codec<T> timestamps;
+  private final LogicalVersion<T, ?> zero;
+
+  /**
+   * Construct a {@linkplain DotCodec}.
+   *
+   * @param identifiers the {@link Codec} for the identifiers of the dots.
+   * @param timestamps the {@link Codec} for the timestamps of the dots.
+   * @param zero a zero {@link LogicalVersion} which is copied to create the version of each decoded
+   *        dot.
+   */
+  public DotCodec(Codec<K> identifiers, Codec<T> timestamps, LogicalVersion<T, ?> zero) {
+    this.identifiers = identifiers;
+    this.timestamps = timestamps;
+    this.zero = zero.copy();
+  }
+
+  /**
+   * Get the {@linkplain Codec} used for the identifiers of the dots.
+   *
+   * @return the {@link Codec} for identifiers.
+   */
+  public Codec<K> getIdentifierCodec() {
+    return identifiers;
+  }
+
+  /**
+   * Get the {@linkplain Codec} used for the timestamps of the dots.
+   *
+   * @return the {@link Codec} for timestamps.
+   */
+  public Codec<T> getTimestampCodec() {
+    return timestamps;
+  }
+
+  @Override
+  public void encode(Dot<K, T> value, ByteBuffer buffer) {
+    identifiers.encode(value.getIdentifier(), buffer);
+    timestamps.encode(value.get(), buffer);
+  }
+
+  @Override
+  public Dot<K, T> decode(ByteBuffer buffer) {
+    K identifier = identifiers.decode(buffer);
+    LogicalVersion<T, ?> version = zero.copy();
+    version.sync(timestamps.decode(buffer));
+    return new Dot<K, T>(identifier, version);
+  }
+
+}
@@ -21,6 +21,7 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.delivery;
 
+import java.util.Map;
 import uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative.CmRDT;
 import uk.ac.soton.ecs.fl4g12.crdt.order.Dot;
 import uk.ac.soton.ecs.fl4g12.crdt.order.Version;
@@ -35,4 +36,16 @@ import uk.ac.soton.ecs.fl4g12.crdt.order.Version;
 public interface DottedUpdateMessage<K, T extends Comparable<T>>
     extends VersionedUpdateMessage<K, Dot<K, T>> {
 
+  /**
+   * Get the causal dependencies of the update. The dependencies are a summary of the updates from
+   * other nodes which must have been applied before this update, mapping the identifier of each
+   * node to the timestamp of the latest update from that node which this update depends on. The
+   * dependency on the previous update from the same node is implied by the {@link Dot} and so is
+   * not included.
+   *
+   * @return an unmodifiable map of the causal dependencies of the update, which is empty if the
+   *         update does not depend on any updates from other nodes.
+   */
+  Map<K, T> getDependencies();
+
 }
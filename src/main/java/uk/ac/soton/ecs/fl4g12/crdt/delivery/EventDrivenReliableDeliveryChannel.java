@@ -0,0 +1,140 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link ReliableDeliveryChannel} which applies updates as soon as they are received rather than
+ * periodically. Receiving a message schedules a {@link SerialTask} on a shared
+ * {@link DeliveryScheduler}, so a burst of messages is applied by a single run and an idle channel
+ * uses no threads at all.
+ * Messages provided to the {@link #publish(VersionedUpdateMessage)} are immediately published to
+ * the {@link DeliveryExchange}.
+ *
+ * Received messages are held in a {@link CausalDeliveryBuffer} until they can be applied. Messages
+ * which are waiting for their dependencies are retried when those dependencies are applied, and
+ * messages which failed for any other reason are retried after a short delay.
+ *
+ * @param <K> The type of the identifier that is assigned to the {@link Updatable}.
+ * @param <M> The type of updates sent via the delivery channel.
+ */
+public final class EventDrivenReliableDeliveryChannel<K, M extends VersionedUpdateMessage<K, ?>>
+    extends AbstractReliableDeliveryChannel<K, M> {
+
+  private static final Logger LOGGER =
+      Logger.getLogger(EventDrivenReliableDeliveryChannel.class.getName());
+
+  private static final long RETRY_DELAY = 100;
+  private static final TimeUnit RETRY_DELAY_UNIT = TimeUnit.MILLISECONDS;
+
+  private final DeliveryScheduler scheduler;
+  private final SerialTask task;
+  private ScheduledFuture<?> retry;
+
+  /**
+   * Create an {@linkplain EventDrivenReliableDeliveryChannel} which applies updates using the
+   * {@linkplain PooledDeliveryScheduler#getShared() shared scheduler}.
+   *
+   * @param exchange the {@link DeliveryExchange} which messages will be published to.
+   */
+  public EventDrivenReliableDeliveryChannel(DeliveryExchange<K, M> exchange) {
+    this(exchange, PooledDeliveryScheduler.getShared());
+  }
+
+  /**
+   * Create an {@linkplain EventDrivenReliableDeliveryChannel} which applies updates using the
+   * given {@link DeliveryScheduler}. The {@link DeliveryScheduler} may be shared between many
+   * channels and will not be shut down when this channel is closed.
+   *
+   * @param exchange the {@link DeliveryExchange} which messages will be published to.
+   * @param scheduler the {@link DeliveryScheduler} used to apply updates.
+   */
+  public EventDrivenReliableDeliveryChannel(DeliveryExchange<K, M> exchange,
+      DeliveryScheduler scheduler) {
+    super(exchange);
+    this.scheduler = scheduler;
+    this.task = new SerialTask(scheduler, new Runnable() {
+      @Override
+      public void run() {
+        doUpdates();
+      }
+
+      @Override
+      public String toString() {
+        return "updates for " + EventDrivenReliableDeliveryChannel.this;
+      }
+    });
+  }
+
+  @Override
+  protected void postReceive(M message) {
+    task.schedule();
+  }
+
+  @Override
+  protected void postFailure() {
+    // Once closed the shutdown makes the last attempt.
+    if (isOpen()) {
+      scheduleRetry();
+    }
+  }
+
+  /**
+   * Schedule the task to run again after {@link #RETRY_DELAY} so that failed messages are retried
+   * even if nothing else happens on this channel. Must be called while holding the lock of the
+   * channel.
+   */
+  private void scheduleRetry() {
+    if (retry != null && !retry.isDone()) {
+      // A retry is already waiting.
+      return;
+    }
+    try {
+      retry = scheduler.schedule(new Runnable() {
+        @Override
+        public void run() {
+          task.schedule();
+        }
+      }, RETRY_DELAY, RETRY_DELAY_UNIT);
+    } catch (RejectedExecutionException ex) {
+      LOGGER.log(Level.WARNING, "Retry rejected, messages will be retried on the next event", ex);
+    }
+  }
+
+  @Override
+  protected void shutdown() throws Exception {
+    synchronized (this) {
+      if (retry != null) {
+        retry.cancel(false);
+      }
+    }
+    // If there are messagse try to apply them
+    if (hasPendingUpdates()) {
+      doUpdates();
+    }
+  }
+
+}
@@ -0,0 +1,238 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link StateDeliveryChannel} which applies updates and publishes state as soon as there is
+ * something to do rather than periodically. Receiving a message or a call to {@link #publish()}
+ * schedules a {@link SerialTask} on a shared {@link DeliveryScheduler}, so a burst of events
+ * results in a single snapshot being published and an idle channel uses no threads at all.
+ *
+ * Updates are applied in reverse causal order such that if an older message is fully encapsulated
+ * within a newer one, that message is not applied (assuming that the data type performs the check).
+ * Messages which cannot be applied are retried on the next event, or after a short delay if there
+ * is no event before then.
+ *
+ * @param <K> The type of the identifier that is assigned to the {@link Updatable}.
+ * @param <M> The type of updates sent via the delivery channel.
+ */
+@SuppressWarnings("try")
+public final class EventDrivenStateDeliveryChannel<K, M extends StateSnapshot<K, ?>>
+    extends AbstractDeliveryChannel<K, M, StatefulUpdatable<K, ?, M>>
+    implements StateDeliveryChannel<K, M> {
+
+  private static final Logger LOGGER =
+      Logger.getLogger(EventDrivenStateDeliveryChannel.class.getName());
+
+  private static final int INITIAL_QUEUE_CAPACITY = 10;
+  private static final long RETRY_DELAY = 100;
+  private static final TimeUnit RETRY_DELAY_UNIT = TimeUnit.MILLISECONDS;
+
+  private final DeliveryScheduler scheduler;
+  private final SerialTask task;
+  private ScheduledFuture<?> retry;
+  private final AtomicInteger publishCounter = new AtomicInteger();
+  private final DeltaStateSelector<M> selector;
+
+  /**
+   * Create an {@linkplain EventDrivenStateDeliveryChannel} which applies updates and publishes
+   * state using the {@linkplain PooledDeliveryScheduler#getShared() shared scheduler}.
+   *
+   * @param exchange the {@link DeliveryExchange} which messages will be published to.
+   */
+  public EventDrivenStateDeliveryChannel(DeliveryExchange<K, M> exchange) {
+    this(exchange, PooledDeliveryScheduler.getShared());
+  }
+
+  /**
+   * Create an {@linkplain EventDrivenStateDeliveryChannel} which applies updates and publishes
+   * state using the given {@link DeliveryScheduler}. The {@link DeliveryScheduler} may be shared
+   * between many channels and will not be shut down when this channel is closed.
+   *
+   * @param exchange the {@link DeliveryExchange} which messages will be published to.
+   * @param scheduler the {@link DeliveryScheduler} used to apply updates and publish state.
+   */
+  public EventDrivenStateDeliveryChannel(DeliveryExchange<K, M> exchange,
+      DeliveryScheduler scheduler) {
+    this(exchange, scheduler, 1);
+  }
+
+  /**
+   * Create an {@linkplain EventDrivenStateDeliveryChannel} which publishes delta states when the
+   * registered {@link Updatable} is a {@link DeltaStatefulUpdatable}. A full snapshot is published
+   * every {@code fullStateInterval} messages so that replicas which have missed a delta converge.
+   *
+   * @param exchange the {@link DeliveryExchange} which messages will be published to.
+   * @param scheduler the {@link DeliveryScheduler} used to apply updates and publish state.
+   * @param fullStateInterval the number of messages between full snapshots, {@code 1} to always
+   *        publish full snapshots.
+   * @throws IllegalArgumentException if {@code fullStateInterval} is less than {@code 1}.
+   */
+  public EventDrivenStateDeliveryChannel(DeliveryExchange<K, M> exchange,
+      DeliveryScheduler scheduler, int fullStateInterval) {
+    // Applying newest first should result in the greatest number of messages that require no work.
+    super(exchange,
+        new PriorityBlockingQueue<M>(INITIAL_QUEUE_CAPACITY, Collections.reverseOrder()));
+    this.selector = new DeltaStateSelector<>(fullStateInterval);
+    this.scheduler = scheduler;
+    this.task = new SerialTask(scheduler, new Runnable() {
+      @Override
+      public void run() {
+        // Apply updates first so they are included in the new state.
+        try {
+          doUpdates();
+        } catch (Throwable t) {
+          LOGGER.log(Level.SEVERE, "Throwable while applying updates", t);
+        }
+        doDelivery();
+      }
+
+      @Override
+      public String toString() {
+        return "delivery for " + EventDrivenStateDeliveryChannel.this;
+      }
+    });
+  }
+
+  @Override
+  protected int collapse(M message) {
+    return StateInboxes.collapse(inbox, message);
+  }
+
+  @Override
+  protected void postReceive(M message) {
+    task.schedule();
+  }
+
+  @Override
+  public boolean hasPendingDeliveries() {
+    // If the publish counter is greater than 0, there are messages which have not yet been
+    // delivered.
+    return publishCounter.get() > 0;
+  }
+
+  @Override
+  public void publish() {
+    // Increment the publish counter and schedule the delivery.
+    publishCounter.incrementAndGet();
+    task.schedule();
+  }
+
+  public synchronized void doDelivery() {
+    // Check if there are messages to be delivered.
+    int publishes = publishCounter.get();
+    if (publishes <= 0) {
+      // No new messages
+      return;
+    }
+
+    // Get a snapshot or delta and publish it
+    M message = selector.next(getUpdatable(), isReplicated(selector.getFullState()));
+    if (message != null) {
+      send(message);
+    }
+
+    // Remove the number of publishes that there were when this method started. Any that were
+    // published while this method executed will have scheduled another run.
+    publishCounter.addAndGet(-publishes);
+    notifySent();
+  }
+
+  public synchronized void doUpdates() {
+    // Collection of failed messages which will be added back to the inbox afterwards.
+    Collection<M> failed = new ArrayList<>();
+
+    StatefulUpdatable<K, ?, M> updatable = getUpdatable();
+    M message;
+    while ((message = inbox.poll()) != null) {
+      try {
+        updatable.update(message);
+      } catch (Throwable ex) {
+        LOGGER.log(Level.SEVERE, "Throwable caught while trying to deliver message to " + updatable,
+            ex);
+        LOGGER.log(Level.INFO, "Requeuing message for delivery later: {0}", message);
+        failed.add(message);
+      }
+    }
+
+    // Put the failed items back in the inbox for next delivery cycle.
+    inbox.addAll(failed);
+    if (!failed.isEmpty()) {
+      scheduleRetry();
+    }
+
+    // Notify any threads waiting for the next update cycle to complete.
+    notifyApplied();
+    notifyAll();
+  }
+
+  /**
+   * Schedule the task to run again after {@link #RETRY_DELAY} so that requeued messages are retried
+   * even if nothing else happens on this channel. Must be called while holding the lock of the
+   * channel.
+   */
+  private void scheduleRetry() {
+    if (retry != null && !retry.isDone()) {
+      // A retry is already waiting.
+      return;
+    }
+    try {
+      retry = scheduler.schedule(new Runnable() {
+        @Override
+        public void run() {
+          task.schedule();
+        }
+      }, RETRY_DELAY, RETRY_DELAY_UNIT);
+    } catch (RejectedExecutionException ex) {
+      LOGGER.log(Level.WARNING, "Retry rejected, messages will be retried on the next event", ex);
+    }
+  }
+
+  @Override
+  protected void shutdown() throws Exception {
+    synchronized (this) {
+      if (retry != null) {
+        retry.cancel(false);
+      }
+    }
+    // If there are messagse try to apply them
+    if (hasPendingUpdates()) {
+      doUpdates();
+    }
+    // If there are pending deliverie send them out
+    if (hasPendingDeliveries()) {
+      doDelivery();
+    }
+  }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.util.Map;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Dot;
+
+/**
+ * A {@linkplain DottedUpdateMessage} sent by a member of a {@linkplain ReplicaGroup}, tagged with
+ * the identifier of the object within the group which it is for. The version, dependencies and
+ * ordering are those of the wrapped message.
+ *
+ * @param <K> the type of identifier used to identify nodes.
+ * @param <T> the type of the timestamp.
+ * @param <O> the type of identifier used to identify objects within the group.
+ */
+public final class GroupUpdateMessage<K, T extends Comparable<T>, O>
+    implements DottedUpdateMessage<K, T> {
+
+  private static final long serialVersionUID = 1L;
+
+  private final O object;
+  private final DottedUpdateMessage<K, T> message;
+
+  /**
+   * Instantiate a {@linkplain GroupUpdateMessage} wrapping a message for the given object.
+   *
+   * @param object the identifier of the object within the group which the message is for.
+   * @param message the message published by the object.
+   */
+  public GroupUpdateMessage(O object, DottedUpdateMessage<K, T> message) {
+    this.object = object;
+    this.message = message;
+  }
+
+  /**
+   * Get the identifier of the object within the group which the message is for.
+   *
+   * @return the identifier of the object which the message is for.
+   */
+  public O getObject() {
+    return object;
+  }
+
+  /**
+   * Get the message published by the object.
+   *
+   * @return the wrapped message.
+   */
+  public DottedUpdateMessage<K, T> getMessage() {
+    return message;
+  }
+
+  @Override
+  public K getIdentifier() {
+    return message.getIdentifier();
+  }
+
+  @Override
+  public Dot<K, T> getVersion() {
+    return message.getVersion();
+  }
+
+  @Override
+  public Map<K, T> getDependencies() {
+    return message.getDependencies();
+  }
+
+  @Override
+  public int compareTo(VersionedUpdateMessage<K, Dot<K, T>> o) {
+    if (o instanceof GroupUpdateMessage) {
+      return message.compareTo(((GroupUpdateMessage<K, T, ?>) o).message);
+    }
+    return message.compareTo(o);
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = 7;
+    hash = 97 * hash + (this.object == null ? 0 : this.object.hashCode());
+    hash = 97 * hash + this.message.hashCode();
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null) {
+      return false;
+    }
+    if (getClass() != obj.getClass()) {
+      return false;
+    }
+    final GroupUpdateMessage<?, ?, ?> other = (GroupUpdateMessage<?, ?, ?>) obj;
+    if (this.object == null ? other.object != null : !this.object.equals(other.object)) {
+      return false;
+    }
+    return this.message.equals(other.message);
+  }
+
+  @Override
+  public String toString() {
+    return "GroupUpdateMessage{" + "object=" + object + ", message=" + message + '}';
+  }
+
+}
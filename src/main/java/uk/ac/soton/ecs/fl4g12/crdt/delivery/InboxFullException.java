@@ -0,0 +1,56 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+/**
+ * Exception thrown when a {@link DeliveryChannel} cannot receive an {@link UpdateMessage} because
+ * its inbox is full. This is backpressure rather than a failure: the {@link DeliveryExchange}
+ * should pause delivery to the {@link DeliveryChannel} and retry the message later.
+ */
+public class InboxFullException extends IllegalStateException {
+
+  private static final long serialVersionUID = 1L;
+
+  // The channel is not serializable, so it is not kept when the exception is.
+  private final transient DeliveryChannel<?, ?, ?> channel;
+
+  /**
+   * Constructs an instance of <code>InboxFullException</code> for the given channel.
+   *
+   * @param channel the {@link DeliveryChannel} whose inbox is full.
+   * @param capacity the capacity of the inbox.
+   */
+  public InboxFullException(DeliveryChannel<?, ?, ?> channel, int capacity) {
+    super("The inbox of " + channel + " is full, capacity: " + capacity);
+    this.channel = channel;
+  }
+
+  /**
+   * Get the {@linkplain DeliveryChannel} whose inbox is full.
+   *
+   * @return the {@link DeliveryChannel} whose inbox is full, or {@code null} if this exception has
+   *         been deserialized.
+   */
+  public DeliveryChannel<?, ?, ?> getChannel() {
+    return channel;
+  }
+}
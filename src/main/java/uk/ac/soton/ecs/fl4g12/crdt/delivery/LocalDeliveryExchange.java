@@ -21,21 +21,21 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.delivery;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedHashSet;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.BlockingQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import uk.ac.soton.ecs.fl4g12.crdt.idenitifier.IdentifierFactory;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Dot;
 
 /**
  * A {@linkplain DeliveryExchange} for transferring {@linkplain UpdateMessage}s between registered
@@ -43,7 +43,24 @@ import uk.ac.soton.ecs.fl4g12.crdt.idenitifier.IdentifierFactory;
  * applications that have a lot of local concurrency, there can be a performance benefit with using
  * this.
  *
- * When a message is published, it will be delivered to all
+ * When a message is published, it will be delivered to all of the other registered
+ * {@link DeliveryChannel}s and, once they have all received it, acknowledged to the
+ * {@link DeliveryChannel} which published it.
+ *
+ * Each destination has its own queue of messages waiting to be delivered to it, which is drained
+ * by a {@link SerialTask} on the {@link DeliveryScheduler}. Destinations are delivered to
+ * independently and in parallel, so a destination which is slow or fails to receive a message only
+ * delays its own queue. Messages are delivered to each destination in the order they were
+ * published. A destination which fails to receive a message is retried periodically, starting with
+ * the message which failed. A destination which rejects a message with an
+ * {@link InboxFullException} is paused in the same way, without logging a failure. A destination
+ * which fails because its channel has been closed is removed from the exchange, and the messages
+ * waiting for it are counted as received so that they are still acknowledged to their sources.
+ *
+ * The queue of each destination is unbounded, so that a message is never lost, but once a queue
+ * reaches the {@linkplain #setOutboxCapacity(int) outbox capacity} the exchange reports that it
+ * {@linkplain #isCongested(Object) is congested} to the sources of the messages, which should then
+ * hold back new messages until the destination has caught up.
  *
  * @param <K> The type of the identifier that is used to identify {@link DeliveryChannel}s.
  * @param <M> The type of {@link UpdateMessage} sent via the {@link DeliveryChannel}s.
@@ -53,19 +70,29 @@ public class LocalDeliveryExchange<K, M extends VersionedUpdateMessage<K, ?>>
 
   private static final Logger LOGGER = Logger.getLogger(LocalDeliveryExchange.class.getName());
   /**
-   * Map of {@link UpdateMessage} timestamps to a set of {@link DeliveryChannel}s yet to acknowledge
-   * that message.
+   * Number of threads used when the exchange creates its own {@link DeliveryScheduler}. There is
+   * always more than one so that a destination which blocks cannot stop delivery to the others.
+   */
+  private static final int DEFAULT_THREADS =
+      Math.max(2, Runtime.getRuntime().availableProcessors());
+
+  /**
+   * Map of the identities of published messages to the {@link Envelope}s of those messages which
+   * are yet to be received by every destination.
+   *
+   * @see #identify(UpdateMessage, Outbox)
    */
-  // TODO: Document that Versions should have only use timestamps which is reliably hashed.
-  private final Map<M, HashSet<DeliveryChannel<K, M, ?>>> unacked = new ConcurrentHashMap<>();
-  private final BlockingQueue<M> messages = new LinkedBlockingQueue<>();
+  private final Map<Object, Envelope> unacked = new ConcurrentHashMap<>();
 
   private final IdentifierFactory<K> idFactory;
-  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+  private final DeliveryScheduler scheduler;
+  private final boolean ownScheduler;
+  private final ScheduledFuture<?> schedule;
 
-  private final Map<K, DeliveryChannel<K, M, ?>> channels = new ConcurrentHashMap<>();
+  private final Map<K, Outbox> outboxes = new ConcurrentHashMap<>();
 
   private volatile boolean open = true;
+  private volatile int outboxCapacity = Integer.MAX_VALUE;
 
   /**
    * Instantiate a {@linkplain LocalDeliveryExchange} with the given {@linkplain IdentifierFactory}.
@@ -76,8 +103,32 @@ public class LocalDeliveryExchange<K, M extends VersionedUpdateMessage<K, ?>>
    * @param unit the {@link TimeUnit} of the {@code period} parameter.
    */
   public LocalDeliveryExchange(IdentifierFactory<K> idFactory, long period, TimeUnit unit) {
+    this(idFactory, period, unit,
+        new PooledDeliveryScheduler(DEFAULT_THREADS), true);
+  }
+
+  /**
+   * Instantiate a {@linkplain LocalDeliveryExchange} with the given {@linkplain IdentifierFactory}
+   * which performs delivery using the given {@link DeliveryScheduler}. The
+   * {@link DeliveryScheduler} may be shared and will not be shut down when this exchange is closed.
+   *
+   * @param idFactory the {@link IdentifierFactory} to use to assign IDs when new
+   *        {@link DeliveryChannel}s are registered.
+   * @param period the period between successive delivery attempts.
+   * @param unit the {@link TimeUnit} of the {@code period} parameter.
+   * @param scheduler the {@link DeliveryScheduler} used to perform delivery.
+   */
+  public LocalDeliveryExchange(IdentifierFactory<K> idFactory, long period, TimeUnit unit,
+      DeliveryScheduler scheduler) {
+    this(idFactory, period, unit, scheduler, false);
+  }
+
+  private LocalDeliveryExchange(IdentifierFactory<K> idFactory, long period, TimeUnit unit,
+      DeliveryScheduler scheduler, boolean ownScheduler) {
     this.idFactory = idFactory;
-    this.executor.scheduleAtFixedRate(new ExchangeDeliveryRunnable(), 0, period, unit);
+    this.scheduler = scheduler;
+    this.ownScheduler = ownScheduler;
+    this.schedule = scheduler.scheduleAtFixedRate(new ExchangeDeliveryRunnable(), 0, period, unit);
   }
 
   @Override
@@ -98,17 +149,26 @@ public class LocalDeliveryExchange<K, M extends VersionedUpdateMessage<K, ?>>
     if (identifier == null) {
       do {
         identifier = idFactory.create();
-      } while (channels.containsKey(identifier));
-    } else if (channels.containsKey(identifier)) {
+      } while (outboxes.containsKey(identifier));
+    } else if (outboxes.containsKey(identifier)) {
       throw new IllegalArgumentException(
           "An updatable with that ID is already registered:" + channel.getIdentifier());
     }
-    channels.put(identifier, channel);
+    outboxes.put(identifier, new Outbox(channel));
     return identifier;
   }
 
   @Override
-  public void publish(M message) {
+  public CompletableFuture<Void> publish(M message) {
+    return publish(message, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public CompletableFuture<Void> publish(M message, int quorum) {
+    if (quorum < 0) {
+      throw new IllegalArgumentException("The quorum cannot be negative: " + quorum);
+    }
+
     // No new messages once the exchange is closed.
     if (!open) {
       throw new IllegalStateException(
@@ -116,70 +176,106 @@ public class LocalDeliveryExchange<K, M extends VersionedUpdateMessage<K, ?>>
     }
 
     // Is the channel registered to this exchnage
-    if (!channels.containsKey(message.getIdentifier())) {
+    final Outbox source = outboxes.get(message.getIdentifier());
+    if (source == null) {
       throw new IllegalArgumentException("The message source is not registered with this exchange");
     }
 
-    // Create a set for unacked messages
-    final HashSet<DeliveryChannel<K, M, ?>> unackedChannels;
-    // Reserve the timestamp
-    synchronized (unacked) {
-      if (unacked.containsKey(message)) {
-        throw new IllegalStateException("A message with that version has already been published");
+    // Find the destinations and count them before any can receive the message
+    final List<Outbox> destinations = new ArrayList<>(outboxes.size());
+    for (Outbox outbox : outboxes.values()) {
+      if (outbox != source) {
+        destinations.add(outbox);
       }
-      unackedChannels = new HashSet<>(); // TODO: Concurrent?
-      unacked.put(message, unackedChannels);
     }
 
-    // Prepare unackedChannels
-    for (DeliveryChannel<K, M, ?> channnel : channels.values()) {
-      if (!message.getIdentifier().equals(channnel.getIdentifier())) {
-        unackedChannels.add(channnel);
-      }
+    // Reserve the identity of the message
+    final Envelope envelope = new Envelope(message, source, identify(message, source),
+        destinations.size(), Math.min(quorum, destinations.size()));
+    if (unacked.putIfAbsent(envelope.identity, envelope) != null) {
+      throw new IllegalStateException("A message with that version has already been published");
+    }
+    if (quorum == 0) {
+      // No destination needs to receive the message first
+      envelope.future.complete(null);
+    }
+    if (destinations.isEmpty()) {
+      // Nothing to deliver to
+      delivered(envelope);
+      return envelope.future;
     }
 
-    // Add the message to the queue - ready to be delivered
-    messages.add(message);
+    // Add the message to the queue of each destination - ready to be delivered
+    for (Outbox destination : destinations) {
+      destination.add(envelope);
+      destination.task.schedule();
+    }
+    return envelope.future;
   }
 
-  public synchronized void doDelivery() {
-    // Create a set for the messages which were not sent
-    // Avoids getting stuck in a busy loop for a message that can't be delivered.
-    // LinkedHashSet maintains order while deduping if something weird happens.
-    Collection<M> failed = new LinkedHashSet<>();
+  /**
+   * Schedule delivery for each destination which has messages waiting to be delivered. This is
+   * performed periodically so that destinations which failed to receive a message are retried.
+   */
+  public void doDelivery() {
     try {
-      // Go through the messages in the order they were received
-      M message;
-      while ((message = messages.poll()) != null) {
-        Set<DeliveryChannel<K, M, ?>> destinations = unacked.get(message);
-
-        synchronized (destinations) {
-          Iterator<DeliveryChannel<K, M, ?>> destinationsIt = destinations.iterator();
-          while (destinationsIt.hasNext()) {
-            DeliveryChannel<K, M, ?> channel = destinationsIt.next();
-            try {
-              channel.receive(message);
-              // Successfully received by channel, acknowledge by removing from set
-              destinationsIt.remove();
-            } catch (Throwable t) {
-              LOGGER.log(Level.WARNING, "Delivery of message to " + channel + " failed", t);
-            }
-          }
-          // If channels is empty, all messages delivered
-          if (destinations.isEmpty()) {
-            // TODO: send ACK to source DeliveryChannel
-            unacked.remove(message);
-          } else {
-            // Message will need redelivering at next cycle
-            failed.add(message);
-          }
+      for (Outbox outbox : outboxes.values()) {
+        if (open && !outbox.queue.isEmpty()) {
+          outbox.task.schedule();
         }
       }
     } finally {
-      // Put the failed messages back in the queue
-      messages.addAll(failed);
-
       // Notify of delivery cycle
+      synchronized (this) {
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Get the identity of a message, which is used to track the message in place of the message
+   * itself so that the message never needs to be hashed or compared. A
+   * {@link DottedUpdateMessage} is identified by its {@link Dot}. Other messages are identified by
+   * their source and the number of messages published by that source, and so are never considered
+   * duplicates.
+   *
+   * @param message the message being published.
+   * @param source the {@link Outbox} of the {@link DeliveryChannel} which published the message.
+   * @return the identity of the message.
+   */
+  private Object identify(M message, Outbox source) {
+    if (message instanceof DottedUpdateMessage) {
+      return ((DottedUpdateMessage<?, ?>) message).getVersion();
+    }
+    return new Sequence(message.getIdentifier(), source.published.incrementAndGet());
+  }
+
+  /**
+   * Record that a destination has received a message. Once the quorum of destinations have
+   * received the message its future is completed. Once every destination has received the message
+   * it is acknowledged to its source and no longer pending.
+   *
+   * @param envelope the envelope of the message which has been received.
+   */
+  private void delivered(Envelope envelope) {
+    int remaining = envelope.remaining.get() > 0 ? envelope.remaining.decrementAndGet() : 0;
+    if (remaining > 0) {
+      if (remaining <= envelope.unrequired) {
+        envelope.future.complete(null);
+      }
+      return;
+    }
+    // Acknowledge before removing so that the acknowledgement has been made once there are no
+    // pending deliveries.
+    DeliveryChannel<K, M, ?> source = envelope.source.channel;
+    try {
+      source.acknowledge(envelope.message);
+    } catch (Throwable t) {
+      LOGGER.log(Level.WARNING, "Acknowledgement of message to " + source + " failed", t);
+    }
+    unacked.remove(envelope.identity);
+    envelope.future.complete(null);
+    synchronized (this) {
       notifyAll();
     }
   }
@@ -189,6 +285,43 @@ public class LocalDeliveryExchange<K, M extends VersionedUpdateMessage<K, ?>>
     return !unacked.isEmpty();
   }
 
+  @Override
+  public boolean isCongested(K source) {
+    final int capacity = outboxCapacity;
+    for (Map.Entry<K, Outbox> entry : outboxes.entrySet()) {
+      if (!entry.getKey().equals(source) && entry.getValue().size.get() >= capacity) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Set the number of messages which can be waiting for a destination before the exchange is
+   * {@linkplain #isCongested(Object) congested}. Messages are still queued beyond the capacity, so
+   * that none are lost, it is up to the sources to hold back. By default the queues are unbounded.
+   *
+   * @param capacity the number of messages which can be waiting for a destination, or
+   *        {@link Integer#MAX_VALUE} for no limit.
+   * @throws IllegalArgumentException if the capacity is less than {@code 1}.
+   */
+  public final void setOutboxCapacity(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Outbox capacity must be at least 1, given: " + capacity);
+    }
+    this.outboxCapacity = capacity;
+  }
+
+  /**
+   * Get the number of messages which can be waiting for a destination before the exchange is
+   * congested.
+   *
+   * @return the capacity of each outbox, {@link Integer#MAX_VALUE} if there is no limit.
+   */
+  public final int getOutboxCapacity() {
+    return outboxCapacity;
+  }
+
   @Override
   public synchronized void close() throws Exception {
     // Synchronization means that no new channels will be added before open is set to false.
@@ -198,11 +331,11 @@ public class LocalDeliveryExchange<K, M extends VersionedUpdateMessage<K, ?>>
     // other channels because they will be closed.
 
     // Shutdown channels
-    for (DeliveryChannel<K, M, ?> channel : channels.values()) {
+    for (Outbox outbox : outboxes.values()) {
       try {
-        channel.close();
+        outbox.channel.close();
       } catch (Exception ex) {
-        LOGGER.log(Level.SEVERE, "Could not shutdown DeliveryChannel: " + channel, ex);
+        LOGGER.log(Level.SEVERE, "Could not shutdown DeliveryChannel: " + outbox.channel, ex);
       }
     }
 
@@ -210,7 +343,175 @@ public class LocalDeliveryExchange<K, M extends VersionedUpdateMessage<K, ?>>
     open = false;
 
     // TOOD: complete any existing then shutdown
-    executor.shutdown();
+    schedule.cancel(false);
+    if (ownScheduler) {
+      scheduler.shutdown();
+    }
+  }
+
+  /**
+   * The queue of messages waiting to be delivered to a single destination.
+   */
+  private final class Outbox implements Runnable {
+
+    private final DeliveryChannel<K, M, ?> channel;
+    private final Queue<Envelope> queue = new ConcurrentLinkedQueue<>();
+    // Size of the queue, which is not constant time for a ConcurrentLinkedQueue.
+    private final AtomicInteger size = new AtomicInteger();
+    private final SerialTask task;
+    private final AtomicLong published = new AtomicLong();
+    private volatile boolean evicted = false;
+
+    Outbox(DeliveryChannel<K, M, ?> channel) {
+      this.channel = channel;
+      this.task = new SerialTask(scheduler, this);
+    }
+
+    @Override
+    public void run() {
+      if (evicted) {
+        discard();
+        return;
+      }
+      // Go through the messages in the order they were published
+      Envelope envelope;
+      while ((envelope = queue.peek()) != null) {
+        try {
+          channel.receive(envelope.message);
+        } catch (InboxFullException ex) {
+          // Backpressure: pause delivery to the destination until the next cycle.
+          LOGGER.log(Level.FINE, "Delivery to {0} paused: inbox is full", channel);
+          return;
+        } catch (Throwable t) {
+          if (isClosed()) {
+            evict();
+            return;
+          }
+          // Leave the message at the head of the queue so that it is retried at the next cycle.
+          LOGGER.log(Level.WARNING, "Delivery of message to " + channel + " failed", t);
+          return;
+        }
+        // Successfully received by channel
+        queue.poll();
+        size.decrementAndGet();
+        delivered(envelope);
+      }
+    }
+
+    /**
+     * Determine if the destination has been closed and so will never receive another message.
+     *
+     * @return {@code true} if the channel of the destination has been closed, {@code false} if it
+     *         is open or cannot tell.
+     */
+    private boolean isClosed() {
+      return channel instanceof AbstractDeliveryChannel
+          && !((AbstractDeliveryChannel<?, ?, ?>) channel).isOpen();
+    }
+
+    /**
+     * Remove the destination from the exchange so that it is not given new messages, and discard
+     * the messages waiting for it.
+     */
+    private void evict() {
+      LOGGER.log(Level.INFO, "Removing closed destination {0}", channel);
+      outboxes.values().remove(this);
+      evicted = true;
+      discard();
+    }
+
+    /**
+     * Discard the messages waiting for the destination, counting them as received so that the
+     * sources are not left waiting for acknowledgements which will never come. A message which is
+     * queued by a publish that raced with {@link #evict()} schedules this task again and so is
+     * discarded when it runs.
+     */
+    private void discard() {
+      Envelope envelope;
+      while ((envelope = queue.poll()) != null) {
+        size.decrementAndGet();
+        delivered(envelope);
+      }
+    }
+
+    /**
+     * Add a message to the end of the queue of the destination.
+     *
+     * @param envelope the envelope of the message to deliver to the destination.
+     */
+    private void add(Envelope envelope) {
+      // Count before adding so that the size never drops below zero.
+      size.incrementAndGet();
+      queue.add(envelope);
+    }
+
+    @Override
+    public String toString() {
+      return "Outbox{" + channel + '}';
+    }
+
+  }
+
+  /**
+   * A published message along with its source, its identity, the number of destinations which are
+   * yet to receive it and the future which is completed once a quorum of destinations have.
+   */
+  private final class Envelope {
+
+    private final M message;
+    private final Outbox source;
+    private final Object identity;
+    private final AtomicInteger remaining;
+    private final int unrequired;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    Envelope(M message, Outbox source, Object identity, int destinations, int quorum) {
+      this.message = message;
+      this.source = source;
+      this.identity = identity;
+      this.remaining = new AtomicInteger(destinations);
+      this.unrequired = destinations - quorum;
+    }
+
+  }
+
+  /**
+   * The identity of a message which is not a {@link DottedUpdateMessage}, made up of the identifier
+   * of its source and its position in the sequence of messages published by that source.
+   */
+  private static final class Sequence {
+
+    private final Object source;
+    private final long sequence;
+
+    Sequence(Object source, long sequence) {
+      this.source = source;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public int hashCode() {
+      int hash = 7;
+      hash = 97 * hash + this.source.hashCode();
+      hash = 97 * hash + (int) (this.sequence ^ (this.sequence >>> 32));
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (obj == null) {
+        return false;
+      }
+      if (getClass() != obj.getClass()) {
+        return false;
+      }
+      final Sequence other = (Sequence) obj;
+      return this.sequence == other.sequence && this.source.equals(other.source);
+    }
+
   }
 
   private class ExchangeDeliveryRunnable implements Runnable {
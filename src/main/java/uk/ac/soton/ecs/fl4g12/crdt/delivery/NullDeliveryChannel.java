@@ -21,7 +21,9 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.delivery;
 
+import java.util.concurrent.CompletableFuture;
 import uk.ac.soton.ecs.fl4g12.crdt.idenitifier.IdentifierFactory;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Version;
 
 /**
  * Abstract {@link DeliveryChannel} which does not replicate to any other nodes. All publish
@@ -36,6 +38,8 @@ public abstract class NullDeliveryChannel<K, M extends UpdateMessage<K, ?>, U ex
 
   private final IdentifierFactory<K> idFactory;
   private U updatable;
+  private volatile M replicatedUpTo = null;
+  private final AppliedFutures applied = new AppliedFutures();
 
   /**
    * State of the {@link DeliveryChannel}. If {@code false} then new messages will be rejected.
@@ -107,6 +111,7 @@ public abstract class NullDeliveryChannel<K, M extends UpdateMessage<K, ?>, U ex
     } catch (DeliveryUpdateException ex) {
       throw new RuntimeException("Could not deliver message to updatable", ex);
     }
+    applied.check(updatable);
   }
 
   @Override
@@ -121,9 +126,34 @@ public abstract class NullDeliveryChannel<K, M extends UpdateMessage<K, ?>, U ex
     return false;
   }
 
+  @Override
+  public final CompletableFuture<Void> whenApplied(Version<?, ?, ?> version) {
+    return applied.add(getUpdatable(), version);
+  }
+
+  /**
+   * Complete the futures returned by {@link #whenApplied(Version)} for versions which are now
+   * applied. Implementations should call this when a local update is published.
+   */
+  protected final void notifyApplied() {
+    applied.check(getUpdatable());
+  }
+
+  @Override
+  public final void acknowledge(M message) {
+    // There are no destinations so every message is replicated once it is published.
+    replicatedUpTo = message;
+  }
+
+  @Override
+  public final M getReplicatedUpTo() {
+    return replicatedUpTo;
+  }
+
   @Override
   public void close() throws Exception {
     open = false;
+    applied.fail(new IllegalStateException("Channel was closed before the version was applied"));
   }
 
 }
@@ -21,6 +21,7 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.delivery;
 
+import java.util.concurrent.CompletableFuture;
 import uk.ac.soton.ecs.fl4g12.crdt.idenitifier.IdentifierFactory;
 
 /**
@@ -45,12 +46,15 @@ public class NullReliableDeliveryChannel<K, M extends VersionedUpdateMessage<K,
   }
 
   @Override
-  public void publish(M message) {
+  public CompletableFuture<Void> publish(M message) {
     // Not final to support Mockito spy
     if (!open) {
       throw new IllegalStateException("Channel has been closed, not accepting new messages.");
     }
-    // Do nothing
+    // Nothing to deliver to, so the message is replicated immediately
+    acknowledge(message);
+    notifyApplied();
+    return CompletableFuture.completedFuture(null);
   }
 
 }
@@ -49,7 +49,8 @@ public class NullStateDeliveryChannel<K, M extends StateSnapshot<K, ?>> extends
     if (!open) {
       throw new IllegalStateException("Channel has been closed, not accepting new messages.");
     }
-    // Do nothing
+    // Nothing to deliver to, only the local update to account for
+    notifyApplied();
   }
 
 }
@@ -0,0 +1,63 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+
+/**
+ * A {@linkplain Codec} for ordered values which can encode a value as the difference from a
+ * smaller value. Sequences of values which are sorted by the {@linkplain Comparator} can then be
+ * written as small gaps between neighbours rather than as the full values.
+ *
+ * @param <T> the type of value encoded by this {@linkplain OrderedCodec}.
+ */
+public interface OrderedCodec<T> extends Codec<T>, Comparator<T> {
+
+  /**
+   * Write the difference between a value and a smaller or equal value to the buffer.
+   *
+   * @param value the value to encode.
+   * @param previous the value to encode the difference from, which must not be greater than
+   *        {@code value}.
+   * @param buffer the buffer to write the difference to.
+   * @throws BufferOverflowException if there is not enough space remaining in the buffer.
+   * @throws IllegalArgumentException if {@code previous} is greater than {@code value}.
+   */
+  void encodeDelta(T value, T previous, ByteBuffer buffer)
+      throws BufferOverflowException, IllegalArgumentException;
+
+  /**
+   * Read a value written by {@link #encodeDelta(Object, Object, ByteBuffer)}.
+   *
+   * @param previous the value that the difference was encoded from.
+   * @param buffer the buffer to read the difference from.
+   * @return the decoded value.
+   * @throws BufferUnderflowException if the buffer ends before the value does.
+   * @throws IllegalArgumentException if the buffer does not contain a valid encoding.
+   */
+  T decodeDelta(T previous, ByteBuffer buffer)
+      throws BufferUnderflowException, IllegalArgumentException;
+
+}
@@ -21,11 +21,8 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.delivery;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.PriorityBlockingQueue;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -35,12 +32,15 @@ import java.util.logging.Logger;
  * {@link #publish(VersionedUpdateMessage)} are immediately published to the
  * {@link DeliveryExchange}.
  *
+ * Received messages are held in a {@link CausalDeliveryBuffer} until they can be applied, so a
+ * message which arrives out of order only delays the messages which depend on it. Messages which
+ * failed for any other reason are retried by the next periodic run.
+ *
  * @param <K> The type of the identifier that is assigned to the {@link Updatable}.
  * @param <M> The type of updates sent via the delivery channel.
  */
 public final class PeriodicReliableDeliveryChannel<K, M extends VersionedUpdateMessage<K, ?>>
-    extends AbstractDeliveryChannel<K, M, VersionedUpdatable<K, ?, M>>
-    implements ReliableDeliveryChannel<K, M> {
+    extends AbstractReliableDeliveryChannel<K, M> {
 
   private static final Logger LOGGER =
       Logger.getLogger(PeriodicReliableDeliveryChannel.class.getName());
@@ -48,75 +48,63 @@ public final class PeriodicReliableDeliveryChannel<K, M extends VersionedUpdateM
   private final long period;
   private final TimeUnit unit;
 
-  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
-  private final AtomicInteger publishCounter = new AtomicInteger();
-
+  private final DeliveryScheduler scheduler;
+  private final boolean ownScheduler;
+  private volatile ScheduledFuture<?> schedule;
+
+  /**
+   * Create a {@linkplain PeriodicReliableDeliveryChannel} which will apply received updates at the
+   * period specified using its own background thread. The background thread will not be started
+   * until this {@link DeliveryChannel} has an {@link Updatable} registered.
+   *
+   * @param exchange the {@link DeliveryExchange} which messages will be published to.
+   * @param period the period at which to apply received updates.
+   * @param unit the {@link TimeUnit} of the {@code period} parameter.
+   */
   public PeriodicReliableDeliveryChannel(DeliveryExchange<K, M> exchange, long period,
       TimeUnit unit) {
-    super(exchange, new PriorityBlockingQueue<M>());
-    this.period = period;
-    this.unit = unit;
+    this(exchange, period, unit, new PooledDeliveryScheduler(1), true);
   }
 
-  @Override
-  protected void postRegistration(K identifier) {
-    // Start the delivery thread.
-    executor.scheduleAtFixedRate(new ReliableDeliveryRunnable(), 0, period, unit);
+  /**
+   * Create a {@linkplain PeriodicReliableDeliveryChannel} which will apply received updates at the
+   * period specified using the given {@link DeliveryScheduler}. The {@link DeliveryScheduler} may
+   * be shared between many channels and will not be shut down when this channel is closed.
+   *
+   * @param exchange the {@link DeliveryExchange} which messages will be published to.
+   * @param period the period at which to apply received updates.
+   * @param unit the {@link TimeUnit} of the {@code period} parameter.
+   * @param scheduler the {@link DeliveryScheduler} used to apply updates.
+   */
+  public PeriodicReliableDeliveryChannel(DeliveryExchange<K, M> exchange, long period,
+      TimeUnit unit, DeliveryScheduler scheduler) {
+    this(exchange, period, unit, scheduler, false);
   }
 
-  @Override
-  public boolean hasPendingDeliveries() {
-    return publishCounter.get() > 0;
+  private PeriodicReliableDeliveryChannel(DeliveryExchange<K, M> exchange, long period,
+      TimeUnit unit, DeliveryScheduler scheduler, boolean ownScheduler) {
+    super(exchange);
+    this.period = period;
+    this.unit = unit;
+    this.scheduler = scheduler;
+    this.ownScheduler = ownScheduler;
   }
 
   @Override
-  public void publish(M message) {
-    if (!isOpen()) {
-      throw new IllegalStateException("Channel has been closed, not accepting new messages.");
-    }
-    // Increment the counter
-    publishCounter.incrementAndGet();
-    try {
-      // Send the message to the exchange
-      exchange.publish(message);
-    } finally {
-      // Make sure that the counter is always decremented
-      publishCounter.decrementAndGet();
-      // Notify anyone waiting for the value to change
-      synchronized (publishCounter) {
-        publishCounter.notifyAll();
-      }
-    }
-  }
-
-  public synchronized void doUpdates() {
-    VersionedUpdatable<K, ?, M> updatable = getUpdatable();
-    M message;
-    while ((message = inbox.poll()) != null) {
-      try {
-        // TODO: Check precedence before attempting delivery
-        updatable.update(message);
-      } catch (Throwable ex) {
-        LOGGER.log(Level.SEVERE, "Throwable caught while trying to deliver message to " + updatable,
-            ex);
-        // Put the message back
-        LOGGER.log(Level.INFO, "Requeuing message for delivery later: {0}", message);
-        inbox.add(message);
-        // Cannot continue delivery
-        // TODO: Try to apply concurrent messages from the queue?
-        // TODO: Reschedule sooner if next delivery is a long time away.
-        break;
-      }
-    }
-
-    // Notify any threads waiting for the next update cycle to complete.
-    notifyAll();
+  protected void postRegistration(K identifier) {
+    // Start the periodic delivery.
+    schedule = scheduler.scheduleAtFixedRate(new ReliableDeliveryRunnable(), 0, period, unit);
   }
 
   @Override
   protected void shutdown() throws Exception {
-    // Shutdown the executor
-    executor.shutdown();
+    // Stop the periodic delivery
+    if (schedule != null) {
+      schedule.cancel(false);
+    }
+    if (ownScheduler) {
+      scheduler.shutdown();
+    }
 
     // If there are messagse try to apply them
     if (hasPendingUpdates()) {
@@ -24,9 +24,8 @@ package uk.ac.soton.ecs.fl4g12.crdt.delivery;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.concurrent.Executors;
 import java.util.concurrent.PriorityBlockingQueue;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
@@ -56,8 +55,11 @@ public final class PeriodicStateDeiveryChannel<K, M extends StateSnapshot<K, ?>>
   private final long period;
   private final TimeUnit unit;
 
-  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+  private final DeliveryScheduler scheduler;
+  private final boolean ownScheduler;
+  private volatile ScheduledFuture<?> schedule;
   private final AtomicInteger publishCounter = new AtomicInteger();
+  private final DeltaStateSelector<M> selector;
 
   /**
    * Create a {@linkplain PeriodicStateDeiveryChannel} which will create a snapshot of the state and
@@ -70,17 +72,64 @@ public final class PeriodicStateDeiveryChannel<K, M extends StateSnapshot<K, ?>>
    * @param unit the {@link TimeUnit} of the {@code period} parameter.
    */
   public PeriodicStateDeiveryChannel(DeliveryExchange<K, M> exchange, long period, TimeUnit unit) {
+    this(exchange, period, unit, new PooledDeliveryScheduler(1), true, 1);
+  }
+
+  /**
+   * Create a {@linkplain PeriodicStateDeiveryChannel} which will create a snapshot of the state and
+   * publish to other replicas via the {@link DeliveryExchange} at the period specified using the
+   * given {@link DeliveryScheduler}. The {@link DeliveryScheduler} may be shared between many
+   * channels and will not be shut down when this channel is closed.
+   *
+   * @param exchange the {@link DeliveryExchange} which messages will be published to.
+   * @param period the period at which to publish messages to the {@link DeliveryExchange}.
+   * @param unit the {@link TimeUnit} of the {@code period} parameter.
+   * @param scheduler the {@link DeliveryScheduler} used to apply updates and publish state.
+   */
+  public PeriodicStateDeiveryChannel(DeliveryExchange<K, M> exchange, long period, TimeUnit unit,
+      DeliveryScheduler scheduler) {
+    this(exchange, period, unit, scheduler, false, 1);
+  }
+
+  /**
+   * Create a {@linkplain PeriodicStateDeiveryChannel} which publishes delta states when the
+   * registered {@link Updatable} is a {@link DeltaStatefulUpdatable}. A full snapshot is published
+   * every {@code fullStateInterval} messages so that replicas which have missed a delta converge.
+   *
+   * @param exchange the {@link DeliveryExchange} which messages will be published to.
+   * @param period the period at which to publish messages to the {@link DeliveryExchange}.
+   * @param unit the {@link TimeUnit} of the {@code period} parameter.
+   * @param scheduler the {@link DeliveryScheduler} used to apply updates and publish state.
+   * @param fullStateInterval the number of messages between full snapshots, {@code 1} to always
+   *        publish full snapshots.
+   * @throws IllegalArgumentException if {@code fullStateInterval} is less than {@code 1}.
+   */
+  public PeriodicStateDeiveryChannel(DeliveryExchange<K, M> exchange, long period, TimeUnit unit,
+      DeliveryScheduler scheduler, int fullStateInterval) {
+    this(exchange, period, unit, scheduler, false, fullStateInterval);
+  }
+
+  private PeriodicStateDeiveryChannel(DeliveryExchange<K, M> exchange, long period, TimeUnit unit,
+      DeliveryScheduler scheduler, boolean ownScheduler, int fullStateInterval) {
     // Applying newest first should result in the greatest number of messages that require no work.
     super(exchange,
         new PriorityBlockingQueue<M>(INITIAL_QUEUE_CAPACITY, Collections.reverseOrder()));
     this.period = period;
     this.unit = unit;
+    this.scheduler = scheduler;
+    this.ownScheduler = ownScheduler;
+    this.selector = new DeltaStateSelector<>(fullStateInterval);
   }
 
   @Override
   protected void postRegistration(K identifier) {
-    // Start the delivery thread.
-    executor.scheduleAtFixedRate(new StateDeliveryRunnable(), 0, period, unit);
+    // Start the periodic delivery.
+    schedule = scheduler.scheduleAtFixedRate(new StateDeliveryRunnable(), 0, period, unit);
+  }
+
+  @Override
+  protected int collapse(M message) {
+    return StateInboxes.collapse(inbox, message);
   }
 
   @Override
@@ -104,13 +153,17 @@ public final class PeriodicStateDeiveryChannel<K, M extends StateSnapshot<K, ?>>
       return;
     }
 
-    // Get a snapshot and publish it
-    exchange.publish(getUpdatable().snapshot());
+    // Get a snapshot or delta and publish it
+    M message = selector.next(getUpdatable(), isReplicated(selector.getFullState()));
+    if (message != null) {
+      send(message);
+    }
 
     // Remove the number of pubishes that there were when this method started
     // If there were any published while this method executed, this will be leave the publishCounter
     // in a positive state and publishing will be reattempted at the next cycle.
     publishCounter.addAndGet(-publishes);
+    notifySent();
   }
 
   public synchronized void doUpdates() {
@@ -135,13 +188,19 @@ public final class PeriodicStateDeiveryChannel<K, M extends StateSnapshot<K, ?>>
     inbox.addAll(failed);
 
     // Notify any threads waiting for the next update cycle to complete.
+    notifyApplied();
     notifyAll();
   }
 
   @Override
   protected void shutdown() throws Exception {
-    // Shutdown the executor
-    executor.shutdown();
+    // Stop the periodic delivery
+    if (schedule != null) {
+      schedule.cancel(false);
+    }
+    if (ownScheduler) {
+      scheduler.shutdown();
+    }
 
     // If there are messagse try to apply them
     if (hasPendingUpdates()) {
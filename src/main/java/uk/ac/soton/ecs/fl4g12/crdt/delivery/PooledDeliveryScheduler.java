@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link DeliveryScheduler} backed by a {@link ScheduledExecutorService}. Periodic tasks are
+ * never run concurrently with themselves by a {@link ScheduledExecutorService} so a pool with a
+ * few threads can serve many {@link DeliveryChannel}s and {@link DeliveryExchange}s.
+ */
+public final class PooledDeliveryScheduler implements DeliveryScheduler {
+
+  private final ScheduledExecutorService executor;
+  private final boolean shared;
+
+  /**
+   * Instantiate a {@linkplain PooledDeliveryScheduler} backed by a new pool of daemon threads.
+   *
+   * @param threads the number of threads in the pool.
+   */
+  public PooledDeliveryScheduler(int threads) {
+    this(newExecutor(threads, "delivery"), false);
+  }
+
+  /**
+   * Instantiate a {@linkplain PooledDeliveryScheduler} backed by the given
+   * {@link ScheduledExecutorService}. Shutting down the {@linkplain PooledDeliveryScheduler} shuts
+   * down the {@link ScheduledExecutorService}.
+   *
+   * @param executor the {@link ScheduledExecutorService} to run tasks on.
+   */
+  public PooledDeliveryScheduler(ScheduledExecutorService executor) {
+    this(executor, false);
+  }
+
+  private PooledDeliveryScheduler(ScheduledExecutorService executor, boolean shared) {
+    this.executor = executor;
+    this.shared = shared;
+  }
+
+  /**
+   * Create a {@link ScheduledThreadPoolExecutor} with daemon threads which removes cancelled tasks
+   * from its queue, so that the tasks of closed channels are not retained until they are due.
+   *
+   * @param threads the number of threads in the pool.
+   * @param name the prefix of the thread names.
+   * @return the new {@link ScheduledThreadPoolExecutor}.
+   */
+  private static ScheduledThreadPoolExecutor newExecutor(int threads, String name) {
+    ScheduledThreadPoolExecutor executor =
+        new ScheduledThreadPoolExecutor(threads, new DaemonThreadFactory(name));
+    executor.setRemoveOnCancelPolicy(true);
+    return executor;
+  }
+
+  /**
+   * Get the shared {@linkplain PooledDeliveryScheduler} which has one daemon thread per available
+   * processor. The shared {@linkplain PooledDeliveryScheduler} cannot be shut down.
+   *
+   * @return the shared {@linkplain PooledDeliveryScheduler}.
+   */
+  public static PooledDeliveryScheduler getShared() {
+    return SharedHolder.SCHEDULER;
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    executor.execute(task);
+  }
+
+  @Override
+  public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+    return executor.schedule(task, delay, unit);
+  }
+
+  @Override
+  public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelay, long period,
+      TimeUnit unit) {
+    return executor.scheduleAtFixedRate(task, initialDelay, period, unit);
+  }
+
+  @Override
+  public void shutdown() {
+    if (shared) {
+      throw new IllegalStateException("The shared DeliveryScheduler cannot be shut down");
+    }
+    executor.shutdown();
+  }
+
+  private static final class SharedHolder {
+    private static final PooledDeliveryScheduler SCHEDULER = new PooledDeliveryScheduler(
+        newExecutor(Runtime.getRuntime().availableProcessors(), "shared-delivery"), true);
+  }
+
+}
@@ -21,6 +21,7 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.delivery;
 
+import java.util.concurrent.CompletableFuture;
 import uk.ac.soton.ecs.fl4g12.crdt.order.Version;
 import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
 
@@ -70,6 +71,8 @@ public interface ReliableDeliveryChannel<K, M extends VersionedUpdateMessage<K,
    * After a successful delivery, {@link Object#notifyAll()} should be called.
    *
    * @param message the messages to send via the {@linkplain DeliveryChannel}.
+   * @return a {@link CompletableFuture} which is completed once the message has been delivered to
+   *         every destination, as for {@link DeliveryExchange#publish(UpdateMessage)}.
    */
-  void publish(M message);
+  CompletableFuture<Void> publish(M message);
 }
@@ -0,0 +1,357 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative.AbstractDottedCmRDT;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Dot;
+import uk.ac.soton.ecs.fl4g12.crdt.order.DottedVersionVector;
+import uk.ac.soton.ecs.fl4g12.crdt.order.LocalVersionVector;
+import uk.ac.soton.ecs.fl4g12.crdt.order.LogicalVersion;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Version;
+import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
+
+/**
+ * A group of replicated objects hosted by a single node which share one causal context and one
+ * {@linkplain ReliableDeliveryChannel}. Each member is identified within the group by an object
+ * identifier and publishes through a lightweight channel obtained from {@link #channel(Object)},
+ * which tags its messages with the object identifier and publishes them through the channel of the
+ * group. The group routes the messages it receives to the member they are tagged for.
+ *
+ * The members all use the {@linkplain DottedVersionVector} of the group as their version, so that
+ * every update made by the node takes the next {@linkplain Dot} of the node, whichever member made
+ * it. A member therefore needs no version vector or channel of its own and a single causal delivery
+ * buffer serves every object in the group. The dots are tracked individually, so an update to one
+ * object is never held back waiting for updates to other objects.
+ *
+ * Messages for an object which has not yet joined the group are parked by the group, so they do not
+ * hold up the messages for other objects, and are received by the channel of the group again when
+ * the object joins. Until then, the version of the group does not include their dots.
+ *
+ * An object which has left the group can not join it again with the same identifier, as the dots
+ * of its updates have already been recorded by the shared version and so would not be delivered to
+ * the new object. Messages which arrive for an object after it has left are recorded as applied and
+ * discarded.
+ *
+ * @param <K> the type of identifier used to identify nodes.
+ * @param <T> the type of timestamps which are used by each node.
+ * @param <O> the type of identifier used to identify objects within the group.
+ * @see AbstractDottedCmRDT for the members which can share the causal context of a group.
+ */
+public final class ReplicaGroup<K, T extends Comparable<T>, O> extends
+    AbstractVersionedUpdatable<K, T, GroupUpdateMessage<K, T, O>, ReliableDeliveryChannel<K, GroupUpdateMessage<K, T, O>>, ReplicaGroup<K, T, O>> {
+
+  private final ConcurrentMap<O, Member<?>> members = new ConcurrentHashMap<>();
+  private final DottedVersionVector<K, T> dots;
+
+  // Guarded by parked, which must be held to change the members
+  private final Map<O, List<GroupUpdateMessage<K, T, O>>> parked = new HashMap<>();
+  private final Set<O> departed = new HashSet<>();
+
+  /**
+   * Instantiate a {@linkplain ReplicaGroup} with an empty causal context.
+   *
+   * @param zero the zero value of the timestamps used by each node.
+   * @param identifier the identifier for this node or null if a new ID should be assigned by the
+   *        {@link DeliveryChannel}.
+   * @param deliveryChannel the {@link ReliableDeliveryChannel} shared by the members of the group.
+   */
+  public ReplicaGroup(LogicalVersion<T, ?> zero, K identifier,
+      ReliableDeliveryChannel<K, GroupUpdateMessage<K, T, O>> deliveryChannel) {
+    super(new DottedVersionVector<K, T>(zero), identifier, deliveryChannel);
+    this.dots = (DottedVersionVector<K, T>) version.getVersionVector();
+  }
+
+  /**
+   * Get the {@linkplain LocalVersionVector} shared by the members of the group. This is used by
+   * {@link AbstractVersionedUpdatable} so that members use it instead of a version of their own.
+   *
+   * @return the shared version of the group.
+   */
+  LocalVersionVector<K, T> getSharedVersion() {
+    return version;
+  }
+
+  /**
+   * Create the {@linkplain ReliableDeliveryChannel} for the object with the given identifier to
+   * join the group. The object becomes a member of the group when it registers with the returned
+   * channel and leaves the group when the channel is closed.
+   *
+   * @param <M> the type of updates which the object publishes.
+   * @param object the identifier of the object within the group.
+   * @return the channel for the object to register with.
+   */
+  public <M extends DottedUpdateMessage<K, T>> ReliableDeliveryChannel<K, M> channel(O object) {
+    return new Member<>(object);
+  }
+
+  /**
+   * Determine if an object with the given identifier is a member of the group.
+   *
+   * @param object the identifier of the object within the group.
+   * @return {@code true} if the object has joined the group, {@code false} otherwise.
+   */
+  public boolean isMember(O object) {
+    return members.containsKey(object);
+  }
+
+  @Override
+  public void update(GroupUpdateMessage<K, T, O> message) throws DeliveryUpdateException {
+    final O object = message.getObject();
+    Member<?> member = members.get(object);
+    if (member == null) {
+      synchronized (parked) {
+        member = members.get(object);
+        if (member == null) {
+          park(message);
+          return;
+        }
+      }
+    }
+    member.deliver(message.getMessage());
+  }
+
+  /**
+   * Hold a message for an object which is not a member of the group. Must be called while holding
+   * the lock of {@link #parked}.
+   *
+   * @param message the message for the object.
+   */
+  private void park(GroupUpdateMessage<K, T, O> message) {
+    final O object = message.getObject();
+    if (departed.contains(object)) {
+      // Nothing will apply the update so only its dot is kept.
+      dots.add(message.getVersion());
+      return;
+    }
+    List<GroupUpdateMessage<K, T, O>> messages = parked.get(object);
+    if (messages == null) {
+      messages = new ArrayList<>();
+      parked.put(object, messages);
+    }
+    messages.add(message);
+  }
+
+  @Override
+  protected String toStringMore() {
+    return "members=" + members.keySet() + ", " + super.toStringMore();
+  }
+
+  /**
+   * The channel of a single member of the group.
+   */
+  private final class Member<M extends DottedUpdateMessage<K, T>>
+      implements ReliableDeliveryChannel<K, M> {
+
+    private final O object;
+    private final DeliveryExchange<K, M> exchange = new MemberExchange();
+    private volatile VersionedUpdatable<K, ?, M> updatable;
+
+    Member(O object) {
+      this.object = object;
+    }
+
+    /**
+     * Apply a message tagged with the object of this member. Messages are tagged by the member for
+     * the same object on another node, which publishes the same type of messages as this member.
+     *
+     * @param message the message to apply.
+     * @throws DeliveryUpdateException if the updatable rejects the message.
+     */
+    @SuppressWarnings("unchecked")
+    void deliver(DottedUpdateMessage<K, T> message) throws DeliveryUpdateException {
+      updatable.update((M) message);
+    }
+
+    @Override
+    public synchronized K register(VersionedUpdatable<K, ?, M> updatable)
+        throws IllegalStateException, IllegalArgumentException {
+      // One updatable per channel
+      if (this.updatable != null) {
+        throw new IllegalStateException("Channel has already been registered with an Updatable");
+      }
+      // One channel per updatable
+      if (updatable.getDeliveryChannel() != this) {
+        throw new IllegalArgumentException(
+            "The Updatable provided is must be set to use this DeliveryChannel");
+      }
+      final List<GroupUpdateMessage<K, T, O>> waiting;
+      synchronized (parked) {
+        // One member per object
+        if (members.containsKey(object)) {
+          throw new IllegalArgumentException("The group already has a member for " + object);
+        }
+        if (departed.contains(object)) {
+          throw new IllegalArgumentException(
+              "The member for " + object + " has left the group and can not be replaced");
+        }
+        this.updatable = updatable;
+        members.put(object, this);
+        waiting = parked.remove(object);
+      }
+      // The object is still being constructed, so leave the channel of the group to apply them.
+      if (waiting != null) {
+        for (GroupUpdateMessage<K, T, O> message : waiting) {
+          deliveryChannel.receive(message);
+        }
+      }
+      return ReplicaGroup.this.getIdentifier();
+    }
+
+    @Override
+    public DeliveryExchange<K, M> getExchange() {
+      return exchange;
+    }
+
+    @Override
+    public VersionedUpdatable<K, ?, M> getUpdatable() {
+      if (updatable == null) {
+        throw new IllegalStateException("Channel has not been registered with an Updatable yet");
+      }
+      return updatable;
+    }
+
+    @Override
+    public K getIdentifier() {
+      return ReplicaGroup.this.getIdentifier();
+    }
+
+    @Override
+    public CompletableFuture<Void> publish(M message) {
+      return deliveryChannel.publish(new GroupUpdateMessage<K, T, O>(object, message));
+    }
+
+    @Override
+    public void receive(M message) {
+      deliveryChannel.receive(new GroupUpdateMessage<K, T, O>(object, message));
+    }
+
+    @Override
+    public boolean hasPendingDeliveries() {
+      return deliveryChannel.hasPendingDeliveries();
+    }
+
+    @Override
+    public boolean hasPendingUpdates() {
+      return deliveryChannel.hasPendingUpdates();
+    }
+
+    @Override
+    public boolean isCongested() {
+      return deliveryChannel.isCongested();
+    }
+
+    @Override
+    public CompletableFuture<Void> whenApplied(Version<?, ?, ?> version) {
+      // The members share the version of the group
+      return deliveryChannel.whenApplied(version);
+    }
+
+    @Override
+    public void acknowledge(M message) {
+      // Acknowledgements are made to the channel of the group
+    }
+
+    @Override
+    public M getReplicatedUpTo() {
+      // Replication is tracked by the channel of the group for all of the members together
+      return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+      // Publish anything the member is holding back before it leaves the group.
+      if (updatable instanceof Flushable) {
+        ((Flushable) updatable).flush();
+      }
+      synchronized (parked) {
+        if (members.remove(object, this)) {
+          departed.add(object);
+        }
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "ReplicaGroup.Member{" + "object=" + object + ", group=" + getIdentifier() + '}';
+    }
+
+    /**
+     * The exchange of the channel of the group, exchanging the messages of the member tagged with
+     * its object identifier.
+     */
+    private final class MemberExchange implements DeliveryExchange<K, M> {
+
+      @Override
+      public K register(DeliveryChannel<K, M, ?> channel) {
+        throw new UnsupportedOperationException(
+            "Members are registered with the exchange through the channel of the group");
+      }
+
+      @Override
+      public CompletableFuture<Void> publish(M message) {
+        return deliveryChannel.getExchange()
+            .publish(new GroupUpdateMessage<K, T, O>(object, message));
+      }
+
+      @Override
+      public CompletableFuture<Void> publish(M message, int quorum) {
+        return deliveryChannel.getExchange()
+            .publish(new GroupUpdateMessage<K, T, O>(object, message), quorum);
+      }
+
+      @Override
+      public boolean hasPendingDeliveries() {
+        return deliveryChannel.getExchange().hasPendingDeliveries();
+      }
+
+      @Override
+      public boolean isCongested(K source) {
+        return deliveryChannel.getExchange().isCongested(source);
+      }
+
+      @Override
+      public void close() {
+        // The exchange is shared by the whole group and so is not closed by a member
+      }
+
+      @Override
+      public String toString() {
+        return "ReplicaGroup.MemberExchange{" + "object=" + object + ", exchange="
+            + deliveryChannel.getExchange() + '}';
+      }
+
+    }
+
+  }
+
+}
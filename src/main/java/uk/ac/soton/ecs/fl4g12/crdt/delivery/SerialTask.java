@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A task which is run on an {@link Executor} whenever it is {@linkplain #schedule() scheduled},
+ * never running concurrently with itself. Requests to schedule the task while it is already queued
+ * are coalesced so that a burst of events results in a single execution. If the task is scheduled
+ * while it is running, it will be run again once the current execution completes.
+ *
+ * Rather than looping, a task which needs to run again is resubmitted to the {@link Executor} so
+ * that many {@linkplain SerialTask}s can share a small pool of threads fairly.
+ */
+public final class SerialTask {
+
+  private static final Logger LOGGER = Logger.getLogger(SerialTask.class.getName());
+
+  private static final int IDLE = 0;
+  private static final int SCHEDULED = 1;
+  private static final int RUNNING = 2;
+  private static final int RESCHEDULED = 3;
+
+  private final Executor executor;
+  private final Runnable task;
+  private final AtomicInteger state = new AtomicInteger(IDLE);
+  private final Runnable runner = new Runnable() {
+    @Override
+    public void run() {
+      runTask();
+    }
+
+    @Override
+    public String toString() {
+      return task.toString();
+    }
+  };
+
+  /**
+   * Instantiate a {@linkplain SerialTask} which runs the given task on the given {@link Executor}.
+   *
+   * @param executor the {@link Executor} to run the task on.
+   * @param task the {@link Runnable} to run when scheduled.
+   */
+  public SerialTask(Executor executor, Runnable task) {
+    this.executor = executor;
+    this.task = task;
+  }
+
+  /**
+   * Request that the task is run. If the task is already waiting to be run this has no effect.
+   */
+  public void schedule() {
+    while (true) {
+      switch (state.get()) {
+        case IDLE:
+          if (state.compareAndSet(IDLE, SCHEDULED)) {
+            submit();
+            return;
+          }
+          break;
+        case RUNNING:
+          if (state.compareAndSet(RUNNING, RESCHEDULED)) {
+            return;
+          }
+          break;
+        default:
+          // Already waiting to be run.
+          return;
+      }
+    }
+  }
+
+  /**
+   * Determine if the task is waiting to be run or is currently running.
+   *
+   * @return {@code true} if the task is scheduled or running, {@code false} if it is idle.
+   */
+  public boolean isActive() {
+    return state.get() != IDLE;
+  }
+
+  private void runTask() {
+    state.set(RUNNING);
+    try {
+      task.run();
+    } catch (Throwable t) {
+      LOGGER.log(Level.SEVERE, "Throwable while running " + task, t);
+    } finally {
+      if (!state.compareAndSet(RUNNING, IDLE)) {
+        // Scheduled while running, so run again.
+        state.set(SCHEDULED);
+        submit();
+      }
+    }
+  }
+
+  private void submit() {
+    try {
+      executor.execute(runner);
+    } catch (RejectedExecutionException ex) {
+      state.set(IDLE);
+      LOGGER.log(Level.WARNING, "Executor rejected " + task + ", it will not be run", ex);
+    }
+  }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.util.Iterator;
+import java.util.Queue;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Version;
+
+/**
+ * Utilities for the inboxes of {@link StateDeliveryChannel}s.
+ */
+final class StateInboxes {
+
+  // Util class cannot be constructed.
+  private StateInboxes() {}
+
+  /**
+   * Collapse the states in a full inbox with a newly received state. States from the same source
+   * as the received state which the received state supersedes, because their version is identical
+   * to or happened-before its version, are removed and the received state is added. If a state in
+   * the inbox supersedes the received state, the received state is discarded instead.
+   *
+   * Only a full snapshot supersedes another state. A {@linkplain StateSnapshot#isDelta() delta}
+   * only holds the changes since the previous message from its source, so a queued state is never
+   * replaced by a newer delta and a received state is never discarded in favour of a queued delta.
+   *
+   * @param <M> the type of {@link StateSnapshot} in the inbox.
+   * @param inbox the inbox to collapse the state into.
+   * @param message the state which has been received.
+   * @return the number of states which were removed or discarded, {@code 0} if the inbox could not
+   *         be collapsed and the received state has not been added.
+   */
+  static <M extends StateSnapshot<?, ?>> int collapse(Queue<M> inbox, M message) {
+    final Version<?, ?, ?> version = message.getVersion();
+    boolean superseded = false;
+    int removed = 0;
+    Iterator<M> it = inbox.iterator();
+    while (it.hasNext()) {
+      M queued = it.next();
+      if (!queued.getIdentifier().equals(message.getIdentifier())) {
+        continue;
+      }
+      final Version<?, ?, ?> queuedVersion = queued.getVersion();
+      if (!message.isDelta() && covers(version, queuedVersion)) {
+        it.remove();
+        removed++;
+      } else if (!queued.isDelta() && covers(queuedVersion, version)) {
+        superseded = true;
+      }
+    }
+    if (removed > 0) {
+      inbox.add(message);
+      return removed;
+    }
+    return superseded ? 1 : 0;
+  }
+
+  /**
+   * Determine if a version is identical to or happened-after another version. The cast is safe as
+   * both versions are from states made by the same source and so are of the same type.
+   *
+   * @param <V> the type of the versions.
+   * @param version the version which may cover the other version.
+   * @param other the version which may be covered.
+   * @return {@code true} if {@code other} is identical to or happened-before {@code version},
+   *         {@code false} otherwise.
+   */
+  @SuppressWarnings("unchecked")
+  private static <V extends Version<?, V, ?>> boolean covers(Version<?, ?, ?> version,
+      Version<?, ?, ?> other) {
+    final V covered = (V) other;
+    return covered.identical((V) version) || covered.happenedBefore((V) version);
+  }
+
+}
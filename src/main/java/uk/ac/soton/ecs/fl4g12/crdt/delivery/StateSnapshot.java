@@ -32,4 +32,16 @@ import uk.ac.soton.ecs.fl4g12.crdt.order.Version;
  */
 public interface StateSnapshot<K, V extends Version> extends VersionedUpdateMessage<K, V> {
 
+  /**
+   * Check whether this {@linkplain StateSnapshot} is a delta. A delta holds only the changes since
+   * the previous message published by its source rather than all of the state its version
+   * describes, so a newer message from the same source does not make it redundant.
+   *
+   * @return {@code true} if this {@linkplain StateSnapshot} is a delta, {@code false} if it is a
+   *         full snapshot.
+   */
+  default boolean isDelta() {
+    return false;
+  }
+
 }
@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link DeliveryScheduler} which runs every task on a new thread from a {@link ThreadFactory}.
+ * This is intended for use with a factory of lightweight threads, such as the virtual thread
+ * factory provided by {@code Thread.ofVirtual().factory()} on Java 21 and later, where creating a
+ * thread per task is cheap.
+ *
+ * Periodic tasks are timed by a single daemon thread which only hands each run to a
+ * {@link SerialTask}, so the timing thread is never blocked by delivery and a run which overlaps
+ * the next period is coalesced with it rather than run concurrently.
+ */
+public final class ThreadFactoryDeliveryScheduler implements DeliveryScheduler {
+
+  private final ThreadFactory factory;
+  private final ScheduledThreadPoolExecutor timer =
+      new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("delivery-timer"));
+
+  private volatile boolean open = true;
+
+  /**
+   * Instantiate a {@linkplain ThreadFactoryDeliveryScheduler} which runs tasks on threads from the
+   * given {@link ThreadFactory}.
+   *
+   * @param factory the {@link ThreadFactory} used to create a thread for each task.
+   */
+  public ThreadFactoryDeliveryScheduler(ThreadFactory factory) {
+    this.factory = factory;
+    timer.setRemoveOnCancelPolicy(true);
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    if (!open) {
+      throw new RejectedExecutionException("DeliveryScheduler has been shut down");
+    }
+    factory.newThread(task).start();
+  }
+
+  @Override
+  public ScheduledFuture<?> schedule(final Runnable task, long delay, TimeUnit unit) {
+    return timer.schedule(new Runnable() {
+      @Override
+      public void run() {
+        execute(task);
+      }
+    }, delay, unit);
+  }
+
+  @Override
+  public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelay, long period,
+      TimeUnit unit) {
+    final SerialTask serial = new SerialTask(this, task);
+    return timer.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        serial.schedule();
+      }
+    }, initialDelay, period, unit);
+  }
+
+  @Override
+  public void shutdown() {
+    open = false;
+    timer.shutdown();
+  }
+
+}
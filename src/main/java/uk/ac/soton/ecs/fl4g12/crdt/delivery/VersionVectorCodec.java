@@ -0,0 +1,132 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
+
+/**
+ * {@linkplain Codec} for {@linkplain VersionVector}s. A vector is written as the number of
+ * identifiers followed by each identifier and its timestamp.
+ *
+ * If the identifiers have an {@link OrderedCodec}, they are written in ascending order with each
+ * identifier written as its difference from the previous one. Dense identifiers, such as those
+ * assigned incrementally, then take a single byte each. Timestamps are written with their own
+ * {@linkplain Codec}, which for {@link Codecs#INTEGER} and {@link Codecs#LONG} is a varint.
+ *
+ * Only the timestamp of each identifier is written so any additional state of the vector, such as
+ * the exceptions of a {@linkplain uk.ac.soton.ecs.fl4g12.crdt.order.DottedVersionVector}, is not
+ * encoded.
+ *
+ * @param <K> the type of identifier used to identify nodes.
+ * @param <T> the type of the timestamp stored in the {@link VersionVector}.
+ */
+public final class VersionVectorCodec<K, T extends Comparable<T>>
+    implements Codec<VersionVector<K, T>> {
+
+  private final Codec<K> identifiers;
+  private final Codec<T> timestamps;
+  private final VersionVector<K, T> zero;
+
+  /**
+   * Construct a {@linkplain VersionVectorCodec}.
+   *
+   * @param identifiers the {@link Codec} for the identifiers of the vector.
+   * @param timestamps the {@link Codec} for the timestamps of the vector.
+   * @param zero a zero {@link VersionVector} which is copied to create each decoded vector.
+   */
+  public VersionVectorCodec(Codec<K> identifiers, Codec<T> timestamps, VersionVector<K, T> zero) {
+    this.identifiers = identifiers;
+    this.timestamps = timestamps;
+    this.zero = zero.copy();
+  }
+
+  /**
+   * Get the {@linkplain Codec} used for the identifiers of the vector.
+   *
+   * @return the {@link Codec} for identifiers.
+   */
+  public Codec<K> getIdentifierCodec() {
+    return identifiers;
+  }
+
+  /**
+   * Get the {@linkplain Codec} used for the timestamps of the vector.
+   *
+   * @return the {@link Codec} for timestamps.
+   */
+  public Codec<T> getTimestampCodec() {
+    return timestamps;
+  }
+
+  @Override
+  public void encode(VersionVector<K, T> value, ByteBuffer buffer) {
+    Map<K, T> vector = value.get();
+    Codecs.putLength(vector.size(), buffer);
+    if (identifiers instanceof OrderedCodec) {
+      OrderedCodec<K> ordered = (OrderedCodec<K>) identifiers;
+      List<K> ids = new ArrayList<>(vector.keySet());
+      Collections.sort(ids, ordered);
+      K previous = null;
+      for (K id : ids) {
+        if (previous == null) {
+          ordered.encode(id, buffer);
+        } else {
+          ordered.encodeDelta(id, previous, buffer);
+        }
+        timestamps.encode(vector.get(id), buffer);
+        previous = id;
+      }
+    } else {
+      for (Map.Entry<K, T> entry : vector.entrySet()) {
+        identifiers.encode(entry.getKey(), buffer);
+        timestamps.encode(entry.getValue(), buffer);
+      }
+    }
+  }
+
+  @Override
+  public VersionVector<K, T> decode(ByteBuffer buffer) {
+    VersionVector<K, T> vector = zero.copy();
+    int size = Codecs.getLength(buffer);
+    if (identifiers instanceof OrderedCodec) {
+      OrderedCodec<K> ordered = (OrderedCodec<K>) identifiers;
+      K previous = null;
+      for (int i = 0; i < size; i++) {
+        K id = previous == null ? ordered.decode(buffer) : ordered.decodeDelta(previous, buffer);
+        vector.sync(id, timestamps.decode(buffer));
+        previous = id;
+      }
+    } else {
+      for (int i = 0; i < size; i++) {
+        K id = identifiers.decode(buffer);
+        vector.sync(id, timestamps.decode(buffer));
+      }
+    }
+    return vector;
+  }
+
+}
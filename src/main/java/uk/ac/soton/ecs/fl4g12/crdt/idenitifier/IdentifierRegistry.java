@@ -0,0 +1,143 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.idenitifier;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry which interns identifiers of any type as dense, small integer slots. The first
+ * identifier to be interned is given slot {@code 0}, the next slot {@code 1} and so on, and an
+ * identifier keeps its slot for the lifetime of the registry. Data structures which share a
+ * registry can therefore store a value for each identifier in an array indexed by its slot.
+ *
+ * Identifiers are typically interned as they are assigned, by wrapping the
+ * {@linkplain IdentifierFactory} of a {@code DeliveryExchange} with {@link #factory}, and any
+ * other identifier is interned the first time it is seen. Looking up the slot of an identifier
+ * does not lock.
+ *
+ * @param <K> the type of the identifiers.
+ */
+public final class IdentifierRegistry<K> {
+
+  private static final int INITIAL_CAPACITY = 8;
+
+  private final ConcurrentMap<K, Integer> slots = new ConcurrentHashMap<>();
+  private volatile Object[] identifiers = new Object[INITIAL_CAPACITY];
+  private volatile int size = 0;
+
+  /**
+   * Get the slot of the given identifier, interning the identifier if it does not already have
+   * one.
+   *
+   * @param identifier the identifier to intern, which must not be {@code null}.
+   * @return the slot of the identifier.
+   */
+  public int intern(K identifier) {
+    Integer slot = slots.get(identifier);
+    return slot == null ? register(identifier) : slot;
+  }
+
+  private synchronized int register(K identifier) {
+    Integer existing = slots.get(identifier);
+    if (existing != null) {
+      return existing;
+    }
+    final int slot = size;
+    if (slot == identifiers.length) {
+      identifiers = Arrays.copyOf(identifiers, slot * 2);
+    }
+    // Store the identifier and count it before publishing the slot, so that a reader which finds
+    // the slot can always resolve it.
+    identifiers[slot] = identifier;
+    size = slot + 1;
+    slots.put(identifier, slot);
+    return slot;
+  }
+
+  /**
+   * Get the slot of the given identifier without interning it.
+   *
+   * @param identifier the identifier to look up.
+   * @return the slot of the identifier or {@code -1} if it has not been interned.
+   */
+  public int slot(K identifier) {
+    Integer slot = slots.get(identifier);
+    return slot == null ? -1 : slot;
+  }
+
+  /**
+   * Get the identifier which has been interned with the given slot.
+   *
+   * @param slot the slot of the identifier.
+   * @return the identifier with the given slot.
+   * @throws IllegalArgumentException if no identifier has the given slot.
+   */
+  public K get(int slot) {
+    if (slot < 0 || slot >= size) {
+      throw new IllegalArgumentException("No identifier has been interned with slot " + slot);
+    }
+    return identifierAt(slot);
+  }
+
+  /**
+   * Get an identifier from the backing array as the identifier type of this registry. This is safe
+   * as only identifiers passed to {@link #intern(Object)} are stored in the array.
+   *
+   * @param slot the slot of the identifier.
+   * @return the identifier in the given slot.
+   */
+  @SuppressWarnings("unchecked")
+  private K identifierAt(int slot) {
+    return (K) identifiers[slot];
+  }
+
+  /**
+   * Get the number of identifiers which have been interned. Every slot below this value has been
+   * assigned.
+   *
+   * @return the number of interned identifiers.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Wrap an {@linkplain IdentifierFactory} so that every identifier it creates is interned by this
+   * registry as it is created.
+   *
+   * @param factory the {@link IdentifierFactory} to wrap.
+   * @return an {@link IdentifierFactory} which interns the identifiers created by {@code factory}.
+   */
+  public IdentifierFactory<K> factory(final IdentifierFactory<K> factory) {
+    return new IdentifierFactory<K>() {
+      @Override
+      public K create() {
+        K identifier = factory.create();
+        intern(identifier);
+        return identifier;
+      }
+    };
+  }
+
+}
@@ -0,0 +1,471 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.order;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Abstract {@linkplain VersionVector} for dense integer identifiers with {@code long} timestamps.
+ * Rather than storing a {@link LogicalVersion} per identifier, implementations store the raw
+ * timestamps in slots indexed by the identifier which allows vectors of this type to be compared
+ * and synchronised with each other without boxing timestamps or building snapshot maps. Comparisons
+ * with other types of {@link VersionVector} fall back to the behaviour of
+ * {@link AbstractVersionVector}.
+ *
+ * Slots hold {@link #UNINITIALISED} until the identifier is initialised. The
+ * {@link LogicalVersion}s returned by {@link #getLogicalVersion(Integer)} are views of a slot and
+ * are only created when requested.
+ */
+public abstract class AbstractIntLongVersionVector extends AbstractVersionVector<Integer, Long> {
+
+  /**
+   * The raw value of a slot whose identifier has not been initialised.
+   */
+  protected static final long UNINITIALISED = -1;
+
+  private static final LongVersion ZERO = new LongVersion();
+
+  /**
+   * Value returned by {@link #compareSlots(AbstractIntLongVersionVector)} for concurrent vectors.
+   */
+  private static final int CONCURRENT = Integer.MIN_VALUE;
+
+  private volatile SlotVersion[] slotVersions = new SlotVersion[0];
+
+  /**
+   * Construct an {@linkplain AbstractIntLongVersionVector}.
+   */
+  public AbstractIntLongVersionVector() {
+    super(ZERO);
+  }
+
+  /**
+   * Get the raw value of the slot for the given identifier.
+   *
+   * @param id the identifier of the slot.
+   * @return the timestamp stored in the slot or {@link #UNINITIALISED} if the identifier is not
+   *         initialised or lies outside of the capacity of the vector.
+   */
+  protected abstract long getSlot(int id);
+
+  /**
+   * Get the number of slots currently allocated. All identifiers greater than or equal to the
+   * capacity are uninitialised.
+   *
+   * @return the number of slots allocated.
+   */
+  protected abstract int getCapacity();
+
+  /**
+   * Initialise the slot for the given identifier with a zero timestamp if it has not already been
+   * initialised, growing the vector if required.
+   *
+   * @param id the non-negative identifier of the slot.
+   */
+  protected abstract void initSlot(int id);
+
+  /**
+   * Synchronise the slot for the given identifier with the given timestamp, initialising the slot
+   * if it has not already been initialised.
+   *
+   * @param id the non-negative identifier of the slot.
+   * @param value the timestamp to synchronise with.
+   */
+  protected abstract void syncSlot(int id, long value);
+
+  /**
+   * Increment the slot for the given identifier.
+   *
+   * @param id the identifier of the slot.
+   * @throws IllegalArgumentException if the identifier has not been initialised.
+   * @throws ArithmeticException if incrementing the slot would overflow.
+   */
+  protected abstract void incrementSlot(int id);
+
+  /**
+   * Synchronise all slots of this vector with the slots of the given vector. Implementations may
+   * override this to apply all of the changes at once.
+   *
+   * @param other the vector to synchronise with.
+   */
+  protected void syncSlots(AbstractIntLongVersionVector other) {
+    final int capacity = other.getCapacity();
+    for (int id = 0; id < capacity; id++) {
+      long value = other.getSlot(id);
+      if (value != UNINITIALISED) {
+        syncSlot(id, value);
+      }
+    }
+  }
+
+  /**
+   * Gets the current timestamp of the vector for a given identifier without boxing it. If the
+   * {@code id} is not initialised, then its value will implicitly be zero.
+   *
+   * @param id the identifier which the timestamp should be returned for.
+   * @return the timestamp from the vector for the specified identifier.
+   */
+  public final long getLong(int id) {
+    return valueOf(getSlot(id));
+  }
+
+  @Override
+  public Long get(Integer id) {
+    return getLong(id);
+  }
+
+  @Override
+  public LogicalVersion<Long, ?> getLogicalVersion(Integer id) {
+    if (getSlot(id) == UNINITIALISED) {
+      return null;
+    }
+    return getSlotVersion(id);
+  }
+
+  @Override
+  public Set<Integer> getIdentifiers() {
+    Set<Integer> identifiers = new HashSet<>();
+    final int capacity = getCapacity();
+    for (int id = 0; id < capacity; id++) {
+      if (getSlot(id) != UNINITIALISED) {
+        identifiers.add(id);
+      }
+    }
+    return identifiers;
+  }
+
+  @Override
+  public LogicalVersion<Long, ?> init(Integer id) {
+    checkIdentifier(id);
+    initSlot(id);
+    return getSlotVersion(id);
+  }
+
+  @Override
+  public void increment(Integer id) {
+    if (getSlot(id) == UNINITIALISED) {
+      throw new IllegalArgumentException(
+          "Provided ID has not been initialised as part of the vector: " + id);
+    }
+    incrementSlot(id);
+  }
+
+  @Override
+  public void sync(Integer id, Long value) {
+    checkIdentifier(id);
+    syncSlot(id, value);
+  }
+
+  @Override
+  public void sync(VersionVector<Integer, Long> version) {
+    final AbstractIntLongVersionVector other = asDense(version);
+    if (other == null) {
+      super.sync(version);
+    } else {
+      syncSlots(other);
+    }
+  }
+
+  @Override
+  public boolean happenedBefore(VersionVector<Integer, Long> version) {
+    return compare(version) == Ordering.BEFORE;
+  }
+
+  @Override
+  public boolean happenedBefore(Dot<Integer, Long> dot) {
+    return getLong(dot.getIdentifier()) < dot.get();
+  }
+
+  @Override
+  public boolean precedes(VersionVector<Integer, Long> version) {
+    final AbstractIntLongVersionVector other = asDense(version);
+    if (other == null) {
+      return super.precedes(version);
+    }
+    final int capacity = Math.max(getCapacity(), other.getCapacity());
+
+    boolean precedes = false;
+    for (int id = 0; id < capacity; id++) {
+      long localValue = getLong(id);
+      long otherValue = other.getLong(id);
+
+      // If localValue is greater than (happened-after) or identical, continue
+      if (localValue >= otherValue) {
+        continue;
+      }
+
+      if (localValue + 1 == otherValue) {
+        if (precedes) {
+          // Two elements precede, therefor the vector does not.
+          return false;
+        }
+        precedes = true;
+        continue;
+      }
+
+      // Not equal and does not precede, return false
+      return false;
+    }
+    return precedes;
+  }
+
+  @Override
+  public boolean precedes(Dot<Integer, Long> dot) {
+    return getLong(dot.getIdentifier()) + 1 == dot.get();
+  }
+
+  @Override
+  public boolean concurrentWith(VersionVector<Integer, Long> version) {
+    return compare(version) == Ordering.CONCURRENT;
+  }
+
+  @Override
+  public int compareTo(VersionVector<Integer, Long> version) {
+    final AbstractIntLongVersionVector other = asDense(version);
+    if (other == null) {
+      return super.compareTo(version);
+    }
+    int comparison = compareSlots(other);
+    return comparison == CONCURRENT ? 0 : comparison;
+  }
+
+  @Override
+  public Ordering compare(VersionVector<Integer, Long> version) {
+    final AbstractIntLongVersionVector other = asDense(version);
+    if (other == null) {
+      return super.compare(version);
+    }
+    int comparison = compareSlots(other);
+    if (comparison == CONCURRENT) {
+      return Ordering.CONCURRENT;
+    } else if (comparison < 0) {
+      return Ordering.BEFORE;
+    } else if (comparison > 0) {
+      return Ordering.AFTER;
+    }
+    return Ordering.EQUAL;
+  }
+
+  @Override
+  public boolean identical(VersionVector<Integer, Long> version) {
+    final AbstractIntLongVersionVector other = asDense(version);
+    if (other == null) {
+      return super.identical(version);
+    }
+    final int capacity = Math.max(getCapacity(), other.getCapacity());
+    for (int id = 0; id < capacity; id++) {
+      if (getLong(id) != other.getLong(id)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean identical(Dot<Integer, Long> dot) {
+    return getLong(dot.getIdentifier()) == dot.get();
+  }
+
+  /**
+   * Compare the slots of this vector with those of another, treating uninitialised slots as zero.
+   *
+   * @param other the vector to compare with.
+   * @return {@link #CONCURRENT} if the vectors are concurrent, otherwise the number of slots which
+   *         are greater in the other vector (as a negative number) or the number of slots which are
+   *         greater in this vector (as a positive number).
+   */
+  private int compareSlots(AbstractIntLongVersionVector other) {
+    final int capacity = Math.max(getCapacity(), other.getCapacity());
+    int accumulator = 0;
+    for (int id = 0; id < capacity; id++) {
+      long localValue = getLong(id);
+      long otherValue = other.getLong(id);
+      if (localValue < otherValue) {
+        if (accumulator > 0) {
+          // No ordering, must be concurrent.
+          return CONCURRENT;
+        }
+        accumulator--;
+      } else if (localValue > otherValue) {
+        if (accumulator < 0) {
+          // No ordering, must be concurrent.
+          return CONCURRENT;
+        }
+        accumulator++;
+      } // Else they are equal and we don't need to do anything.
+    }
+    return accumulator;
+  }
+
+  /**
+   * Get the {@linkplain SlotVersion} for the given identifier, creating it if this is the first
+   * time it has been requested. The same instance is returned for every call with the same
+   * identifier.
+   *
+   * @param id the identifier to get the {@link SlotVersion} for.
+   * @return the {@link SlotVersion} for the given identifier.
+   */
+  private SlotVersion getSlotVersion(int id) {
+    SlotVersion[] versions = slotVersions;
+    if (id < versions.length && versions[id] != null) {
+      return versions[id];
+    }
+    synchronized (this) {
+      versions = slotVersions;
+      if (id >= versions.length) {
+        versions = Arrays.copyOf(versions, Math.max(id + 1, getCapacity()));
+      } else if (versions[id] != null) {
+        return versions[id];
+      } else {
+        versions = versions.clone();
+      }
+      versions[id] = new SlotVersion(id);
+      slotVersions = versions;
+      return versions[id];
+    }
+  }
+
+  @Override
+  public abstract AbstractIntLongVersionVector copy();
+
+  @Override
+  public int hashCode() {
+    // Equivalent to get().hashCode() without building the map.
+    int hash = 0;
+    final int capacity = getCapacity();
+    for (int id = 0; id < capacity; id++) {
+      long value = getSlot(id);
+      if (value != UNINITIALISED) {
+        hash += id ^ (int) (value ^ (value >>> 32));
+      }
+    }
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null) {
+      return false;
+    }
+    if (this.getClass() != obj.getClass()) {
+      return false;
+    }
+    final AbstractIntLongVersionVector other = (AbstractIntLongVersionVector) obj;
+    final int capacity = Math.max(getCapacity(), other.getCapacity());
+    for (int id = 0; id < capacity; id++) {
+      if (getSlot(id) != other.getSlot(id)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the {@linkplain AbstractIntLongVersionVector} backing the given vector, unwrapping a
+   * {@link LocalVersionVector} if required.
+   *
+   * @param version the vector to get the {@link AbstractIntLongVersionVector} of.
+   * @return the {@link AbstractIntLongVersionVector} backing the given vector or {@code null} if
+   *         it is not backed by one.
+   */
+  private static AbstractIntLongVersionVector asDense(VersionVector<Integer, Long> version) {
+    if (version instanceof LocalVersionVector) {
+      version = ((LocalVersionVector<Integer, Long>) version).getVersionVector();
+    }
+    if (version instanceof AbstractIntLongVersionVector) {
+      return (AbstractIntLongVersionVector) version;
+    }
+    return null;
+  }
+
+  /**
+   * Ensure that an identifier can be stored in a slot.
+   *
+   * @param id the identifier to check.
+   * @throws IllegalArgumentException if the identifier is negative.
+   */
+  private static void checkIdentifier(int id) {
+    if (id < 0) {
+      throw new IllegalArgumentException("Identifiers must not be negative: " + id);
+    }
+  }
+
+  /**
+   * Get the timestamp represented by a raw slot value.
+   *
+   * @param slot the raw slot value.
+   * @return the timestamp, zero if the slot is uninitialised.
+   */
+  private static long valueOf(long slot) {
+    return slot == UNINITIALISED ? 0 : slot;
+  }
+
+  /**
+   * {@linkplain LamportTimestamp} view of a single slot of the vector. Changes to the
+   * {@linkplain SlotVersion} are made directly to the slot and vice-versa.
+   */
+  private final class SlotVersion extends AbstractLamportTimestamp<Long> {
+
+    private final int id;
+
+    SlotVersion(int id) {
+      super(ZERO);
+      this.id = id;
+    }
+
+    @Override
+    public Long get() {
+      return getLong(id);
+    }
+
+    @Override
+    public void increment() {
+      incrementSlot(id);
+    }
+
+    @Override
+    public void sync(Long other) {
+      syncSlot(id, other);
+    }
+
+    @Override
+    public Long successor() {
+      long successor = getLong(id) + 1;
+      if (successor == Long.MIN_VALUE) {
+        throw new ArithmeticException("Arithmetic overflow");
+      }
+      return successor;
+    }
+
+    @Override
+    public LongVersion copy() {
+      return new LongVersion(getLong(id));
+    }
+
+  }
+
+}
@@ -22,10 +22,7 @@
 package uk.ac.soton.ecs.fl4g12.crdt.order;
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
 
 /**
  * Abstract {@link VersionVector}. To be extended by implementations {@link VersionVector} that wish
@@ -39,6 +36,11 @@ public abstract class AbstractVersionVector<K, T extends Comparable<T>>
     extends AbstractVersion<Map<K, T>, VersionVector<K, T>, VersionVector<K, T>>
     implements VersionVector<K, T> {
 
+  /**
+   * Value returned by {@link #compareToInternal(VersionVector)} for concurrent vectors.
+   */
+  private static final int CONCURRENT = Integer.MIN_VALUE;
+
   private final T zero;
   private final LogicalVersion<T, ?> zeroVersion;
 
@@ -91,29 +93,12 @@ public abstract class AbstractVersionVector<K, T extends Comparable<T>>
 
   @Override
   public Map<K, T> successor(K id) {
-    // Loop to ensure the successor is the true successor from the snapshot created by `get()`
-    while (true) {
-      Map<K, T> snapshot = get();
-      LogicalVersion<T, ?> localVersion = getLogicalVersion(id);
-
-      T localVersionValue = null;
-      if (localVersion != null) {
-        localVersionValue = localVersion.get();
-      }
-
-      // Retry if the localVersion is different since when the snapshot was taken.
-      if (!Objects.equals(snapshot.get(id), localVersionValue)) {
-        continue;
-      }
-
-      // If not initialised, treat as zero
-      if (localVersion == null) {
-        localVersion = zeroVersion.copy();
-      }
-
-      snapshot.put(id, localVersion.successor());
-      return snapshot;
-    }
+    // The successor is taken from the value in the snapshot so that it is consistent with the
+    // snapshot even if the vector is incremented while the snapshot is taken.
+    Map<K, T> snapshot = get();
+    LogicalVersion<T, ?> successor = logicalVersionOf(snapshot.get(id));
+    snapshot.put(id, successor.successor());
+    return snapshot;
   }
 
   @Override
@@ -129,36 +114,15 @@ public abstract class AbstractVersionVector<K, T extends Comparable<T>>
   }
 
   @Override
-  public boolean happenedBefore(VersionVector<K, T> version) {
-    // Get snapshot of each vector to work with
-    Map<K, T> local = get();
-    Map<K, T> other = version.get();
-
-    // Iterate through all ids known locally. Any id that might exist in
-    // other that does not exist locally will be greater than or equal to
-    // zero and so satisfies the happens-before relation.
-    for (Map.Entry<K, T> entry : local.entrySet()) {
-      // Get the ID
-      K id = entry.getKey();
-      // Get the local and other value for the current ID.
-      T localValue = entry.getValue();
-
-      T otherValue = other.get(id);
-      if (otherValue == null) {
-        // If the node has not been seen by the other, then its value is implicitly zero.
-        otherValue = zero;
-      }
-
-      // Compare the local to the other
-      int comparison = localValue.compareTo(otherValue);
-
-      // Determine if there is a partial ordering.
-      if (comparison > 0) {
-        return false;
-      }
+  public void sync(VersionVector<K, T> version) {
+    for (K id : version.getIdentifiers()) {
+      sync(id, version.get(id));
     }
+  }
 
-    return !this.identical(version);
+  @Override
+  public boolean happenedBefore(VersionVector<K, T> version) {
+    return compare(version) == Ordering.BEFORE;
   }
 
   @Override
@@ -182,40 +146,70 @@ public abstract class AbstractVersionVector<K, T extends Comparable<T>>
 
   @Override
   public boolean precedes(VersionVector<K, T> version) {
-    Map<K, T> local = get();
-    Map<K, T> other = version.get();
-
-    // Merge all identifiers together
-    Set<K> identifiers = new HashSet(local.keySet());
-    identifiers.addAll(other.keySet());
-
     boolean precedes = false;
-    for (K id : identifiers) {
-      // Get the local and other value for the current ID.
-      LogicalVersion<T, ?> localValue = logicalVersionOf(local.get(id));
-      LogicalVersion<T, ?> otherValue = logicalVersionOf(other.get(id));
 
-      // If localValue is greater than (happened-after) or identical, continue
-      if (!localValue.happenedBefore(otherValue)) {
-        continue;
+    // Compare the identifiers which are known locally.
+    for (K id : getIdentifiers()) {
+      switch (precedes(getLogicalVersion(id), version.get(id))) {
+        case BEFORE:
+          if (precedes) {
+            // Two elements precede, therefor the vector does not.
+            return false;
+          }
+          precedes = true;
+          break;
+        case CONCURRENT:
+          // Not equal and does not precede, return false
+          return false;
+        default:
+          // Greater than (happened-after) or identical, continue
       }
+    }
 
-      if (localValue.precedes(otherValue)) {
-        if (precedes) {
-          // Two elements precede, therefor the vector does not.
-          return false;
-        }
-        precedes = true;
+    // Compare the identifiers which are only known by the other vector.
+    for (K id : version.getIdentifiers()) {
+      if (getLogicalVersion(id) != null) {
         continue;
       }
-
-      // Not equal and does not precede, return false
-      return false;
+      switch (precedes(zeroVersion, version.get(id))) {
+        case BEFORE:
+          if (precedes) {
+            // Two elements precede, therefor the vector does not.
+            return false;
+          }
+          precedes = true;
+          break;
+        case CONCURRENT:
+          // Not equal and does not precede, return false
+          return false;
+        default:
+          // Greater than (happened-after) or identical, continue
+      }
     }
 
     return precedes;
   }
 
+  /**
+   * Determine how a single entry of this vector relates to the same entry of another vector for the
+   * purpose of {@link #precedes(VersionVector)}.
+   *
+   * @param local the local {@link LogicalVersion}, which may be concurrently modified.
+   * @param otherValue the timestamp of the other vector.
+   * @return {@link Ordering#BEFORE} if the local version directly precedes the other,
+   *         {@link Ordering#AFTER} if it is greater than or identical to the other and
+   *         {@link Ordering#CONCURRENT} if it happened-before but does not directly precede it.
+   */
+  private Ordering precedes(LogicalVersion<T, ?> local, T otherValue) {
+    T localValue = local.get();
+    if (localValue.compareTo(otherValue) >= 0) {
+      return Ordering.AFTER;
+    }
+    // Use a copy so that the successor is of the value which has been compared.
+    LogicalVersion<T, ?> successor = logicalVersionOf(localValue);
+    return successor.successor().equals(otherValue) ? Ordering.BEFORE : Ordering.CONCURRENT;
+  }
+
   @Override
   public boolean precedes(Dot<K, T> dot) {
     LogicalVersion<T, ?> logicalVersion = getLogicalVersion(dot.getIdentifier());
@@ -225,86 +219,106 @@ public abstract class AbstractVersionVector<K, T extends Comparable<T>>
     return logicalVersion.precedes(dot.getLogicalVersion());
   }
 
-  private Integer compareToInternal(VersionVector<K, T> version) {
-    // Get snapshot of each vector to work with
-    Map<K, T> local = get();
-    Map<K, T> other = version.get();
-
-    // Merge all identifiers together
-    Set<K> identifiers = new HashSet(local.keySet());
-    identifiers.addAll(other.keySet());
-
+  /**
+   * Compare this vector with another by walking the entries of each vector, reading each timestamp
+   * once and without taking a snapshot of either vector. The comparison stops as soon as an entry
+   * is found which shows that the vectors are concurrent.
+   *
+   * @param version the vector to compare with.
+   * @return {@link #CONCURRENT} if the vectors are concurrent, otherwise the number of entries
+   *         which are greater in the other vector (as a negative number) or the number of entries
+   *         which are greater in this vector (as a positive number).
+   */
+  private int compareToInternal(VersionVector<K, T> version) {
     // TODO: What happens in case of over/underflow?
     int accumulator = 0;
-    for (K id : identifiers) {
-      // Get the local and other value for the current ID.
-      T localValue = local.get(id);
-      if (localValue == null) {
-        // If the node has not been seen locally, then its value is implicitly zero.
-        localValue = zero;
+
+    // Compare the identifiers which are known locally.
+    for (K id : getIdentifiers()) {
+      accumulator = accumulate(accumulator, get(id).compareTo(version.get(id)));
+      if (accumulator == CONCURRENT) {
+        return CONCURRENT;
+      }
+    }
+
+    // Compare the identifiers which are only known by the other vector, which are implicitly zero
+    // locally.
+    for (K id : version.getIdentifiers()) {
+      if (getLogicalVersion(id) != null) {
+        continue;
       }
-      T otherValue = other.get(id);
-      if (otherValue == null) {
-        // If the node has not been seen by the other, then its value is implicitly zero.
-        otherValue = zero;
+      accumulator = accumulate(accumulator, zero.compareTo(version.get(id)));
+      if (accumulator == CONCURRENT) {
+        return CONCURRENT;
       }
+    }
 
-      // Compare the local to the other
-      int comparison = localValue.compareTo(otherValue);
-
-      // Determine if there is a partial ordering.
-      if (comparison < 0) {
-        if (accumulator > 0) {
-          // No ordering, must be concurrent.
-          return null;
-        }
-        accumulator += comparison;
-      } else if (comparison > 0) {
-        if (accumulator < 0) {
-          // No ordering, must be concurrent.
-          return null;
-        }
-        accumulator += comparison;
-      } // Else they are equal and we don't need to do anything.
+    return accumulator;
+  }
+
+  /**
+   * Add the comparison of a single entry to the accumulated comparison of a vector.
+   *
+   * @param accumulator the accumulated comparison of the previous entries.
+   * @param comparison the comparison of the current entry.
+   * @return the new accumulated comparison or {@link #CONCURRENT} if the entry shows that the
+   *         vectors are concurrent.
+   */
+  private static int accumulate(int accumulator, int comparison) {
+    // Determine if there is a partial ordering.
+    if (comparison < 0) {
+      if (accumulator > 0) {
+        // No ordering, must be concurrent.
+        return CONCURRENT;
+      }
+      return accumulator - 1;
+    } else if (comparison > 0) {
+      if (accumulator < 0) {
+        // No ordering, must be concurrent.
+        return CONCURRENT;
+      }
+      return accumulator + 1;
     }
+    // Else they are equal and we don't need to do anything.
     return accumulator;
   }
 
   @Override
   public boolean concurrentWith(VersionVector<K, T> version) {
-    return compareToInternal(version) == null;
+    return compareToInternal(version) == CONCURRENT;
   }
 
   @Override
   public int compareTo(VersionVector<K, T> version) {
-    Integer comparison = compareToInternal(version);
-    return comparison == null ? 0 : compareToInternal(version);
+    int comparison = compareToInternal(version);
+    return comparison == CONCURRENT ? 0 : comparison;
+  }
+
+  @Override
+  public Ordering compare(VersionVector<K, T> version) {
+    int comparison = compareToInternal(version);
+    if (comparison == CONCURRENT) {
+      return Ordering.CONCURRENT;
+    } else if (comparison < 0) {
+      return Ordering.BEFORE;
+    } else if (comparison > 0) {
+      return Ordering.AFTER;
+    }
+    return Ordering.EQUAL;
   }
 
   @Override
   public boolean identical(VersionVector<K, T> version) {
-    // Get snapshot of each vector to work with
-    Map<K, T> local = get();
-    Map<K, T> other = version.get();
-
-    // Merge all identifiers together
-    Set<K> identifiers = new HashSet(local.keySet());
-    identifiers.addAll(other.keySet());
-    for (K id : identifiers) {
-      // Get the local and other value for the current ID.
-      T localValue = local.get(id);
-      if (localValue == null) {
-        // If the node has not been seen locally, then its value is implicitly zero.
-        localValue = zero;
-      }
-      T otherValue = other.get(id);
-      if (otherValue == null) {
-        // If the node has not been seen by the other, then its value is implicitly zero.
-        otherValue = zero;
+    // Compare the identifiers which are known locally.
+    for (K id : getIdentifiers()) {
+      if (!get(id).equals(version.get(id))) {
+        return false;
       }
+    }
 
-      // If any values are not equal then the versions are not identical.
-      if (!localValue.equals(otherValue)) {
+    // Compare the identifiers which are only known by the other vector.
+    for (K id : version.getIdentifiers()) {
+      if (getLogicalVersion(id) == null && !zero.equals(version.get(id))) {
         return false;
       }
     }
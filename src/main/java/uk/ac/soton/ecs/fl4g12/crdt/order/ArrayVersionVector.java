@@ -21,26 +21,33 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.order;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
- * {@linkplain VersionVector} backed by an {@linkplain ArrayList}. This is particularly useful where
- * the identifiers are incrementally assigned integers. This will perform inefficiently where IDs
- * are sparse.
+ * {@linkplain VersionVector} backed by an array of {@link LogicalVersion}s. This is particularly
+ * useful where the identifiers are incrementally assigned integers. This will perform
+ * inefficiently where IDs are sparse.
+ *
+ * The array is replaced with an updated copy whenever an identifier is initialised and is read
+ * through a single volatile reference, so {@link #get()} and {@link #getIdentifiers()} see a
+ * consistent set of identifiers without locking. {@link #getIdentifiers()} returns a view of the
+ * array that was current when it was called rather than a copy.
  *
  * @param <T> the type of the timestamps stored in this version vector.
  */
 public class ArrayVersionVector<T extends Comparable<T>> extends AbstractVersionVector<Integer, T> {
 
-  private final LogicalVersion<T, ?> zero;
+  private static final LogicalVersion<?, ?>[] EMPTY = new LogicalVersion<?, ?>[0];
 
-  private final List<LogicalVersion<T, ?>> vector;
-  private final Set<Integer> identifiers;
+  private final LogicalVersion<T, ?> zero;
 
-  private int size;
+  private volatile LogicalVersion<?, ?>[] vector = EMPTY;
 
   /**
    * Construct an {@linkplain ArrayVersionVector}. The {@link LogicalVersion} provided as
@@ -50,65 +57,59 @@ public class ArrayVersionVector<T extends Comparable<T>> extends AbstractVersion
    *        timestamps.
    */
   public ArrayVersionVector(LogicalVersion<T, ?> zero) {
-    this(zero, new ArrayList<LogicalVersion<T, ?>>(), new HashSet<Integer>());
-  }
-
-  /**
-   * Construct an {@linkplain ArrayVersionVector} with all fields specified. For internal use only.
-   *
-   * @param zero a {@link LogicalVersion} representing the zero value of the type wanted for the
-   *        timestamps.
-   * @param vector the vector to initialise with. This value is not copied.
-   * @param identifiers the set of identifiers to initialise with. This value is not copied.
-   */
-  private ArrayVersionVector(LogicalVersion<T, ?> zero, List<LogicalVersion<T, ?>> vector,
-      Set<Integer> identifiers) {
     super(zero);
     this.zero = zero.copy();
-    this.vector = vector;
-    this.identifiers = identifiers;
-    this.size = vector.size();
   }
 
   @Override
   public LogicalVersion<T, ?> getLogicalVersion(Integer id) {
-    try {
-      return vector.get(id);
-    } catch (IndexOutOfBoundsException ex) {
+    final LogicalVersion<?, ?>[] current = vector;
+    if (id == null || id < 0 || id >= current.length) {
       return null;
     }
+    return versionOf(current[id]);
   }
 
   @Override
-  public HashSet<Integer> getIdentifiers() {
-    return new HashSet<>(identifiers);
+  public Map<Integer, T> get() {
+    final LogicalVersion<?, ?>[] current = vector;
+    Map<Integer, T> map = new HashMap<>();
+    for (int id = 0; id < current.length; id++) {
+      if (current[id] != null) {
+        map.put(id, versionOf(current[id]).get());
+      }
+    }
+    return map;
+  }
+
+  @Override
+  public Set<Integer> getIdentifiers() {
+    return new Identifiers(vector);
   }
 
   @Override
   public synchronized LogicalVersion<T, ?> init(Integer id) {
-    if (identifiers.contains(id)) {
-      return vector.get(id);
+    if (id < 0) {
+      throw new IllegalArgumentException("Identifiers must be non-negative: " + id);
     }
-    LogicalVersion<T, ?> version = zero.copy();
-    if (id > size - 1) {
-      for (int i = size; i < id; i++) {
-        vector.add(i, null);
-      }
-      vector.add(id, version);
-      size = id + 1;
-    } else {
-      vector.set(id, version);
+    final LogicalVersion<?, ?>[] current = vector;
+    if (id < current.length && current[id] != null) {
+      return versionOf(current[id]);
     }
-    identifiers.add(id);
+    final LogicalVersion<T, ?> version = zero.copy();
+    final LogicalVersion<?, ?>[] next = Arrays.copyOf(current, Math.max(current.length, id + 1));
+    next[id] = version;
+    vector = next;
     return version;
   }
 
   @Override
   public void sync(Integer id, T value) {
-    if (!identifiers.contains(id)) {
-      init(id);
+    LogicalVersion<T, ?> version = getLogicalVersion(id);
+    if (version == null) {
+      version = init(id);
     }
-    getLogicalVersion(id).sync(value);
+    version.sync(value);
   }
 
   @Override
@@ -118,4 +119,84 @@ public class ArrayVersionVector<T extends Comparable<T>> extends AbstractVersion
     return copy;
   }
 
+  /**
+   * Get a version from the backing array as a version of the timestamp type of this vector. This
+   * is safe as only copies of {@code zero} are stored in the array.
+   *
+   * @param version the version from the backing array.
+   * @return the given version.
+   */
+  @SuppressWarnings("unchecked")
+  private LogicalVersion<T, ?> versionOf(LogicalVersion<?, ?> version) {
+    return (LogicalVersion<T, ?>) version;
+  }
+
+  /**
+   * View of the initialised identifiers of a single backing array.
+   */
+  private static final class Identifiers extends AbstractSet<Integer> {
+
+    private final LogicalVersion<?, ?>[] vector;
+    private int size = -1;
+
+    Identifiers(LogicalVersion<?, ?>[] vector) {
+      this.vector = vector;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      if (!(o instanceof Integer)) {
+        return false;
+      }
+      final int id = (Integer) o;
+      return id >= 0 && id < vector.length && vector[id] != null;
+    }
+
+    @Override
+    public int size() {
+      if (size < 0) {
+        int count = 0;
+        for (LogicalVersion<?, ?> version : vector) {
+          if (version != null) {
+            count++;
+          }
+        }
+        size = count;
+      }
+      return size;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+      return new Iterator<Integer>() {
+
+        private int next = advance(0);
+
+        @Override
+        public boolean hasNext() {
+          return next < vector.length;
+        }
+
+        @Override
+        public Integer next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          final int id = next;
+          next = advance(id + 1);
+          return id;
+        }
+
+        private int advance(int from) {
+          while (from < vector.length && vector[from] == null) {
+            from++;
+          }
+          return from;
+        }
+
+      };
+    }
+
+  }
+
 }
@@ -0,0 +1,148 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.order;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@linkplain VersionVector} backed by {@linkplain AtomicLongArray}s. Slots are updated in place
+ * using compare-and-set operations so concurrent increments and synchronisations of different
+ * identifiers do not contend with each other. Slots are allocated in fixed size chunks which are
+ * retained when the vector grows, ensuring that no update made while growing the vector is lost.
+ *
+ * As with {@link ArrayVersionVector}, this will perform inefficiently where IDs are sparse.
+ */
+public final class AtomicIntLongVersionVector extends AbstractIntLongVersionVector {
+
+  private static final int CHUNK_BITS = 5;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private volatile AtomicLongArray[] chunks = new AtomicLongArray[0];
+
+  /**
+   * Construct an empty {@linkplain AtomicIntLongVersionVector}.
+   */
+  public AtomicIntLongVersionVector() {}
+
+  @Override
+  protected long getSlot(int id) {
+    final AtomicLongArray[] current = chunks;
+    final int chunk = id >>> CHUNK_BITS;
+    if (id < 0 || chunk >= current.length) {
+      return UNINITIALISED;
+    }
+    return current[chunk].get(id & CHUNK_MASK);
+  }
+
+  @Override
+  protected int getCapacity() {
+    return chunks.length << CHUNK_BITS;
+  }
+
+  @Override
+  protected void initSlot(int id) {
+    getChunk(id).compareAndSet(id & CHUNK_MASK, UNINITIALISED, 0);
+  }
+
+  @Override
+  protected void syncSlot(int id, long value) {
+    final AtomicLongArray chunk = getChunk(id);
+    final int index = id & CHUNK_MASK;
+    while (true) {
+      final long slot = chunk.get(index);
+      final long next = Math.max(slot == UNINITIALISED ? 0 : slot, value);
+      if (slot == next) {
+        // Nothing to do
+        return;
+      }
+      // Compare and set ensures that the slot has not been changed since it was read.
+      if (chunk.compareAndSet(index, slot, next)) {
+        return;
+      }
+    }
+  }
+
+  @Override
+  protected void incrementSlot(int id) {
+    final AtomicLongArray[] current = chunks;
+    final int chunk = id >>> CHUNK_BITS;
+    if (id < 0 || chunk >= current.length) {
+      throw new IllegalArgumentException(
+          "Provided ID has not been initialised as part of the vector: " + id);
+    }
+    final int index = id & CHUNK_MASK;
+    while (true) {
+      final long slot = current[chunk].get(index);
+      if (slot == UNINITIALISED) {
+        throw new IllegalArgumentException(
+            "Provided ID has not been initialised as part of the vector: " + id);
+      }
+      if (slot == Long.MAX_VALUE) {
+        throw new ArithmeticException("Increment overflow");
+      }
+      if (current[chunk].compareAndSet(index, slot, slot + 1)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Get the chunk containing the slot for the given identifier, growing the vector if the slot has
+   * not been allocated.
+   *
+   * @param id the non-negative identifier of the slot.
+   * @return the chunk containing the slot.
+   */
+  private AtomicLongArray getChunk(int id) {
+    final int chunk = id >>> CHUNK_BITS;
+    AtomicLongArray[] current = chunks;
+    if (chunk < current.length) {
+      return current[chunk];
+    }
+    synchronized (this) {
+      current = chunks;
+      if (chunk >= current.length) {
+        // Existing chunks are reused so that concurrent updates to them are retained.
+        final AtomicLongArray[] next = Arrays.copyOf(current, chunk + 1);
+        for (int i = current.length; i < next.length; i++) {
+          next[i] = new AtomicLongArray(CHUNK_SIZE);
+          for (int j = 0; j < CHUNK_SIZE; j++) {
+            next[i].lazySet(j, UNINITIALISED);
+          }
+        }
+        chunks = next;
+        current = next;
+      }
+      return current[chunk];
+    }
+  }
+
+  @Override
+  public AtomicIntLongVersionVector copy() {
+    AtomicIntLongVersionVector copy = new AtomicIntLongVersionVector();
+    copy.syncSlots(this);
+    return copy;
+  }
+
+}
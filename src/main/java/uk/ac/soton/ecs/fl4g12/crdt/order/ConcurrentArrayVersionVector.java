@@ -0,0 +1,250 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.order;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Concurrent {@linkplain VersionVector} for incrementally assigned integer identifiers, backed by
+ * {@linkplain AtomicReferenceArray}s. Reads and synchronisations of initialised identifiers never
+ * lock and a new identifier is initialised with a compare-and-set of its slot. As with
+ * {@link AtomicIntLongVersionVector}, slots are allocated in fixed size chunks which are retained
+ * when the vector grows so that no slot initialised while growing the vector is lost; only growing
+ * the vector locks.
+ *
+ * Each chunk has a bitmap of its initialised slots. The identifiers returned by
+ * {@link #getIdentifiers()} are a live view which is iterated by walking the bitmaps, rather than
+ * a copy. The version of an identifier is only returned once its bit is set, so every identifier
+ * which has a version is in the view.
+ *
+ * As with {@link ArrayVersionVector}, this will perform inefficiently where IDs are sparse.
+ *
+ * @param <T> the type of the timestamps stored in this version vector.
+ */
+public final class ConcurrentArrayVersionVector<T extends Comparable<T>>
+    extends AbstractVersionVector<Integer, T> {
+
+  // One bitmap word per chunk.
+  private static final int CHUNK_BITS = 6;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private final LogicalVersion<T, ?> zero;
+  private final Set<Integer> identifiers = new Identifiers();
+
+  private volatile Chunk[] chunks = new Chunk[0];
+
+  /**
+   * Construct a {@linkplain ConcurrentArrayVersionVector}. The {@link LogicalVersion} provided as
+   * {@code zero} will be cloned when initialising a new identifier.
+   *
+   * @param zero a {@link LogicalVersion} representing the zero value of the type wanted for the
+   *        timestamps.
+   */
+  public ConcurrentArrayVersionVector(LogicalVersion<T, ?> zero) {
+    super(zero);
+    this.zero = zero.copy();
+  }
+
+  @Override
+  public LogicalVersion<T, ?> getLogicalVersion(Integer id) {
+    final Chunk[] current = chunks;
+    if (id == null || id < 0 || id >>> CHUNK_BITS >= current.length) {
+      return null;
+    }
+    final Chunk chunk = current[id >>> CHUNK_BITS];
+    final int index = id & CHUNK_MASK;
+    // A slot is only visible once its bit is set, so it is always in the identifiers.
+    if ((chunk.initialised.get() & (1L << index)) == 0) {
+      return null;
+    }
+    return versionAt(chunk, index);
+  }
+
+  @Override
+  public Set<Integer> getIdentifiers() {
+    return identifiers;
+  }
+
+  @Override
+  public LogicalVersion<T, ?> init(Integer id) {
+    if (id < 0) {
+      throw new IllegalArgumentException("Identifiers must be non-negative: " + id);
+    }
+    final Chunk chunk = getChunk(id);
+    final int index = id & CHUNK_MASK;
+    LogicalVersion<T, ?> version = versionAt(chunk, index);
+    if (version == null) {
+      final LogicalVersion<T, ?> created = zero.copy();
+      // If initialised concurrently, use the version which was set first.
+      version = chunk.versions.compareAndSet(index, null, created) ? created
+          : versionAt(chunk, index);
+    }
+    // The bit is set after the slot so every identifier in the bitmap has a version. Every thread
+    // which initialises the slot sets the bit, so none returns before the identifier is visible.
+    final long bit = 1L << index;
+    while (true) {
+      final long initialised = chunk.initialised.get();
+      if ((initialised & bit) != 0
+          || chunk.initialised.compareAndSet(initialised, initialised | bit)) {
+        return version;
+      }
+    }
+  }
+
+  @Override
+  public void sync(Integer id, T value) {
+    LogicalVersion<T, ?> version = getLogicalVersion(id);
+    if (version == null) {
+      version = init(id);
+    }
+    version.sync(value);
+  }
+
+  /**
+   * Get the chunk containing the slot for the given identifier, growing the vector if the slot has
+   * not been allocated.
+   *
+   * @param id the non-negative identifier of the slot.
+   * @return the chunk containing the slot.
+   */
+  private Chunk getChunk(int id) {
+    final int chunk = id >>> CHUNK_BITS;
+    Chunk[] current = chunks;
+    if (chunk < current.length) {
+      return current[chunk];
+    }
+    synchronized (this) {
+      current = chunks;
+      if (chunk >= current.length) {
+        // Existing chunks are reused so that concurrent updates to them are retained.
+        final Chunk[] next = Arrays.copyOf(current, chunk + 1);
+        for (int i = current.length; i < next.length; i++) {
+          next[i] = new Chunk();
+        }
+        chunks = next;
+        current = next;
+      }
+      return current[chunk];
+    }
+  }
+
+  /**
+   * Get the version in a slot of a chunk. The cast is safe as the only versions stored in the
+   * slots are copies of {@link #zero}.
+   *
+   * @param chunk the chunk containing the slot.
+   * @param index the index of the slot in the chunk.
+   * @return the version in the slot or {@code null} if it has not been set.
+   */
+  @SuppressWarnings("unchecked")
+  private LogicalVersion<T, ?> versionAt(Chunk chunk, int index) {
+    return (LogicalVersion<T, ?>) chunk.versions.get(index);
+  }
+
+  @Override
+  public ConcurrentArrayVersionVector<T> copy() {
+    ConcurrentArrayVersionVector<T> copy = new ConcurrentArrayVersionVector<>(zero);
+    copy.sync(this);
+    return copy;
+  }
+
+  /**
+   * A fixed size chunk of slots and the bitmap of the slots which have been initialised.
+   */
+  private static final class Chunk {
+
+    private final AtomicReferenceArray<LogicalVersion<?, ?>> versions =
+        new AtomicReferenceArray<>(CHUNK_SIZE);
+    private final AtomicLong initialised = new AtomicLong();
+
+  }
+
+  /**
+   * Live view of the initialised identifiers, read from the bitmaps of the chunks.
+   */
+  private final class Identifiers extends AbstractSet<Integer> {
+
+    @Override
+    public boolean contains(Object o) {
+      if (!(o instanceof Integer)) {
+        return false;
+      }
+      final int id = (Integer) o;
+      final Chunk[] current = chunks;
+      if (id < 0 || id >>> CHUNK_BITS >= current.length) {
+        return false;
+      }
+      return (current[id >>> CHUNK_BITS].initialised.get() & (1L << (id & CHUNK_MASK))) != 0;
+    }
+
+    @Override
+    public int size() {
+      int size = 0;
+      for (Chunk chunk : chunks) {
+        size += Long.bitCount(chunk.initialised.get());
+      }
+      return size;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+      return new Iterator<Integer>() {
+
+        private final Chunk[] current = chunks;
+        private int chunk = -1;
+        private long remaining = 0;
+
+        @Override
+        public boolean hasNext() {
+          while (remaining == 0) {
+            if (++chunk >= current.length) {
+              chunk = current.length;
+              return false;
+            }
+            remaining = current[chunk].initialised.get();
+          }
+          return true;
+        }
+
+        @Override
+        public Integer next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          final int index = Long.numberOfTrailingZeros(remaining);
+          remaining &= remaining - 1;
+          return (chunk << CHUNK_BITS) | index;
+        }
+
+      };
+    }
+
+  }
+
+}
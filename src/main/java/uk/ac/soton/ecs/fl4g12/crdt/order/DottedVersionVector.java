@@ -0,0 +1,296 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.order;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * {@linkplain VersionVector} which also records the {@linkplain Dot}s it has seen out of order.
+ * For each identifier the vector holds the contiguous timestamp, as any other
+ * {@link VersionVector} does, along with the set of exceptions: dots above the contiguous timestamp
+ * which have already been seen. The exceptions are stored as ranges of consecutive timestamps and
+ * are folded into the contiguous timestamp as the gaps below them are filled, so a vector which
+ * sees every dot eventually holds no exceptions at all.
+ *
+ * The {@link VersionVector} methods only consider the contiguous timestamps, so the ordering of a
+ * {@linkplain DottedVersionVector} is the same as a {@link HashVersionVector} which had only seen
+ * the gap-free prefix of dots. Use {@link #contains(Dot)} and {@link #add(Dot)} to test and record
+ * individual dots, which allows updates which commute to be applied as soon as they arrive rather
+ * than waiting for their predecessors.
+ *
+ * @param <K> the type of the identifier.
+ * @param <T> the type of the timestamp.
+ */
+public final class DottedVersionVector<K, T extends Comparable<T>>
+    extends AbstractVersionVector<K, T> {
+
+  private final LogicalVersion<T, ?> zero;
+
+  private final HashMap<K, LogicalVersion<T, ?>> vector = new HashMap<>();
+
+  /**
+   * Ranges of dots seen above the contiguous timestamp of each identifier, mapping the first
+   * timestamp of each range to the last. Ranges never overlap or touch, and identifiers without
+   * exceptions have no entry.
+   */
+  private final HashMap<K, NavigableMap<T, T>> exceptions = new HashMap<>();
+
+  /**
+   * Construct a {@linkplain DottedVersionVector}. The {@link LogicalVersion} provided as
+   * {@code zero} will be cloned when initialising a new identifier.
+   *
+   * @param zero a {@link LogicalVersion} representing the zero value of the type wanted for the
+   *        timestamps.
+   */
+  public DottedVersionVector(LogicalVersion<T, ?> zero) {
+    super(zero);
+    this.zero = zero.copy();
+  }
+
+  @Override
+  public LogicalVersion<T, ?> getLogicalVersion(K id) {
+    return vector.get(id);
+  }
+
+  @Override
+  public Set<K> getIdentifiers() {
+    return vector.keySet();
+  }
+
+  @Override
+  public synchronized LogicalVersion<T, ?> init(K id) {
+    if (vector.containsKey(id)) {
+      return vector.get(id);
+    }
+    LogicalVersion<T, ?> version = zero.copy();
+    vector.put(id, version);
+    return version;
+  }
+
+  @Override
+  public synchronized void increment(K id) {
+    super.increment(id);
+    compact(id);
+  }
+
+  @Override
+  public synchronized void sync(K id, T value) {
+    init(id).sync(value);
+    compact(id);
+  }
+
+  @Override
+  public void sync(VersionVector<K, T> version) {
+    if (version instanceof LocalVersionVector) {
+      version = ((LocalVersionVector<K, T>) version).getVersionVector();
+    }
+    // Take the exceptions of the other vector first so that only one vector is locked at a time.
+    final Map<K, NavigableMap<T, T>> otherExceptions = version instanceof DottedVersionVector
+        ? ((DottedVersionVector<K, T>) version).copyExceptions()
+        : Collections.<K, NavigableMap<T, T>>emptyMap();
+    synchronized (this) {
+      super.sync(version);
+      for (Map.Entry<K, NavigableMap<T, T>> entry : otherExceptions.entrySet()) {
+        for (Map.Entry<T, T> range : entry.getValue().entrySet()) {
+          insert(entry.getKey(), range.getKey(), range.getValue());
+        }
+      }
+    }
+  }
+
+  /**
+   * Determine whether a {@linkplain Dot} has been seen, either as part of the contiguous timestamp
+   * of its identifier or as an exception.
+   *
+   * @param dot the {@link Dot} to check.
+   * @return {@code true} if the dot has been seen, {@code false} otherwise.
+   */
+  public synchronized boolean contains(Dot<K, T> dot) {
+    final T timestamp = dot.get();
+    if (timestamp.compareTo(get(dot.getIdentifier())) <= 0) {
+      return true;
+    }
+    final NavigableMap<T, T> ranges = exceptions.get(dot.getIdentifier());
+    if (ranges == null) {
+      return false;
+    }
+    final Map.Entry<T, T> range = ranges.floorEntry(timestamp);
+    return range != null && timestamp.compareTo(range.getValue()) <= 0;
+  }
+
+  /**
+   * Record that a {@linkplain Dot} has been seen. If the dot directly follows the contiguous
+   * timestamp of its identifier, the contiguous timestamp is advanced past it and past any
+   * exceptions which it joins up with, otherwise it is recorded as an exception.
+   *
+   * @param dot the {@link Dot} to record.
+   * @return {@code true} if the dot had not already been seen, {@code false} otherwise.
+   */
+  public synchronized boolean add(Dot<K, T> dot) {
+    if (contains(dot)) {
+      return false;
+    }
+    insert(dot.getIdentifier(), dot.get(), dot.get());
+    return true;
+  }
+
+  /**
+   * Get the exceptions of an identifier: the ranges of dots seen above its contiguous timestamp.
+   *
+   * @param id the identifier to get the exceptions for.
+   * @return an immutable map from the first to the last timestamp of each range of seen dots, in
+   *         ascending order.
+   */
+  public synchronized SortedMap<T, T> getExceptions(K id) {
+    final NavigableMap<T, T> ranges = exceptions.get(id);
+    if (ranges == null) {
+      return Collections.emptySortedMap();
+    }
+    return Collections.unmodifiableSortedMap(new TreeMap<>(ranges));
+  }
+
+  /**
+   * Get a deep copy of the exceptions of every identifier.
+   *
+   * @return a copy of the exceptions which can be used without holding the lock of this vector.
+   */
+  private synchronized Map<K, NavigableMap<T, T>> copyExceptions() {
+    final Map<K, NavigableMap<T, T>> copy = new HashMap<>();
+    for (Map.Entry<K, NavigableMap<T, T>> entry : exceptions.entrySet()) {
+      copy.put(entry.getKey(), new TreeMap<>(entry.getValue()));
+    }
+    return copy;
+  }
+
+  /**
+   * Record a range of seen dots as an exception, merging it with any ranges it overlaps or
+   * touches, and fold the exceptions into the contiguous timestamp if the range fills a gap.
+   *
+   * @param id the identifier of the dots.
+   * @param start the first timestamp of the range.
+   * @param end the last timestamp of the range.
+   */
+  private void insert(K id, T start, T end) {
+    final LogicalVersion<T, ?> contiguous = init(id);
+    if (end.compareTo(contiguous.get()) <= 0) {
+      return;
+    }
+    NavigableMap<T, T> ranges = exceptions.get(id);
+    if (ranges == null) {
+      ranges = new TreeMap<>();
+      exceptions.put(id, ranges);
+    }
+
+    final Map.Entry<T, T> lower = ranges.floorEntry(start);
+    if (lower != null && successor(lower.getValue()).compareTo(start) >= 0) {
+      ranges.remove(lower.getKey());
+      start = lower.getKey();
+      end = max(end, lower.getValue());
+    }
+    Map.Entry<T, T> higher = ranges.ceilingEntry(start);
+    while (higher != null && higher.getKey().compareTo(successor(end)) <= 0) {
+      ranges.remove(higher.getKey());
+      end = max(end, higher.getValue());
+      higher = ranges.ceilingEntry(start);
+    }
+    ranges.put(start, end);
+    compact(id);
+  }
+
+  /**
+   * Fold the exceptions of an identifier which are covered by, or directly follow, its contiguous
+   * timestamp into the contiguous timestamp.
+   *
+   * @param id the identifier to compact.
+   */
+  private void compact(K id) {
+    final NavigableMap<T, T> ranges = exceptions.get(id);
+    if (ranges == null) {
+      return;
+    }
+    final LogicalVersion<T, ?> contiguous = vector.get(id);
+    Map.Entry<T, T> first = ranges.firstEntry();
+    while (first != null && first.getKey().compareTo(contiguous.successor()) <= 0) {
+      contiguous.sync(first.getValue());
+      ranges.remove(first.getKey());
+      first = ranges.firstEntry();
+    }
+    if (ranges.isEmpty()) {
+      exceptions.remove(id);
+    }
+  }
+
+  /**
+   * Get the timestamp which directly follows the given timestamp.
+   *
+   * @param timestamp the timestamp to get the successor of.
+   * @return the successor of the timestamp.
+   */
+  private T successor(T timestamp) {
+    final LogicalVersion<T, ?> version = zero.copy();
+    version.sync(timestamp);
+    return version.successor();
+  }
+
+  private static <T extends Comparable<T>> T max(T a, T b) {
+    return a.compareTo(b) >= 0 ? a : b;
+  }
+
+  @Override
+  public synchronized DottedVersionVector<K, T> copy() {
+    DottedVersionVector<K, T> copy = new DottedVersionVector<>(zero);
+    for (Map.Entry<K, LogicalVersion<T, ?>> entry : vector.entrySet()) {
+      copy.vector.put(entry.getKey(), entry.getValue().copy());
+    }
+    copy.exceptions.putAll(copyExceptions());
+    return copy;
+  }
+
+  @Override
+  public synchronized int hashCode() {
+    return 97 * super.hashCode() + exceptions.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!super.equals(obj)) {
+      return false;
+    }
+    final Map<?, ?> otherExceptions = ((DottedVersionVector<?, ?>) obj).copyExceptions();
+    return copyExceptions().equals(otherExceptions);
+  }
+
+  @Override
+  public synchronized String toString() {
+    if (exceptions.isEmpty()) {
+      return super.toString();
+    }
+    return getClass().getSimpleName() + "{" + get() + ", exceptions=" + exceptions + '}';
+  }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.order;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openimaj.citation.annotation.Reference;
+import org.openimaj.citation.annotation.ReferenceType;
+
+/**
+ * A {@linkplain LamportTimestamp} which tracks physical time. The timestamp combines the
+ * milliseconds since the epoch in its upper 48 bits with a logical counter in its lower 16 bits.
+ *
+ * Incrementing moves the timestamp to the current physical time if the clock has moved on or
+ * otherwise increments the logical counter. This makes every increment strictly greater than the
+ * last without waiting for the physical clock to advance. If the logical counter overflows, the
+ * timestamp carries into the next millisecond and the physical clock will catch up with it.
+ *
+ * Syncing with a remote timestamp only moves the timestamp forward, so that the next increment is
+ * greater than both the local and remote timestamps. Uses an {@link AtomicLong} to ensure the
+ * thread safety of the version.
+ */
+@Reference(type = ReferenceType.Inproceedings,
+    author = {"Kulkarni, Sandeep S.", "Demirbas, Murat", "Madappa, Deepak", "Avva, Bharadwaj",
+        "Leone, Marcelo"},
+    title = "Logical Physical Clocks",
+    booktitle = "Principles of Distributed Systems: 18th International Conference, OPODIS 2014",
+    year = "2014", pages = {"17", "32"})
+public class HybridLogicalClock extends AbstractLamportTimestamp<Long> {
+
+  private static final int LOGICAL_BITS = 16;
+  private static final long LOGICAL_MASK = (1l << LOGICAL_BITS) - 1;
+
+  private static final HybridLogicalClock ZERO = new HybridLogicalClock();
+
+  private final Clock clock;
+  private final AtomicLong timestamp;
+
+  /**
+   * Construct a zero-initialised {@linkplain HybridLogicalClock} using the system UTC clock.
+   */
+  public HybridLogicalClock() {
+    this(Clock.systemUTC());
+  }
+
+  /**
+   * Construct a zero-initialised {@linkplain HybridLogicalClock} using the given physical clock.
+   *
+   * @param clock the {@link Clock} to read the physical time from.
+   */
+  public HybridLogicalClock(Clock clock) {
+    this(clock, 0);
+  }
+
+  /**
+   * Construct a {@linkplain HybridLogicalClock} with a given initial timestamp. This is designed
+   * only to be used for testing and cloning.
+   *
+   * @param clock the {@link Clock} to read the physical time from.
+   * @param timestamp the initial value of the {@linkplain HybridLogicalClock}.
+   */
+  HybridLogicalClock(Clock clock, long timestamp) {
+    super(ZERO);
+    this.clock = clock;
+    this.timestamp = new AtomicLong(timestamp);
+  }
+
+  @Override
+  public Long get() {
+    return timestamp.get();
+  }
+
+  @Override
+  public void increment() {
+    tick();
+  }
+
+  /**
+   * Increment the timestamp and return the new value. Equivalent to {@link #increment()} followed
+   * by {@link #get()} but atomic.
+   *
+   * @return the value of the timestamp after the increment.
+   * @throws ArithmeticException when incremented beyond {@link Long#MAX_VALUE}.
+   */
+  public long tick() {
+    while (true) {
+      long self = timestamp.get();
+      if (self == Long.MAX_VALUE) {
+        throw new ArithmeticException("Arithmetic overflow");
+      }
+      long next = Math.max(self + 1, clock.millis() << LOGICAL_BITS);
+      if (timestamp.compareAndSet(self, next)) {
+        return next;
+      }
+    }
+  }
+
+  @Override
+  public void sync(Long other) {
+    while (true) {
+      long self = timestamp.get();
+      // Is the other clock ahead
+      if (other <= self) {
+        // Nothing to do
+        return;
+      }
+      // Try to set, uses compare and set to ensure that the previous gaurd is still valid.
+      if (timestamp.compareAndSet(self, other)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * The value after an increment depends on the physical time at which it is made. The successor
+   * is the smallest value that an increment can produce, the timestamp with its logical counter
+   * incremented.
+   */
+  @Override
+  public Long successor() {
+    long successor = get() + 1;
+    if (successor == Long.MIN_VALUE) {
+      throw new ArithmeticException("Arithmetic overflow");
+    }
+    return successor;
+  }
+
+  @Override
+  public HybridLogicalClock copy() {
+    return new HybridLogicalClock(clock, get());
+  }
+
+  /**
+   * Get the physical time component of a hybrid timestamp.
+   *
+   * @param timestamp the hybrid timestamp.
+   * @return the milliseconds since the epoch stored in the timestamp.
+   */
+  public static long getPhysicalTime(long timestamp) {
+    return timestamp >>> LOGICAL_BITS;
+  }
+
+  /**
+   * Get the logical counter component of a hybrid timestamp.
+   *
+   * @param timestamp the hybrid timestamp.
+   * @return the logical counter stored in the timestamp.
+   */
+  public static int getLogicalTime(long timestamp) {
+    return (int) (timestamp & LOGICAL_MASK);
+  }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.ac.soton.ecs.fl4g12.crdt.order;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@linkplain VersionVector} backed by a flat {@linkplain AtomicLongArray}. Updates are made to the
+ * backing array in place while holding the lock of the vector, so reading and comparing the vector
+ * never requires locking and always sees whole values. The array is only copied when it needs to
+ * grow or when the vector is copied. Where a vector is incremented concurrently by many threads,
+ * an {@link AtomicIntLongVersionVector} should be preferred.
+ *
+ * As with {@link ArrayVersionVector}, this will perform inefficiently where IDs are sparse.
+ */
+public final class IntLongVersionVector extends AbstractIntLongVersionVector {
+
+  private volatile AtomicLongArray vector;
+
+  /**
+   * Construct an empty {@linkplain IntLongVersionVector}.
+   */
+  public IntLongVersionVector() {
+    this(new AtomicLongArray(0));
+  }
+
+  /**
+   * Construct an {@linkplain IntLongVersionVector} with the given backing array. For internal use
+   * only.
+   *
+   * @param vector the array to initialise with. This value is not copied.
+   */
+  private IntLongVersionVector(AtomicLongArray vector) {
+    this.vector = vector;
+  }
+
+  @Override
+  protected long getSlot(int id) {
+    final AtomicLongArray current = vector;
+    if (id < 0 || id >= current.length()) {
+      return UNINITIALISED;
+    }
+    return current.get(id);
+  }
+
+  @Override
+  protected int getCapacity() {
+    return vector.length();
+  }
+
+  @Override
+  protected synchronized void initSlot(int id) {
+    final AtomicLongArray current = ensureCapacity(id + 1);
+    if (current.get(id) == UNINITIALISED) {
+      current.set(id, 0);
+    }
+  }
+
+  @Override
+  protected synchronized void syncSlot(int id, long value) {
+    final AtomicLongArray current = ensureCapacity(id + 1);
+    final long slot = current.get(id);
+    if (slot == UNINITIALISED || slot < value) {
+      current.set(id, Math.max(0, value));
+    }
+  }
+
+  @Override
+  protected synchronized void incrementSlot(int id) {
+    final AtomicLongArray current = vector;
+    final long slot = id < 0 || id >= current.length() ? UNINITIALISED : current.get(id);
+    if (slot == UNINITIALISED) {
+      throw new IllegalArgumentException(
+          "Provided ID has not been initialised as part of the vector: " + id);
+    }
+    if (slot == Long.MAX_VALUE) {
+      throw new ArithmeticException("Increment overflow");
+    }
+    current.set(id, slot + 1);
+  }
+
+  @Override
+  protected synchronized void syncSlots(AbstractIntLongVersionVector other) {
+    final int capacity = other.getCapacity();
+    AtomicLongArray current = vector;
+    for (int id = 0; id < capacity; id++) {
+      final long value = other.getSlot(id);
+      if (value == UNINITIALISED) {
+        continue;
+      }
+      if (id >= current.length()) {
+        // Only grow the array once there is a change to make.
+        current = ensureCapacity(capacity);
+      }
+      final long slot = current.get(id);
+      if (slot == UNINITIALISED || slot < value) {
+        current.set(id, value);
+      }
+    }
+  }
+
+  @Override
+  public synchronized IntLongVersionVector copy() {
+    return new IntLongVersionVector(copyOf(vector, vector.length()));
+  }
+
+  /**
+   * Ensure that the backing array has at least the given length, replacing it with a grown copy if
+   * it does not. Must be called while holding the lock of the vector, so that no update is made to
+   * the array while it is copied.
+   *
+   * @param length the minimum length of the backing array.
+   * @return the backing array.
+   */
+  private AtomicLongArray ensureCapacity(int length) {
+    final AtomicLongArray current = vector;
+    if (length <= current.length()) {
+      return current;
+    }
+    final AtomicLongArray grown = copyOf(current, length);
+    vector = grown;
+    return grown;
+  }
+
+  /**
+   * Copy the given backing array into a new array of the given length, padding new slots as
+   * {@link #UNINITIALISED}.
+   *
+   * @param current the backing array to copy.
+   * @param length the length of the copy, at least the length of {@code current}.
+   * @return the copy of the backing array.
+   */
+  private static AtomicLongArray copyOf(AtomicLongArray current, int length) {
+    final long[] values = new long[length];
+    final int existing = current.length();
+    for (int id = 0; id < existing; id++) {
+      values[id] = current.get(id);
+    }
+    Arrays.fill(values, existing, length, UNINITIALISED);
+    return new AtomicLongArray(values);
+  }
+
+}
@@ -0,0 +1,199 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.order;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import uk.ac.soton.ecs.fl4g12.crdt.idenitifier.IdentifierRegistry;
+
+/**
+ * {@linkplain VersionVector} for identifiers of any type which stores its entries in an array
+ * indexed by the slot each identifier is interned with in an {@linkplain IdentifierRegistry}. This
+ * gives the storage of an {@link ArrayVersionVector} to identifiers such as strings and UUIDs.
+ *
+ * Access by identifier costs a lookup in the registry, which does not lock. Synchronising with,
+ * comparing for identity with and copying another {@linkplain InternedVersionVector} which shares
+ * the same registry walk the arrays by slot without looking up any identifiers.
+ *
+ * @param <K> the type of the identifiers.
+ * @param <T> the type of the timestamps stored in this version vector.
+ */
+public final class InternedVersionVector<K, T extends Comparable<T>>
+    extends AbstractVersionVector<K, T> {
+
+  private final LogicalVersion<T, ?> zero;
+  private final IdentifierRegistry<K> registry;
+
+  /**
+   * The entries of the vector, indexed by slot. Entries are only written while synchronized and the
+   * array is written back after every change so that readers see the initialised entries.
+   */
+  private volatile LogicalVersion<T, ?>[] vector;
+
+  /**
+   * Construct an {@linkplain InternedVersionVector}. The {@link LogicalVersion} provided as
+   * {@code zero} will be cloned when initialising a new identifier.
+   *
+   * @param zero a {@link LogicalVersion} representing the zero value of the type wanted for the
+   *        timestamps.
+   * @param registry the {@link IdentifierRegistry} used to intern the identifiers.
+   */
+  public InternedVersionVector(LogicalVersion<T, ?> zero, IdentifierRegistry<K> registry) {
+    this(zero, registry, newVector(registry.size()));
+  }
+
+  private InternedVersionVector(LogicalVersion<T, ?> zero, IdentifierRegistry<K> registry,
+      LogicalVersion<T, ?>[] vector) {
+    super(zero);
+    this.zero = zero.copy();
+    this.registry = registry;
+    this.vector = vector;
+  }
+
+  /**
+   * Create a backing array of the given length. This is safe as the array is only ever filled with
+   * copies of {@code zero}.
+   *
+   * @param <T> the type of the timestamps stored in the array.
+   * @param length the length of the array.
+   * @return a new empty backing array.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T extends Comparable<T>> LogicalVersion<T, ?>[] newVector(int length) {
+    return (LogicalVersion<T, ?>[]) new LogicalVersion<?, ?>[length];
+  }
+
+  /**
+   * Get the {@linkplain IdentifierRegistry} used to intern the identifiers of this vector.
+   *
+   * @return the {@link IdentifierRegistry} of this vector.
+   */
+  public IdentifierRegistry<K> getRegistry() {
+    return registry;
+  }
+
+  @Override
+  public LogicalVersion<T, ?> getLogicalVersion(K id) {
+    return getLogicalVersion(registry.slot(id));
+  }
+
+  private LogicalVersion<T, ?> getLogicalVersion(int slot) {
+    LogicalVersion<T, ?>[] vector = this.vector;
+    return slot >= 0 && slot < vector.length ? vector[slot] : null;
+  }
+
+  @Override
+  public Set<K> getIdentifiers() {
+    LogicalVersion<T, ?>[] vector = this.vector;
+    Set<K> identifiers = new HashSet<>();
+    for (int slot = 0; slot < vector.length; slot++) {
+      if (vector[slot] != null) {
+        identifiers.add(registry.get(slot));
+      }
+    }
+    return identifiers;
+  }
+
+  @Override
+  public LogicalVersion<T, ?> init(K id) {
+    return init(registry.intern(id));
+  }
+
+  private synchronized LogicalVersion<T, ?> init(int slot) {
+    LogicalVersion<T, ?>[] vector = this.vector;
+    if (slot < vector.length && vector[slot] != null) {
+      return vector[slot];
+    }
+    if (slot >= vector.length) {
+      // Grow to fit every identifier known to the registry to avoid growing again soon.
+      vector = Arrays.copyOf(vector, Math.max(slot + 1, registry.size()));
+    }
+    LogicalVersion<T, ?> version = zero.copy();
+    vector[slot] = version;
+    this.vector = vector;
+    return version;
+  }
+
+  @Override
+  public void sync(K id, T value) {
+    LogicalVersion<T, ?> version = getLogicalVersion(id);
+    if (version == null) {
+      version = init(id);
+    }
+    version.sync(value);
+  }
+
+  @Override
+  public void sync(VersionVector<K, T> version) {
+    if (!sharesRegistry(version)) {
+      super.sync(version);
+      return;
+    }
+    LogicalVersion<T, ?>[] other = ((InternedVersionVector<K, T>) version).vector;
+    for (int slot = 0; slot < other.length; slot++) {
+      if (other[slot] != null) {
+        LogicalVersion<T, ?> local = getLogicalVersion(slot);
+        if (local == null) {
+          local = init(slot);
+        }
+        local.sync(other[slot].get());
+      }
+    }
+  }
+
+  @Override
+  public boolean identical(VersionVector<K, T> version) {
+    if (!sharesRegistry(version)) {
+      return super.identical(version);
+    }
+    LogicalVersion<T, ?>[] local = vector;
+    LogicalVersion<T, ?>[] other = ((InternedVersionVector<K, T>) version).vector;
+    T zero = this.zero.get();
+    for (int slot = 0; slot < Math.max(local.length, other.length); slot++) {
+      T localValue = slot < local.length && local[slot] != null ? local[slot].get() : zero;
+      T otherValue = slot < other.length && other[slot] != null ? other[slot].get() : zero;
+      if (!localValue.equals(otherValue)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean sharesRegistry(VersionVector<K, T> version) {
+    return version instanceof InternedVersionVector
+        && ((InternedVersionVector<K, T>) version).registry == registry;
+  }
+
+  @Override
+  public InternedVersionVector<K, T> copy() {
+    LogicalVersion<T, ?>[] vector = this.vector;
+    LogicalVersion<T, ?>[] copy = newVector(vector.length);
+    for (int slot = 0; slot < vector.length; slot++) {
+      if (vector[slot] != null) {
+        copy[slot] = vector[slot].copy();
+      }
+    }
+    return new InternedVersionVector<>(zero, registry, copy);
+  }
+
+}
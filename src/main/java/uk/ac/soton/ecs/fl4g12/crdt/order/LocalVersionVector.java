@@ -171,6 +171,11 @@ public final class LocalVersionVector<K, T extends Comparable<T>> implements Ver
     return versionVector.compareTo(other);
   }
 
+  @Override
+  public Ordering compare(VersionVector<K, T> other) {
+    return versionVector.compare(other);
+  }
+
   @Override
   public boolean identical(VersionVector<K, T> version) {
     return versionVector.identical(version);
@@ -195,4 +195,37 @@ public interface VersionVector<K, T extends Comparable<T>>
   @Override
   int compareTo(VersionVector<K, T> other);
 
+  /**
+   * Determines the causal ordering of this {@linkplain VersionVector} with respect to another
+   * provided {@linkplain VersionVector}. Unlike {@link #compareTo(VersionVector)}, the result
+   * distinguishes between vectors which are identical and vectors which are concurrent, allowing
+   * the relationship between two vectors to be determined with a single comparison.
+   *
+   * @param other the version vector to compare to.
+   * @return the {@link Ordering} of this {@linkplain VersionVector} relative to the {@code other}.
+   */
+  Ordering compare(VersionVector<K, T> other);
+
+  /**
+   * The possible causal orderings of one {@linkplain VersionVector} relative to another.
+   */
+  public enum Ordering {
+    /**
+     * The {@linkplain VersionVector} happened-before the other.
+     */
+    BEFORE,
+    /**
+     * The other {@linkplain VersionVector} happened-before this one.
+     */
+    AFTER,
+    /**
+     * The {@linkplain VersionVector}s are identical.
+     */
+    EQUAL,
+    /**
+     * The {@linkplain VersionVector}s are concurrent.
+     */
+    CONCURRENT;
+  }
+
 }
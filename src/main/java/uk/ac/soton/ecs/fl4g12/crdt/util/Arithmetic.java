@@ -43,6 +43,24 @@ public interface Arithmetic<T> {
    */
   T getUnit();
 
+  /**
+   * Get the value of the arithmetic type which is equal to the given {@code long}.
+   *
+   * @param value the value to convert.
+   * @return the value as the arithmetic type.
+   * @throws ArithmeticException if the value cannot be represented by the arithmetic type.
+   */
+  T valueOf(long value) throws ArithmeticException;
+
+  /**
+   * Add two values. Unlike {@link #add(Object...)}, this does not allocate an array.
+   *
+   * @param augend the value to add to.
+   * @param addend the value to add.
+   * @return the sum of the two values.
+   */
+  T add(T augend, T addend);
+
   /**
    * Add the given elements.
    *
@@ -59,6 +77,16 @@ public interface Arithmetic<T> {
    */
   T add(Iterable<T> elements);
 
+  /**
+   * Subtract one value from another. Unlike {@link #sub(Object, Object...)}, this does not allocate
+   * an array.
+   *
+   * @param value the value to subtract from.
+   * @param subtrahend the value to subtract.
+   * @return the difference of the two values.
+   */
+  T sub(T value, T subtrahend);
+
   /**
    * Subtract the given elements from the given value.
    *
@@ -0,0 +1,126 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.util;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe hash {@linkplain java.util.Set} backed by a {@link ConcurrentHashMap}. Unlike the key
+ * set view of a {@link ConcurrentHashMap}, the set permits a {@code null} element.
+ *
+ * Membership checks and iteration do not lock and modifications only lock the part of the table
+ * holding the element being changed. Iterators are weakly consistent: they never throw
+ * {@link java.util.ConcurrentModificationException} and reflect the elements of the set at some
+ * point at or since their creation. As with any concurrent collection, {@link #size()} is only an
+ * estimate while the set is being modified.
+ *
+ * @param <E> the type of elements in the set.
+ */
+public final class ConcurrentHashSet<E> extends AbstractSet<E> {
+
+  private static final Object NULL = new Object();
+
+  private final ConcurrentHashMap<Object, Boolean> map;
+
+  /**
+   * Construct an empty {@linkplain ConcurrentHashSet}.
+   */
+  public ConcurrentHashSet() {
+    map = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Construct a {@linkplain ConcurrentHashSet} containing the elements of the given collection.
+   *
+   * @param collection the elements to add to the set.
+   */
+  public ConcurrentHashSet(Collection<? extends E> collection) {
+    map = new ConcurrentHashMap<>(Math.max(collection.size(), 16));
+    addAll(collection);
+  }
+
+  @Override
+  public boolean add(E element) {
+    return map.putIfAbsent(mask(element), Boolean.TRUE) == null;
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    return map.remove(mask(o)) != null;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return map.containsKey(mask(o));
+  }
+
+  @Override
+  public int size() {
+    return map.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return map.isEmpty();
+  }
+
+  @Override
+  public void clear() {
+    map.clear();
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    final Iterator<Object> iterator = map.keySet().iterator();
+    return new Iterator<E>() {
+
+      @Override
+      public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public E next() {
+        return unmask(iterator.next());
+      }
+
+      @Override
+      public void remove() {
+        iterator.remove();
+      }
+
+    };
+  }
+
+  private static Object mask(Object element) {
+    return element == null ? NULL : element;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E> E unmask(Object key) {
+    return key == NULL ? null : (E) key;
+  }
+
+}
@@ -0,0 +1,216 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.util;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe {@linkplain java.util.Set} in which removed elements leave a tombstone and can never
+ * be added again. Each element is mapped to its {@link State} in a single
+ * {@link ConcurrentHashMap}, so a removed element is only stored once, and the number of elements
+ * which are in the set is maintained as elements change state rather than being derived. Like
+ * {@link ConcurrentHashSet}, {@code null} is permitted as an element.
+ *
+ * The {@link java.util.Set} view only contains the elements which are {@linkplain State#ADDED
+ * added}. Membership checks and iteration do not lock and iterators skip tombstones without copying
+ * the set. Iterators are weakly consistent and {@link #size()} is only an estimate while the set is
+ * being modified.
+ *
+ * @param <E> the type of elements in the set.
+ */
+public final class ConcurrentTombstoneSet<E> extends AbstractSet<E> {
+
+  /**
+   * The state of an element which has been seen by a {@linkplain ConcurrentTombstoneSet}.
+   */
+  public enum State {
+    /**
+     * The element has been added and is an element of the set.
+     */
+    ADDED,
+    /**
+     * The element has been removed and can not be added again.
+     */
+    REMOVED
+  }
+
+  private static final Object NULL = new Object();
+
+  private final ConcurrentHashMap<Object, State> states = new ConcurrentHashMap<>();
+  private final AtomicInteger size = new AtomicInteger();
+
+  /**
+   * Add an element to the set if it has not been seen before.
+   *
+   * @param element the element to add.
+   * @return {@code true} if the element was added, {@code false} if it had already been added or
+   *         removed.
+   */
+  @Override
+  public boolean add(E element) {
+    if (states.putIfAbsent(mask(element), State.ADDED) == null) {
+      size.incrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Remove an element from the set, leaving a tombstone so that it can not be added again. An
+   * element which has not been seen before is tombstoned without ever being in the set.
+   *
+   * @param element the element to remove.
+   * @return the {@link State} of the element before it was removed or {@code null} if it had not
+   *         been seen before.
+   */
+  public State tombstone(E element) {
+    return tombstoneKey(mask(element));
+  }
+
+  /**
+   * Get the {@linkplain State} of an element.
+   *
+   * @param o the element to get the state of.
+   * @return the {@link State} of the element or {@code null} if it has not been seen.
+   */
+  public State getState(Object o) {
+    return states.get(mask(o));
+  }
+
+  /**
+   * Determine if an element has been removed from the set.
+   *
+   * @param o the element to check.
+   * @return {@code true} if the element has been removed.
+   */
+  public boolean isRemoved(Object o) {
+    return getState(o) == State.REMOVED;
+  }
+
+  /**
+   * Removing an element leaves a tombstone, see {@link #tombstone(Object)}.
+   *
+   * @param o the element to remove.
+   * @return {@code true} if the element was in the set.
+   */
+  @Override
+  public boolean remove(Object o) {
+    return tombstoneKey(mask(o)) == State.ADDED;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return getState(o) == State.ADDED;
+  }
+
+  @Override
+  public int size() {
+    // An element can be removed before the thread which added it has counted it.
+    return Math.max(0, size.get());
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public void clear() {
+    throw new UnsupportedOperationException("Tombstones can not be cleared.");
+  }
+
+  /**
+   * Get the number of elements which have been removed from the set.
+   *
+   * @return the number of tombstones.
+   */
+  public int removedSize() {
+    return Math.max(0, states.size() - size());
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    final Iterator<Map.Entry<Object, State>> iterator = states.entrySet().iterator();
+    return new Iterator<E>() {
+
+      private boolean hasNext = false;
+      private Object next = null;
+      private Object current = null;
+
+      @Override
+      public boolean hasNext() {
+        while (!hasNext && iterator.hasNext()) {
+          Map.Entry<Object, State> entry = iterator.next();
+          if (entry.getValue() == State.ADDED) {
+            next = entry.getKey();
+            hasNext = true;
+          }
+        }
+        return hasNext;
+      }
+
+      @Override
+      public E next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        hasNext = false;
+        current = next;
+        next = null;
+        return unmask(current);
+      }
+
+      @Override
+      public void remove() {
+        if (current == null) {
+          throw new IllegalStateException();
+        }
+        tombstoneKey(current);
+        current = null;
+      }
+
+    };
+  }
+
+  private State tombstoneKey(Object key) {
+    final State previous = states.put(key, State.REMOVED);
+    if (previous == State.ADDED) {
+      size.decrementAndGet();
+    }
+    return previous;
+  }
+
+  private static Object mask(Object element) {
+    return element == null ? NULL : element;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E> E unmask(Object key) {
+    return key == NULL ? null : (E) key;
+  }
+
+}
@@ -38,6 +38,19 @@ public final class IntegerArithmetic extends AbstractArithmetic<Integer> {
     return 1;
   }
 
+  @Override
+  public Integer valueOf(long value) {
+    if (value != (int) value) {
+      throw new ArithmeticException("Value out of range for an Integer: " + value);
+    }
+    return (int) value;
+  }
+
+  @Override
+  public Integer add(Integer augend, Integer addend) {
+    return augend + addend;
+  }
+
   @Override
   public Integer add(Iterable<Integer> elements) {
     int accumulator = 0;
@@ -47,6 +60,11 @@ public final class IntegerArithmetic extends AbstractArithmetic<Integer> {
     return accumulator;
   }
 
+  @Override
+  public Integer sub(Integer value, Integer subtrahend) {
+    return value - subtrahend;
+  }
+
   @Override
   public Integer sub(Integer value, Iterable<Integer> elements) {
     int accumulator = value;
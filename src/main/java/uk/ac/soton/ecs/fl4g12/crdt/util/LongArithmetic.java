@@ -38,6 +38,16 @@ public final class LongArithmetic extends AbstractArithmetic<Long> {
     return 1l;
   }
 
+  @Override
+  public Long valueOf(long value) {
+    return value;
+  }
+
+  @Override
+  public Long add(Long augend, Long addend) {
+    return augend + addend;
+  }
+
   @Override
   public Long add(Iterable<Long> elements) {
     long accumulator = 0;
@@ -47,6 +57,11 @@ public final class LongArithmetic extends AbstractArithmetic<Long> {
     return accumulator;
   }
 
+  @Override
+  public Long sub(Long value, Long subtrahend) {
+    return value - subtrahend;
+  }
+
   @Override
   public Long sub(Long value, Iterable<Long> elements) {
     long accumulator = value;
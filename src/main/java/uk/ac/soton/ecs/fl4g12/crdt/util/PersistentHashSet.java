@@ -0,0 +1,511 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable {@linkplain Set} which shares structure with the sets it was derived from. Elements are
+ * stored in a hash array mapped trie so adding an element with {@link #plus(Object)} or removing
+ * one with {@link #minus(Object)} only copies the nodes on the path to that element, leaving the
+ * original set unchanged. This allows a set to
+ * be handed out as a snapshot in constant time while the owner continues to add elements.
+ *
+ * The mutating methods of {@link Set} are not supported and throw
+ * {@link UnsupportedOperationException}. Like {@link java.util.HashSet}, {@code null} is permitted
+ * as an element.
+ *
+ * @param <E> the type of elements in the set.
+ */
+public final class PersistentHashSet<E> extends AbstractSet<E> {
+
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+
+  private static final PersistentHashSet<Object> EMPTY =
+      new PersistentHashSet<>(new BitmapNode(0, new Object[0]), 0, 0);
+
+  private final Node root;
+  private final int size;
+  private final int hash;
+
+  private PersistentHashSet(Node root, int size, int hash) {
+    this.root = root;
+    this.size = size;
+    this.hash = hash;
+  }
+
+  /**
+   * Get the empty {@linkplain PersistentHashSet}. The empty set is shared between all element
+   * types, which is safe as it contains no elements and no element can be added to it.
+   *
+   * @param <E> the type of elements in the set.
+   * @return the empty {@link PersistentHashSet}.
+   */
+  @SuppressWarnings("unchecked")
+  public static <E> PersistentHashSet<E> empty() {
+    return (PersistentHashSet<E>) EMPTY;
+  }
+
+  /**
+   * Get a {@linkplain PersistentHashSet} containing the elements of the given collection. If the
+   * collection is already a {@link PersistentHashSet} it is returned without being copied.
+   *
+   * @param <E> the type of elements in the set.
+   * @param collection the elements of the set.
+   * @return a {@link PersistentHashSet} containing the elements of the collection.
+   */
+  public static <E> PersistentHashSet<E> copyOf(Collection<? extends E> collection) {
+    if (collection instanceof PersistentHashSet) {
+      return widen((PersistentHashSet<? extends E>) collection);
+    }
+    return PersistentHashSet.<E>empty().plusAll(collection);
+  }
+
+  /**
+   * View a set of a subtype of elements as a set of a supertype. This is safe as the set is
+   * immutable, so it only ever contains elements of the subtype.
+   *
+   * @param <E> the type of elements in the view.
+   * @param set the set to view.
+   * @return the given set.
+   */
+  @SuppressWarnings("unchecked")
+  private static <E> PersistentHashSet<E> widen(PersistentHashSet<? extends E> set) {
+    return (PersistentHashSet<E>) set;
+  }
+
+  /**
+   * Get a set containing the elements of this set and the given element.
+   *
+   * @param element the element to add.
+   * @return a set containing the element, this set if it already contained the element.
+   */
+  public PersistentHashSet<E> plus(E element) {
+    final int elementHash = Objects.hashCode(element);
+    final Node newRoot = root.plus(element, spread(elementHash), 0);
+    if (newRoot == root) {
+      return this;
+    }
+    return new PersistentHashSet<>(newRoot, size + 1, hash + elementHash);
+  }
+
+  /**
+   * Get a set containing the elements of this set and the elements of the given collection.
+   *
+   * @param collection the elements to add.
+   * @return a set containing the elements, this set if it already contained all of them.
+   */
+  public PersistentHashSet<E> plusAll(Collection<? extends E> collection) {
+    if (size == 0 && collection instanceof PersistentHashSet) {
+      return widen((PersistentHashSet<? extends E>) collection);
+    }
+    PersistentHashSet<E> set = this;
+    for (E element : collection) {
+      set = set.plus(element);
+    }
+    return set;
+  }
+
+  /**
+   * Get a set containing the elements of this set other than the given element.
+   *
+   * @param element the element to remove.
+   * @return a set without the element, this set if it did not contain the element.
+   */
+  public PersistentHashSet<E> minus(Object element) {
+    final int elementHash = Objects.hashCode(element);
+    final Node newRoot = root.minus(element, spread(elementHash), 0);
+    if (newRoot == root) {
+      return this;
+    }
+    if (newRoot == null) {
+      return empty();
+    }
+    return new PersistentHashSet<>(newRoot, size - 1, hash - elementHash);
+  }
+
+  /**
+   * Get a set containing the elements of this set which are not in the given collection.
+   *
+   * @param collection the elements to remove.
+   * @return a set without the elements, this set if it contained none of them.
+   */
+  public PersistentHashSet<E> minusAll(Collection<?> collection) {
+    PersistentHashSet<E> set = this;
+    for (Object element : collection) {
+      if (set.size == 0) {
+        break;
+      }
+      set = set.minus(element);
+    }
+    return set;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return root.contains(o, spread(Objects.hashCode(o)), 0);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    return new NodeIterator<>(root);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o instanceof PersistentHashSet && ((PersistentHashSet<?>) o).hash != hash) {
+      return false;
+    }
+    return super.equals(o);
+  }
+
+  /**
+   * Spread the higher bits of a hash code into the lower bits used by the first levels of the trie.
+   *
+   * @param hash the hash code of an element.
+   * @return the spread hash code.
+   */
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Node of the trie. Each slot of a node holds either an element or a child {@link Node}; as the
+   * class is private, an element can never be mistaken for a child.
+   */
+  private abstract static class Node {
+
+    /**
+     * Check whether the sub-trie rooted at this node contains an element.
+     *
+     * @param element the element to look for.
+     * @param hash the spread hash code of the element.
+     * @param shift the number of hash bits consumed by the levels above this node.
+     * @return whether the element is contained in the sub-trie.
+     */
+    abstract boolean contains(Object element, int hash, int shift);
+
+    /**
+     * Get a sub-trie containing the elements of this one and the given element.
+     *
+     * @param element the element to add.
+     * @param hash the spread hash code of the element.
+     * @param shift the number of hash bits consumed by the levels above this node.
+     * @return the new sub-trie, this node if it already contains the element.
+     */
+    abstract Node plus(Object element, int hash, int shift);
+
+    /**
+     * Get a sub-trie containing the elements of this one other than the given element.
+     *
+     * @param element the element to remove.
+     * @param hash the spread hash code of the element.
+     * @param shift the number of hash bits consumed by the levels above this node.
+     * @return the new sub-trie, this node if it does not contain the element or {@code null} if
+     *         the sub-trie would be empty.
+     */
+    abstract Node minus(Object element, int hash, int shift);
+
+    /**
+     * Get the slots of this node.
+     *
+     * @return the slots of this node, which must not be modified.
+     */
+    abstract Object[] slots();
+
+  }
+
+  /**
+   * Node with a slot for each 5 bit fragment of the hash code which is occupied, indexed by the
+   * population count of the bitmap below the fragment.
+   */
+  private static final class BitmapNode extends Node {
+
+    private final int bitmap;
+    private final Object[] slots;
+
+    BitmapNode(int bitmap, Object[] slots) {
+      this.bitmap = bitmap;
+      this.slots = slots;
+    }
+
+    @Override
+    boolean contains(Object element, int hash, int shift) {
+      final int bit = 1 << ((hash >>> shift) & MASK);
+      if ((bitmap & bit) == 0) {
+        return false;
+      }
+      final Object slot = slots[Integer.bitCount(bitmap & (bit - 1))];
+      if (slot instanceof Node) {
+        return ((Node) slot).contains(element, hash, shift + BITS);
+      }
+      return Objects.equals(slot, element);
+    }
+
+    @Override
+    Node plus(Object element, int hash, int shift) {
+      final int bit = 1 << ((hash >>> shift) & MASK);
+      final int index = Integer.bitCount(bitmap & (bit - 1));
+      if ((bitmap & bit) == 0) {
+        Object[] newSlots = new Object[slots.length + 1];
+        System.arraycopy(slots, 0, newSlots, 0, index);
+        newSlots[index] = element;
+        System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+        return new BitmapNode(bitmap | bit, newSlots);
+      }
+
+      final Object slot = slots[index];
+      final Object newSlot;
+      if (slot instanceof Node) {
+        newSlot = ((Node) slot).plus(element, hash, shift + BITS);
+        if (newSlot == slot) {
+          return this;
+        }
+      } else if (Objects.equals(slot, element)) {
+        return this;
+      } else {
+        newSlot = merge(slot, spread(Objects.hashCode(slot)), element, hash, shift + BITS);
+      }
+      Object[] newSlots = slots.clone();
+      newSlots[index] = newSlot;
+      return new BitmapNode(bitmap, newSlots);
+    }
+
+    @Override
+    Node minus(Object element, int hash, int shift) {
+      final int bit = 1 << ((hash >>> shift) & MASK);
+      if ((bitmap & bit) == 0) {
+        return this;
+      }
+      final int index = Integer.bitCount(bitmap & (bit - 1));
+      final Object slot = slots[index];
+      if (slot instanceof Node) {
+        final Node newChild = ((Node) slot).minus(element, hash, shift + BITS);
+        if (newChild == slot) {
+          return this;
+        }
+        if (newChild != null) {
+          final Object[] childSlots = newChild.slots();
+          Object[] newSlots = slots.clone();
+          // Pull a lone element up into this node so the trie stays as shallow as possible.
+          if (childSlots.length == 1 && !(childSlots[0] instanceof Node)) {
+            newSlots[index] = childSlots[0];
+          } else {
+            newSlots[index] = newChild;
+          }
+          return new BitmapNode(bitmap, newSlots);
+        }
+      } else if (!Objects.equals(slot, element)) {
+        return this;
+      }
+      if (slots.length == 1) {
+        return null;
+      }
+      Object[] newSlots = new Object[slots.length - 1];
+      System.arraycopy(slots, 0, newSlots, 0, index);
+      System.arraycopy(slots, index + 1, newSlots, index, slots.length - index - 1);
+      return new BitmapNode(bitmap & ~bit, newSlots);
+    }
+
+    @Override
+    Object[] slots() {
+      return slots;
+    }
+
+    /**
+     * Create a sub-trie containing two distinct elements.
+     */
+    private static Node merge(Object element1, int hash1, Object element2, int hash2, int shift) {
+      if (hash1 == hash2) {
+        return new CollisionNode(hash1, new Object[] {element1, element2});
+      }
+      final int fragment1 = (hash1 >>> shift) & MASK;
+      final int fragment2 = (hash2 >>> shift) & MASK;
+      if (fragment1 == fragment2) {
+        return new BitmapNode(1 << fragment1,
+            new Object[] {merge(element1, hash1, element2, hash2, shift + BITS)});
+      }
+      final Object[] slots = fragment1 < fragment2 ? new Object[] {element1, element2}
+          : new Object[] {element2, element1};
+      return new BitmapNode((1 << fragment1) | (1 << fragment2), slots);
+    }
+
+  }
+
+  /**
+   * Node holding the elements whose spread hash codes are identical.
+   */
+  private static final class CollisionNode extends Node {
+
+    private final int hash;
+    private final Object[] slots;
+
+    CollisionNode(int hash, Object[] slots) {
+      this.hash = hash;
+      this.slots = slots;
+    }
+
+    @Override
+    boolean contains(Object element, int hash, int shift) {
+      if (hash != this.hash) {
+        return false;
+      }
+      for (Object slot : slots) {
+        if (Objects.equals(slot, element)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    Node plus(Object element, int hash, int shift) {
+      if (hash != this.hash) {
+        // Push the collisions down a level alongside the new element.
+        final int bit = 1 << ((this.hash >>> shift) & MASK);
+        return new BitmapNode(bit, new Object[] {this}).plus(element, hash, shift);
+      }
+      if (contains(element, hash, shift)) {
+        return this;
+      }
+      Object[] newSlots = Arrays.copyOf(slots, slots.length + 1);
+      newSlots[slots.length] = element;
+      return new CollisionNode(hash, newSlots);
+    }
+
+    @Override
+    Node minus(Object element, int hash, int shift) {
+      if (hash != this.hash) {
+        return this;
+      }
+      for (int i = 0; i < slots.length; i++) {
+        if (Objects.equals(slots[i], element)) {
+          if (slots.length == 1) {
+            return null;
+          }
+          Object[] newSlots = new Object[slots.length - 1];
+          System.arraycopy(slots, 0, newSlots, 0, i);
+          System.arraycopy(slots, i + 1, newSlots, i, slots.length - i - 1);
+          return new CollisionNode(hash, newSlots);
+        }
+      }
+      return this;
+    }
+
+    @Override
+    Object[] slots() {
+      return slots;
+    }
+
+  }
+
+  /**
+   * Depth first {@linkplain Iterator} over the elements of a trie.
+   */
+  private static final class NodeIterator<E> implements Iterator<E> {
+
+    // The maximum depth of the trie is the number of 5 bit fragments in a hash plus a collision.
+    private final Object[][] slots = new Object[(Integer.SIZE + BITS - 1) / BITS + 1][];
+    private final int[] indices = new int[slots.length];
+    private int depth = 0;
+    private Object next;
+    private boolean hasNext;
+
+    NodeIterator(Node root) {
+      slots[0] = root.slots();
+      advance();
+    }
+
+    /**
+     * Find the next element, descending into child nodes and returning to parents as required.
+     */
+    private void advance() {
+      while (depth >= 0) {
+        if (indices[depth] < slots[depth].length) {
+          Object slot = slots[depth][indices[depth]++];
+          if (slot instanceof Node) {
+            depth++;
+            slots[depth] = ((Node) slot).slots();
+            indices[depth] = 0;
+          } else {
+            next = slot;
+            hasNext = true;
+            return;
+          }
+        } else {
+          depth--;
+        }
+      }
+      hasNext = false;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return hasNext;
+    }
+
+    @Override
+    public E next() {
+      if (!hasNext) {
+        throw new NoSuchElementException();
+      }
+      final E element = element();
+      advance();
+      return element;
+    }
+
+    /**
+     * Get the next element as the element type of the set. This is safe as the only slots of a
+     * trie which are not child nodes are elements added to the set.
+     *
+     * @return the next element.
+     */
+    @SuppressWarnings("unchecked")
+    private E element() {
+      return (E) next;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("PersistentHashSet is immutable.");
+    }
+
+  }
+
+}
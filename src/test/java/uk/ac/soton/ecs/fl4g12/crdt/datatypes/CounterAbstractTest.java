@@ -62,6 +62,23 @@ public abstract class CounterAbstractTest<E, C extends Counter<E>>
     }
   }
 
+  /**
+   * Test that the counter decrements by many units at once as expected.
+   */
+  @Test
+  public void testDecrement_Count() {
+    LOGGER.log(Level.INFO,
+        "testDecrement_Count: Test that the counter decrements by many units at once.");
+    C instance = getCounter();
+    int decrements = 0;
+
+    for (int i = 0; i <= MAX_OPERATIONS / 20; i++) {
+      instance.decrement(i);
+      decrements += i;
+      assertEquals(getValue(0, decrements), instance.value());
+    }
+  }
+
   /**
    * Test incrementing and decrementing.
    */
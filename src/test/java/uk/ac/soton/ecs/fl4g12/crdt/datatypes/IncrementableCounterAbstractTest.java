@@ -68,6 +68,23 @@ public abstract class IncrementableCounterAbstractTest<E, C extends Counter<E>>
     }
   }
 
+  /**
+   * Test that the counter increments by many units at once as expected.
+   */
+  @Test
+  public void testIncrement_Count() {
+    LOGGER.log(Level.INFO,
+        "testIncrement_Count: Test that the counter increments by many units at once.");
+    C instance = getCounter();
+    int increments = 0;
+
+    for (int i = 0; i <= MAX_OPERATIONS / 20; i++) {
+      instance.increment(i);
+      increments += i;
+      assertEquals(getValue(increments), instance.value());
+    }
+  }
+
   /**
    * Test that the counter can only be incremented. Trying to decrement should throw an exception.
    */
@@ -0,0 +1,205 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.mockito.Mockito;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.AbstractDottedUpdateMessage;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeliveryUpdateException;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.ReliableDeliveryChannel;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.VersionedUpdatable;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Dot;
+import uk.ac.soton.ecs.fl4g12.crdt.order.HashVersionVector;
+import uk.ac.soton.ecs.fl4g12.crdt.order.IntegerVersion;
+import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
+
+/**
+ * Tests of the delivery semantics provided by {@linkplain AbstractDottedCmRDT}.
+ */
+public class AbstractDottedCmRDTTest {
+
+  private static final int LOCAL_ID = 0;
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private static TestDottedCmRDT getCmRDT() {
+    ReliableDeliveryChannel<Integer, TestUpdateMessage> deliveryChannel =
+        Mockito.mock(ReliableDeliveryChannel.class);
+    Mockito.doReturn(LOCAL_ID).when(deliveryChannel)
+        .register(Mockito.any(VersionedUpdatable.class));
+    return new TestDottedCmRDT(deliveryChannel);
+  }
+
+  private static Dot<Integer, Integer> getDot(int id, int value) {
+    VersionVector<Integer, Integer> vector = new HashVersionVector<>(new IntegerVersion());
+    vector.sync(id, value);
+    return vector.getDot(id);
+  }
+
+  private static Map<Integer, Integer> getDependencies(int... entries) {
+    Map<Integer, Integer> dependencies = new HashMap<>();
+    for (int i = 0; i < entries.length; i += 2) {
+      dependencies.put(entries[i], entries[i + 1]);
+    }
+    return dependencies;
+  }
+
+  @Test
+  public void testUpdate_InOrder() throws Exception {
+    TestDottedCmRDT instance = getCmRDT();
+    TestUpdateMessage message1 = new TestUpdateMessage(getDot(1, 1));
+    TestUpdateMessage message2 = new TestUpdateMessage(getDot(1, 2));
+
+    instance.update(message1);
+    instance.update(message2);
+
+    assertEquals(2, instance.applied.size());
+    assertEquals((Integer) 2, instance.getVersion().get(1));
+  }
+
+  @Test
+  public void testUpdate_AlreadyApplied() throws Exception {
+    TestDottedCmRDT instance = getCmRDT();
+    TestUpdateMessage message1 = new TestUpdateMessage(getDot(1, 1));
+    TestUpdateMessage message2 = new TestUpdateMessage(getDot(1, 2));
+
+    instance.update(message1);
+    instance.update(message2);
+    instance.update(message1);
+    instance.update(message2);
+
+    assertEquals(2, instance.applied.size());
+  }
+
+  @Test
+  public void testUpdate_OutOfOrder() throws Exception {
+    TestDottedCmRDT instance = getCmRDT();
+
+    thrown.expect(DeliveryUpdateException.class);
+    instance.update(new TestUpdateMessage(getDot(1, 2)));
+  }
+
+  @Test
+  public void testUpdate_DependenciesSatisfied() throws Exception {
+    TestDottedCmRDT instance = getCmRDT();
+    instance.update(new TestUpdateMessage(getDot(1, 1)));
+    instance.update(new TestUpdateMessage(getDot(2, 1)));
+
+    instance.update(new TestUpdateMessage(getDot(3, 1), getDependencies(1, 1, 2, 1)));
+
+    assertEquals(3, instance.applied.size());
+    assertEquals((Integer) 1, instance.getVersion().get(3));
+  }
+
+  @Test
+  public void testUpdate_DependenciesUnsatisfied() throws Exception {
+    TestDottedCmRDT instance = getCmRDT();
+    TestUpdateMessage message = new TestUpdateMessage(getDot(3, 1), getDependencies(1, 1, 2, 1));
+    instance.update(new TestUpdateMessage(getDot(1, 1)));
+
+    try {
+      instance.update(message);
+      fail("DeliveryUpdateException should have been thrown.");
+    } catch (DeliveryUpdateException ex) {
+      // Do nothing, this is what is expected.
+    }
+    assertEquals(1, instance.applied.size());
+    assertEquals((Integer) 0, instance.getVersion().get(3));
+
+    // Once the dependency has been applied the message can be delivered.
+    instance.update(new TestUpdateMessage(getDot(2, 1)));
+    instance.update(message);
+    assertEquals(3, instance.applied.size());
+    assertEquals((Integer) 1, instance.getVersion().get(3));
+  }
+
+  @Test
+  public void testGetDependencies() {
+    TestUpdateMessage message = new TestUpdateMessage(getDot(1, 2), getDependencies(1, 1, 2, 3));
+
+    assertEquals(getDependencies(2, 3), message.getDependencies());
+    assertEquals(Collections.emptyMap(), new TestUpdateMessage(getDot(1, 1)).getDependencies());
+  }
+
+  @Test
+  public void testGetDependencies_Unmodifiable() {
+    TestUpdateMessage message = new TestUpdateMessage(getDot(1, 2), getDependencies(2, 3));
+
+    thrown.expect(UnsupportedOperationException.class);
+    message.getDependencies().put(3, 1);
+  }
+
+  @Test
+  public void testGetDependencies_Copied() {
+    Map<Integer, Integer> dependencies = getDependencies(2, 3);
+    TestUpdateMessage message = new TestUpdateMessage(getDot(1, 2), dependencies);
+    dependencies.put(3, 1);
+
+    assertTrue(!message.getDependencies().containsKey(3));
+  }
+
+  private static final class TestUpdateMessage
+      extends AbstractDottedUpdateMessage<Integer, Integer> {
+
+    TestUpdateMessage(Dot<Integer, Integer> dot) {
+      super(dot);
+    }
+
+    TestUpdateMessage(Dot<Integer, Integer> dot, Map<Integer, Integer> dependencies) {
+      super(dot, dependencies);
+    }
+
+  }
+
+  private static final class TestDottedCmRDT
+      extends AbstractDottedCmRDT<Integer, Integer, TestUpdateMessage> {
+
+    private final List<TestUpdateMessage> applied = new ArrayList<>();
+
+    TestDottedCmRDT(ReliableDeliveryChannel<Integer, TestUpdateMessage> deliveryChannel) {
+      super(new HashVersionVector<Integer, Integer>(new IntegerVersion()), null, deliveryChannel);
+    }
+
+    @Override
+    protected void effectUpdate(TestUpdateMessage message) {
+      applied.add(message);
+    }
+
+    @Override
+    protected TestUpdateMessage createBatchUpdate() {
+      return null;
+    }
+
+  }
+
+}
@@ -21,11 +21,25 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative;
 
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import uk.ac.soton.ecs.fl4g12.crdt.datatypes.AtomicIntegerCounter;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.Counter;
 import uk.ac.soton.ecs.fl4g12.crdt.datatypes.CounterAbstractTest;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative.CommutativeCounterUpdate.Operation;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codec;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codecs;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeliveryExchange;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.DotCodec;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.EventDrivenReliableDeliveryChannel;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.ReliableDeliveryChannel;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.VersionedUpdatable;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Dot;
+import uk.ac.soton.ecs.fl4g12.crdt.order.DottedVersionVector;
 import uk.ac.soton.ecs.fl4g12.crdt.order.HashVersionVector;
 import uk.ac.soton.ecs.fl4g12.crdt.order.IntegerVersion;
 
@@ -44,6 +58,193 @@ public class CommutativeCounterTest
         new HashVersionVector<>(new IntegerVersion()), new Object(), deliveryChannel);
   }
 
+  private static final int BATCH_SIZE = 10;
+  private static final long LINGER = 10;
+
+  public static CommutativeCounter<Integer, Object, Integer> getCommutativeCounter(
+      ReliableDeliveryChannel<Object, CommutativeCounterUpdate<Integer, Object, Integer>> deliveryChannel,
+      BatchPolicy batchPolicy) {
+    Mockito.doReturn(new Object()).doThrow(IllegalStateException.class).when(deliveryChannel)
+        .register(Mockito.any(VersionedUpdatable.class));
+    return new CommutativeCounter<>(new AtomicIntegerCounter(),
+        new HashVersionVector<>(new IntegerVersion()), new Object(), deliveryChannel, batchPolicy);
+  }
+
+  /**
+   * Test that increments are folded into a single message once the batch is full.
+   */
+  @Test
+  public void testIncrement_Batched() {
+    ReliableDeliveryChannel<Object, CommutativeCounterUpdate<Integer, Object, Integer>> deliveryChannel =
+        Mockito.mock(ReliableDeliveryChannel.class);
+    CommutativeCounter<Integer, Object, Integer> counter = getCommutativeCounter(deliveryChannel,
+        new BatchPolicy(BATCH_SIZE, 1, TimeUnit.HOURS));
+
+    for (int i = 0; i < BATCH_SIZE - 1; i++) {
+      counter.increment();
+    }
+    assertEquals(Integer.valueOf(BATCH_SIZE - 1), counter.value());
+    Mockito.verify(deliveryChannel, Mockito.never()).publish(Mockito.any());
+
+    counter.decrement();
+    ArgumentCaptor<CommutativeCounterUpdate<Integer, Object, Integer>> captor =
+        ArgumentCaptor.forClass(CommutativeCounterUpdate.class);
+    Mockito.verify(deliveryChannel).publish(captor.capture());
+    CommutativeCounterUpdate<Integer, Object, Integer> message = captor.getValue();
+    assertEquals(CommutativeCounterUpdate.Operation.INCREMENT, message.getOperation());
+    assertEquals(BATCH_SIZE - 2, message.getCount());
+    assertEquals(Integer.valueOf(1), message.getVersion().get());
+  }
+
+  /**
+   * Test that a batch where the increments and decrements cancel out is not published.
+   */
+  @Test
+  public void testIncrement_BatchedCancelled() {
+    ReliableDeliveryChannel<Object, CommutativeCounterUpdate<Integer, Object, Integer>> deliveryChannel =
+        Mockito.mock(ReliableDeliveryChannel.class);
+    CommutativeCounter<Integer, Object, Integer> counter = getCommutativeCounter(deliveryChannel,
+        new BatchPolicy(BATCH_SIZE, 1, TimeUnit.HOURS));
+
+    counter.increment();
+    counter.decrement();
+    counter.flush();
+
+    Mockito.verify(deliveryChannel, Mockito.never()).publish(Mockito.any());
+    assertEquals(Integer.valueOf(0), counter.getVersion().get(counter.getIdentifier()));
+  }
+
+  /**
+   * Test that a batch held back by congestion is published before its net change grows too large
+   * for a single message.
+   */
+  @Test
+  public void testIncrement_CongestedOverflow() {
+    ReliableDeliveryChannel<Object, CommutativeCounterUpdate<Integer, Object, Integer>> deliveryChannel =
+        Mockito.mock(ReliableDeliveryChannel.class);
+    Mockito.doReturn(true).when(deliveryChannel).isCongested();
+    CommutativeCounter<Integer, Object, Integer> counter = getCommutativeCounter(deliveryChannel,
+        new BatchPolicy(2, 1, TimeUnit.HOURS));
+
+    counter.increment(Integer.MAX_VALUE - 1);
+    counter.increment();
+    Mockito.verify(deliveryChannel, Mockito.never()).publish(Mockito.any());
+
+    counter.increment(2);
+    ArgumentCaptor<CommutativeCounterUpdate<Integer, Object, Integer>> captor =
+        ArgumentCaptor.forClass(CommutativeCounterUpdate.class);
+    Mockito.verify(deliveryChannel).publish(captor.capture());
+    assertEquals(CommutativeCounterUpdate.Operation.INCREMENT, captor.getValue().getOperation());
+    assertEquals(Integer.MAX_VALUE, captor.getValue().getCount());
+
+    counter.flush();
+    Mockito.verify(deliveryChannel, Mockito.times(2)).publish(captor.capture());
+    assertEquals(2, captor.getValue().getCount());
+    assertEquals(Integer.valueOf(2), counter.getVersion().get(counter.getIdentifier()));
+  }
+
+  /**
+   * Test that a partial batch is published after the linger time.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testDecrement_Linger() throws Exception {
+    ReliableDeliveryChannel<Object, CommutativeCounterUpdate<Integer, Object, Integer>> deliveryChannel =
+        Mockito.mock(ReliableDeliveryChannel.class);
+    CommutativeCounter<Integer, Object, Integer> counter = getCommutativeCounter(deliveryChannel,
+        new BatchPolicy(BATCH_SIZE, LINGER, TimeUnit.MILLISECONDS));
+
+    counter.decrement();
+    counter.decrement();
+
+    ArgumentCaptor<CommutativeCounterUpdate<Integer, Object, Integer>> captor =
+        ArgumentCaptor.forClass(CommutativeCounterUpdate.class);
+    Mockito.verify(deliveryChannel, Mockito.timeout(100 * LINGER)).publish(captor.capture());
+    assertEquals(CommutativeCounterUpdate.Operation.DECREMENT, captor.getValue().getOperation());
+    assertEquals(2, captor.getValue().getCount());
+  }
+
+  /**
+   * Test that increments are held back while the delivery channel is congested and published as a
+   * single message once it is not.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testIncrement_Congested() throws Exception {
+    ReliableDeliveryChannel<Object, CommutativeCounterUpdate<Integer, Object, Integer>> deliveryChannel =
+        Mockito.mock(ReliableDeliveryChannel.class);
+    Mockito.doReturn(true).when(deliveryChannel).isCongested();
+    CommutativeCounter<Integer, Object, Integer> counter = getCommutativeCounter(deliveryChannel,
+        new BatchPolicy(2, 1, TimeUnit.HOURS));
+
+    for (int i = 0; i < 3; i++) {
+      counter.increment();
+    }
+    assertEquals(Integer.valueOf(3), counter.value());
+    Mockito.verify(deliveryChannel, Mockito.never()).publish(Mockito.any());
+
+    Mockito.doReturn(false).when(deliveryChannel).isCongested();
+    ArgumentCaptor<CommutativeCounterUpdate<Integer, Object, Integer>> captor =
+        ArgumentCaptor.forClass(CommutativeCounterUpdate.class);
+    Mockito.verify(deliveryChannel, Mockito.timeout(100 * LINGER)).publish(captor.capture());
+    assertEquals(CommutativeCounterUpdate.Operation.INCREMENT, captor.getValue().getOperation());
+    assertEquals(3, captor.getValue().getCount());
+  }
+
+  /**
+   * Test that a pending batch is published when the delivery channel is closed.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testClose_Batched() throws Exception {
+    DeliveryExchange<Object, CommutativeCounterUpdate<Integer, Object, Integer>> exchange =
+        Mockito.mock(DeliveryExchange.class);
+    EventDrivenReliableDeliveryChannel<Object, CommutativeCounterUpdate<Integer, Object, Integer>> deliveryChannel =
+        new EventDrivenReliableDeliveryChannel<>(exchange);
+    CommutativeCounter<Integer, Object, Integer> counter = new CommutativeCounter<>(
+        new AtomicIntegerCounter(), new HashVersionVector<>(new IntegerVersion()), new Object(),
+        deliveryChannel, new BatchPolicy(BATCH_SIZE, 1, TimeUnit.HOURS));
+
+    counter.increment(3);
+    Mockito.verify(exchange, Mockito.never()).publish(Mockito.any());
+
+    deliveryChannel.close();
+    ArgumentCaptor<CommutativeCounterUpdate<Integer, Object, Integer>> captor =
+        ArgumentCaptor.forClass(CommutativeCounterUpdate.class);
+    Mockito.verify(exchange).publish(captor.capture());
+    assertEquals(CommutativeCounterUpdate.Operation.INCREMENT, captor.getValue().getOperation());
+    assertEquals(3, captor.getValue().getCount());
+  }
+
+  /**
+   * Test that an update for a batch of operations is applied to the local counter in one step.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testUpdate_Batch() throws Exception {
+    ReliableDeliveryChannel<Object, CommutativeCounterUpdate<Integer, Object, Integer>> deliveryChannel =
+        Mockito.mock(ReliableDeliveryChannel.class);
+    Mockito.doReturn(new Object()).when(deliveryChannel)
+        .register(Mockito.any(VersionedUpdatable.class));
+    Counter<Integer> local = Mockito.mock(Counter.class);
+    CommutativeCounter<Integer, Object, Integer> counter = new CommutativeCounter<>(local,
+        new HashVersionVector<>(new IntegerVersion()), new Object(), deliveryChannel);
+    final Object remote = new Object();
+
+    counter.update(new CommutativeCounterUpdate<Integer, Object, Integer>(dot(remote, 1),
+        CommutativeCounterUpdate.Operation.INCREMENT, 5));
+    counter.update(new CommutativeCounterUpdate<Integer, Object, Integer>(dot(remote, 2),
+        CommutativeCounterUpdate.Operation.DECREMENT, 2));
+
+    Mockito.verify(local).increment(5);
+    Mockito.verify(local).decrement(2);
+    Mockito.verifyNoMoreInteractions(local);
+  }
+
   @Override
   public Integer getValue(int increments, int decrements) {
     return increments - decrements;
@@ -54,4 +255,65 @@ public class CommutativeCounterTest
     return getCommutativeCounter();
   }
 
+  /**
+   * Test that a counter using a {@linkplain DottedVersionVector} applies updates which arrive ahead
+   * of their predecessors immediately and skips duplicates.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testUpdate_OutOfOrder_Dotted() throws Exception {
+    ReliableDeliveryChannel<Object, CommutativeCounterUpdate<Integer, Object, Integer>> deliveryChannel =
+        Mockito.mock(ReliableDeliveryChannel.class);
+    Mockito.doReturn(new Object()).when(deliveryChannel)
+        .register(Mockito.any(VersionedUpdatable.class));
+    CommutativeCounter<Integer, Object, Integer> counter = new CommutativeCounter<>(
+        new AtomicIntegerCounter(), new DottedVersionVector<Object, Integer>(new IntegerVersion()),
+        new Object(), deliveryChannel);
+    final Object remote = new Object();
+
+    counter.update(new CommutativeCounterUpdate<Integer, Object, Integer>(dot(remote, 3),
+        CommutativeCounterUpdate.Operation.INCREMENT, 5));
+    counter.update(new CommutativeCounterUpdate<Integer, Object, Integer>(dot(remote, 2),
+        CommutativeCounterUpdate.Operation.DECREMENT, 2));
+    counter.update(new CommutativeCounterUpdate<Integer, Object, Integer>(dot(remote, 3),
+        CommutativeCounterUpdate.Operation.INCREMENT, 5));
+    assertEquals("Out of order updates should be applied once", Integer.valueOf(3),
+        counter.value());
+
+    counter.update(new CommutativeCounterUpdate<Integer, Object, Integer>(dot(remote, 1),
+        CommutativeCounterUpdate.Operation.INCREMENT, 1));
+    assertEquals(Integer.valueOf(4), counter.value());
+    assertEquals(Integer.valueOf(3), counter.getVersion().get(remote));
+  }
+
+  private static Dot<Object, Integer> dot(Object identifier, int timestamp) {
+    IntegerVersion version = new IntegerVersion();
+    version.sync(timestamp);
+    return new Dot<>(identifier, version);
+  }
+
+  /**
+   * Test that an update can be encoded and decoded with its codec.
+   */
+  @Test
+  public void testCodec() {
+    final Codec<CommutativeCounterUpdate<Integer, Integer, Integer>> codec =
+        CommutativeCounterUpdate.codec(
+            new DotCodec<>(Codecs.INTEGER, Codecs.INTEGER, new IntegerVersion()));
+    final IntegerVersion version = new IntegerVersion();
+    version.sync(300);
+    final CommutativeCounterUpdate<Integer, Integer, Integer> update =
+        new CommutativeCounterUpdate<>(new Dot<>(5, version), Operation.DECREMENT, 1000);
+
+    final ByteBuffer buffer = Codecs.encode(codec, update, ByteBuffer.allocate(64));
+    assertEquals("The update should be encoded compactly", 1 + 2 + 1 + 2, buffer.remaining());
+
+    final CommutativeCounterUpdate<Integer, Integer, Integer> decoded = codec.decode(buffer);
+    assertEquals("The dot should round trip", update.getVersion(), decoded.getVersion());
+    assertEquals("The operation should round trip", update.getOperation(),
+        decoded.getOperation());
+    assertEquals("The count should round trip", update.getCount(), decoded.getCount());
+  }
+
 }
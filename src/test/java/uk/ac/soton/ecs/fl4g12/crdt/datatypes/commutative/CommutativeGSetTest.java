@@ -21,12 +21,27 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import uk.ac.soton.ecs.fl4g12.crdt.datatypes.GrowableSetAbstractTest;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codec;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codecs;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.DotCodec;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.ReliableDeliveryChannel;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.VersionedUpdatable;
 import uk.ac.soton.ecs.fl4g12.crdt.idenitifier.IncrementalIntegerIdentifierFactory;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Dot;
+import uk.ac.soton.ecs.fl4g12.crdt.order.DottedVersionVector;
+import uk.ac.soton.ecs.fl4g12.crdt.order.HashVersionVector;
 import uk.ac.soton.ecs.fl4g12.crdt.order.IntegerVersion;
 
 /**
@@ -46,6 +61,74 @@ public final class CommutativeGSetTest
     return new CommutativeGSet<>(new IntegerVersion(), null, deliveryChannel);
   }
 
+  /**
+   * Test that additions are published together once the batch is full.
+   */
+  @Test
+  public void testAdd_Batched() {
+    ReliableDeliveryChannel<Integer, CommutativeGSetUpdate<Integer, Integer, Integer>> deliveryChannel =
+        Mockito.mock(ReliableDeliveryChannel.class);
+    Mockito.doReturn(ID_FACTORY.create()).when(deliveryChannel)
+        .register(Mockito.any(VersionedUpdatable.class));
+    CommutativeGSet<Integer, Integer, Integer> set =
+        new CommutativeGSet<>(new HashVersionVector<Integer, Integer>(new IntegerVersion()), null, deliveryChannel,
+            new BatchPolicy(5, 1, TimeUnit.HOURS));
+
+    set.add(1);
+    set.add(1);
+    set.addAll(Arrays.asList(2, 3, 4));
+    Mockito.verify(deliveryChannel, Mockito.never()).publish(Mockito.any());
+
+    set.add(5);
+    ArgumentCaptor<CommutativeGSetUpdate<Integer, Integer, Integer>> captor =
+        ArgumentCaptor.forClass(CommutativeGSetUpdate.class);
+    Mockito.verify(deliveryChannel).publish(captor.capture());
+    assertEquals(new HashSet<>(Arrays.asList(1, 2, 3, 4, 5)), captor.getValue().getElements());
+    assertEquals(Integer.valueOf(1), captor.getValue().getVersion().get());
+
+    set.add(6);
+    set.flush();
+    Mockito.verify(deliveryChannel, Mockito.times(2)).publish(captor.capture());
+    assertEquals(new HashSet<>(Arrays.asList(6)), captor.getValue().getElements());
+    assertEquals(Integer.valueOf(2), captor.getValue().getVersion().get());
+  }
+
+  /**
+   * Test that a set using a {@linkplain DottedVersionVector} applies updates which arrive ahead of
+   * their predecessors immediately and skips duplicates.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testUpdate_OutOfOrder_Dotted() throws Exception {
+    ReliableDeliveryChannel<Integer, CommutativeGSetUpdate<Integer, Integer, Integer>> deliveryChannel =
+        Mockito.mock(ReliableDeliveryChannel.class);
+    Mockito.doReturn(ID_FACTORY.create()).when(deliveryChannel)
+        .register(Mockito.any(VersionedUpdatable.class));
+    CommutativeGSet<Integer, Integer, Integer> set = new CommutativeGSet<>(
+        new DottedVersionVector<Integer, Integer>(new IntegerVersion()), null, deliveryChannel);
+    final Integer remote = ID_FACTORY.create();
+
+    set.update(new CommutativeGSetUpdate<>(dot(remote, 2), new HashSet<>(Arrays.asList(2))));
+    assertTrue("The update should be applied ahead of its predecessor", set.contains(2));
+    assertEquals("The contiguous version should not advance past the gap", Integer.valueOf(0),
+        set.getVersion().get(remote));
+
+    set.update(new CommutativeGSetUpdate<>(dot(remote, 2), new HashSet<>(Arrays.asList(3))));
+    assertFalse("A duplicate dot should not be applied", set.contains(3));
+
+    set.update(new CommutativeGSetUpdate<>(dot(remote, 1), new HashSet<>(Arrays.asList(1))));
+    assertEquals(new HashSet<>(Arrays.asList(1, 2)), set);
+    assertEquals("Filling the gap should advance the contiguous version", Integer.valueOf(2),
+        set.getVersion().get(remote));
+  }
+
+  private static Dot<Integer, Integer> dot(Integer identifier, int timestamp) {
+    IntegerVersion version = new IntegerVersion();
+    version.sync(timestamp);
+    return new Dot<>(identifier, version);
+  }
+
   public CommutativeGSetTest() {
     super(Integer.class, Integer[].class);
   }
@@ -60,4 +143,29 @@ public final class CommutativeGSetTest
     return i;
   }
 
+  /**
+   * Test that an update can be encoded and decoded with its codec and then applied to a set.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testCodec() throws Exception {
+    final CommutativeGSet<Integer, Integer, Integer> set = getSet();
+    final Codec<CommutativeGSetUpdate<Integer, Integer, Integer>> codec =
+        CommutativeGSetUpdate.codec(
+            new DotCodec<>(Codecs.INTEGER, Codecs.INTEGER, new IntegerVersion()),
+            Codecs.INTEGER);
+    final CommutativeGSetUpdate<Integer, Integer, Integer> update =
+        new CommutativeGSetUpdate<>(dot(ID_FACTORY.create(), 1),
+            new HashSet<>(Arrays.asList(1, 2)));
+
+    final CommutativeGSetUpdate<Integer, Integer, Integer> decoded =
+        codec.decode(Codecs.encode(codec, update, ByteBuffer.allocate(64)));
+    assertEquals("The dot should round trip", update.getVersion(), decoded.getVersion());
+    assertEquals("The elements should round trip", update.getElements(), decoded.getElements());
+
+    set.update(decoded);
+    assertEquals(new HashSet<>(Arrays.asList(1, 2)), set);
+  }
+
 }
@@ -21,13 +21,33 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative.SetUpdateMessage.Operation;
 import uk.ac.soton.ecs.fl4g12.crdt.datatypes.AddOnceSetAbstractTest;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codec;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codecs;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.DotCodec;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.ReliableDeliveryChannel;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.VersionedUpdatable;
 import uk.ac.soton.ecs.fl4g12.crdt.idenitifier.IncrementalIntegerIdentifierFactory;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Dot;
+import uk.ac.soton.ecs.fl4g12.crdt.order.HashVersionVector;
 import uk.ac.soton.ecs.fl4g12.crdt.order.IntegerVersion;
+import uk.ac.soton.ecs.fl4g12.crdt.util.ConcurrencyTestUtil;
 
 /**
  * Tests the {@linkplain CommutativeTwoPhaseSetUpdate} implementation as a {@linkplain Set}.
@@ -35,6 +55,8 @@ import uk.ac.soton.ecs.fl4g12.crdt.order.IntegerVersion;
 public final class CommutativeTwoPhaseSetTest
     extends AddOnceSetAbstractTest<Integer, CommutativeTwoPhaseSet<Integer, Integer, Integer>> {
 
+  private static final Logger LOGGER = Logger.getLogger(CommutativeTwoPhaseSetTest.class.getName());
+
   private static final IncrementalIntegerIdentifierFactory ID_FACTORY =
       new IncrementalIntegerIdentifierFactory();
 
@@ -46,6 +68,108 @@ public final class CommutativeTwoPhaseSetTest
     return new CommutativeTwoPhaseSet<>(new IntegerVersion(), null, deliveryChannel);
   }
 
+  /**
+   * Test that the pending batch is published when the operation changes so that additions and
+   * removals are replicated in order.
+   */
+  @Test
+  public void testBatch_OperationChange() {
+    ReliableDeliveryChannel<Integer, CommutativeTwoPhaseSetUpdate<Integer, Integer, Integer>> deliveryChannel =
+        Mockito.mock(ReliableDeliveryChannel.class);
+    Mockito.doReturn(ID_FACTORY.create()).when(deliveryChannel)
+        .register(Mockito.any(VersionedUpdatable.class));
+    CommutativeTwoPhaseSet<Integer, Integer, Integer> set = new CommutativeTwoPhaseSet<>(
+        new HashVersionVector<Integer, Integer>(new IntegerVersion()), null, deliveryChannel,
+        new BatchPolicy(10, 1, TimeUnit.HOURS));
+
+    set.add(1);
+    set.add(2);
+    set.remove(1);
+    set.remove(3);
+    set.add(4);
+    set.flush();
+
+    ArgumentCaptor<CommutativeTwoPhaseSetUpdate<Integer, Integer, Integer>> captor =
+        ArgumentCaptor.forClass(CommutativeTwoPhaseSetUpdate.class);
+    Mockito.verify(deliveryChannel, Mockito.times(3)).publish(captor.capture());
+    List<CommutativeTwoPhaseSetUpdate<Integer, Integer, Integer>> messages = captor.getAllValues();
+    assertEquals(Operation.ADD, messages.get(0).getOperation());
+    assertEquals(new HashSet<>(Arrays.asList(1, 2)), messages.get(0).getElements());
+    assertEquals(Operation.REMOVE, messages.get(1).getOperation());
+    assertEquals(new HashSet<>(Arrays.asList(1, 3)), messages.get(1).getElements());
+    assertEquals(Operation.ADD, messages.get(2).getOperation());
+    assertEquals(new HashSet<>(Arrays.asList(4)), messages.get(2).getElements());
+    for (int i = 0; i < messages.size(); i++) {
+      assertEquals(Integer.valueOf(i + 1), messages.get(i).getVersion().get());
+    }
+  }
+
+  /**
+   * Test that additions and removals made concurrently by many threads, while the set is being
+   * read, are all applied and published exactly once with a gap-free sequence of versions.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testAddRemove_Concurrent() throws Exception {
+    LOGGER.log(Level.INFO, "testAddRemove_Concurrent: "
+        + "Test that concurrent additions and removals are all applied and published.");
+    ReliableDeliveryChannel<Integer, CommutativeTwoPhaseSetUpdate<Integer, Integer, Integer>> deliveryChannel =
+        Mockito.mock(ReliableDeliveryChannel.class);
+    Mockito.doReturn(ID_FACTORY.create()).when(deliveryChannel)
+        .register(Mockito.any(VersionedUpdatable.class));
+    final CommutativeTwoPhaseSet<Integer, Integer, Integer> set =
+        new CommutativeTwoPhaseSet<>(new IntegerVersion(), null, deliveryChannel);
+    final int threads = 8;
+    final int elements = 1000;
+    // Elements removed before the writers start must never be seen again.
+    set.removeAll(Arrays.asList(-1, -2, -3));
+
+    List<Thread> writers = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      final int offset = i * elements;
+      writers.add(new Thread() {
+        @Override
+        public void run() {
+          for (int j = offset; j < offset + elements; j++) {
+            set.add(j);
+            if (j % 2 == 0) {
+              set.remove(j);
+            }
+          }
+        }
+      });
+    }
+    ConcurrencyTestUtil.startAll(writers);
+
+    for (int i = 0; i < 100; i++) {
+      for (Integer element : set) {
+        assertTrue("Removed elements should never be iterated", element >= 0);
+      }
+      assertTrue("Size should never be negative", set.size() >= 0);
+    }
+    ConcurrencyTestUtil.joinAll(writers);
+
+    assertEquals(threads * elements / 2, set.size());
+    assertFalse(set.contains(-1));
+    for (int i = 0; i < threads * elements; i++) {
+      assertEquals(i % 2 == 1, set.contains(i));
+    }
+
+    ArgumentCaptor<CommutativeTwoPhaseSetUpdate<Integer, Integer, Integer>> captor =
+        ArgumentCaptor.forClass(CommutativeTwoPhaseSetUpdate.class);
+    Mockito.verify(deliveryChannel, Mockito.times(threads * elements * 3 / 2 + 1))
+        .publish(captor.capture());
+    Set<Integer> versions = new HashSet<>();
+    for (CommutativeTwoPhaseSetUpdate<Integer, Integer, Integer> message : captor.getAllValues()) {
+      assertTrue("Each version should only be published once",
+          versions.add(message.getVersion().get()));
+    }
+    for (int i = 1; i <= threads * elements * 3 / 2 + 1; i++) {
+      assertTrue("Versions should be gap-free", versions.contains(i));
+    }
+  }
+
   public CommutativeTwoPhaseSetTest() {
     super(Integer.class, Integer[].class);
   }
@@ -60,4 +184,44 @@ public final class CommutativeTwoPhaseSetTest
     return i;
   }
 
+  /**
+   * Test that updates can be encoded and decoded with their codec and then applied to a set.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testCodec() throws Exception {
+    LOGGER.log(Level.INFO, "testCodec: Test that updates round trip through their codec");
+    final CommutativeTwoPhaseSet<Integer, Integer, Integer> set = getSet();
+    final Codec<CommutativeTwoPhaseSetUpdate<Integer, Integer, Integer>> codec =
+        CommutativeTwoPhaseSetUpdate.codec(
+            new DotCodec<>(Codecs.INTEGER, Codecs.INTEGER, new IntegerVersion()),
+            Codecs.INTEGER);
+    final Integer remote = ID_FACTORY.create();
+    final ByteBuffer buffer = ByteBuffer.allocate(64);
+
+    final IntegerVersion version = new IntegerVersion();
+    version.increment();
+    final CommutativeTwoPhaseSetUpdate<Integer, Integer, Integer> add =
+        new CommutativeTwoPhaseSetUpdate<>(new Dot<>(remote, version.copy()), Operation.ADD,
+            new HashSet<>(Arrays.asList(1, 2)));
+    version.increment();
+    final CommutativeTwoPhaseSetUpdate<Integer, Integer, Integer> remove =
+        new CommutativeTwoPhaseSetUpdate<>(new Dot<>(remote, version.copy()), Operation.REMOVE,
+            new HashSet<>(Arrays.asList(1)));
+
+    for (CommutativeTwoPhaseSetUpdate<Integer, Integer, Integer> update : Arrays.asList(add,
+        remove)) {
+      CommutativeTwoPhaseSetUpdate<Integer, Integer, Integer> decoded =
+          codec.decode(Codecs.encode(codec, update, buffer));
+      assertEquals("The dot should round trip", update.getVersion(), decoded.getVersion());
+      assertEquals("The operation should round trip", update.getOperation(),
+          decoded.getOperation());
+      assertEquals("The elements should round trip", update.getElements(),
+          decoded.getElements());
+      set.update(decoded);
+    }
+    assertEquals(new HashSet<>(Arrays.asList(2)), set);
+  }
+
 }
@@ -21,19 +21,27 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import static org.junit.Assert.*;
 import org.junit.Test;
 import org.mockito.Mockito;
 import uk.ac.soton.ecs.fl4g12.crdt.datatypes.IncrementableCounterAbstractTest;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codec;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codecs;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeliveryChannel;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.NullStateDeliveryChannel;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.StateDeliveryChannel;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.VersionVectorCodec;
 import uk.ac.soton.ecs.fl4g12.crdt.idenitifier.IncrementalIntegerIdentifierFactory;
 import uk.ac.soton.ecs.fl4g12.crdt.order.HashVersionVector;
 import uk.ac.soton.ecs.fl4g12.crdt.order.IntegerVersion;
 import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
+import uk.ac.soton.ecs.fl4g12.crdt.util.ConcurrencyTestUtil;
+import uk.ac.soton.ecs.fl4g12.crdt.util.IntegerArithmetic;
 
 /**
  * Tests for the {@linkplain GCounter} class.
@@ -295,4 +303,197 @@ public class GCounterTest
     assertEquals("counter2 should have seen 2 increment", getValue(2), counter2.value());
   }
 
+  /**
+   * Test that delta states only contain the local increments made since the last state message.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testDelta() throws Exception {
+    LOGGER.log(Level.INFO, "testDelta: "
+        + "Test that delta states only contain the local increments since the last state message.");
+    final GCounter<Integer, Integer> counter1 = getCounter();
+    final GCounter<Integer, Integer> counter2 = getCounter();
+    final GCounter<Integer, Integer> counter3 = getCounter();
+
+    counter1.increment();
+    counter2.increment();
+    counter2.increment();
+
+    // The first delta is a full snapshot which starts delta tracking.
+    assertEquals("The first delta should be a full snapshot", counter1.snapshot(),
+        counter1.delta());
+    assertNull("There should be no delta without changes", counter1.delta());
+
+    // Remote changes are not part of the delta.
+    counter1.update(counter2.snapshot());
+    assertNull("Remote changes should not be included in a delta", counter1.delta());
+
+    counter1.increment();
+    GCounterState<Integer, Integer> delta = counter1.delta();
+    final VersionVector<Integer, Integer> expectedVersionVector =
+        new HashVersionVector<>(new IntegerVersion());
+    expectedVersionVector.sync(counter1.getIdentifier(), 2);
+    assertTrue("The delta should only contain the entry of counter1",
+        delta.getVersion().identical(expectedVersionVector));
+    assertNull("There should be no delta after a delta", counter1.delta());
+
+    counter3.update(counter2.snapshot());
+    counter3.update(delta);
+    assertEquals("counter3 should have seen the increments in the delta", getValue(4),
+        counter3.value());
+
+    // A snapshot which is not published does not reset the delta.
+    counter1.increment();
+    counter1.snapshot();
+    assertNotNull("A snapshot should not reset the delta", counter1.delta());
+
+    // Restarting the delta publishes all changes in a full snapshot.
+    counter1.increment();
+    assertFalse("Restarting the delta should give a snapshot", counter1.restartDelta().isDelta());
+    assertNull("There should be no delta after restarting the delta", counter1.delta());
+  }
+
+  /**
+   * Test that increments made concurrently by many threads are all folded into the state, and that
+   * snapshots taken while incrementing never go backwards.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testIncrement_Concurrent() throws Exception {
+    LOGGER.log(Level.INFO, "testIncrement_Concurrent: "
+        + "Test that increments made concurrently by many threads are all folded into the state.");
+    final GCounter<Integer, Integer> counter = getCounter();
+    final int threads = 8;
+    final int increments = 10000;
+
+    List<Thread> incrementers = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      incrementers.add(new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < increments; j++) {
+            counter.increment();
+          }
+        }
+      });
+    }
+    ConcurrencyTestUtil.startAll(incrementers);
+
+    int previous = 0;
+    for (int i = 0; i < 100; i++) {
+      int current = counter.snapshot().getVersion().get(counter.getIdentifier());
+      assertTrue("Snapshots should never go backwards", current >= previous);
+      previous = current;
+    }
+    ConcurrencyTestUtil.joinAll(incrementers);
+
+    assertEquals("All increments should be counted", getValue(threads * increments),
+        counter.value());
+    assertEquals("All increments should be in the snapshot", threads * increments,
+        (int) counter.snapshot().getVersion().get(counter.getIdentifier()));
+  }
+
+  /**
+   * Test that the value is only advanced by the increments not yet seen when states are applied out
+   * of order or more than once.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testUpdate_OutOfOrder() throws Exception {
+    LOGGER.log(Level.INFO, "testUpdate_OutOfOrder: Test that the value is only advanced by the "
+        + "increments not yet seen when states are applied out of order or more than once.");
+    final GCounter<Integer, Integer> counter1 = getCounter();
+    final GCounter<Integer, Integer> counter2 = getCounter();
+
+    counter1.increment();
+    counter2.increment();
+    GCounterState<Integer, Integer> older = counter2.snapshot();
+    counter2.increment();
+    counter2.increment();
+    GCounterState<Integer, Integer> newer = counter2.snapshot();
+
+    counter1.update(newer);
+    assertEquals("counter1 should have seen all increments", getValue(4), counter1.value());
+    counter1.update(older);
+    counter1.update(newer);
+    assertEquals("Stale and repeated states should not change the value", getValue(4),
+        counter1.value());
+
+    counter2.update(counter1.snapshot());
+    assertEquals("counter2 should have seen all increments", getValue(4), counter2.value());
+  }
+
+  /**
+   * Test that a state can be encoded and decoded with its codec and then applied to another
+   * counter.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testCodec() throws Exception {
+    LOGGER.log(Level.INFO, "testCodec: Test that a state round trips through its codec");
+    final GCounter<Integer, Integer> counter1 = getGCounter();
+    final GCounter<Integer, Integer> counter2 = getGCounter();
+    final Codec<GCounterState<Integer, Integer>> codec =
+        GCounterState.codec(new VersionVectorCodec<>(Codecs.INTEGER, Codecs.INTEGER,
+            new HashVersionVector<Integer, Integer>(new IntegerVersion())));
+
+    for (int i = 0; i < MAX_OPERATIONS; i++) {
+      counter1.increment();
+    }
+    final GCounterState<Integer, Integer> state = counter1.snapshot();
+    final GCounterState<Integer, Integer> decoded =
+        codec.decode(Codecs.encode(codec, state, ByteBuffer.allocate(64)));
+
+    assertEquals("The identifier should round trip", state.getIdentifier(),
+        decoded.getIdentifier());
+    assertTrue("The version should round trip",
+        state.getVersion().identical(decoded.getVersion()));
+
+    counter2.update(decoded);
+    assertEquals("counter2 should have the value of counter1", counter1.value(),
+        counter2.value());
+  }
+
+
+  /**
+   * Ensure that increments which would overflow the timestamp of the counter are kept rather than
+   * lost, and that further increments are rejected.
+   */
+  @Test
+  public void testIncrement_Overflow() {
+    LOGGER.log(Level.INFO, "testIncrement_Overflow: "
+        + "Ensure that increments which would overflow are kept and further increments rejected");
+    final Integer identifier = ID_FACTORY.create();
+    final VersionVector<Integer, Integer> initialVersion =
+        new HashVersionVector<>(new IntegerVersion());
+    initialVersion.sync(identifier, Integer.MAX_VALUE);
+    final GCounter<Integer, Integer> counter = new GCounter<>(IntegerArithmetic.getInstance(),
+        initialVersion, identifier,
+        new NullStateDeliveryChannel<Integer, GCounterState<Integer, Integer>>(ID_FACTORY));
+
+    counter.increment();
+    try {
+      counter.value();
+      fail("Folding the increment should overflow");
+    } catch (ArithmeticException ex) {
+      // Expected
+    }
+    try {
+      counter.increment();
+      fail("Increments should be rejected once the counter has overflowed");
+    } catch (ArithmeticException ex) {
+      // Expected
+    }
+    try {
+      counter.snapshot();
+      fail("The increment should still be waiting to be folded");
+    } catch (ArithmeticException ex) {
+      // Expected
+    }
+  }
+
 }
@@ -21,8 +21,18 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import static org.junit.Assert.*;
+import org.junit.Test;
 import static uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent.GSetTest.getGSet;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codec;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codecs;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.StatefulUpdatable;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.VersionVectorCodec;
+import uk.ac.soton.ecs.fl4g12.crdt.order.HashVersionVector;
+import uk.ac.soton.ecs.fl4g12.crdt.order.IntegerVersion;
 
 /**
  * Tests the {@linkplain GSet} implementation as a {@linkplain StatefulUpdatable}.
@@ -40,4 +50,79 @@ public class GSetStatefulTest extends
     return i;
   }
 
+  /**
+   * Test that delta states only contain the elements added locally since the last state message.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testDelta() throws Exception {
+    final GSet<Integer, Integer, Integer> set1 = getSet();
+    final GSet<Integer, Integer, Integer> set2 = getSet();
+    final GSet<Integer, Integer, Integer> set3 = getSet();
+
+    set1.add(1);
+    set2.add(2);
+
+    assertEquals("The first delta should be a full snapshot", set1.snapshot(), set1.delta());
+    assertNull("There should be no delta without changes", set1.delta());
+
+    set1.update(set2.snapshot());
+    assertNull("Remote changes should not be included in a delta", set1.delta());
+
+    set1.addAll(Arrays.asList(3, 4));
+    GSetState<Integer, Integer, Integer> delta = set1.delta();
+    assertEquals("The delta should only contain the new elements",
+        new HashSet<>(Arrays.asList(3, 4)), delta.getState());
+    assertTrue("The delta should be marked as a delta", delta.isDelta());
+    assertFalse("A snapshot should not be marked as a delta", set1.snapshot().isDelta());
+    assertNull("There should be no delta after a delta", set1.delta());
+
+    set3.update(delta);
+    assertEquals("set3 should only contain the elements in the delta",
+        new HashSet<>(Arrays.asList(3, 4)), set3);
+
+    set1.add(5);
+    set1.snapshot();
+    assertEquals("A snapshot should not reset the delta", new HashSet<>(Arrays.asList(5)),
+        set1.delta().getState());
+
+    set1.add(6);
+    assertFalse("Restarting the delta should give a snapshot", set1.restartDelta().isDelta());
+    assertNull("There should be no delta after restarting the delta", set1.delta());
+  }
+
+  /**
+   * Test that a state can be encoded and decoded with its codec and then applied to another set.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testCodec() throws Exception {
+    final GSet<Integer, Integer, Integer> set1 = getSet();
+    final GSet<Integer, Integer, Integer> set2 = getSet();
+    final Codec<GSetState<Integer, Integer, Integer>> codec =
+        GSetState.codec(new VersionVectorCodec<>(Codecs.INTEGER, Codecs.INTEGER,
+                new HashVersionVector<Integer, Integer>(new IntegerVersion())), Codecs.INTEGER);
+
+    set1.addAll(Arrays.asList(1, 2, 3));
+    final GSetState<Integer, Integer, Integer> state = set1.snapshot();
+    final GSetState<Integer, Integer, Integer> decoded =
+        codec.decode(Codecs.encode(codec, state, ByteBuffer.allocate(64)));
+
+    assertEquals("The identifier should round trip", state.getIdentifier(),
+        decoded.getIdentifier());
+    assertTrue("The version should round trip",
+        state.getVersion().identical(decoded.getVersion()));
+    assertEquals("The state should round trip", state.getState(), decoded.getState());
+
+    set2.update(decoded);
+    assertEquals("set2 should have the elements of set1", set1, set2);
+
+    set1.delta();
+    set1.add(4);
+    assertTrue("The delta flag should round trip",
+        codec.decode(Codecs.encode(codec, set1.delta(), ByteBuffer.allocate(64))).isDelta());
+  }
+
 }
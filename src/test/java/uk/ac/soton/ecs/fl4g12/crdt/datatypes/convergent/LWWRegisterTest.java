@@ -21,6 +21,10 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent;
 
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import static org.junit.Assert.assertEquals;
@@ -31,11 +35,15 @@ import org.junit.Test;
 import org.mockito.Mockito;
 import uk.ac.soton.ecs.fl4g12.crdt.datatypes.Register;
 import uk.ac.soton.ecs.fl4g12.crdt.datatypes.RegisterAbstractTest;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codec;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codecs;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeliveryChannel;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.StateDeliveryChannel;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.StatefulUpdatable;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.VersionVectorCodec;
 import uk.ac.soton.ecs.fl4g12.crdt.idenitifier.IncrementalIntegerIdentifierFactory;
 import uk.ac.soton.ecs.fl4g12.crdt.order.HashVersionVector;
+import uk.ac.soton.ecs.fl4g12.crdt.order.HybridLogicalClock;
 import uk.ac.soton.ecs.fl4g12.crdt.order.IntegerVersion;
 import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
 
@@ -109,6 +117,58 @@ public class LWWRegisterTest
     }
   }
 
+  /**
+   * Ensure that rapid local reassignments, many within the same millisecond, are each given a
+   * strictly greater timestamp so that the last assignment always wins.
+   */
+  @Test
+  public void testAssign_Rapid() {
+    LOGGER.log(Level.INFO, "testAssign_Rapid: "
+        + "Ensure that rapid local reassignments are given strictly increasing timestamps");
+    final LWWRegister<Integer, Integer, Integer> register = getRegister();
+
+    long previousTime = register.snapshot().getElement().getTime();
+    for (int i = 0; i < MAX_OPERATIONS * 1000; i++) {
+      final Integer value = getValue(i);
+      register.assign(value);
+
+      LWWRegister.Element<Integer> element = register.snapshot().getElement();
+      assertEquals("The register should have the last value assigned", value, register.value());
+      assertTrue("The timestamp should be strictly increasing",
+          element.getTime() > previousTime);
+      previousTime = element.getTime();
+    }
+  }
+
+  /**
+   * Ensure that assignments are stamped using the {@linkplain HybridLogicalClock} provided to the
+   * register.
+   */
+  @Test
+  public void testAssign_Clock() {
+    LOGGER.log(Level.INFO,
+        "testAssign_Clock: Ensure that assignments are stamped using the provided clock");
+    StateDeliveryChannel<Integer, LWWRegisterState<Integer, Integer, Integer>> deliveryChannel =
+        Mockito.mock(StateDeliveryChannel.class);
+    Mockito.doReturn(ID_FACTORY.create()).when(deliveryChannel)
+        .register(Mockito.any(StatefulUpdatable.class));
+    final long physicalTime = 1000000;
+    final HybridLogicalClock clock =
+        new HybridLogicalClock(Clock.fixed(Instant.ofEpochMilli(physicalTime), ZoneOffset.UTC));
+    final LWWRegister<Integer, Integer, Integer> register = new LWWRegister<>(
+        new HashVersionVector<Integer, Integer>(new IntegerVersion()), null, deliveryChannel,
+        clock);
+
+    register.assign(getValue(0));
+    register.assign(getValue(1));
+
+    LWWRegister.Element<Integer> element = register.snapshot().getElement();
+    assertEquals("The timestamp should come from the provided clock", physicalTime,
+        element.getTimestamp());
+    assertEquals("The element should be stamped with the latest time of the clock",
+        (long) clock.get(), element.getTime());
+  }
+
   /**
    * Test snapshot of the {@link Register}s initial state.
    */
@@ -404,4 +464,40 @@ public class LWWRegisterTest
     assertEquals("register2's value should be value1", value1, register2.value());
   }
 
+  /**
+   * Test that a state, including an unassigned register, can be encoded and decoded with its
+   * codec and then applied to another register.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testCodec() throws Exception {
+    LOGGER.log(Level.INFO, "testCodec: Test that a state round trips through its codec");
+    final LWWRegister<Integer, Integer, Integer> register1 = getRegister();
+    final LWWRegister<Integer, Integer, Integer> register2 = getRegister();
+    final Codec<LWWRegisterState<Integer, Integer, Integer>> codec =
+        LWWRegisterState.codec(new VersionVectorCodec<>(Codecs.INTEGER, Codecs.INTEGER,
+                new HashVersionVector<Integer, Integer>(new IntegerVersion())), Codecs.INTEGER);
+    final ByteBuffer buffer = ByteBuffer.allocate(64);
+
+    LWWRegisterState<Integer, Integer, Integer> state = register1.snapshot();
+    LWWRegisterState<Integer, Integer, Integer> decoded =
+        codec.decode(Codecs.encode(codec, state, buffer));
+    assertEquals("The unassigned element should round trip", state.getElement(),
+        decoded.getElement());
+
+    register1.assign(getValue(1));
+    state = register1.snapshot();
+    decoded = codec.decode(Codecs.encode(codec, state, buffer));
+    assertEquals("The identifier should round trip", state.getIdentifier(),
+        decoded.getIdentifier());
+    assertTrue("The version should round trip",
+        state.getVersion().identical(decoded.getVersion()));
+    assertEquals("The element should round trip", state.getElement(), decoded.getElement());
+
+    register2.update(decoded);
+    assertEquals("register2 should have the value of register1", register1.value(),
+        register2.value());
+  }
+
 }
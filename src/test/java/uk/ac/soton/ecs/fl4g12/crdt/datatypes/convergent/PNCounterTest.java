@@ -21,19 +21,27 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import static org.junit.Assert.*;
 import org.junit.Test;
 import org.mockito.Mockito;
 import uk.ac.soton.ecs.fl4g12.crdt.datatypes.CounterAbstractTest;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codec;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codecs;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.DeliveryChannel;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.NullStateDeliveryChannel;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.StateDeliveryChannel;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.VersionVectorCodec;
 import uk.ac.soton.ecs.fl4g12.crdt.idenitifier.IncrementalIntegerIdentifierFactory;
 import uk.ac.soton.ecs.fl4g12.crdt.order.HashVersionVector;
 import uk.ac.soton.ecs.fl4g12.crdt.order.IntegerVersion;
 import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
+import uk.ac.soton.ecs.fl4g12.crdt.util.ConcurrencyTestUtil;
+import uk.ac.soton.ecs.fl4g12.crdt.util.IntegerArithmetic;
 
 /**
  * Tests for the {@linkplain PNCounter} class.
@@ -571,4 +579,215 @@ public class PNCounterTest extends CounterAbstractTest<Integer, PNCounter<Intege
     assertEquals("counter2 should have seen 2 increment", getValue(1, 1), counter2.value());
   }
 
+  /**
+   * Test that delta states only contain the local changes made since the last state message.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testDelta() throws Exception {
+    LOGGER.log(Level.INFO, "testDelta: "
+        + "Test that delta states only contain the local changes since the last state message.");
+    final PNCounter<Integer, Integer> counter1 = getCounter();
+    final PNCounter<Integer, Integer> counter2 = getCounter();
+    final PNCounter<Integer, Integer> counter3 = getCounter();
+
+    counter1.increment();
+    counter2.decrement();
+    counter2.decrement();
+
+    assertEquals("The first delta should be a full snapshot", counter1.snapshot(),
+        counter1.delta());
+    assertNull("There should be no delta without changes", counter1.delta());
+
+    counter1.update(counter2.snapshot());
+    assertNull("Remote changes should not be included in a delta", counter1.delta());
+
+    counter1.decrement();
+    counter1.increment();
+    PNCounterState<Integer, Integer> delta = counter1.delta();
+    final VersionVector<Integer, Integer> expectedVersionVector =
+        new HashVersionVector<>(new IntegerVersion());
+    expectedVersionVector.sync(counter1.getIdentifier(), 3);
+    final VersionVector<Integer, Integer> expectedP =
+        new HashVersionVector<>(new IntegerVersion());
+    expectedP.sync(counter1.getIdentifier(), 2);
+    final VersionVector<Integer, Integer> expectedN =
+        new HashVersionVector<>(new IntegerVersion());
+    expectedN.sync(counter1.getIdentifier(), 1);
+    assertTrue("The delta version should only contain the entry of counter1",
+        delta.getVersion().identical(expectedVersionVector));
+    assertTrue("The delta p should only contain the entry of counter1",
+        delta.getP().identical(expectedP));
+    assertTrue("The delta n should only contain the entry of counter1",
+        delta.getN().identical(expectedN));
+    assertNull("There should be no delta after a delta", counter1.delta());
+
+    counter3.update(counter2.snapshot());
+    counter3.update(delta);
+    assertEquals("counter3 should have seen the changes in the delta", getValue(2, 3),
+        counter3.value());
+
+    counter1.increment();
+    counter1.snapshot();
+    assertNotNull("A snapshot should not reset the delta", counter1.delta());
+
+    counter1.decrement();
+    assertFalse("Restarting the delta should give a snapshot", counter1.restartDelta().isDelta());
+    assertNull("There should be no delta after restarting the delta", counter1.delta());
+  }
+
+  /**
+   * Test that increments and decrements made concurrently by many threads are all folded into the
+   * state.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testIncrementDecrement_Concurrent() throws Exception {
+    LOGGER.log(Level.INFO, "testIncrementDecrement_Concurrent: Test that increments and "
+        + "decrements made concurrently by many threads are all folded into the state.");
+    final PNCounter<Integer, Integer> counter = getCounter();
+    final int threads = 8;
+    final int operations = 10000;
+
+    List<Thread> workers = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      final boolean increment = i % 2 == 0;
+      workers.add(new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < operations; j++) {
+            if (increment) {
+              counter.increment();
+            } else {
+              counter.decrement();
+            }
+          }
+        }
+      });
+    }
+    ConcurrencyTestUtil.startAll(workers);
+    for (int i = 0; i < 100; i++) {
+      PNCounterState<Integer, Integer> state = counter.snapshot();
+      Integer id = counter.getIdentifier();
+      assertEquals("The version should count both increments and decrements",
+          state.getP().get(id) + state.getN().get(id), (int) state.getVersion().get(id));
+    }
+    ConcurrencyTestUtil.joinAll(workers);
+
+    final int half = threads / 2 * operations;
+    assertEquals("All operations should be counted", getValue(half, half), counter.value());
+    PNCounterState<Integer, Integer> state = counter.snapshot();
+    assertEquals("All increments should be in the snapshot", half,
+        (int) state.getP().get(counter.getIdentifier()));
+    assertEquals("All decrements should be in the snapshot", half,
+        (int) state.getN().get(counter.getIdentifier()));
+  }
+
+  /**
+   * Test that the value is only changed by the operations not yet seen when states are applied out
+   * of order or more than once.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testUpdate_OutOfOrder() throws Exception {
+    LOGGER.log(Level.INFO, "testUpdate_OutOfOrder: Test that the value is only changed by the "
+        + "operations not yet seen when states are applied out of order or more than once.");
+    final PNCounter<Integer, Integer> counter1 = getCounter();
+    final PNCounter<Integer, Integer> counter2 = getCounter();
+
+    counter1.increment();
+    counter2.decrement();
+    PNCounterState<Integer, Integer> older = counter2.snapshot();
+    counter2.increment();
+    counter2.decrement();
+    counter2.decrement();
+    PNCounterState<Integer, Integer> newer = counter2.snapshot();
+
+    counter1.update(newer);
+    assertEquals("counter1 should have seen all operations", getValue(2, 3), counter1.value());
+    counter1.update(older);
+    counter1.update(newer);
+    assertEquals("Stale and repeated states should not change the value", getValue(2, 3),
+        counter1.value());
+
+    counter2.update(counter1.snapshot());
+    assertEquals("counter2 should have seen all operations", getValue(2, 3), counter2.value());
+  }
+
+  /**
+   * Test that a state can be encoded and decoded with its codec and then applied to another
+   * counter.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testCodec() throws Exception {
+    LOGGER.log(Level.INFO, "testCodec: Test that a state round trips through its codec");
+    final PNCounter<Integer, Integer> counter1 = getPNCounter();
+    final PNCounter<Integer, Integer> counter2 = getPNCounter();
+    final Codec<PNCounterState<Integer, Integer>> codec =
+        PNCounterState.codec(new VersionVectorCodec<>(Codecs.INTEGER, Codecs.INTEGER,
+            new HashVersionVector<Integer, Integer>(new IntegerVersion())));
+
+    for (int i = 0; i < MAX_OPERATIONS; i++) {
+      counter1.increment();
+    }
+    counter1.decrement();
+    final PNCounterState<Integer, Integer> state = counter1.snapshot();
+    final PNCounterState<Integer, Integer> decoded =
+        codec.decode(Codecs.encode(codec, state, ByteBuffer.allocate(64)));
+
+    assertEquals("The identifier should round trip", state.getIdentifier(),
+        decoded.getIdentifier());
+    assertTrue("The version should round trip",
+        state.getVersion().identical(decoded.getVersion()));
+    assertTrue("The increments should round trip", state.getP().identical(decoded.getP()));
+    assertTrue("The decrements should round trip", state.getN().identical(decoded.getN()));
+
+    counter2.update(decoded);
+    assertEquals("counter2 should have the value of counter1", counter1.value(),
+        counter2.value());
+  }
+
+
+  /**
+   * Ensure that decrements which would overflow the timestamp of the counter are kept rather than
+   * lost, and that further changes are rejected.
+   */
+  @Test
+  public void testDecrement_Overflow() {
+    LOGGER.log(Level.INFO, "testDecrement_Overflow: "
+        + "Ensure that decrements which would overflow are kept and further changes rejected");
+    final Integer identifier = ID_FACTORY.create();
+    final VersionVector<Integer, Integer> initialVersion =
+        new HashVersionVector<>(new IntegerVersion());
+    initialVersion.sync(identifier, Integer.MAX_VALUE);
+    final PNCounter<Integer, Integer> counter = new PNCounter<>(IntegerArithmetic.getInstance(),
+        initialVersion, identifier,
+        new NullStateDeliveryChannel<Integer, PNCounterState<Integer, Integer>>(ID_FACTORY));
+
+    counter.decrement();
+    try {
+      counter.value();
+      fail("Folding the decrement should overflow");
+    } catch (ArithmeticException ex) {
+      // Expected
+    }
+    try {
+      counter.increment();
+      fail("Changes should be rejected once the counter has overflowed");
+    } catch (ArithmeticException ex) {
+      // Expected
+    }
+    try {
+      counter.snapshot();
+      fail("The decrement should still be waiting to be folded");
+    } catch (ArithmeticException ex) {
+      // Expected
+    }
+  }
+
 }
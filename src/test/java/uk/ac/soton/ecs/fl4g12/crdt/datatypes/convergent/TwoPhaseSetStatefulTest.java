@@ -21,8 +21,18 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import static org.junit.Assert.*;
+import org.junit.Test;
 import static uk.ac.soton.ecs.fl4g12.crdt.datatypes.convergent.TwoPhaseSetTest.getTwoPhaseSet;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codec;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.Codecs;
 import uk.ac.soton.ecs.fl4g12.crdt.delivery.StatefulUpdatable;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.VersionVectorCodec;
+import uk.ac.soton.ecs.fl4g12.crdt.order.HashVersionVector;
+import uk.ac.soton.ecs.fl4g12.crdt.order.IntegerVersion;
 
 /**
  * Tests the {@linkplain TwoPhaseSet} implementation as a {@linkplain StatefulUpdatable}.
@@ -40,4 +50,81 @@ public class TwoPhaseSetStatefulTest extends
     return i;
   }
 
+  /**
+   * Test that delta states only contain the additions and removals made locally since the last
+   * state message.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testDelta() throws Exception {
+    final TwoPhaseSet<Integer, Integer, Integer> set1 = getSet();
+    final TwoPhaseSet<Integer, Integer, Integer> set2 = getSet();
+
+    set1.addAll(Arrays.asList(1, 2, 3));
+    assertEquals("The first delta should be a full snapshot", set1.snapshot(), set1.delta());
+    assertNull("There should be no delta without changes", set1.delta());
+    set2.update(set1.snapshot());
+
+    set1.remove(2);
+    set1.add(4);
+    TwoPhaseSetState<Integer, Integer, Integer> delta = set1.delta();
+    assertEquals("The delta additions should contain the removed and added elements",
+        new HashSet<>(Arrays.asList(2, 4)), delta.getAdditions());
+    assertEquals("The delta removals should only contain the removed element",
+        new HashSet<>(Arrays.asList(2)), delta.getRemovals());
+    assertTrue("The delta should be marked as a delta", delta.isDelta());
+    assertFalse("A snapshot should not be marked as a delta", set1.snapshot().isDelta());
+    assertNull("There should be no delta after a delta", set1.delta());
+    set2.update(delta);
+
+    set1.clear();
+    delta = set1.delta();
+    assertEquals("The delta should remove the elements present before clear",
+        new HashSet<>(Arrays.asList(1, 3, 4)), delta.getRemovals());
+
+    set2.update(delta);
+    assertTrue("set2 should be empty after applying the delta", set2.isEmpty());
+
+    set1.add(5);
+    set1.snapshot();
+    assertEquals("A snapshot should not reset the delta", new HashSet<>(Arrays.asList(5)),
+        set1.delta().getAdditions());
+
+    set1.add(6);
+    assertFalse("Restarting the delta should give a snapshot", set1.restartDelta().isDelta());
+    assertNull("There should be no delta after restarting the delta", set1.delta());
+  }
+
+  /**
+   * Test that a state can be encoded and decoded with its codec and then applied to another set.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testCodec() throws Exception {
+    final TwoPhaseSet<Integer, Integer, Integer> set1 = getSet();
+    final TwoPhaseSet<Integer, Integer, Integer> set2 = getSet();
+    final Codec<TwoPhaseSetState<Integer, Integer, Integer>> codec =
+        TwoPhaseSetState.codec(new VersionVectorCodec<>(Codecs.INTEGER, Codecs.INTEGER,
+                new HashVersionVector<Integer, Integer>(new IntegerVersion())), Codecs.INTEGER);
+
+    set1.addAll(Arrays.asList(1, 2, 3));
+    set1.remove(2);
+    final TwoPhaseSetState<Integer, Integer, Integer> state = set1.snapshot();
+    final TwoPhaseSetState<Integer, Integer, Integer> decoded =
+        codec.decode(Codecs.encode(codec, state, ByteBuffer.allocate(64)));
+
+    assertEquals("The identifier should round trip", state.getIdentifier(),
+        decoded.getIdentifier());
+    assertTrue("The version should round trip",
+        state.getVersion().identical(decoded.getVersion()));
+    assertEquals("The additions should round trip", state.getAdditions(),
+        decoded.getAdditions());
+    assertEquals("The removals should round trip", state.getRemovals(), decoded.getRemovals());
+
+    set2.update(decoded);
+    assertEquals("set2 should have the elements of set1", set1, set2);
+  }
+
 }
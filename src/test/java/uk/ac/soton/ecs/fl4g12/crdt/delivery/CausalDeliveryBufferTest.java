@@ -0,0 +1,273 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import uk.ac.soton.ecs.fl4g12.crdt.delivery.ReliableDeliveryChannelAbstractTest.BasicVersionedUpdateMessage;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Dot;
+import uk.ac.soton.ecs.fl4g12.crdt.order.HashVersionVector;
+import uk.ac.soton.ecs.fl4g12.crdt.order.IntegerVersion;
+import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
+
+/**
+ * Tests of {@linkplain CausalDeliveryBuffer}.
+ */
+public class CausalDeliveryBufferTest {
+
+  private static final int MESSAGES = 20;
+
+  private CausalDeliveryBuffer<Integer, VersionedUpdateMessage<Integer, ?>> buffer;
+  private VersionedUpdatable<Integer, ?, VersionedUpdateMessage<Integer, ?>> updatable;
+
+  /**
+   * Messages which have been applied to the updatable.
+   */
+  private Set<VersionedUpdateMessage<Integer, ?>> applied;
+
+  /**
+   * Messages which must be applied before the message they are mapped from.
+   */
+  private Map<VersionedUpdateMessage<Integer, ?>, VersionedUpdateMessage<Integer, ?>> dependencies;
+
+  @Before
+  public void setUp() throws Exception {
+    buffer = new CausalDeliveryBuffer<>();
+    updatable = Mockito.mock(VersionedUpdatable.class);
+    applied = new HashSet<>();
+    dependencies = new HashMap<>();
+
+    // Only apply messages whose dependency has been applied.
+    Mockito.doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        VersionedUpdateMessage<Integer, ?> message = invocation.getArgument(0);
+        VersionedUpdateMessage<Integer, ?> dependency = dependencies.get(message);
+        if (dependency != null && !applied.contains(dependency)) {
+          throw new DeliveryUpdateException(updatable, message, "Out of order delivery");
+        }
+        applied.add(message);
+        return null;
+      }
+    }).when(updatable).update(Mockito.any(VersionedUpdateMessage.class));
+  }
+
+  private static VersionedUpdateMessage<Integer, ?> getMessage(int sender, int order) {
+    IntegerVersion version = new IntegerVersion();
+    version.sync(order);
+    return new BasicVersionedUpdateMessage<>(sender, version);
+  }
+
+  /**
+   * Create a sequence of messages from a sender, each depending on the previous one.
+   */
+  private List<VersionedUpdateMessage<Integer, ?>> getMessages(int sender) {
+    List<VersionedUpdateMessage<Integer, ?>> messages = new ArrayList<>();
+    for (int i = 1; i <= MESSAGES; i++) {
+      VersionedUpdateMessage<Integer, ?> message = getMessage(sender, i);
+      if (!messages.isEmpty()) {
+        dependencies.put(message, messages.get(messages.size() - 1));
+      }
+      messages.add(message);
+    }
+    return messages;
+  }
+
+  @Test
+  public void testDeliver_InOrder() throws Exception {
+    List<VersionedUpdateMessage<Integer, ?>> messages = getMessages(1);
+    for (VersionedUpdateMessage<Integer, ?> message : messages) {
+      buffer.add(message);
+    }
+    assertEquals(MESSAGES, buffer.size());
+
+    assertEquals(MESSAGES, buffer.deliver(updatable));
+    assertTrue(buffer.isEmpty());
+
+    InOrder inOrder = Mockito.inOrder(updatable);
+    for (VersionedUpdateMessage<Integer, ?> message : messages) {
+      inOrder.verify(updatable).update(message);
+    }
+  }
+
+  @Test
+  public void testDeliver_OutOfOrder() throws Exception {
+    List<VersionedUpdateMessage<Integer, ?>> messages = getMessages(1);
+    List<VersionedUpdateMessage<Integer, ?>> shuffled = new ArrayList<>(messages);
+    Collections.shuffle(shuffled);
+    for (VersionedUpdateMessage<Integer, ?> message : shuffled) {
+      buffer.add(message);
+    }
+
+    assertEquals(MESSAGES, buffer.deliver(updatable));
+    assertTrue(buffer.isEmpty());
+
+    InOrder inOrder = Mockito.inOrder(updatable);
+    for (VersionedUpdateMessage<Integer, ?> message : messages) {
+      inOrder.verify(updatable).update(message);
+    }
+  }
+
+  @Test
+  public void testDeliver_CrossSenderDependency() throws Exception {
+    List<VersionedUpdateMessage<Integer, ?>> messages1 = getMessages(1);
+    List<VersionedUpdateMessage<Integer, ?>> messages2 = getMessages(2);
+    // The first message from sender 2 depends on the last message from sender 1.
+    dependencies.put(messages2.get(0), messages1.get(MESSAGES - 1));
+
+    for (VersionedUpdateMessage<Integer, ?> message : messages2) {
+      buffer.add(message);
+    }
+    for (VersionedUpdateMessage<Integer, ?> message : messages1) {
+      buffer.add(message);
+    }
+
+    // Everything should be released in a single delivery.
+    assertEquals(2 * MESSAGES, buffer.deliver(updatable));
+    assertTrue(buffer.isEmpty());
+  }
+
+  @Test
+  public void testDeliver_BlockedRetried() throws Exception {
+    List<VersionedUpdateMessage<Integer, ?>> messages = getMessages(1);
+    buffer.add(messages.get(1));
+    buffer.add(messages.get(2));
+
+    assertEquals(0, buffer.deliver(updatable));
+    assertEquals(0, buffer.deliver(updatable));
+    assertFalse(buffer.isEmpty());
+
+    // Only the earliest message should have been attempted, and not again while nothing changed.
+    Mockito.verify(updatable).update(messages.get(1));
+    Mockito.verify(updatable, Mockito.never()).update(messages.get(2));
+
+    // Receiving the missing message releases the others.
+    buffer.add(messages.get(0));
+    assertEquals(3, buffer.deliver(updatable));
+    assertTrue(buffer.isEmpty());
+    Mockito.verify(updatable, Mockito.times(2)).update(messages.get(1));
+  }
+
+  /**
+   * Ensure that a dotted message waiting for a dependency is only attempted again once that
+   * dependency has been applied, however many other messages are applied in the meantime.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testDeliver_DependencyIndexed() throws Exception {
+    final HashVersionVector<Integer, Integer> vector =
+        new HashVersionVector<>(new IntegerVersion());
+    final VersionedUpdatable<Integer, ?, DottedUpdateMessage<Integer, Integer>> dotted =
+        Mockito.mock(VersionedUpdatable.class);
+    Mockito.doAnswer(new Answer<VersionVector<Integer, Integer>>() {
+      @Override
+      public VersionVector<Integer, Integer> answer(InvocationOnMock invocation) {
+        return vector.copy();
+      }
+    }).when(dotted).getVersion();
+    // Apply the next message from each sender once its dependencies have been applied.
+    Mockito.doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        DottedUpdateMessage<Integer, Integer> message = invocation.getArgument(0);
+        Dot<Integer, Integer> dot = message.getVersion();
+        boolean ready = vector.get(dot.getIdentifier()) == dot.get() - 1;
+        for (Map.Entry<Integer, Integer> dependency : message.getDependencies().entrySet()) {
+          ready &= vector.get(dependency.getKey()) >= dependency.getValue();
+        }
+        if (!ready) {
+          throw new DeliveryUpdateException(dotted, message, "Out of order delivery");
+        }
+        vector.sync(dot.getIdentifier(), dot.get());
+        return null;
+      }
+    }).when(dotted).update(Mockito.any(DottedUpdateMessage.class));
+
+    CausalDeliveryBuffer<Integer, DottedUpdateMessage<Integer, Integer>> dottedBuffer =
+        new CausalDeliveryBuffer<>();
+    // The message from sender 2 depends on the third message from sender 1.
+    DottedUpdateMessage<Integer, Integer> dependent =
+        getDottedMessage(2, 1, Collections.singletonMap(1, 3));
+    dottedBuffer.add(dependent);
+    dottedBuffer.add(getDottedMessage(1, 1, Collections.<Integer, Integer>emptyMap()));
+    dottedBuffer.add(getDottedMessage(1, 2, Collections.<Integer, Integer>emptyMap()));
+    for (int i = 1; i <= MESSAGES; i++) {
+      dottedBuffer.add(getDottedMessage(3, i, Collections.<Integer, Integer>emptyMap()));
+    }
+
+    assertEquals(2 + MESSAGES, dottedBuffer.deliver(dotted));
+    Mockito.verify(dotted).update(dependent);
+
+    // Applying the dependency releases the message.
+    dottedBuffer.add(getDottedMessage(1, 3, Collections.<Integer, Integer>emptyMap()));
+    assertEquals(2, dottedBuffer.deliver(dotted));
+    assertTrue(dottedBuffer.isEmpty());
+    Mockito.verify(dotted, Mockito.times(2)).update(dependent);
+  }
+
+  private static DottedUpdateMessage<Integer, Integer> getDottedMessage(int sender, int order,
+      Map<Integer, Integer> dependencies) {
+    IntegerVersion version = new IntegerVersion();
+    version.sync(order);
+    return new AbstractDottedUpdateMessage<>(new Dot<>(sender, version), dependencies);
+  }
+
+  @Test
+  public void testDeliver_Throwable() throws Exception {
+    VersionedUpdateMessage<Integer, ?> message = getMessage(1, 1);
+    Mockito.doThrow(RuntimeException.class).when(updatable).update(message);
+    buffer.add(message);
+
+    assertEquals(0, buffer.deliver(updatable));
+    assertEquals(1, buffer.size());
+  }
+
+  @Test
+  public void testDeliver_Throwable_Retried() throws Exception {
+    VersionedUpdateMessage<Integer, ?> message = getMessage(1, 1);
+    Mockito.doThrow(RuntimeException.class).doNothing().when(updatable).update(message);
+    buffer.add(message);
+
+    assertEquals(0, buffer.deliver(updatable));
+    assertEquals(1, buffer.size());
+
+    // The failure was not caused by a dependency so the message should be retried.
+    assertEquals(1, buffer.deliver(updatable));
+    assertTrue(buffer.isEmpty());
+  }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link Codecs} class.
+ */
+public class CodecsTest {
+
+  private static final Logger LOGGER = Logger.getLogger(CodecsTest.class.getName());
+
+  private static enum Colour {
+    RED, GREEN, BLUE;
+  }
+
+  private static <T> T roundTrip(Codec<T> codec, T value) {
+    ByteBuffer buffer = Codecs.encode(codec, value, ByteBuffer.allocate(4));
+    T result = codec.decode(buffer);
+    assertFalse("The whole encoding should have been decoded", buffer.hasRemaining());
+    return result;
+  }
+
+  /**
+   * Test that varints round trip and that small values take a single byte.
+   */
+  @Test
+  public void testVarLong() {
+    LOGGER.log(Level.INFO, "testVarLong: Test that varints round trip");
+    ByteBuffer buffer = ByteBuffer.allocate(10);
+    long[] values = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, Long.MAX_VALUE, -1};
+    int[] sizes = {1, 1, 1, 2, 2, 3, 5, 9, 10};
+    for (int i = 0; i < values.length; i++) {
+      buffer.clear();
+      Codecs.putVarLong(values[i], buffer);
+      assertEquals("Unexpected size for " + values[i], sizes[i], buffer.position());
+      buffer.flip();
+      assertEquals("The value should round trip", values[i], Codecs.getVarLong(buffer));
+    }
+  }
+
+  /**
+   * Test that signed varints round trip and that small negative values take a single byte.
+   */
+  @Test
+  public void testSignedVarLong() {
+    LOGGER.log(Level.INFO, "testSignedVarLong: Test that signed varints round trip");
+    ByteBuffer buffer = ByteBuffer.allocate(10);
+    for (long value : new long[] {0, 1, -1, 63, -64, Long.MAX_VALUE, Long.MIN_VALUE}) {
+      buffer.clear();
+      Codecs.putSignedVarLong(value, buffer);
+      if (value >= -64 && value <= 63) {
+        assertEquals("Small values should take a single byte", 1, buffer.position());
+      }
+      buffer.flip();
+      assertEquals("The value should round trip", value, Codecs.getSignedVarLong(buffer));
+    }
+    for (int value : new int[] {0, 1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE}) {
+      buffer.clear();
+      Codecs.putSignedVarInt(value, buffer);
+      buffer.flip();
+      assertEquals("The value should round trip", value, Codecs.getSignedVarInt(buffer));
+    }
+  }
+
+  /**
+   * Test that a varint which does not end is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetVarLong_Malformed() {
+    LOGGER.log(Level.INFO, "testGetVarLong_Malformed: Test that an endless varint is rejected");
+    byte[] bytes = new byte[11];
+    Arrays.fill(bytes, (byte) 0x80);
+    Codecs.getVarLong(ByteBuffer.wrap(bytes));
+  }
+
+  /**
+   * Test that a varint which has bits beyond the 64th is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetVarLong_Overflow() {
+    LOGGER.log(Level.INFO, "testGetVarLong_Overflow: Test that a varint over 64 bits is rejected");
+    byte[] bytes = new byte[10];
+    Arrays.fill(bytes, (byte) 0xff);
+    bytes[9] = 0x03;
+    Codecs.getVarLong(ByteBuffer.wrap(bytes));
+  }
+
+  /**
+   * Test that a varint which is too large for an integer is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetVarInt_OutOfRange() {
+    LOGGER.log(Level.INFO, "testGetVarInt_OutOfRange: Test that a large varint is rejected");
+    ByteBuffer buffer = ByteBuffer.allocate(10);
+    Codecs.putVarLong(1l << 32, buffer);
+    buffer.flip();
+    Codecs.getVarInt(buffer);
+  }
+
+  /**
+   * Test encoding the differences between ordered values.
+   */
+  @Test
+  public void testDelta() {
+    LOGGER.log(Level.INFO, "testDelta: Test encoding the differences between ordered values");
+    ByteBuffer buffer = ByteBuffer.allocate(32);
+    Codecs.INTEGER.encodeDelta(Integer.MAX_VALUE, Integer.MIN_VALUE, buffer);
+    Codecs.INTEGER.encodeDelta(1001, 1000, buffer);
+    Codecs.LONG.encodeDelta(Long.MAX_VALUE, Long.MIN_VALUE, buffer);
+    buffer.flip();
+    assertEquals((Integer) Integer.MAX_VALUE,
+        Codecs.INTEGER.decodeDelta(Integer.MIN_VALUE, buffer));
+    int position = buffer.position();
+    assertEquals((Integer) 1001, Codecs.INTEGER.decodeDelta(1000, buffer));
+    assertEquals("A small difference should take a single byte", 1,
+        buffer.position() - position);
+    assertEquals((Long) Long.MAX_VALUE, Codecs.LONG.decodeDelta(Long.MIN_VALUE, buffer));
+  }
+
+  /**
+   * Test that a value cannot be encoded as a difference from a greater value.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testDelta_Decreasing() {
+    LOGGER.log(Level.INFO, "testDelta_Decreasing: Test that a decreasing difference is rejected");
+    Codecs.INTEGER.encodeDelta(1, 2, ByteBuffer.allocate(10));
+  }
+
+  /**
+   * Test the codecs for common types.
+   */
+  @Test
+  public void testCodecs() {
+    LOGGER.log(Level.INFO, "testCodecs: Test the codecs for common types");
+    assertEquals((Integer) (-12345), roundTrip(Codecs.INTEGER, -12345));
+    assertEquals((Long) Long.MIN_VALUE, roundTrip(Codecs.LONG, Long.MIN_VALUE));
+    assertEquals("h\u00e9llo \u4e16\u754c", roundTrip(Codecs.STRING, "h\u00e9llo \u4e16\u754c"));
+    assertEquals("", roundTrip(Codecs.STRING, ""));
+    assertEquals(Colour.BLUE, roundTrip(Codecs.enumeration(Colour.class), Colour.BLUE));
+    assertEquals(Arrays.asList(1, 2),
+        roundTrip(Codecs.<ArrayList<Integer>>serializable(), new ArrayList<>(Arrays.asList(1, 2))));
+    assertNull(roundTrip(Codecs.<String>serializable(), null));
+    assertNull(roundTrip(Codecs.nullable(Codecs.STRING), null));
+    assertEquals("value", roundTrip(Codecs.nullable(Codecs.STRING), "value"));
+
+    final Set<Integer> set = new HashSet<>();
+    for (int i = -100; i < 100; i++) {
+      set.add(i);
+    }
+    assertEquals(set, roundTrip(Codecs.set(Codecs.INTEGER), set));
+  }
+
+  /**
+   * Test that an invalid enum ordinal is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testEnumeration_Invalid() {
+    LOGGER.log(Level.INFO, "testEnumeration_Invalid: Test that an invalid ordinal is rejected");
+    Codecs.enumeration(Colour.class).decode(ByteBuffer.wrap(new byte[] {3}));
+  }
+
+  /**
+   * Test that encode reuses a buffer which is large enough and replaces one which is not.
+   */
+  @Test
+  public void testEncode_Buffer() {
+    LOGGER.log(Level.INFO, "testEncode_Buffer: Test that encode reuses a large enough buffer");
+    final ByteBuffer buffer = ByteBuffer.allocate(8);
+    buffer.put((byte) 1);
+
+    ByteBuffer result = Codecs.encode(Codecs.STRING, "abc", buffer);
+    assertSame("A large enough buffer should be reused", buffer, result);
+    assertEquals("The buffer should only contain the value", 4, result.remaining());
+
+    result = Codecs.encode(Codecs.STRING, "a longer string", buffer);
+    assertNotSame("A buffer which is too small should be replaced", buffer, result);
+    assertEquals("a longer string", Codecs.STRING.decode(result));
+  }
+
+}
@@ -25,16 +25,19 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.Timeout;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import uk.ac.soton.ecs.fl4g12.crdt.order.Version;
 import uk.ac.soton.ecs.fl4g12.crdt.util.TestUtil;
@@ -676,4 +679,120 @@ public abstract class DeliveryExchangeAbstractTest<K, M extends VersionedUpdateM
 
   // TODO: Test that channels are closed with exchnage.
 
+  /**
+   * Test that a message is acknowledged to the channel which published it once it has been received
+   * by every destination, and not before.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testPublish_Acknowledge() throws Exception {
+    LOGGER.log(Level.INFO, "testPublish_Acknowledge: "
+        + "Test that a message is acknowledged to its source once every destination has it");
+
+    // Get the DeliveryExchange
+    try (X exchange = getDeliveryExchange()) {
+      // Register a source and two destination channels, one of which fails to receive once
+      DeliveryChannel<K, M, ?> source = getDeliveryChannel(exchange, getIdentifier(0));
+      exchange.register(source);
+      DeliveryChannel<K, M, ?> destination = getDeliveryChannel(exchange, getIdentifier(1));
+      exchange.register(destination);
+      DeliveryChannel<K, M, ?> failing = getDeliveryChannel(exchange, getIdentifier(2));
+      exchange.register(failing);
+
+      // Create and send the message
+      M message = getUpdateMessage(source.getIdentifier(), 1);
+      Mockito.doThrow(IllegalStateException.class).doNothing().when(failing).receive(message);
+      exchange.publish(message);
+      triggerDelivery(exchange);
+
+      // Wait for the exchange to deliver, including the retry
+      DeliveryUtils.waitForDelivery(exchange);
+
+      // Verify that only the source was acknowledged, once, after every destination had received
+      InOrder inOrder = Mockito.inOrder(failing, source);
+      inOrder.verify(failing, Mockito.times(2)).receive(message);
+      inOrder.verify(source).acknowledge(message);
+      Mockito.verify(destination).receive(message);
+      Mockito.verify(destination, Mockito.never()).acknowledge((M) Mockito.any());
+      Mockito.verify(failing, Mockito.never()).acknowledge((M) Mockito.any());
+    }
+  }
+
+  /**
+   * Test that the future returned when publishing completes once every destination has the
+   * message.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testPublish_Future() throws Exception {
+    LOGGER.log(Level.INFO, "testPublish_Future: "
+        + "Test that the publish future completes once every destination has the message");
+
+    // Get the DeliveryExchange
+    try (X exchange = getDeliveryExchange()) {
+      DeliveryChannel<K, M, ?> source = getDeliveryChannel(exchange, getIdentifier(0));
+      exchange.register(source);
+      DeliveryChannel<K, M, ?> destination1 = getDeliveryChannel(exchange, getIdentifier(1));
+      exchange.register(destination1);
+      DeliveryChannel<K, M, ?> destination2 = getDeliveryChannel(exchange, getIdentifier(2));
+      exchange.register(destination2);
+
+      // Publish and wait for the future
+      M message = getUpdateMessage(source.getIdentifier(), 1);
+      CompletableFuture<Void> future = exchange.publish(message);
+      triggerDelivery(exchange);
+      future.get(BUFFER_TIME, TimeUnit.MILLISECONDS);
+
+      // Every destination should have the message and the source should have been acknowledged
+      Mockito.verify(destination1).receive(message);
+      Mockito.verify(destination2).receive(message);
+      Mockito.verify(source).acknowledge(message);
+    }
+  }
+
+  /**
+   * Test that the future returned when publishing to a quorum completes once that many destinations
+   * have the message, while the future for every destination does not.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testPublish_Quorum() throws Exception {
+    LOGGER.log(Level.INFO, "testPublish_Quorum: "
+        + "Test that the publish future completes once a quorum of destinations have the message");
+
+    // Get the DeliveryExchange
+    try (X exchange = getDeliveryExchange()) {
+      // Register a source and two destination channels, one of which always fails to receive
+      DeliveryChannel<K, M, ?> source = getDeliveryChannel(exchange, getIdentifier(0));
+      exchange.register(source);
+      DeliveryChannel<K, M, ?> destination = getDeliveryChannel(exchange, getIdentifier(1));
+      exchange.register(destination);
+      DeliveryChannel<K, M, ?> failing = getDeliveryChannel(exchange, getIdentifier(2));
+      exchange.register(failing);
+      Mockito.doThrow(IllegalStateException.class).when(failing)
+          .receive((M) Mockito.any());
+
+      // A quorum of one is reached by the destination which does not fail
+      M message1 = getUpdateMessage(source.getIdentifier(), 1);
+      CompletableFuture<Void> quorum = exchange.publish(message1, 1);
+      triggerDelivery(exchange);
+      quorum.get(BUFFER_TIME, TimeUnit.MILLISECONDS);
+      Mockito.verify(destination).receive(message1);
+
+      // Every destination is never reached
+      M message2 = getUpdateMessage(source.getIdentifier(), 2);
+      CompletableFuture<Void> all = exchange.publish(message2);
+      triggerDelivery(exchange);
+      Mockito.verify(destination, Mockito.timeout(BUFFER_TIME)).receive(message2);
+      assertFalse("The future should not complete until every destination has the message",
+          all.isDone());
+      Mockito.verify(source, Mockito.never()).acknowledge((M) Mockito.any());
+      assertTrue("A future for a quorum of none should complete immediately",
+          exchange.publish(getUpdateMessage(source.getIdentifier(), 3), 0).isDone());
+    }
+  }
+
 }
@@ -0,0 +1,178 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of {@linkplain DeliveryScheduler} implementations.
+ *
+ * @param <S> the type of {@link DeliveryScheduler} being tested.
+ */
+public abstract class DeliverySchedulerAbstractTest<S extends DeliveryScheduler> {
+
+  private static final long PERIOD = 1;
+  private static final TimeUnit PERIOD_UNIT = TimeUnit.MILLISECONDS;
+  private static final long TIMEOUT = 1;
+  private static final TimeUnit TIMEOUT_UNIT = TimeUnit.SECONDS;
+  private static final int RUNS = 10;
+
+  protected S scheduler;
+
+  /**
+   * Get the {@link DeliveryScheduler} to test.
+   *
+   * @return a new {@link DeliveryScheduler}.
+   */
+  public abstract S getScheduler();
+
+  @Before
+  public void setUp() {
+    scheduler = getScheduler();
+  }
+
+  @After
+  public void tearDown() {
+    scheduler.shutdown();
+  }
+
+  /**
+   * Test that executed tasks are run.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testExecute() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(RUNS);
+    for (int i = 0; i < RUNS; i++) {
+      scheduler.execute(new Runnable() {
+        @Override
+        public void run() {
+          latch.countDown();
+        }
+      });
+    }
+    assertTrue(latch.await(TIMEOUT, TIMEOUT_UNIT));
+  }
+
+  /**
+   * Test that a delayed task is run once.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testSchedule() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final AtomicInteger runs = new AtomicInteger();
+    scheduler.schedule(new Runnable() {
+      @Override
+      public void run() {
+        runs.incrementAndGet();
+        latch.countDown();
+      }
+    }, PERIOD, PERIOD_UNIT);
+
+    assertTrue(latch.await(TIMEOUT, TIMEOUT_UNIT));
+    Thread.sleep(10 * PERIOD);
+    assertEquals(1, runs.get());
+  }
+
+  /**
+   * Test that a periodic task is run repeatedly and is never run concurrently with itself, even if
+   * it takes longer than the period.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testScheduleAtFixedRate_Serial() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(RUNS);
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger overlaps = new AtomicInteger();
+    ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        if (running.incrementAndGet() > 1) {
+          overlaps.incrementAndGet();
+        }
+        try {
+          Thread.sleep(5 * PERIOD);
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+        running.decrementAndGet();
+        latch.countDown();
+      }
+    }, 0, PERIOD, PERIOD_UNIT);
+
+    assertTrue(latch.await(TIMEOUT, TIMEOUT_UNIT));
+    future.cancel(false);
+    assertEquals(0, overlaps.get());
+  }
+
+  /**
+   * Test that a periodic task is not run after it has been cancelled.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testScheduleAtFixedRate_Cancel() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final AtomicInteger runs = new AtomicInteger();
+    ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        runs.incrementAndGet();
+        latch.countDown();
+      }
+    }, 0, PERIOD, PERIOD_UNIT);
+
+    assertTrue(latch.await(TIMEOUT, TIMEOUT_UNIT));
+    future.cancel(false);
+    // Allow any run that had already started to complete.
+    Thread.sleep(10 * PERIOD);
+    int cancelledRuns = runs.get();
+    Thread.sleep(10 * PERIOD);
+    assertEquals(cancelledRuns, runs.get());
+  }
+
+  /**
+   * Test that no new tasks are accepted after shutdown.
+   */
+  @Test(expected = RejectedExecutionException.class)
+  public void testShutdown() {
+    scheduler.shutdown();
+    scheduler.execute(new Runnable() {
+      @Override
+      public void run() {}
+    });
+  }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+import org.mockito.Mockito;
+import uk.ac.soton.ecs.fl4g12.crdt.order.IntegerVersion;
+
+/**
+ * Tests of {@linkplain DeltaStateSelector}.
+ */
+public class DeltaStateSelectorTest {
+
+  private final StateSnapshot<Integer, IntegerVersion> snapshot = Mockito.mock(StateSnapshot.class);
+  private final StateSnapshot<Integer, IntegerVersion> delta = Mockito.mock(StateSnapshot.class);
+
+  private DeltaStatefulUpdatable<Integer, IntegerVersion, StateSnapshot<Integer, IntegerVersion>>
+      getUpdatable() {
+    DeltaStatefulUpdatable<Integer, IntegerVersion, StateSnapshot<Integer, IntegerVersion>>
+        updatable = Mockito.mock(DeltaStatefulUpdatable.class);
+    Mockito.doReturn(snapshot).when(updatable).snapshot();
+    Mockito.doReturn(delta).when(updatable).delta();
+    Mockito.doReturn(snapshot).when(updatable).restartDelta();
+    return updatable;
+  }
+
+  /**
+   * Ensure that a {@linkplain DeltaStateSelector} cannot be created with an interval less than 1.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_InvalidInterval() {
+    new DeltaStateSelector<>(0);
+  }
+
+  /**
+   * Ensure that only full snapshots are published with an interval of 1.
+   */
+  @Test
+  public void testNext_FullState() {
+    DeltaStatefulUpdatable<Integer, IntegerVersion, StateSnapshot<Integer, IntegerVersion>>
+        updatable = getUpdatable();
+    DeltaStateSelector<StateSnapshot<Integer, IntegerVersion>> selector =
+        new DeltaStateSelector<>(1);
+
+    for (int i = 0; i < 3; i++) {
+      assertSame("Message " + i + " should be a snapshot", snapshot,
+          selector.next(updatable, true));
+    }
+    Mockito.verify(updatable, Mockito.never()).delta();
+  }
+
+  /**
+   * Ensure that only full snapshots are published when the updatable does not support deltas.
+   */
+  @Test
+  public void testNext_NotDelta() {
+    StatefulUpdatable<Integer, IntegerVersion, StateSnapshot<Integer, IntegerVersion>> updatable =
+        Mockito.mock(StatefulUpdatable.class);
+    Mockito.doReturn(snapshot).when(updatable).snapshot();
+    DeltaStateSelector<StateSnapshot<Integer, IntegerVersion>> selector =
+        new DeltaStateSelector<>(3);
+
+    for (int i = 0; i < 3; i++) {
+      assertSame("Message " + i + " should be a snapshot", snapshot,
+          selector.next(updatable, true));
+    }
+  }
+
+  /**
+   * Ensure that a full snapshot is published every {@code fullStateInterval} messages.
+   */
+  @Test
+  public void testNext_Interval() {
+    DeltaStatefulUpdatable<Integer, IntegerVersion, StateSnapshot<Integer, IntegerVersion>>
+        updatable = getUpdatable();
+    DeltaStateSelector<StateSnapshot<Integer, IntegerVersion>> selector =
+        new DeltaStateSelector<>(3);
+
+    for (int i = 0; i < 2; i++) {
+      assertSame("Message 0 should be a delta", delta, selector.next(updatable, true));
+      assertSame("Message 1 should be a delta", delta, selector.next(updatable, true));
+      assertSame("Message 2 should be a snapshot", snapshot, selector.next(updatable, true));
+    }
+    // Only the snapshots which are published restart the delta.
+    Mockito.verify(updatable, Mockito.times(2)).restartDelta();
+    Mockito.verify(updatable, Mockito.never()).snapshot();
+  }
+
+  /**
+   * Ensure that when there is no delta nothing is published and the interval is unaffected.
+   */
+  @Test
+  public void testNext_NoDelta() {
+    DeltaStatefulUpdatable<Integer, IntegerVersion, StateSnapshot<Integer, IntegerVersion>>
+        updatable = getUpdatable();
+    DeltaStateSelector<StateSnapshot<Integer, IntegerVersion>> selector =
+        new DeltaStateSelector<>(2);
+
+    assertSame("Message 0 should be a delta", delta, selector.next(updatable, true));
+    Mockito.doReturn(null).when(updatable).delta();
+    assertSame("Message 1 should be a snapshot", snapshot, selector.next(updatable, true));
+    assertNull("There should be nothing to publish", selector.next(updatable, true));
+    assertNull("There should still be nothing to publish", selector.next(updatable, true));
+  }
+
+  /**
+   * Ensure that a full snapshot which is due is deferred while the previous full snapshot has not
+   * been replicated, for at most another {@code fullStateInterval} messages.
+   */
+  @Test
+  public void testNext_Unreplicated() {
+    DeltaStatefulUpdatable<Integer, IntegerVersion, StateSnapshot<Integer, IntegerVersion>>
+        updatable = getUpdatable();
+    DeltaStateSelector<StateSnapshot<Integer, IntegerVersion>> selector =
+        new DeltaStateSelector<>(2);
+
+    assertNull("No full snapshot should have been published", selector.getFullState());
+    assertSame("Message 0 should be a delta", delta, selector.next(updatable, true));
+    assertSame("Message 1 should be a snapshot", snapshot, selector.next(updatable, true));
+    assertSame("The full snapshot should be recorded", snapshot, selector.getFullState());
+
+    assertSame("Message 2 should be a delta", delta, selector.next(updatable, false));
+    assertSame("Message 3 should be deferred", delta, selector.next(updatable, false));
+    assertSame("Message 4 should be deferred", delta, selector.next(updatable, false));
+    assertSame("Message 5 should no longer be deferred", snapshot,
+        selector.next(updatable, false));
+
+    assertSame("Message 6 should be a delta", delta, selector.next(updatable, false));
+    assertSame("Message 7 should be deferred", delta, selector.next(updatable, false));
+    assertSame("Message 8 should be a snapshot once replicated", snapshot,
+        selector.next(updatable, true));
+  }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import org.junit.Test;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Dot;
+import uk.ac.soton.ecs.fl4g12.crdt.order.IntegerVersion;
+
+/**
+ * Tests for the {@link DotCodec} class.
+ */
+public class DotCodecTest {
+
+  private static final Logger LOGGER = Logger.getLogger(DotCodecTest.class.getName());
+
+  /**
+   * Test that dots round trip as a compact pair of the identifier and the timestamp.
+   */
+  @Test
+  public void testRoundTrip() {
+    LOGGER.log(Level.INFO, "testRoundTrip: Test that dots round trip");
+    final DotCodec<Integer, Integer> codec =
+        new DotCodec<>(Codecs.INTEGER, Codecs.INTEGER, new IntegerVersion());
+    final IntegerVersion version = new IntegerVersion();
+    version.sync(42);
+    final Dot<Integer, Integer> dot = new Dot<>(7, version);
+
+    ByteBuffer buffer = Codecs.encode(codec, dot, ByteBuffer.allocate(16));
+    assertEquals("A small dot should take a byte for each component", 2, buffer.remaining());
+
+    Dot<Integer, Integer> result = codec.decode(buffer);
+    assertFalse("The whole encoding should have been decoded", buffer.hasRemaining());
+    assertEquals("The dot should round trip", dot, result);
+
+    Dot<Integer, Integer> zero = codec
+        .decode(Codecs.encode(codec, new Dot<>(1, new IntegerVersion()), ByteBuffer.allocate(16)));
+    assertEquals("A zero dot should round trip", (Integer) 0, zero.get());
+    assertEquals("Decoded dots should not share their versions", (Integer) 42, result.get());
+  }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+import org.mockito.Mockito;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Dot;
+import uk.ac.soton.ecs.fl4g12.crdt.order.IntegerVersion;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Version;
+
+/**
+ *
+ */
+public class EventDrivenReliableDeliveryChannelTest extends
+    ReliableDeliveryChannelAbstractTest<Integer, VersionedUpdateMessage<Integer, ?>, EventDrivenReliableDeliveryChannel<Integer, VersionedUpdateMessage<Integer, ?>>> {
+
+  private static final Logger LOGGER =
+      Logger.getLogger(EventDrivenReliableDeliveryChannelTest.class.getName());
+
+  @Override
+  public Integer getIdentifier(int i) {
+    return i;
+  }
+
+  @Override
+  public VersionedUpdateMessage<Integer, ?> getUpdateMessage(Integer identifier, Version version) {
+    return new BasicVersionedUpdateMessage<>(identifier, version);
+  }
+
+  @Override
+  public Version getVersion(int order) {
+    IntegerVersion version = new IntegerVersion();
+    version.sync(order);
+    return version;
+  }
+
+  @Override
+  public EventDrivenReliableDeliveryChannel<Integer, VersionedUpdateMessage<Integer, ?>> getDeliveryChannel() {
+    DeliveryExchange<Integer, VersionedUpdateMessage<Integer, ?>> exchange =
+        Mockito.mock(DeliveryExchange.class);
+    return new EventDrivenReliableDeliveryChannel<>(exchange);
+  }
+
+  /**
+   * Test that a {@linkplain DottedUpdateMessage} is acknowledged by its {@linkplain Dot}, so that
+   * an acknowledgement need not be made with the instance which was published.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testAcknowledge_Dot() throws Exception {
+    LOGGER.log(Level.INFO, "testAcknowledge_Dot: "
+        + "Test that dotted messages are acknowledged by their dot");
+    try (EventDrivenReliableDeliveryChannel<Integer, VersionedUpdateMessage<Integer, ?>> channel =
+        getDeliveryChannel()) {
+      channel.register(getUpdatable(channel, getIdentifier(0)));
+
+      IntegerVersion version = new IntegerVersion();
+      version.increment();
+      VersionedUpdateMessage<Integer, ?> message =
+          new AbstractDottedUpdateMessage<>(new Dot<>(0, version));
+      channel.publish(message);
+
+      channel.acknowledge(new AbstractDottedUpdateMessage<>(new Dot<>(0, version.copy())));
+      assertSame("The watermark should reach the published message", message,
+          channel.getReplicatedUpTo());
+    }
+  }
+
+  /**
+   * Test that a message which is not a {@linkplain DottedUpdateMessage} is only acknowledged by the
+   * instance which was published, even if another message is equal to it.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testAcknowledge_Reference() throws Exception {
+    LOGGER.log(Level.INFO, "testAcknowledge_Reference: "
+        + "Test that other messages are only acknowledged by the published instance");
+    try (EventDrivenReliableDeliveryChannel<Integer, VersionedUpdateMessage<Integer, ?>> channel =
+        getDeliveryChannel()) {
+      channel.register(getUpdatable(channel, getIdentifier(0)));
+
+      VersionedUpdateMessage<Integer, ?> message = getUpdateMessage(getIdentifier(0), 1);
+      channel.publish(message);
+
+      channel.acknowledge(getUpdateMessage(getIdentifier(0), 1));
+      assertNull("An equal message should not be acknowledged", channel.getReplicatedUpTo());
+      channel.acknowledge(message);
+      assertSame("The watermark should reach the published message", message,
+          channel.getReplicatedUpTo());
+    }
+  }
+
+  /**
+   * Test that a message which failed for a reason other than its dependencies is retried even if
+   * no other message is received.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testDoUpdates_FailureRetried() throws Exception {
+    LOGGER.log(Level.INFO, "testDoUpdates_FailureRetried: "
+        + "Test that a failed message is retried on an otherwise idle channel");
+    try (EventDrivenReliableDeliveryChannel<Integer, VersionedUpdateMessage<Integer, ?>> channel =
+        getDeliveryChannel()) {
+      VersionedUpdatable<Integer, ?, VersionedUpdateMessage<Integer, ?>> updatable =
+          getUpdatable(channel, getIdentifier(0));
+      channel.register(updatable);
+
+      VersionedUpdateMessage<Integer, ?> message = getUpdateMessage(getIdentifier(1), 0);
+      Mockito.doThrow(new RuntimeException("Failed update")).doNothing().when(updatable)
+          .update(message);
+      channel.receive(message);
+
+      Mockito.verify(updatable, Mockito.timeout(5000).times(2)).update(message);
+    }
+  }
+
+}
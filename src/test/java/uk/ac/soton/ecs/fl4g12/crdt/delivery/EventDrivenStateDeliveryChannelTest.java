@@ -0,0 +1,80 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import uk.ac.soton.ecs.fl4g12.crdt.order.IntegerVersion;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Version;
+
+/**
+ *
+ */
+public class EventDrivenStateDeliveryChannelTest extends
+    StateDeliveryChannelAbstractTest<Integer, StateSnapshot<Integer, ?>, EventDrivenStateDeliveryChannel<Integer, StateSnapshot<Integer, ?>>> {
+
+  @Override
+  public Integer getIdentifier(int i) {
+    return i;
+  }
+
+  @Override
+  public StateSnapshot<Integer, ?> getUpdateMessage() {
+    return Mockito.mock(StateSnapshot.class);
+  }
+
+  @Override
+  public Version getVersion(int order) {
+    IntegerVersion version = new IntegerVersion();
+    version.sync(order);
+    return version;
+  }
+
+  @Override
+  public EventDrivenStateDeliveryChannel<Integer, StateSnapshot<Integer, ?>> getDeliveryChannel() {
+    DeliveryExchange<Integer, StateSnapshot<Integer, ?>> exchange =
+        Mockito.mock(DeliveryExchange.class);
+    return new EventDrivenStateDeliveryChannel<>(exchange);
+  }
+
+  /**
+   * Test that a message which fails to apply is retried without another event on the channel.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testReceive_FailureRetried() throws Exception {
+    try (EventDrivenStateDeliveryChannel<Integer, StateSnapshot<Integer, ?>> channel =
+        getDeliveryChannel()) {
+      StatefulUpdatable<Integer, ?, StateSnapshot<Integer, ?>> updatable =
+          getUpdatable(channel, getIdentifier(0));
+      channel.register(updatable);
+
+      StateSnapshot<Integer, ?> message = getUpdateMessage(getIdentifier(1), 1);
+      Mockito.doThrow(RuntimeException.class).doNothing().when(updatable).update(message);
+      channel.receive(message);
+
+      Mockito.verify(updatable, Mockito.timeout(5000).times(2)).update(message);
+    }
+  }
+
+}
@@ -21,10 +21,19 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.delivery;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import java.util.logging.Logger;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import uk.ac.soton.ecs.fl4g12.crdt.idenitifier.IncrementalIntegerIdentifierFactory;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Dot;
 import uk.ac.soton.ecs.fl4g12.crdt.order.IntegerVersion;
 import uk.ac.soton.ecs.fl4g12.crdt.order.Version;
 
@@ -63,4 +72,183 @@ public class LocalDeliveryExchangeTest extends
     return version;
   }
 
+  /**
+   * Test that a destination which is slow to receive a message does not delay delivery to the
+   * other destinations.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testPublish_SlowDestination() throws Exception {
+    LOGGER.log(Level.INFO, "testPublish_SlowDestination: "
+        + "Test that a slow destination does not delay delivery to other destinations");
+
+    final CountDownLatch latch = new CountDownLatch(1);
+    try (LocalDeliveryExchange<Integer, VersionedUpdateMessage<Integer, ?>> exchange =
+        getDeliveryExchange()) {
+      // Register a source, a destination and a destination which blocks until released
+      DeliveryChannel<Integer, VersionedUpdateMessage<Integer, ?>, ?> source =
+          getDeliveryChannel(exchange, 0);
+      exchange.register(source);
+      DeliveryChannel<Integer, VersionedUpdateMessage<Integer, ?>, ?> slow =
+          getDeliveryChannel(exchange, 1);
+      exchange.register(slow);
+      DeliveryChannel<Integer, VersionedUpdateMessage<Integer, ?>, ?> destination =
+          getDeliveryChannel(exchange, 2);
+      exchange.register(destination);
+
+      VersionedUpdateMessage<Integer, ?> message1 = getUpdateMessage(0, 1);
+      VersionedUpdateMessage<Integer, ?> message2 = getUpdateMessage(0, 2);
+      Mockito.doAnswer(new Answer<Void>() {
+        @Override
+        public Void answer(InvocationOnMock invocation) throws Throwable {
+          latch.await();
+          return null;
+        }
+      }).when(slow).receive(message1);
+
+      // Both messages should reach the other destination while the slow one is blocked
+      exchange.publish(message1);
+      exchange.publish(message2);
+      Mockito.verify(destination, Mockito.timeout(BUFFER_TIME)).receive(message1);
+      Mockito.verify(destination, Mockito.timeout(BUFFER_TIME)).receive(message2);
+      Mockito.verify(slow, Mockito.never()).receive(message2);
+      Mockito.verify(source, Mockito.never())
+          .acknowledge(Mockito.<VersionedUpdateMessage<Integer, ?>>any());
+
+      // Once released the slow destination receives the rest in order
+      latch.countDown();
+      DeliveryUtils.waitForDelivery(exchange);
+      InOrder inOrder = Mockito.inOrder(slow, source);
+      inOrder.verify(slow).receive(message1);
+      inOrder.verify(source).acknowledge(message1);
+      Mockito.verify(slow).receive(message2);
+      Mockito.verify(source).acknowledge(message2);
+    } finally {
+      latch.countDown();
+    }
+  }
+
+  /**
+   * Test that publishing a second message with the same {@linkplain Dot} as a message which is
+   * still being delivered is rejected.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testPublish_DuplicateDot() throws Exception {
+    LOGGER.log(Level.INFO, "testPublish_DuplicateDot: "
+        + "Test that a message with the same dot as a pending message is rejected");
+
+    final CountDownLatch latch = new CountDownLatch(1);
+    try (LocalDeliveryExchange<Integer, VersionedUpdateMessage<Integer, ?>> exchange =
+        getDeliveryExchange()) {
+      // Register a source and a destination which blocks until released
+      DeliveryChannel<Integer, VersionedUpdateMessage<Integer, ?>, ?> source =
+          getDeliveryChannel(exchange, 0);
+      exchange.register(source);
+      DeliveryChannel<Integer, VersionedUpdateMessage<Integer, ?>, ?> destination =
+          getDeliveryChannel(exchange, 1);
+      exchange.register(destination);
+      Mockito.doAnswer(new Answer<Void>() {
+        @Override
+        public Void answer(InvocationOnMock invocation) throws Throwable {
+          latch.await();
+          return null;
+        }
+      }).when(destination).receive(Mockito.<VersionedUpdateMessage<Integer, ?>>any());
+
+      IntegerVersion version = new IntegerVersion();
+      version.increment();
+      exchange.publish(new AbstractDottedUpdateMessage<>(new Dot<>(0, version)));
+
+      thrown.expect(IllegalStateException.class);
+      exchange.publish(new AbstractDottedUpdateMessage<>(new Dot<>(0, version)));
+    } finally {
+      latch.countDown();
+    }
+  }
+
+  /**
+   * Test that the exchange is congested for a source while a destination has a full outbox, and
+   * not for the destination itself.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testIsCongested() throws Exception {
+    LOGGER.log(Level.INFO, "testIsCongested: "
+        + "Test that a full outbox congests the sources of the messages in it");
+
+    final CountDownLatch latch = new CountDownLatch(1);
+    try (LocalDeliveryExchange<Integer, VersionedUpdateMessage<Integer, ?>> exchange =
+        getDeliveryExchange()) {
+      exchange.setOutboxCapacity(1);
+
+      // Register a source and a destination which blocks until released
+      DeliveryChannel<Integer, VersionedUpdateMessage<Integer, ?>, ?> source =
+          getDeliveryChannel(exchange, 0);
+      exchange.register(source);
+      DeliveryChannel<Integer, VersionedUpdateMessage<Integer, ?>, ?> destination =
+          getDeliveryChannel(exchange, 1);
+      exchange.register(destination);
+      Mockito.doAnswer(new Answer<Void>() {
+        @Override
+        public Void answer(InvocationOnMock invocation) throws Throwable {
+          latch.await();
+          return null;
+        }
+      }).when(destination).receive(Mockito.<VersionedUpdateMessage<Integer, ?>>any());
+
+      assertFalse("The exchange should not be congested", exchange.isCongested(0));
+      exchange.publish(getUpdateMessage(0, 1));
+      assertTrue("The exchange should be congested for the source", exchange.isCongested(0));
+      assertFalse("The exchange should not be congested for the destination",
+          exchange.isCongested(1));
+
+      latch.countDown();
+      DeliveryUtils.waitForDelivery(exchange);
+      assertFalse("The exchange should not be congested once delivered", exchange.isCongested(0));
+    } finally {
+      latch.countDown();
+    }
+  }
+
+  /**
+   * Test that a destination whose channel has been closed is removed from the exchange, and that
+   * the messages waiting for it are still acknowledged to their source.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testPublish_ClosedDestination() throws Exception {
+    LOGGER.log(Level.INFO, "testPublish_ClosedDestination: "
+        + "Test that a closed destination does not hold up acknowledgements");
+
+    try (LocalDeliveryExchange<Integer, VersionedUpdateMessage<Integer, ?>> exchange =
+        getDeliveryExchange()) {
+      DeliveryChannel<Integer, VersionedUpdateMessage<Integer, ?>, ?> source =
+          getDeliveryChannel(exchange, 0);
+      exchange.register(source);
+
+      // Register a destination and close it
+      EventDrivenReliableDeliveryChannel<Integer, VersionedUpdateMessage<Integer, ?>> destination =
+          new EventDrivenReliableDeliveryChannel<>(exchange);
+      VersionedUpdatable<Integer, ?, VersionedUpdateMessage<Integer, ?>> updatable =
+          Mockito.mock(VersionedUpdatable.class);
+      Mockito.doReturn(destination).when(updatable).getDeliveryChannel();
+      destination.register(updatable);
+      destination.close();
+
+      // The messages published to the closed destination should be acknowledged
+      VersionedUpdateMessage<Integer, ?> message1 = getUpdateMessage(0, 1);
+      VersionedUpdateMessage<Integer, ?> message2 = getUpdateMessage(0, 2);
+      exchange.publish(message1).get(BUFFER_TIME, TIME_UNIT);
+      exchange.publish(message2).get(BUFFER_TIME, TIME_UNIT);
+      Mockito.verify(source).acknowledge(message1);
+      Mockito.verify(source).acknowledge(message2);
+      assertFalse("There should be no pending deliveries", exchange.hasPendingDeliveries());
+    }
+  }
+
 }
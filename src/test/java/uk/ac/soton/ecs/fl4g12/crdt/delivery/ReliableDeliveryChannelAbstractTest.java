@@ -24,11 +24,23 @@ package uk.ac.soton.ecs.fl4g12.crdt.delivery;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import org.junit.Test;
 import org.mockito.InOrder;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import static uk.ac.soton.ecs.fl4g12.crdt.delivery.DeliveryChannelAbstractTest.MESSAGES;
 import uk.ac.soton.ecs.fl4g12.crdt.order.Version;
 
@@ -158,6 +170,48 @@ public abstract class ReliableDeliveryChannelAbstractTest<K, M extends Versioned
     }
   }
 
+  /**
+   * Test that the replication watermark only advances past messages once they, and every message
+   * published before them, have been acknowledged.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testAcknowledge_Watermark() throws Exception {
+    LOGGER.log(Level.INFO, "testAcknowledge_Watermark: "
+        + "Test that the watermark only advances past acknowledged prefixes of published messages");
+    try (C channel = getDeliveryChannel()) {
+      VersionedUpdatable<K, ?, M> updatable = getUpdatable(channel, getIdentifier(0));
+      channel.register(updatable);
+
+      List<M> messages = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        M message = getUpdateMessage(getIdentifier(0), i);
+        channel.publish(message);
+        messages.add(message);
+      }
+      assertNull("Nothing should be replicated before any acknowledgement",
+          channel.getReplicatedUpTo());
+
+      channel.acknowledge(messages.get(1));
+      assertNull("The watermark should not pass an unacknowledged message",
+          channel.getReplicatedUpTo());
+
+      channel.acknowledge(messages.get(0));
+      assertSame("The watermark should advance past every acknowledged message", messages.get(1),
+          channel.getReplicatedUpTo());
+
+      channel.acknowledge(getUpdateMessage(getIdentifier(1), 5));
+      channel.acknowledge(messages.get(0));
+      assertSame("Unknown and repeated acknowledgements should be ignored", messages.get(1),
+          channel.getReplicatedUpTo());
+
+      channel.acknowledge(messages.get(2));
+      assertSame("The watermark should reach the last message", messages.get(2),
+          channel.getReplicatedUpTo());
+    }
+  }
+
   public static class BasicVersionedUpdateMessage<K, V extends Version<?, ? super V, V>>
       extends AbstractVersionedUpdateMessage<K, V> {
 
@@ -167,4 +221,151 @@ public abstract class ReliableDeliveryChannelAbstractTest<K, M extends Versioned
 
   }
 
+  /**
+   * Test that the future for a version is completed once the version has been applied and that
+   * futures for versions which are not applied fail when the channel is closed.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testWhenApplied() throws Exception {
+    LOGGER.log(Level.INFO, "testWhenApplied: "
+        + "Test that the future for a version completes once the version has been applied");
+    final AtomicReference<Version> current = new AtomicReference<>(getVersion(0));
+    CompletableFuture<Void> unapplied;
+    try (C channel = getDeliveryChannel()) {
+      VersionedUpdatable<K, ?, M> updatable = getUpdatable(channel, getIdentifier(0));
+      Mockito.doAnswer(new Answer<Version>() {
+        @Override
+        public Version answer(InvocationOnMock invocation) throws Throwable {
+          return current.get();
+        }
+      }).when(updatable).getVersion();
+      Mockito.doAnswer(new Answer<Void>() {
+        @Override
+        public Void answer(InvocationOnMock invocation) throws Throwable {
+          current.set(((M) invocation.getArguments()[0]).getVersion());
+          return null;
+        }
+      }).when(updatable).update((M) Mockito.any());
+      channel.register(updatable);
+
+      CompletableFuture<Void> future = channel.whenApplied(getVersion(2));
+      unapplied = channel.whenApplied(getVersion(MESSAGES));
+      assertFalse("The version should not be applied yet", future.isDone());
+
+      // Receive updates up to the version
+      for (int i = 0; i <= 2; i++) {
+        channel.receive(getUpdateMessage(getIdentifier(1), i));
+      }
+      triggerUpdates(channel);
+
+      future.get(10, TimeUnit.SECONDS);
+      assertTrue("A version which has already been applied should complete immediately",
+          channel.whenApplied(getVersion(1)).isDone());
+      assertFalse("A later version should not be applied", unapplied.isDone());
+    }
+
+    try {
+      unapplied.get(10, TimeUnit.SECONDS);
+      fail("The future should fail once the channel is closed");
+    } catch (ExecutionException ex) {
+      assertTrue("The future should fail because the channel was closed",
+          ex.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  /**
+   * Test that the future for a version made by a local update is completed once the update is
+   * published, without waiting for updates to be received.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testWhenApplied_Local() throws Exception {
+    LOGGER.log(Level.INFO, "testWhenApplied_Local: "
+        + "Test that the future for a local version completes once it is published");
+    final AtomicReference<Version> current = new AtomicReference<>(getVersion(0));
+    try (C channel = getDeliveryChannel()) {
+      VersionedUpdatable<K, ?, M> updatable = getUpdatable(channel, getIdentifier(0));
+      Mockito.doAnswer(new Answer<Version>() {
+        @Override
+        public Version answer(InvocationOnMock invocation) throws Throwable {
+          return current.get();
+        }
+      }).when(updatable).getVersion();
+      channel.register(updatable);
+
+      CompletableFuture<Void> future = channel.whenApplied(getVersion(1));
+      assertFalse("The version should not be applied yet", future.isDone());
+
+      // Make a local update and publish it
+      M message = getUpdateMessage(getIdentifier(0), 1);
+      current.set(message.getVersion());
+      channel.publish(message);
+      assertTrue("The local version should be applied once published", future.isDone());
+    }
+  }
+
+  /**
+   * Test that publishing a message returns the future of the {@link DeliveryExchange}, which is
+   * completed once the message has been delivered.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testPublish_Future() throws Exception {
+    LOGGER.log(Level.INFO, "testPublish_Future: "
+        + "Test that publishing returns the future for the delivery of the message");
+    try (C channel = getDeliveryChannel()) {
+      channel.register(getUpdatable(channel, getIdentifier(0)));
+
+      M message = getUpdateMessage(getIdentifier(0), 1);
+      CompletableFuture<Void> delivered = new CompletableFuture<>();
+      Mockito.doReturn(delivered).when(channel.getExchange()).publish(message);
+      assertSame("The future of the exchange should be returned", delivered,
+          channel.publish(message));
+    }
+  }
+
+  /**
+   * Test that messages are rejected once the inbox is full and accepted again once the held
+   * messages have been applied.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testReceive_InboxFull() throws Exception {
+    LOGGER.log(Level.INFO,
+        "testReceive_InboxFull: Test that messages are rejected once the inbox is full");
+    try (C channel = getDeliveryChannel()) {
+      AbstractDeliveryChannel<K, M, ?> abstractChannel = (AbstractDeliveryChannel<K, M, ?>) channel;
+      abstractChannel.setInboxCapacity(2);
+      VersionedUpdatable<K, ?, M> updatable = getUpdatable(channel, getIdentifier(0));
+      channel.register(updatable);
+
+      // Synchronizing stops updates being applied while the inbox is filled.
+      synchronized (channel) {
+        channel.receive(getUpdateMessage(getIdentifier(1), 0));
+        channel.receive(getUpdateMessage(getIdentifier(1), 1));
+        try {
+          channel.receive(getUpdateMessage(getIdentifier(1), 2));
+          fail("The message should be rejected by the full inbox");
+        } catch (InboxFullException ex) {
+          assertSame("The exception should be for the channel", channel, ex.getChannel());
+        }
+        assertEquals("The rejection should be counted", 1, abstractChannel.getRejectedCount());
+        triggerUpdates(channel);
+      }
+
+      // Once applied there is room again
+      DeliveryUtils.waitForUpdates(channel);
+      M message = getUpdateMessage(getIdentifier(1), 2);
+      channel.receive(message);
+      triggerUpdates(channel);
+      DeliveryUtils.waitForUpdates(channel);
+      Mockito.verify(updatable).update(message);
+    }
+  }
+
 }
@@ -0,0 +1,384 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.AtomicIntegerCounter;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative.CommutativeCounter;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative.CommutativeGSet;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative.CommutativeGSetUpdate;
+import uk.ac.soton.ecs.fl4g12.crdt.datatypes.commutative.CommutativeTwoPhaseSet;
+import uk.ac.soton.ecs.fl4g12.crdt.idenitifier.IncrementalIntegerIdentifierFactory;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Dot;
+import uk.ac.soton.ecs.fl4g12.crdt.order.IntegerVersion;
+
+/**
+ * Tests for the {@linkplain ReplicaGroup}.
+ */
+public class ReplicaGroupTest {
+
+  private static final Logger LOGGER = Logger.getLogger(ReplicaGroupTest.class.getName());
+
+  private static final IncrementalIntegerIdentifierFactory ID_FACTORY =
+      new IncrementalIntegerIdentifierFactory();
+
+  private static ReliableDeliveryChannel<Integer, GroupUpdateMessage<Integer, Integer, String>> getDeliveryChannel() {
+    ReliableDeliveryChannel<Integer, GroupUpdateMessage<Integer, Integer, String>> deliveryChannel =
+        Mockito.mock(ReliableDeliveryChannel.class);
+    Mockito.doReturn(ID_FACTORY.create()).doThrow(IllegalStateException.class)
+        .when(deliveryChannel).register(Mockito.any(VersionedUpdatable.class));
+    return deliveryChannel;
+  }
+
+  private static ReplicaGroup<Integer, Integer, String> getGroup(
+      ReliableDeliveryChannel<Integer, GroupUpdateMessage<Integer, Integer, String>> deliveryChannel) {
+    return new ReplicaGroup<>(new IntegerVersion(), null, deliveryChannel);
+  }
+
+  private static List<GroupUpdateMessage<Integer, Integer, String>> getPublished(
+      ReliableDeliveryChannel<Integer, GroupUpdateMessage<Integer, Integer, String>> deliveryChannel,
+      int count) {
+    ArgumentCaptor<GroupUpdateMessage<Integer, Integer, String>> captor =
+        ArgumentCaptor.forClass(GroupUpdateMessage.class);
+    Mockito.verify(deliveryChannel, Mockito.times(count)).publish(captor.capture());
+    return captor.getAllValues();
+  }
+
+  /**
+   * Test that the members of a group share its identifier and version, that every update takes the
+   * next dot of the group and that the messages are tagged with the object they are for.
+   */
+  @Test
+  public void testPublish_SharedVersion() {
+    LOGGER.log(Level.INFO, "testPublish_SharedVersion");
+    final ReliableDeliveryChannel<Integer, GroupUpdateMessage<Integer, Integer, String>> deliveryChannel =
+        getDeliveryChannel();
+    final ReplicaGroup<Integer, Integer, String> group = getGroup(deliveryChannel);
+    final CommutativeGSet<Integer, Integer, Integer> set = new CommutativeGSet<>(group, "set");
+    final CommutativeCounter<Integer, Integer, Integer> counter =
+        new CommutativeCounter<>(new AtomicIntegerCounter(), group, "counter");
+
+    assertEquals("The set should use the identifier of the group", group.getIdentifier(),
+        set.getIdentifier());
+    assertEquals("The counter should use the identifier of the group", group.getIdentifier(),
+        counter.getIdentifier());
+    assertTrue("The set should be a member of the group", group.isMember("set"));
+    assertTrue("The counter should be a member of the group", group.isMember("counter"));
+
+    set.add(1);
+    counter.increment();
+    set.add(2);
+
+    final List<GroupUpdateMessage<Integer, Integer, String>> published =
+        getPublished(deliveryChannel, 3);
+    assertEquals("The first update should be for the set", "set", published.get(0).getObject());
+    assertEquals("The second update should be for the counter", "counter",
+        published.get(1).getObject());
+    assertEquals("The third update should be for the set", "set", published.get(2).getObject());
+    for (int i = 0; i < published.size(); i++) {
+      assertEquals("Each update should take the next dot of the group", Integer.valueOf(i + 1),
+          published.get(i).getVersion().get());
+    }
+    assertTrue("The members should share the version of the group",
+        group.getVersion().identical(set.getVersion()));
+    assertTrue("The members should share the version of the group",
+        group.getVersion().identical(counter.getVersion()));
+    assertEquals("The version should count the updates to every member", Integer.valueOf(3),
+        group.getVersion().get(group.getIdentifier()));
+  }
+
+  /**
+   * Test that updates received by a group are applied to the member they are for, in any order and
+   * exactly once.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testUpdate_Routed() throws Exception {
+    LOGGER.log(Level.INFO, "testUpdate_Routed");
+    final ReliableDeliveryChannel<Integer, GroupUpdateMessage<Integer, Integer, String>> deliveryChannel1 =
+        getDeliveryChannel();
+    final ReplicaGroup<Integer, Integer, String> group1 = getGroup(deliveryChannel1);
+    final CommutativeGSet<Integer, Integer, Integer> set1 = new CommutativeGSet<>(group1, "set");
+    final CommutativeTwoPhaseSet<Integer, Integer, Integer> twoPhaseSet1 =
+        new CommutativeTwoPhaseSet<>(group1, "2p-set");
+    final ReplicaGroup<Integer, Integer, String> group2 = getGroup(getDeliveryChannel());
+    final CommutativeGSet<Integer, Integer, Integer> set2 = new CommutativeGSet<>(group2, "set");
+    final CommutativeTwoPhaseSet<Integer, Integer, Integer> twoPhaseSet2 =
+        new CommutativeTwoPhaseSet<>(group2, "2p-set");
+
+    set1.add(1);
+    twoPhaseSet1.add(2);
+    twoPhaseSet1.remove(2);
+    set1.add(3);
+    twoPhaseSet1.add(4);
+
+    final List<GroupUpdateMessage<Integer, Integer, String>> published =
+        getPublished(deliveryChannel1, 5);
+    // The last update of each member arrives first, which a single version vector would reject.
+    group2.update(published.get(4));
+    group2.update(published.get(3));
+    assertTrue("The update should be applied ahead of its predecessors", set2.contains(3));
+    assertTrue("The update should be applied ahead of its predecessors", twoPhaseSet2.contains(4));
+    for (GroupUpdateMessage<Integer, Integer, String> message : published) {
+      group2.update(message);
+    }
+    group2.update(published.get(0));
+
+    assertEquals("set2 should have the elements of set1", set1, set2);
+    assertEquals("twoPhaseSet2 should have the elements of twoPhaseSet1", twoPhaseSet1,
+        twoPhaseSet2);
+    assertFalse("The removal should have been applied", twoPhaseSet2.contains(2));
+    assertTrue("Both groups should have the same version",
+        group1.getVersion().identical(group2.getVersion()));
+  }
+
+  /**
+   * Test that an update for an object which has not joined the group is parked and received by the
+   * channel of the group again when the object joins.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testUpdate_UnknownObject() throws Exception {
+    LOGGER.log(Level.INFO, "testUpdate_UnknownObject");
+    final ReliableDeliveryChannel<Integer, GroupUpdateMessage<Integer, Integer, String>> deliveryChannel =
+        getDeliveryChannel();
+    final ReplicaGroup<Integer, Integer, String> group = getGroup(deliveryChannel);
+    final IntegerVersion version = new IntegerVersion();
+    version.increment();
+    final GroupUpdateMessage<Integer, Integer, String> message = new GroupUpdateMessage<>("set",
+        new CommutativeGSetUpdate<>(new Dot<>(ID_FACTORY.create(), version),
+            new HashSet<>(Arrays.asList(1))));
+
+    group.update(message);
+    assertEquals("The update should not be recorded until it is applied", Integer.valueOf(0),
+        group.getVersion().get(message.getIdentifier()));
+    Mockito.verify(deliveryChannel, Mockito.never()).receive(Mockito.any());
+
+    final CommutativeGSet<Integer, Integer, Integer> set = new CommutativeGSet<>(group, "set");
+    Mockito.verify(deliveryChannel).receive(message);
+    group.update(message);
+    assertTrue("The update should be applied once the object has joined", set.contains(1));
+  }
+
+  /**
+   * Test that updates for an object which has not joined the group do not hold up the updates for
+   * other objects from the same node and are applied once the object joins, delivering the
+   * messages through the channels of the groups.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testUpdate_UnknownObject_Channel() throws Exception {
+    LOGGER.log(Level.INFO, "testUpdate_UnknownObject_Channel");
+    final LocalDeliveryExchange<Integer, GroupUpdateMessage<Integer, Integer, String>> exchange =
+        new LocalDeliveryExchange<>(ID_FACTORY, 1, TimeUnit.MILLISECONDS);
+    final ReplicaGroup<Integer, Integer, String> group1 = new ReplicaGroup<>(new IntegerVersion(),
+        null, new EventDrivenReliableDeliveryChannel<>(exchange));
+    final ReplicaGroup<Integer, Integer, String> group2 = new ReplicaGroup<>(new IntegerVersion(),
+        null, new EventDrivenReliableDeliveryChannel<>(exchange));
+    final CommutativeCounter<Integer, Integer, Integer> counter1 =
+        new CommutativeCounter<>(new AtomicIntegerCounter(), group1, "counter");
+    final CommutativeGSet<Integer, Integer, Integer> set1 = new CommutativeGSet<>(group1, "set");
+    final CommutativeGSet<Integer, Integer, Integer> set2 = new CommutativeGSet<>(group2, "set");
+
+    try {
+      counter1.increment();
+      counter1.increment();
+      set1.add(1);
+      DeliveryUtils.waitForDelivery(set1.getDeliveryChannel(), set2.getDeliveryChannel());
+      assertTrue("The update to the set should not wait for the counter to join",
+          set2.contains(1));
+      assertFalse("The counter should not have joined", group2.isMember("counter"));
+
+      final CommutativeCounter<Integer, Integer, Integer> counter2 =
+          new CommutativeCounter<>(new AtomicIntegerCounter(), group2, "counter");
+      group2.getDeliveryChannel().whenApplied(group1.getVersion()).get(10, TimeUnit.SECONDS);
+      assertEquals("The parked updates should be applied once the counter joins", counter1.value(),
+          counter2.value());
+    } finally {
+      group1.getDeliveryChannel().close();
+      group2.getDeliveryChannel().close();
+      exchange.close();
+    }
+  }
+
+  /**
+   * Test that the channel of a member exchanges messages through the exchange of the group.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testGetExchange() throws Exception {
+    LOGGER.log(Level.INFO, "testGetExchange");
+    final ReliableDeliveryChannel<Integer, GroupUpdateMessage<Integer, Integer, String>> deliveryChannel =
+        getDeliveryChannel();
+    final DeliveryExchange<Integer, GroupUpdateMessage<Integer, Integer, String>> exchange =
+        Mockito.mock(DeliveryExchange.class);
+    Mockito.doReturn(exchange).when(deliveryChannel).getExchange();
+    final ReplicaGroup<Integer, Integer, String> group = getGroup(deliveryChannel);
+    final CommutativeGSet<Integer, Integer, Integer> set = new CommutativeGSet<>(group, "set");
+    final IntegerVersion version = new IntegerVersion();
+    version.increment();
+    final CommutativeGSetUpdate<Integer, Integer, Integer> message = new CommutativeGSetUpdate<>(
+        new Dot<>(group.getIdentifier(), version), new HashSet<>(Arrays.asList(1)));
+
+    set.getDeliveryChannel().getExchange().publish(message);
+    Mockito.verify(exchange).publish(new GroupUpdateMessage<>("set", message));
+
+    Mockito.doReturn(false).when(exchange).hasPendingDeliveries();
+    DeliveryUtils.waitForDelivery(set.getDeliveryChannel().getExchange());
+  }
+
+  /**
+   * Test that only one object can join a group with each identifier.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testRegister_Duplicate() {
+    LOGGER.log(Level.INFO, "testRegister_Duplicate");
+    final ReplicaGroup<Integer, Integer, String> group = getGroup(getDeliveryChannel());
+    new CommutativeGSet<Integer, Integer, Integer>(group, "set");
+    new CommutativeGSet<Integer, Integer, Integer>(group, "set");
+  }
+
+  /**
+   * Test that an object leaves the group when its channel is closed.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testClose() throws Exception {
+    LOGGER.log(Level.INFO, "testClose");
+    final ReplicaGroup<Integer, Integer, String> group = getGroup(getDeliveryChannel());
+    final CommutativeGSet<Integer, Integer, Integer> set = new CommutativeGSet<>(group, "set");
+
+    set.getDeliveryChannel().close();
+    assertFalse("The set should have left the group", group.isMember("set"));
+    new CommutativeGSet<Integer, Integer, Integer>(group, "other");
+    assertTrue("Another set should be able to join the group", group.isMember("other"));
+  }
+
+  /**
+   * Test that an object can not join the group with the identifier of an object which has left, as
+   * the new object would miss the updates which the old one had applied.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testRegister_Rejoin() throws Exception {
+    LOGGER.log(Level.INFO, "testRegister_Rejoin");
+    final ReplicaGroup<Integer, Integer, String> group = getGroup(getDeliveryChannel());
+    final CommutativeGSet<Integer, Integer, Integer> set = new CommutativeGSet<>(group, "set");
+
+    set.getDeliveryChannel().close();
+    new CommutativeGSet<Integer, Integer, Integer>(group, "set");
+  }
+
+  /**
+   * Test that an update for an object which has left the group is recorded as applied and not
+   * parked.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testUpdate_Departed() throws Exception {
+    LOGGER.log(Level.INFO, "testUpdate_Departed");
+    final ReplicaGroup<Integer, Integer, String> group = getGroup(getDeliveryChannel());
+    final CommutativeGSet<Integer, Integer, Integer> set = new CommutativeGSet<>(group, "set");
+    set.getDeliveryChannel().close();
+    final IntegerVersion version = new IntegerVersion();
+    version.increment();
+    final GroupUpdateMessage<Integer, Integer, String> message = new GroupUpdateMessage<>("set",
+        new CommutativeGSetUpdate<>(new Dot<>(ID_FACTORY.create(), version),
+            new HashSet<>(Arrays.asList(1))));
+
+    group.update(message);
+    assertEquals("The update should be recorded as applied", Integer.valueOf(1),
+        group.getVersion().get(message.getIdentifier()));
+    assertFalse("The update should not be applied to the set", set.contains(1));
+  }
+
+  /**
+   * Test that members of a group which are updated concurrently never take the same dot.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testPublish_Concurrent() throws Exception {
+    LOGGER.log(Level.INFO, "testPublish_Concurrent");
+    final int members = 4;
+    final int updates = 250;
+    final ReliableDeliveryChannel<Integer, GroupUpdateMessage<Integer, Integer, String>> deliveryChannel =
+        getDeliveryChannel();
+    final ReplicaGroup<Integer, Integer, String> group = getGroup(deliveryChannel);
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < members; i++) {
+      final CommutativeCounter<Integer, Integer, Integer> counter =
+          new CommutativeCounter<>(new AtomicIntegerCounter(), group, "counter" + i);
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+          for (int j = 0; j < updates; j++) {
+            counter.increment();
+          }
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    final Set<Integer> dots = new HashSet<>();
+    for (GroupUpdateMessage<Integer, Integer, String> message : getPublished(deliveryChannel,
+        members * updates)) {
+      assertTrue("Each update should have a unique dot", dots.add(message.getVersion().get()));
+    }
+    assertEquals("The version should count every update", Integer.valueOf(members * updates),
+        group.getVersion().get(group.getIdentifier()));
+  }
+
+}
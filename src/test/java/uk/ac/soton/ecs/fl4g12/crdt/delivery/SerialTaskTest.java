@@ -0,0 +1,173 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of {@linkplain SerialTask}.
+ */
+public class SerialTaskTest {
+
+  private static final int THREADS = 4;
+  private static final long TIMEOUT = 1;
+  private static final TimeUnit TIMEOUT_UNIT = TimeUnit.SECONDS;
+
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(THREADS);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    executor.shutdownNow();
+    executor.awaitTermination(TIMEOUT, TIMEOUT_UNIT);
+  }
+
+  private void awaitIdle(SerialTask task) throws Exception {
+    long deadline = System.nanoTime() + TIMEOUT_UNIT.toNanos(TIMEOUT);
+    while (task.isActive()) {
+      assertTrue("Task did not complete", System.nanoTime() < deadline);
+      Thread.sleep(1);
+    }
+  }
+
+  /**
+   * Test that scheduling many times while queued results in a single run.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testSchedule_Coalesced() throws Exception {
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final AtomicInteger runs = new AtomicInteger();
+    // Block the only thread so that the task stays queued.
+    ExecutorService single = Executors.newSingleThreadExecutor();
+    try {
+      single.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            blocked.await();
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      });
+      SerialTask task = new SerialTask(single, new Runnable() {
+        @Override
+        public void run() {
+          runs.incrementAndGet();
+        }
+      });
+      for (int i = 0; i < 100; i++) {
+        task.schedule();
+      }
+      assertTrue(task.isActive());
+      blocked.countDown();
+      awaitIdle(task);
+      assertEquals(1, runs.get());
+    } finally {
+      single.shutdownNow();
+    }
+  }
+
+  /**
+   * Test that scheduling while running results in the task being run again, never concurrently.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testSchedule_WhileRunning() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger runs = new AtomicInteger();
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger overlaps = new AtomicInteger();
+    SerialTask task = new SerialTask(executor, new Runnable() {
+      @Override
+      public void run() {
+        if (running.incrementAndGet() > 1) {
+          overlaps.incrementAndGet();
+        }
+        if (runs.incrementAndGet() == 1) {
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        running.decrementAndGet();
+      }
+    });
+
+    task.schedule();
+    assertTrue(started.await(TIMEOUT, TIMEOUT_UNIT));
+    // Schedule again while the first run is still in progress.
+    task.schedule();
+    task.schedule();
+    release.countDown();
+    awaitIdle(task);
+
+    assertEquals(2, runs.get());
+    assertEquals(0, overlaps.get());
+  }
+
+  /**
+   * Test that a task which throws can still be scheduled again.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testSchedule_Throwable() throws Exception {
+    final AtomicInteger runs = new AtomicInteger();
+    SerialTask task = new SerialTask(executor, new Runnable() {
+      @Override
+      public void run() {
+        runs.incrementAndGet();
+        throw new RuntimeException("Expected");
+      }
+    });
+
+    task.schedule();
+    awaitIdle(task);
+    task.schedule();
+    awaitIdle(task);
+
+    assertEquals(2, runs.get());
+    assertFalse(task.isActive());
+  }
+
+}
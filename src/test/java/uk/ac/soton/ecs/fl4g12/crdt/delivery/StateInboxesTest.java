@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.concurrent.PriorityBlockingQueue;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.mockito.Mockito;
+import uk.ac.soton.ecs.fl4g12.crdt.order.IntegerVersion;
+import uk.ac.soton.ecs.fl4g12.crdt.order.Version;
+
+/**
+ * Tests of {@linkplain StateInboxes}.
+ */
+public class StateInboxesTest {
+
+  private StateSnapshot<Integer, Version> getState(int identifier, int order) {
+    IntegerVersion version = new IntegerVersion();
+    version.sync(order);
+    StateSnapshot<Integer, Version> state = Mockito.mock(StateSnapshot.class);
+    Mockito.doReturn(identifier).when(state).getIdentifier();
+    Mockito.doReturn(version).when(state).getVersion();
+    return state;
+  }
+
+  private StateSnapshot<Integer, Version> getDelta(int identifier, int order) {
+    StateSnapshot<Integer, Version> delta = getState(identifier, order);
+    Mockito.doReturn(true).when(delta).isDelta();
+    return delta;
+  }
+
+  private Queue<StateSnapshot<Integer, Version>> getInbox(
+      StateSnapshot<Integer, Version>... states) {
+    Queue<StateSnapshot<Integer, Version>> inbox = new PriorityBlockingQueue<>();
+    inbox.addAll(Arrays.asList(states));
+    return inbox;
+  }
+
+  /**
+   * Ensure that states superseded by the received state are replaced by it.
+   */
+  @Test
+  public void testCollapse_Superseded() {
+    StateSnapshot<Integer, Version> old1 = getState(1, 1);
+    StateSnapshot<Integer, Version> old2 = getState(1, 2);
+    StateSnapshot<Integer, Version> other = getState(2, 1);
+    StateSnapshot<Integer, Version> received = getState(1, 3);
+    Queue<StateSnapshot<Integer, Version>> inbox = getInbox(old1, old2, other);
+
+    assertEquals("Both older states should be removed", 2,
+        StateInboxes.collapse(inbox, received));
+    assertEquals("Only the received state and the state of another source should remain",
+        new HashSet<>(Arrays.asList(received, other)), new HashSet<>(inbox));
+  }
+
+  /**
+   * Ensure that a received state which is superseded by a held state is discarded.
+   */
+  @Test
+  public void testCollapse_Discarded() {
+    StateSnapshot<Integer, Version> newer = getState(1, 3);
+    Queue<StateSnapshot<Integer, Version>> inbox = getInbox(newer);
+
+    assertEquals("The received state should be discarded", 1,
+        StateInboxes.collapse(inbox, getState(1, 2)));
+    assertEquals("The inbox should be unchanged", new HashSet<>(Arrays.asList(newer)),
+        new HashSet<>(inbox));
+  }
+
+  /**
+   * Ensure that a received delta does not replace the held states it follows, as it does not hold
+   * their changes.
+   */
+  @Test
+  public void testCollapse_ReceivedDelta() {
+    StateSnapshot<Integer, Version> old = getState(1, 1);
+    StateSnapshot<Integer, Version> delta = getDelta(1, 2);
+    Queue<StateSnapshot<Integer, Version>> inbox = getInbox(old, delta);
+
+    assertEquals("Nothing should be collapsed", 0,
+        StateInboxes.collapse(inbox, getDelta(1, 3)));
+    assertEquals("The inbox should be unchanged", new HashSet<>(Arrays.asList(old, delta)),
+        new HashSet<>(inbox));
+  }
+
+  /**
+   * Ensure that a received state is not discarded in favour of a newer held delta, which does not
+   * hold all of its changes.
+   */
+  @Test
+  public void testCollapse_HeldDelta() {
+    StateSnapshot<Integer, Version> delta = getDelta(1, 3);
+    Queue<StateSnapshot<Integer, Version>> inbox = getInbox(delta);
+
+    assertEquals("Nothing should be collapsed", 0, StateInboxes.collapse(inbox, getState(1, 2)));
+    assertEquals("The inbox should be unchanged", new HashSet<>(Arrays.asList(delta)),
+        new HashSet<>(inbox));
+  }
+
+  /**
+   * Ensure that a received full snapshot replaces the held deltas it supersedes.
+   */
+  @Test
+  public void testCollapse_SupersededDelta() {
+    StateSnapshot<Integer, Version> delta = getDelta(1, 2);
+    StateSnapshot<Integer, Version> received = getState(1, 3);
+    Queue<StateSnapshot<Integer, Version>> inbox = getInbox(delta);
+
+    assertEquals("The delta should be removed", 1, StateInboxes.collapse(inbox, received));
+    assertEquals("Only the received state should remain", new HashSet<>(Arrays.asList(received)),
+        new HashSet<>(inbox));
+  }
+
+  /**
+   * Ensure that nothing is collapsed when no held state is from the same source.
+   */
+  @Test
+  public void testCollapse_Nothing() {
+    StateSnapshot<Integer, Version> other = getState(2, 1);
+    Queue<StateSnapshot<Integer, Version>> inbox = getInbox(other);
+
+    assertEquals("Nothing should be collapsed", 0, StateInboxes.collapse(inbox, getState(1, 2)));
+    assertEquals("The inbox should be unchanged", new HashSet<>(Arrays.asList(other)),
+        new HashSet<>(inbox));
+  }
+
+}
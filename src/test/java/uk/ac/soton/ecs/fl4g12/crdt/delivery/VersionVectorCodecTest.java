@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.delivery;
+
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import uk.ac.soton.ecs.fl4g12.crdt.order.HashVersionVector;
+import uk.ac.soton.ecs.fl4g12.crdt.order.IntegerVersion;
+import uk.ac.soton.ecs.fl4g12.crdt.order.VersionVector;
+
+/**
+ * Tests for the {@link VersionVectorCodec} class.
+ */
+public class VersionVectorCodecTest {
+
+  private static final Logger LOGGER = Logger.getLogger(VersionVectorCodecTest.class.getName());
+
+  private static final int IDENTIFIERS = 100;
+
+  /**
+   * Test that a vector with dense identifiers round trips and that each entry is small.
+   */
+  @Test
+  public void testRoundTrip_Ordered() {
+    LOGGER.log(Level.INFO, "testRoundTrip_Ordered: Test a vector with ordered identifiers");
+    final VersionVectorCodec<Integer, Integer> codec = new VersionVectorCodec<>(Codecs.INTEGER,
+        Codecs.INTEGER, new HashVersionVector<Integer, Integer>(new IntegerVersion()));
+    final VersionVector<Integer, Integer> vector =
+        new HashVersionVector<>(new IntegerVersion());
+    for (int i = 0; i < IDENTIFIERS; i++) {
+      vector.sync(1000 + i * 3, i % 50);
+    }
+
+    ByteBuffer buffer = Codecs.encode(codec, vector, ByteBuffer.allocate(1024));
+    // The size, the first identifier and then a byte each for the other gaps and timestamps.
+    assertEquals("Each identifier after the first should take a single byte",
+        1 + 2 + 1 + (IDENTIFIERS - 1) * 2, buffer.remaining());
+
+    VersionVector<Integer, Integer> result = codec.decode(buffer);
+    assertFalse("The whole encoding should have been decoded", buffer.hasRemaining());
+    assertTrue("The vector should round trip", vector.identical(result));
+    assertEquals("The vector should round trip", vector, result);
+  }
+
+  /**
+   * Test that a vector with identifiers which are not ordered round trips.
+   */
+  @Test
+  public void testRoundTrip_Unordered() {
+    LOGGER.log(Level.INFO, "testRoundTrip_Unordered: Test a vector with unordered identifiers");
+    final VersionVectorCodec<String, Integer> codec = new VersionVectorCodec<>(Codecs.STRING,
+        Codecs.INTEGER, new HashVersionVector<String, Integer>(new IntegerVersion()));
+    final VersionVector<String, Integer> vector = new HashVersionVector<>(new IntegerVersion());
+    vector.init("zero");
+    vector.sync("a", 1);
+    vector.sync("b", 1000000);
+
+    VersionVector<String, Integer> result =
+        codec.decode(Codecs.encode(codec, vector, ByteBuffer.allocate(64)));
+    assertEquals("The vector should round trip", vector, result);
+    assertTrue("Identifiers with a zero timestamp should be kept",
+        result.getIdentifiers().contains("zero"));
+  }
+
+  /**
+   * Test that several vectors can be written into one buffer and read back in turn.
+   */
+  @Test
+  public void testRoundTrip_Reuse() {
+    LOGGER.log(Level.INFO, "testRoundTrip_Reuse: Test several vectors in one buffer");
+    final VersionVectorCodec<Integer, Integer> codec = new VersionVectorCodec<>(Codecs.INTEGER,
+        Codecs.INTEGER, new HashVersionVector<Integer, Integer>(new IntegerVersion()));
+    final ByteBuffer buffer = ByteBuffer.allocate(1024);
+    final VersionVector<Integer, Integer> vector = new HashVersionVector<>(new IntegerVersion());
+
+    codec.encode(vector, buffer);
+    for (int i = 0; i < 10; i++) {
+      vector.sync(i, i + 1);
+      codec.encode(vector, buffer);
+    }
+    buffer.flip();
+
+    final VersionVector<Integer, Integer> expected =
+        new HashVersionVector<>(new IntegerVersion());
+    assertEquals("The empty vector should be read first", expected, codec.decode(buffer));
+    for (int i = 0; i < 10; i++) {
+      expected.sync(i, i + 1);
+      assertEquals("The vectors should be read in order", expected, codec.decode(buffer));
+    }
+    assertFalse("Every vector should have been read", buffer.hasRemaining());
+  }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.idenitifier;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the {@linkplain IdentifierRegistry}.
+ */
+public class IdentifierRegistryTest {
+
+  /**
+   * Test that identifiers are interned with dense slots in the order they are first seen and keep
+   * their slot.
+   */
+  @Test
+  public void testIntern() {
+    final IdentifierRegistry<UUID> registry = new IdentifierRegistry<>();
+    final List<UUID> identifiers = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      identifiers.add(UUID.randomUUID());
+    }
+
+    for (int i = 0; i < identifiers.size(); i++) {
+      assertEquals("The slot should not be assigned before interning", -1,
+          registry.slot(identifiers.get(i)));
+      assertEquals("The slots should be assigned in order", i, registry.intern(identifiers.get(i)));
+    }
+    assertEquals("Every identifier should be interned", identifiers.size(), registry.size());
+    for (int i = 0; i < identifiers.size(); i++) {
+      assertEquals("The identifier should keep its slot", i, registry.intern(identifiers.get(i)));
+      assertEquals("The identifier should keep its slot", i, registry.slot(identifiers.get(i)));
+      assertEquals("The slot should resolve to the identifier", identifiers.get(i),
+          registry.get(i));
+    }
+    assertEquals("Interning again should not assign slots", identifiers.size(), registry.size());
+  }
+
+  /**
+   * Test that a slot which has not been assigned cannot be resolved.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testGet_Unassigned() {
+    final IdentifierRegistry<String> registry = new IdentifierRegistry<>();
+    registry.intern("a");
+    registry.get(1);
+  }
+
+  /**
+   * Test that identifiers created by a wrapped factory are interned as they are created.
+   */
+  @Test
+  public void testFactory() {
+    final IdentifierRegistry<Integer> registry = new IdentifierRegistry<>();
+    final IdentifierFactory<Integer> factory =
+        registry.factory(new IncrementalIntegerIdentifierFactory());
+
+    final Integer first = factory.create();
+    final Integer second = factory.create();
+    assertEquals("The first identifier should have the first slot", 0, registry.slot(first));
+    assertEquals("The second identifier should have the second slot", 1, registry.slot(second));
+  }
+
+  /**
+   * Test that identifiers interned concurrently are each given a single, unique slot.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testIntern_Concurrent() throws Exception {
+    final int threadCount = 4;
+    final int identifierCount = 1000;
+    final IdentifierRegistry<String> registry = new IdentifierRegistry<>();
+    final AtomicIntegerArray slots = new AtomicIntegerArray(identifierCount);
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < threadCount; t++) {
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+          for (int i = 0; i < identifierCount; i++) {
+            int slot = registry.intern("replica-" + i);
+            if (!slots.compareAndSet(i, 0, slot + 1) && slots.get(i) != slot + 1) {
+              slots.set(i, -1);
+            }
+          }
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals("Every identifier should be interned once", identifierCount, registry.size());
+    final Set<Integer> assigned = new HashSet<>();
+    for (int i = 0; i < identifierCount; i++) {
+      assertTrue("Each identifier should have one slot", slots.get(i) > 0);
+      assertTrue("Each slot should be unique", assigned.add(slots.get(i) - 1));
+      assertEquals("The slot should resolve to the identifier", "replica-" + i,
+          registry.get(slots.get(i) - 1));
+    }
+  }
+
+  /**
+   * Test that a slot which a concurrent reader can find can always be resolved, even while the
+   * identifier is still being interned.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testSlot_Concurrent() throws Exception {
+    final int identifierCount = 10000;
+    final IdentifierRegistry<String> registry = new IdentifierRegistry<>();
+    final AtomicInteger failures = new AtomicInteger();
+    final AtomicBoolean done = new AtomicBoolean();
+    Thread reader = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        while (!done.get()) {
+          for (int i = registry.size(); i < identifierCount; i++) {
+            int slot = registry.slot("replica-" + i);
+            if (slot < 0) {
+              break;
+            }
+            try {
+              registry.get(slot);
+            } catch (IllegalArgumentException ex) {
+              failures.incrementAndGet();
+            }
+          }
+        }
+      }
+    });
+    reader.start();
+    try {
+      for (int i = 0; i < identifierCount; i++) {
+        registry.intern("replica-" + i);
+      }
+    } finally {
+      done.set(true);
+      reader.join();
+    }
+
+    assertEquals("Every slot which was found should resolve", 0, failures.get());
+  }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.order;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests of {@linkplain ConcurrentArrayVersionVector}.
+ */
+public class ConcurrentArrayVersionVectorTest
+    extends VersionVectorAbstractTest<Integer, ConcurrentArrayVersionVector<Integer>> {
+
+  public ConcurrentArrayVersionVectorTest() {
+    super(true);
+  }
+
+  @Override
+  public ConcurrentArrayVersionVector<Integer> getVersion(int order) {
+    ConcurrentArrayVersionVector<Integer> version =
+        new ConcurrentArrayVersionVector<>(new IntegerVersion());
+    version.sync(getTimestamp(order));
+    return version;
+  }
+
+  @Override
+  protected ConcurrentArrayVersionVector<Integer> getVersion(String id) {
+    ConcurrentArrayVersionVector<Integer> version =
+        new ConcurrentArrayVersionVector<>(new IntegerVersion());
+    version.sync(getTimestamp(id));
+    return version;
+  }
+
+  @Override
+  protected Integer getKey(int index) {
+    return index;
+  }
+
+  @Test
+  public void testInit_Negative() {
+    thrown.expect(IllegalArgumentException.class);
+    new ConcurrentArrayVersionVector<>(new IntegerVersion()).init(-1);
+  }
+
+  /**
+   * Test that the identifiers are a live view of the initialised slots, including slots in
+   * different chunks.
+   */
+  @Test
+  public void testGetIdentifiers_Live() {
+    final ConcurrentArrayVersionVector<Integer> instance =
+        new ConcurrentArrayVersionVector<>(new IntegerVersion());
+    final Set<Integer> identifiers = instance.getIdentifiers();
+    assertTrue("A new vector should have no identifiers", identifiers.isEmpty());
+
+    instance.init(200);
+    instance.sync(3, 1);
+    instance.init(63);
+    instance.init(64);
+
+    assertEquals("The view should reflect the initialised identifiers",
+        new HashSet<>(Arrays.asList(3, 63, 64, 200)), identifiers);
+    assertTrue("The view should contain an initialised identifier", identifiers.contains(64));
+    assertFalse("The view should not contain an uninitialised identifier",
+        identifiers.contains(65));
+    assertFalse("The view should not contain a negative identifier", identifiers.contains(-1));
+
+    final Iterator<Integer> iterator = identifiers.iterator();
+    assertEquals("The identifiers should be iterated in order", Integer.valueOf(3),
+        iterator.next());
+    assertEquals("The identifiers should be iterated in order", Integer.valueOf(63),
+        iterator.next());
+    assertEquals("The identifiers should be iterated in order", Integer.valueOf(64),
+        iterator.next());
+    assertEquals("The identifiers should be iterated in order", Integer.valueOf(200),
+        iterator.next());
+    assertFalse("There should be no more identifiers", iterator.hasNext());
+  }
+
+  /**
+   * Test that concurrent initialisations and synchronisations, which grow the vector, are never
+   * lost and that every thread sees the same version for each identifier.
+   *
+   * @throws InterruptedException if interrupted while waiting for the threads.
+   */
+  @Test
+  public void testConcurrentSync() throws InterruptedException {
+    final int threadCount = 8;
+    final int ids = 1000;
+    final ConcurrentArrayVersionVector<Integer> instance =
+        new ConcurrentArrayVersionVector<>(new IntegerVersion());
+    final LogicalVersion<?, ?>[][] seen = new LogicalVersion<?, ?>[threadCount][ids];
+
+    Set<Thread> threads = new HashSet<>();
+    for (int i = 0; i < threadCount; i++) {
+      final int thread = i;
+      threads.add(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int id = 0; id < ids; id++) {
+            instance.sync(id, id + thread);
+            seen[thread][id] = instance.init(id);
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals("Every identifier should be initialised", ids, instance.getIdentifiers().size());
+    for (int id = 0; id < ids; id++) {
+      assertEquals("The greatest value should be kept", Integer.valueOf(id + threadCount - 1),
+          instance.get(id));
+      for (int thread = 0; thread < threadCount; thread++) {
+        assertSame("Every thread should see the same version", seen[0][id], seen[thread][id]);
+      }
+    }
+  }
+
+  /**
+   * Test that an identifier whose version can be read while it is being initialised by another
+   * thread is always one of the identifiers of the vector.
+   *
+   * @throws InterruptedException if interrupted while waiting for the thread.
+   */
+  @Test
+  public void testConcurrentInit_Visible() throws InterruptedException {
+    final int ids = 10000;
+    final ConcurrentArrayVersionVector<Integer> instance =
+        new ConcurrentArrayVersionVector<>(new IntegerVersion());
+
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        for (int id = 0; id < ids; id++) {
+          instance.init(id);
+        }
+      }
+    });
+    thread.start();
+
+    int id = 0;
+    while (id < ids) {
+      if (instance.getLogicalVersion(id) != null) {
+        assertTrue("A readable version should be in the identifiers",
+            instance.getIdentifiers().contains(id));
+        id++;
+      } else if (!thread.isAlive()) {
+        break;
+      }
+    }
+    thread.join();
+
+    assertEquals("Every identifier should be initialised", ids, instance.getIdentifiers().size());
+  }
+
+}
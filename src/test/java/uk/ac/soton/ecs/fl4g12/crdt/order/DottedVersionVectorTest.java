@@ -0,0 +1,171 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.order;
+
+import java.util.Collections;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests of {@linkplain DottedVersionVector}.
+ */
+public class DottedVersionVectorTest
+    extends VersionVectorAbstractTest<Integer, DottedVersionVector<Integer, Integer>> {
+
+  private static final Logger LOGGER = Logger.getLogger(DottedVersionVectorTest.class.getName());
+
+  public DottedVersionVectorTest() {
+    super(true);
+  }
+
+  @Override
+  public DottedVersionVector<Integer, Integer> getVersion(int order) {
+    DottedVersionVector<Integer, Integer> version = new DottedVersionVector<>(new IntegerVersion());
+    version.sync(getTimestamp(order));
+    return version;
+  }
+
+  @Override
+  public DottedVersionVector<Integer, Integer> getVersion(String id) {
+    DottedVersionVector<Integer, Integer> version = new DottedVersionVector<>(new IntegerVersion());
+    version.sync(getTimestamp(id));
+    return version;
+  }
+
+  @Override
+  protected Integer getKey(int index) {
+    return index;
+  }
+
+  private static Dot<Integer, Integer> dot(int id, int timestamp) {
+    IntegerVersion version = new IntegerVersion();
+    version.sync(timestamp);
+    return new Dot<>(id, version);
+  }
+
+  private static TreeMap<Integer, Integer> ranges(int... bounds) {
+    TreeMap<Integer, Integer> ranges = new TreeMap<>();
+    for (int i = 0; i < bounds.length; i += 2) {
+      ranges.put(bounds[i], bounds[i + 1]);
+    }
+    return ranges;
+  }
+
+  /**
+   * Test that dots added out of order are recorded as exceptions and folded into the contiguous
+   * timestamp as the gaps are filled.
+   */
+  @Test
+  public void testAdd_OutOfOrder() {
+    LOGGER.log(Level.INFO, "testAdd_OutOfOrder: "
+        + "Test that out of order dots are compacted as the gaps are filled.");
+    DottedVersionVector<Integer, Integer> version = new DottedVersionVector<>(new IntegerVersion());
+
+    assertTrue(version.add(dot(0, 3)));
+    assertTrue(version.add(dot(0, 5)));
+    assertTrue(version.add(dot(0, 6)));
+    assertFalse("A dot can only be added once", version.add(dot(0, 5)));
+    assertEquals("Only the contiguous timestamp should be visible", Integer.valueOf(0),
+        version.get(0));
+    assertEquals(ranges(3, 3, 5, 6), version.getExceptions(0));
+    assertTrue(version.contains(dot(0, 6)));
+    assertFalse(version.contains(dot(0, 4)));
+
+    assertTrue(version.add(dot(0, 4)));
+    assertEquals("Adjacent ranges should be merged", ranges(3, 6), version.getExceptions(0));
+
+    assertTrue(version.add(dot(0, 2)));
+    assertTrue(version.add(dot(0, 1)));
+    assertEquals("Filling the gap should compact the exceptions", Integer.valueOf(6),
+        version.get(0));
+    assertEquals(Collections.emptyMap(), version.getExceptions(0));
+    assertTrue(version.contains(dot(0, 1)));
+    assertFalse(version.contains(dot(0, 7)));
+  }
+
+  /**
+   * Test that syncing the contiguous timestamp past exceptions discards them.
+   */
+  @Test
+  public void testSync_CoversExceptions() {
+    LOGGER.log(Level.INFO, "testSync_CoversExceptions: "
+        + "Test that syncing past exceptions compacts them.");
+    DottedVersionVector<Integer, Integer> version = new DottedVersionVector<>(new IntegerVersion());
+    version.add(dot(0, 3));
+    version.add(dot(0, 6));
+    version.add(dot(0, 7));
+
+    version.sync(0, 5);
+    assertEquals("The exception directly after the timestamp should be folded in",
+        Integer.valueOf(7), version.get(0));
+    assertEquals(Collections.emptyMap(), version.getExceptions(0));
+  }
+
+  /**
+   * Test that syncing with another {@linkplain DottedVersionVector} merges the exceptions.
+   */
+  @Test
+  public void testSync_Exceptions() {
+    LOGGER.log(Level.INFO, "testSync_Exceptions: Test that exceptions are merged by sync.");
+    DottedVersionVector<Integer, Integer> version1 =
+        new DottedVersionVector<>(new IntegerVersion());
+    version1.add(dot(0, 1));
+    version1.add(dot(0, 4));
+    version1.add(dot(1, 2));
+    DottedVersionVector<Integer, Integer> version2 =
+        new DottedVersionVector<>(new IntegerVersion());
+    version2.add(dot(0, 3));
+    version2.add(dot(0, 6));
+    version2.add(dot(1, 1));
+
+    version1.sync(version2);
+    assertEquals(Integer.valueOf(1), version1.get(0));
+    assertEquals(ranges(3, 4, 6, 6), version1.getExceptions(0));
+    assertEquals(Integer.valueOf(2), version1.get(1));
+    assertEquals(Collections.emptyMap(), version1.getExceptions(1));
+  }
+
+  /**
+   * Test that copies and equality take the exceptions into account.
+   */
+  @Test
+  public void testCopy_Exceptions() {
+    LOGGER.log(Level.INFO, "testCopy_Exceptions: Test that copies include the exceptions.");
+    DottedVersionVector<Integer, Integer> version = new DottedVersionVector<>(new IntegerVersion());
+    version.add(dot(0, 2));
+
+    DottedVersionVector<Integer, Integer> copy = version.copy();
+    assertEquals(version, copy);
+    assertEquals(version.hashCode(), copy.hashCode());
+
+    copy.add(dot(0, 4));
+    assertNotEquals("Vectors with different exceptions should not be equal", version, copy);
+    assertFalse("The copy should not share exceptions", version.contains(dot(0, 4)));
+  }
+
+}
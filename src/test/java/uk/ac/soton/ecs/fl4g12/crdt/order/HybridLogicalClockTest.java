@@ -0,0 +1,223 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.order;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for the {@link HybridLogicalClock} class.
+ */
+public class HybridLogicalClockTest extends LamportTimestampAbstractTest<Long> {
+
+  private static final Logger LOGGER = Logger.getLogger(HybridLogicalClockTest.class.getName());
+
+  private static final int MAX_ITTERATIONS = 100;
+
+  private static final long START = 1500000000000l;
+
+  /**
+   * A {@link Clock} which only moves when told to.
+   */
+  private static final class ManualClock extends Clock {
+
+    private long millis;
+
+    ManualClock(long millis) {
+      this.millis = millis;
+    }
+
+    void advance(long millis) {
+      this.millis += millis;
+    }
+
+    @Override
+    public long millis() {
+      return millis;
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+  @Override
+  public HybridLogicalClock getVersion(int order) {
+    return new HybridLogicalClock(new ManualClock(0), getTimestamp(order));
+  }
+
+  @Override
+  public Long getTimestamp(int order) {
+    return (long) order;
+  }
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  /**
+   * Test that increments within the same millisecond are strictly increasing without the physical
+   * clock moving.
+   */
+  @Test
+  public void testIncrement_SameMillisecond() {
+    LOGGER.log(Level.INFO, "testIncrement_SameMillisecond: "
+        + "Test that increments within the same millisecond are strictly increasing");
+    final HybridLogicalClock instance = new HybridLogicalClock(new ManualClock(START));
+
+    for (int i = 0; i < MAX_ITTERATIONS; i++) {
+      long time = instance.tick();
+      assertEquals("The physical time should be the clock's time", START,
+          HybridLogicalClock.getPhysicalTime(time));
+      assertEquals("The logical time should count the increments in the millisecond", i,
+          HybridLogicalClock.getLogicalTime(time));
+      assertEquals("tick should return the new value", (Long) time, instance.get());
+    }
+  }
+
+  /**
+   * Test that the logical counter is reset when the physical clock advances.
+   */
+  @Test
+  public void testIncrement_ClockAdvances() {
+    LOGGER.log(Level.INFO, "testIncrement_ClockAdvances: "
+        + "Test that the logical counter is reset when the physical clock advances");
+    final ManualClock clock = new ManualClock(START);
+    final HybridLogicalClock instance = new HybridLogicalClock(clock);
+
+    instance.increment();
+    instance.increment();
+    assertEquals("The logical time should have been incremented", 1,
+        HybridLogicalClock.getLogicalTime(instance.get()));
+
+    clock.advance(1);
+    instance.increment();
+    assertEquals("The physical time should follow the clock", START + 1,
+        HybridLogicalClock.getPhysicalTime(instance.get()));
+    assertEquals("The logical time should be reset", 0,
+        HybridLogicalClock.getLogicalTime(instance.get()));
+  }
+
+  /**
+   * Test that increments after syncing with a timestamp ahead of the physical clock are strictly
+   * greater than the synced timestamp.
+   */
+  @Test
+  public void testIncrement_AfterSyncAhead() {
+    LOGGER.log(Level.INFO, "testIncrement_AfterSyncAhead: "
+        + "Test increments after syncing with a timestamp ahead of the physical clock");
+    final ManualClock clock = new ManualClock(START);
+    final HybridLogicalClock instance = new HybridLogicalClock(clock);
+    final HybridLogicalClock remote = new HybridLogicalClock(new ManualClock(START + 1000));
+
+    instance.increment();
+    long remoteTime = remote.tick();
+    instance.sync(remoteTime);
+    assertEquals("Sync should move the timestamp to the remote timestamp", (Long) remoteTime,
+        instance.get());
+
+    long previous = remoteTime;
+    for (int i = 0; i < MAX_ITTERATIONS; i++) {
+      clock.advance(1);
+      long time = instance.tick();
+      assertTrue("The timestamp should be strictly increasing", time > previous);
+      previous = time;
+    }
+    assertEquals("The physical time should not move backwards", START + 1000,
+        HybridLogicalClock.getPhysicalTime(previous));
+  }
+
+  /**
+   * Test that a full logical counter carries into the physical time.
+   */
+  @Test
+  public void testIncrement_LogicalOverflow() {
+    LOGGER.log(Level.INFO,
+        "testIncrement_LogicalOverflow: Test that a full logical counter carries over");
+    final HybridLogicalClock instance = new HybridLogicalClock(new ManualClock(START));
+
+    // The first increment moves to the physical time, each after that increments the counter.
+    for (int i = 0; i <= 1 << 16; i++) {
+      instance.increment();
+    }
+    assertEquals("The counter should have carried into the physical time", START + 1,
+        HybridLogicalClock.getPhysicalTime(instance.get()));
+    assertEquals("The logical time should have wrapped", 0,
+        HybridLogicalClock.getLogicalTime(instance.get()));
+  }
+
+  /**
+   * Test of increment method of an {@linkplain HybridLogicalClock} at
+   * {@linkplain Long#MAX_VALUE}.
+   */
+  @Test
+  public void testIncrement_MAX_VALUE() {
+    LOGGER.log(Level.INFO,
+        "testIncrement_MAX_VALUE: Testing incrementing the version beyond the MAX_VALUE");
+    final HybridLogicalClock instance = new HybridLogicalClock(new ManualClock(START));
+    instance.sync(Long.MAX_VALUE);
+    thrown.expect(ArithmeticException.class);
+    thrown.expectMessage("overflow");
+    instance.increment();
+  }
+
+  /**
+   * Test that a copy keeps using the same physical clock.
+   */
+  @Test
+  public void testCopy_Clock() {
+    LOGGER.log(Level.INFO, "testCopy_Clock: Test that a copy keeps the same physical clock");
+    final ManualClock clock = new ManualClock(START);
+    final HybridLogicalClock instance = new HybridLogicalClock(clock);
+    instance.increment();
+
+    final HybridLogicalClock copy = instance.copy();
+    assertEquals("The copy should have the same timestamp", instance.get(), copy.get());
+    clock.advance(1);
+    copy.increment();
+    assertEquals("The copy should follow the physical clock", START + 1,
+        HybridLogicalClock.getPhysicalTime(copy.get()));
+    assertEquals("The original should not have changed", START,
+        HybridLogicalClock.getPhysicalTime(instance.get()));
+  }
+
+}
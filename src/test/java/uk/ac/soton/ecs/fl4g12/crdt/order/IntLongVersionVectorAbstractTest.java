@@ -0,0 +1,381 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.order;
+
+import java.util.HashSet;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Abstract test for implementations of {@linkplain AbstractIntLongVersionVector}. The results of
+ * operations are checked against a {@link HashVersionVector} holding the same timestamps.
+ *
+ * @param <V> the type of the version being tested.
+ */
+public abstract class IntLongVersionVectorAbstractTest<V extends AbstractIntLongVersionVector> {
+
+  /**
+   * Example timestamps indexed by identifier, where {@code -1} marks an uninitialised identifier.
+   * These include the examples used by {@link VersionVectorAbstractTest} and some which span more
+   * than one chunk of an {@link AtomicIntLongVersionVector}.
+   */
+  private static final long[][] TIMESTAMPS = {
+      {},
+      {0},
+      {1, 2, 1},
+      {2, 2, 1},
+      {3, 3, 3},
+      {4, 5, 5},
+      {-1, 0},
+      {-1, 1, 1},
+      {-1, 2, 1},
+      {-1, 3, 1},
+      {2, 4, 1},
+      {2, 5, 1},
+      {-1, -1, 0},
+      {-1, -1, 1},
+      {-1, 3, 2},
+      {-1, 3, 3},
+      {2, 5, 4},
+      {2, 5, 5},
+      {2, 5, 5, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+          -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 1},
+      {2, 5, 5, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+          -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 0},
+      {2, 5, 6, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+          -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 1}};
+
+  /**
+   * An identifier which is not used by any of the {@link #TIMESTAMPS}.
+   */
+  private static final int UNUSED_ID = 64;
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  /**
+   * Get a new, empty instance of the {@linkplain AbstractIntLongVersionVector} being tested.
+   *
+   * @return an empty {@link AbstractIntLongVersionVector}.
+   */
+  protected abstract V getVersion();
+
+  private V getVersion(long[] timestamp) {
+    V version = getVersion();
+    for (int id = 0; id < timestamp.length; id++) {
+      if (timestamp[id] >= 0) {
+        version.sync(id, timestamp[id]);
+      }
+    }
+    return version;
+  }
+
+  private static HashVersionVector<Integer, Long> getExpected(long[] timestamp) {
+    HashVersionVector<Integer, Long> version = new HashVersionVector<>(new LongVersion());
+    for (int id = 0; id < timestamp.length; id++) {
+      if (timestamp[id] >= 0) {
+        version.sync(id, timestamp[id]);
+      }
+    }
+    return version;
+  }
+
+  @Test
+  public void testGet() {
+    for (long[] timestamp : TIMESTAMPS) {
+      V instance = getVersion(timestamp);
+      HashVersionVector<Integer, Long> expected = getExpected(timestamp);
+
+      assertEquals(expected.get(), instance.get());
+      assertEquals(expected.getIdentifiers(), instance.getIdentifiers());
+      for (int id = 0; id <= UNUSED_ID; id++) {
+        assertEquals(expected.get(id), instance.get(id));
+        assertEquals((long) expected.get(id), instance.getLong(id));
+      }
+    }
+  }
+
+  @Test
+  public void testGetLogicalVersion() {
+    for (long[] timestamp : TIMESTAMPS) {
+      V instance = getVersion(timestamp);
+
+      for (int id = 0; id <= UNUSED_ID; id++) {
+        LogicalVersion<Long, ?> logicalVersion = instance.getLogicalVersion(id);
+        if (id >= timestamp.length || timestamp[id] < 0) {
+          assertNull(logicalVersion);
+          continue;
+        }
+        assertEquals((Long) timestamp[id], logicalVersion.get());
+        assertSame(logicalVersion, instance.getLogicalVersion(id));
+
+        // Test that the logical version affects the version vector and vice-versa.
+        logicalVersion.increment();
+        assertEquals((Long) (timestamp[id] + 1), instance.get(id));
+        instance.increment(id);
+        assertEquals((Long) (timestamp[id] + 2), logicalVersion.get());
+        logicalVersion.sync(timestamp[id] + 5);
+        assertEquals((Long) (timestamp[id] + 5), instance.get(id));
+
+        // Test that copies of the logical version are independent.
+        LogicalVersion<Long, ?> copy = logicalVersion.copy();
+        copy.increment();
+        assertEquals((Long) (timestamp[id] + 5), instance.get(id));
+      }
+    }
+  }
+
+  @Test
+  public void testInit() {
+    V instance = getVersion();
+    LogicalVersion<Long, ?> version = instance.init(UNUSED_ID);
+
+    assertEquals((Long) 0L, version.get());
+    assertSame(version, instance.getLogicalVersion(UNUSED_ID));
+    assertEquals(1, instance.getIdentifiers().size());
+    assertTrue(instance.getIdentifiers().contains(UNUSED_ID));
+
+    version.increment();
+    assertSame(version, instance.init(UNUSED_ID));
+    assertEquals((Long) 1L, instance.get(UNUSED_ID));
+  }
+
+  @Test
+  public void testInit_Negative() {
+    thrown.expect(IllegalArgumentException.class);
+    getVersion().init(-1);
+  }
+
+  @Test
+  public void testIncrement_Uninitialised() {
+    V instance = getVersion(TIMESTAMPS[2]);
+
+    thrown.expect(IllegalArgumentException.class);
+    instance.increment(UNUSED_ID);
+  }
+
+  @Test
+  public void testIncrement_Overflow() {
+    V instance = getVersion();
+    instance.sync(0, Long.MAX_VALUE);
+
+    thrown.expect(ArithmeticException.class);
+    instance.increment(0);
+  }
+
+  @Test
+  public void testSync_Negative() {
+    V instance = getVersion();
+    instance.sync(0, -5L);
+
+    assertEquals((Long) 0L, instance.get(0));
+    assertTrue(instance.getIdentifiers().contains(0));
+  }
+
+  @Test
+  public void testSync() {
+    for (long[] local : TIMESTAMPS) {
+      for (long[] other : TIMESTAMPS) {
+        V instance = getVersion(local);
+        V instanceFallback = getVersion(local);
+        HashVersionVector<Integer, Long> expected = getExpected(local);
+
+        instance.sync(getVersion(other));
+        instanceFallback.sync(getExpected(other));
+        expected.sync(getExpected(other));
+
+        assertEquals(expected.get(), instance.get());
+        assertEquals(expected.get(), instanceFallback.get());
+      }
+    }
+  }
+
+  @Test
+  public void testComparisons() {
+    for (long[] local : TIMESTAMPS) {
+      V instance = getVersion(local);
+      HashVersionVector<Integer, Long> expected = getExpected(local);
+
+      for (long[] timestamp : TIMESTAMPS) {
+        V other = getVersion(timestamp);
+        HashVersionVector<Integer, Long> expectedOther = getExpected(timestamp);
+
+        assertEquals(expected.compareTo(expectedOther), instance.compareTo(other));
+        assertEquals(expected.happenedBefore(expectedOther), instance.happenedBefore(other));
+        assertEquals(expected.precedes(expectedOther), instance.precedes(other));
+        assertEquals(expected.concurrentWith(expectedOther), instance.concurrentWith(other));
+        assertEquals(expected.identical(expectedOther), instance.identical(other));
+        assertEquals(expected.compare(expectedOther), instance.compare(other));
+
+        // Comparisons with other types of vector should be consistent.
+        assertEquals(expected.compareTo(expectedOther), instance.compareTo(expectedOther));
+        assertEquals(expected.happenedBefore(expectedOther),
+            instance.happenedBefore(expectedOther));
+        assertEquals(expected.precedes(expectedOther), instance.precedes(expectedOther));
+        assertEquals(expected.concurrentWith(expectedOther),
+            instance.concurrentWith(expectedOther));
+        assertEquals(expected.identical(expectedOther), instance.identical(expectedOther));
+        assertEquals(expected.compare(expectedOther), instance.compare(expectedOther));
+
+        // Comparisons with wrapped vectors should be consistent.
+        LocalVersionVector<Integer, Long> wrapped = new LocalVersionVector<>(other.copy(), 0);
+        assertEquals(expected.compareTo(expectedOther), instance.compareTo(wrapped));
+        assertEquals(expected.happenedBefore(expectedOther), instance.happenedBefore(wrapped));
+        assertEquals(expected.precedes(expectedOther), instance.precedes(wrapped));
+        assertEquals(expected.concurrentWith(expectedOther), instance.concurrentWith(wrapped));
+        assertEquals(expected.identical(expectedOther), instance.identical(wrapped));
+        assertEquals(expected.compare(expectedOther), instance.compare(wrapped));
+      }
+    }
+  }
+
+  @Test
+  public void testDotComparisons() {
+    for (long[] local : TIMESTAMPS) {
+      V instance = getVersion(local);
+      HashVersionVector<Integer, Long> expected = getExpected(local);
+
+      for (int id = 0; id <= 2; id++) {
+        for (long value = 0; value <= 6; value++) {
+          Dot<Integer, Long> dot = new Dot<>(id, new LongVersion(value));
+
+          assertEquals(expected.happenedBefore(dot), instance.happenedBefore(dot));
+          assertEquals(expected.precedes(dot), instance.precedes(dot));
+          assertEquals(expected.get(id) == value, instance.identical(dot));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testCopy() {
+    for (long[] timestamp : TIMESTAMPS) {
+      V instance = getVersion(timestamp);
+      AbstractIntLongVersionVector copy = instance.copy();
+
+      assertEquals(instance.getClass(), copy.getClass());
+      assertEquals(instance, copy);
+
+      // Changes to the copy should not affect the original and vice-versa.
+      copy.sync(UNUSED_ID, 1L);
+      instance.sync(0, 10L);
+      assertEquals((Long) 0L, instance.get(UNUSED_ID));
+      assertEquals((Long) 1L, copy.get(UNUSED_ID));
+      assertEquals((Long) 10L, instance.get(0));
+      assertNotEquals((Long) 10L, copy.get(0));
+    }
+  }
+
+  @Test
+  public void testEqualsHashCode() {
+    for (long[] local : TIMESTAMPS) {
+      V instance = getVersion(local);
+      for (long[] other : TIMESTAMPS) {
+        V otherInstance = getVersion(other);
+        assertEquals(instance.get().equals(otherInstance.get()), instance.equals(otherInstance));
+      }
+      assertEquals(instance.get().hashCode(), instance.hashCode());
+      assertFalse(instance.equals(getExpected(local)));
+    }
+  }
+
+  @Test
+  public void testConcurrentIncrement() throws InterruptedException {
+    final int threadCount = 8;
+    final int increments = 10000;
+    final V instance = getVersion();
+    instance.init(0);
+
+    Set<Thread> threads = new HashSet<>();
+    for (int i = 0; i < threadCount; i++) {
+      final int id = i;
+      threads.add(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          instance.init(id + 1);
+          for (int j = 0; j < increments; j++) {
+            instance.increment(0);
+            instance.increment(id + 1);
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals((Long) (long) (threadCount * increments), instance.get(0));
+    for (int i = 1; i <= threadCount; i++) {
+      assertEquals((Long) (long) increments, instance.get(i));
+    }
+  }
+
+  /**
+   * Test that a reader which does not lock the vector only sees whole timestamps which were written
+   * to it, in the order they were written.
+   *
+   * @throws InterruptedException if interrupted while waiting for the writer.
+   */
+  @Test
+  public void testConcurrentRead() throws InterruptedException {
+    final int writes = 100000;
+    // The high and low halves of every timestamp written are equal, so a torn read is detectable.
+    final long step = 0x100000001L;
+    final V instance = getVersion();
+    instance.init(0);
+    instance.init(1);
+
+    Thread writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 1; i <= writes; i++) {
+          instance.sync(0, i * step);
+          instance.increment(1);
+        }
+      }
+    });
+    writer.start();
+
+    long last = 0;
+    while (writer.isAlive() || last < writes * step) {
+      final long value = instance.getLong(0);
+      assertEquals("The read should see a whole timestamp", value >>> 32, value & 0xFFFFFFFFL);
+      assertTrue("The read should not go backwards", value >= last);
+      last = value;
+    }
+    writer.join();
+
+    assertEquals((Long) (long) writes, instance.get(1));
+  }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.order;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import uk.ac.soton.ecs.fl4g12.crdt.idenitifier.IdentifierRegistry;
+
+/**
+ * Tests of {@linkplain InternedVersionVector}.
+ */
+public class InternedVersionVectorTest
+    extends VersionVectorAbstractTest<String, InternedVersionVector<String, Integer>> {
+
+  private static final IdentifierRegistry<String> REGISTRY = new IdentifierRegistry<>();
+
+  public InternedVersionVectorTest() {
+    super(true);
+  }
+
+  @Override
+  public InternedVersionVector<String, Integer> getVersion(int order) {
+    InternedVersionVector<String, Integer> version =
+        new InternedVersionVector<>(new IntegerVersion(), REGISTRY);
+    version.sync(getTimestamp(order));
+    return version;
+  }
+
+  @Override
+  protected InternedVersionVector<String, Integer> getVersion(String id) {
+    InternedVersionVector<String, Integer> version =
+        new InternedVersionVector<>(new IntegerVersion(), REGISTRY);
+    version.sync(getTimestamp(id));
+    return version;
+  }
+
+  @Override
+  protected String getKey(int index) {
+    return "node-" + index;
+  }
+
+  /**
+   * Test synchronising and comparing vectors which use different registries, whose identifiers are
+   * interned with different slots.
+   */
+  @Test
+  public void testSync_DifferentRegistry() {
+    final IdentifierRegistry<String> registry = new IdentifierRegistry<>();
+    // Intern the keys in the reverse order so that their slots differ from the shared registry.
+    for (int i = 3; i >= 0; i--) {
+      registry.intern(getKey(i));
+    }
+    final InternedVersionVector<String, Integer> version1 = getVersion("b4");
+    final InternedVersionVector<String, Integer> version2 =
+        new InternedVersionVector<>(new IntegerVersion(), registry);
+
+    assertFalse("The vectors should not be identical before syncing",
+        version2.identical(version1));
+    version2.sync(version1);
+    assertTrue("The vectors should be identical after syncing", version2.identical(version1));
+    assertTrue("The vectors should be identical after syncing", version1.identical(version2));
+    assertEquals("The vectors should have the same timestamp", version1.get(), version2.get());
+  }
+
+  /**
+   * Test that a vector grows to hold identifiers interned after it was created.
+   */
+  @Test
+  public void testInit_Grow() {
+    final IdentifierRegistry<String> registry = new IdentifierRegistry<>();
+    final InternedVersionVector<String, Integer> version =
+        new InternedVersionVector<>(new IntegerVersion(), registry);
+
+    for (int i = 0; i < 100; i++) {
+      version.sync("replica-" + i, i);
+    }
+    for (int i = 0; i < 100; i++) {
+      assertEquals("Each entry should keep its value", Integer.valueOf(i),
+          version.get("replica-" + i));
+    }
+    assertEquals("Every identifier should be in the vector", 100,
+        version.getIdentifiers().size());
+    assertTrue("A copy should be identical", version.copy().identical(version));
+  }
+
+}
@@ -231,6 +231,19 @@ public class LocalVersionVectorTest {
     Mockito.verifyNoMoreInteractions(version);
   }
 
+  /**
+   * Test of compare method, of class LocalVersionVector.
+   */
+  @Test
+  public void testCompare() {
+    LOGGER.log(Level.INFO, "compare");
+    Mockito.reset(version);
+    VersionVector vector = Mockito.mock(VersionVector.class);
+    instance.compare(vector);
+    Mockito.verify(version).compare(vector);
+    Mockito.verifyNoMoreInteractions(version);
+  }
+
   /**
    * Test of identical method, of class LocalVersionVector.
    */
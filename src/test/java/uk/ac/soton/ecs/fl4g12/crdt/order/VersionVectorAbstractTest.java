@@ -1842,6 +1842,36 @@ public abstract class VersionVectorAbstractTest<K, V extends VersionVector<K, In
     assertEquals(false, instance.precedes(getVersion("c5")));
   }
 
+  /**
+   * Test that compare is consistent with happenedBefore, identical and concurrentWith for all pairs
+   * of example vectors.
+   */
+  @Test
+  public void testCompare_examples() {
+    final String[] examples = {"a0", "a1", "a2", "a3", "a4", "b0", "b1", "b2", "b3", "b4", "b5",
+        "c0", "c1", "c2", "c3", "c4", "c5"};
+    for (String local : examples) {
+      VersionVector<K, Integer> instance = getVersion(local);
+      for (String other : examples) {
+        VersionVector<K, Integer> version = getVersion(other);
+
+        VersionVector.Ordering expected;
+        if (instance.happenedBefore(version)) {
+          expected = VersionVector.Ordering.BEFORE;
+        } else if (version.happenedBefore(instance)) {
+          expected = VersionVector.Ordering.AFTER;
+        } else if (instance.identical(version)) {
+          expected = VersionVector.Ordering.EQUAL;
+        } else {
+          expected = VersionVector.Ordering.CONCURRENT;
+        }
+        assertEquals(local + " compared to " + other, expected, instance.compare(version));
+        assertEquals(expected == VersionVector.Ordering.CONCURRENT,
+            instance.concurrentWith(version));
+      }
+    }
+  }
+
   /**
    * Test concurrentWith against a example vector a0.
    */
@@ -21,6 +21,7 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.util;
 
+import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import static org.junit.Assert.*;
@@ -152,6 +153,50 @@ public abstract class ArithmeticAbstractTest<T, A extends Arithmetic<T>> {
     assertEquals(getResult(TestCase.SUB, Dataset.MIXED), instance.sub(value, dataset));
   }
 
+  /**
+   * Test of the two argument add method, of the {@linkplain Arithmetic} implementation with each
+   * {@linkplain Dataset}.
+   */
+  @Test
+  public void testAdd_Pair() {
+    LOGGER.log(Level.INFO, "testAdd_Pair");
+    Arithmetic<T> instance = getInstance();
+
+    for (Dataset dataset : Dataset.values()) {
+      T[] data = getData(dataset);
+      assertEquals(instance.add(Arrays.asList(data[0], data[1])), instance.add(data[0], data[1]));
+    }
+  }
+
+  /**
+   * Test of the two argument sub method, of the {@linkplain Arithmetic} implementation with each
+   * {@linkplain Dataset}.
+   */
+  @Test
+  public void testSub_Pair() {
+    LOGGER.log(Level.INFO, "testSub_Pair");
+    T value = getValue(TestCase.SUB, 0);
+    Arithmetic<T> instance = getInstance();
+
+    for (Dataset dataset : Dataset.values()) {
+      T[] data = getData(dataset);
+      assertEquals(instance.sub(value, Arrays.asList(data[0])), instance.sub(value, data[0]));
+    }
+  }
+
+  /**
+   * Test of valueOf method, of the {@linkplain Arithmetic} implementation with the zero and unit
+   * values.
+   */
+  @Test
+  public void testValueOf() {
+    LOGGER.log(Level.INFO, "testValueOf");
+    Arithmetic<T> instance = getInstance();
+    assertEquals(instance.getZero(), instance.valueOf(0));
+    assertEquals(instance.getUnit(), instance.valueOf(1));
+    assertEquals(instance.add(instance.getUnit(), instance.getUnit()), instance.valueOf(2));
+  }
+
   public enum Dataset {
     POSITIVE, NEGATIVE, MIXED
   }
@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.util;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link ConcurrentHashSet}.
+ */
+public class ConcurrentHashSetTest {
+
+  private static final Logger LOGGER = Logger.getLogger(ConcurrentHashSetTest.class.getName());
+
+  private static final int ELEMENTS = 10000;
+
+  /**
+   * Test that {@code null} can be added, found, iterated and removed.
+   */
+  @Test
+  public void testNull() {
+    LOGGER.log(Level.INFO, "testNull: Test that null can be stored in the set.");
+    ConcurrentHashSet<Integer> set = new ConcurrentHashSet<>(Arrays.asList(1, 2));
+
+    assertFalse(set.contains(null));
+    assertTrue(set.add(null));
+    assertFalse(set.add(null));
+    assertTrue(set.contains(null));
+    assertEquals(new HashSet<>(Arrays.asList(null, 1, 2)), set);
+    assertEquals(new HashSet<>(Arrays.asList(null, 1, 2)).hashCode(), set.hashCode());
+
+    assertTrue(set.remove(null));
+    assertFalse(set.remove(null));
+    assertEquals(new HashSet<>(Arrays.asList(1, 2)), set);
+  }
+
+  /**
+   * Test that the set can be modified while it is being iterated and that the iterator returns
+   * every element which was present when it was created.
+   */
+  @Test
+  public void testIterator_ConcurrentModification() {
+    LOGGER.log(Level.INFO, "testIterator_ConcurrentModification: "
+        + "Test that the set can be modified while it is iterated.");
+    ConcurrentHashSet<Integer> set = new ConcurrentHashSet<>();
+    for (int i = 0; i < ELEMENTS; i++) {
+      set.add(i);
+    }
+
+    Set<Integer> seen = new HashSet<>();
+    Iterator<Integer> it = set.iterator();
+    while (it.hasNext()) {
+      Integer element = it.next();
+      seen.add(element);
+      set.add(element + ELEMENTS);
+      if (element < ELEMENTS && element % 2 == 0) {
+        it.remove();
+      }
+    }
+
+    for (int i = 0; i < ELEMENTS; i++) {
+      assertTrue("Elements present when iteration started should be seen", seen.contains(i));
+      assertEquals(i % 2 == 1, set.contains(i));
+      assertTrue(set.contains(i + ELEMENTS));
+    }
+  }
+
+}
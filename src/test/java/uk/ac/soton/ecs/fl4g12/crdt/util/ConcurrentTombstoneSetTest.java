@@ -0,0 +1,144 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import uk.ac.soton.ecs.fl4g12.crdt.util.ConcurrentTombstoneSet.State;
+
+/**
+ * Tests for the {@link ConcurrentTombstoneSet}.
+ */
+public class ConcurrentTombstoneSetTest {
+
+  private static final Logger LOGGER =
+      Logger.getLogger(ConcurrentTombstoneSetTest.class.getName());
+
+  /**
+   * Test that elements move from added to removed and can not be added again.
+   */
+  @Test
+  public void testTombstone() {
+    LOGGER.log(Level.INFO, "testTombstone: Test that removed elements can not be added again.");
+    ConcurrentTombstoneSet<Integer> set = new ConcurrentTombstoneSet<>();
+
+    assertTrue(set.add(1));
+    assertTrue(set.add(2));
+    assertTrue(set.add(null));
+    assertFalse(set.add(1));
+    assertEquals(3, set.size());
+
+    assertEquals(State.ADDED, set.tombstone(1));
+    assertNull("An unseen element has no previous state", set.tombstone(3));
+    assertEquals(State.REMOVED, set.tombstone(3));
+    assertEquals(State.ADDED, set.tombstone(null));
+
+    assertFalse("A removed element can not be added again", set.add(1));
+    assertTrue(set.isRemoved(1));
+    assertTrue(set.isRemoved(3));
+    assertFalse(set.contains(1));
+    assertFalse(set.contains(null));
+    assertEquals(1, set.size());
+    assertEquals(3, set.removedSize());
+    assertEquals(new HashSet<>(Arrays.asList(2)), set);
+    assertEquals(new HashSet<>(Arrays.asList(2)).hashCode(), set.hashCode());
+  }
+
+  /**
+   * Test that the iterator skips removed elements and removes by leaving a tombstone.
+   */
+  @Test
+  public void testIterator() {
+    LOGGER.log(Level.INFO, "testIterator: Test that the iterator skips removed elements.");
+    ConcurrentTombstoneSet<Integer> set = new ConcurrentTombstoneSet<>();
+    for (int i = 0; i < 100; i++) {
+      set.add(i);
+    }
+    for (int i = 0; i < 100; i += 2) {
+      set.tombstone(i);
+    }
+
+    List<Integer> elements = new ArrayList<>();
+    Iterator<Integer> it = set.iterator();
+    while (it.hasNext()) {
+      Integer element = it.next();
+      elements.add(element);
+      if (element % 3 == 0) {
+        it.remove();
+      }
+    }
+
+    assertEquals(50, elements.size());
+    for (Integer element : elements) {
+      assertTrue("Removed elements should be skipped", element % 2 == 1);
+      assertEquals(element % 3 != 0, set.contains(element));
+      assertEquals(element % 3 == 0, set.isRemoved(element));
+    }
+    assertEquals(33, set.size());
+  }
+
+  /**
+   * Test that the size is maintained when elements are added and removed concurrently.
+   *
+   * @throws Exception if the test fails.
+   */
+  @Test
+  public void testSize_Concurrent() throws Exception {
+    LOGGER.log(Level.INFO, "testSize_Concurrent: "
+        + "Test that the size is maintained by concurrent additions and removals.");
+    final ConcurrentTombstoneSet<Integer> set = new ConcurrentTombstoneSet<>();
+    final int threads = 8;
+    final int elements = 10000;
+
+    List<Thread> writers = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      writers.add(new Thread() {
+        @Override
+        public void run() {
+          // Every thread races to add and remove the same elements.
+          for (int j = 0; j < elements; j++) {
+            set.add(j);
+            if (j % 4 == 0) {
+              set.tombstone(j);
+            }
+          }
+        }
+      });
+    }
+    ConcurrencyTestUtil.startAll(writers);
+    ConcurrencyTestUtil.joinAll(writers);
+
+    assertEquals(elements * 3 / 4, set.size());
+    assertEquals(elements / 4, set.removedSize());
+  }
+
+}
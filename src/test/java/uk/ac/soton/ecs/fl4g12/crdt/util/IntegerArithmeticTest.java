@@ -21,6 +21,8 @@
 
 package uk.ac.soton.ecs.fl4g12.crdt.util;
 
+import org.junit.Test;
+
 /**
  * Tests for {@linkplain IntegerArithmetic}.
  */
@@ -55,6 +57,15 @@ public class IntegerArithmeticTest extends ArithmeticAbstractTest<Integer, Integ
     }
   }
 
+  /**
+   * Test that valueOf throws an {@link ArithmeticException} for values larger than an
+   * {@link Integer}.
+   */
+  @Test(expected = ArithmeticException.class)
+  public void testValueOf_Overflow() {
+    getInstance().valueOf(Integer.MAX_VALUE + 1L);
+  }
+
   @Override
   protected Integer getResult(TestCase testCase, Dataset dataset) {
     switch (testCase) {
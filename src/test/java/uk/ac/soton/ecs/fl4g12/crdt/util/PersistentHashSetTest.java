@@ -0,0 +1,241 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Fabrizio Lungo <fl4g12@ecs.soton.ac.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.ac.soton.ecs.fl4g12.crdt.util;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link PersistentHashSet}.
+ */
+public class PersistentHashSetTest {
+
+  private static final Logger LOGGER = Logger.getLogger(PersistentHashSetTest.class.getName());
+
+  private static final int ELEMENTS = 10000;
+
+  /**
+   * Element with a fixed hash code to force collisions.
+   */
+  private static final class Colliding {
+
+    private final int value;
+    private final int hash;
+
+    Colliding(int value, int hash) {
+      this.value = value;
+      this.hash = hash;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Colliding && ((Colliding) obj).value == value;
+    }
+
+  }
+
+  /**
+   * Test that the set behaves like a {@link HashSet} when elements are added.
+   */
+  @Test
+  public void testPlus_Random() {
+    LOGGER.log(Level.INFO, "testPlus_Random");
+    final Random random = new Random(0);
+    final Set<Integer> expected = new HashSet<>();
+    PersistentHashSet<Integer> set = PersistentHashSet.empty();
+
+    for (int i = 0; i < ELEMENTS; i++) {
+      int element = random.nextInt();
+      assertEquals("plus should only change the set for new elements", expected.add(element),
+          set != (set = set.plus(element)));
+    }
+
+    assertEquals("The sets should be the same size", expected.size(), set.size());
+    assertEquals("The sets should be equal", expected, set);
+    assertEquals("The sets should be equal", set, expected);
+    assertEquals("The hash codes should be equal", expected.hashCode(), set.hashCode());
+    assertEquals("Iterating should return every element", expected, new HashSet<>(set));
+    assertFalse("The set should not contain an element which was not added",
+        set.contains("not an element"));
+  }
+
+  /**
+   * Test that sets derived from a set do not change the original set.
+   */
+  @Test
+  public void testPlus_Persistent() {
+    LOGGER.log(Level.INFO, "testPlus_Persistent");
+    final PersistentHashSet<Integer> set1 = PersistentHashSet.copyOf(Arrays.asList(1, 2, 3));
+    final PersistentHashSet<Integer> set2 = set1.plus(4);
+
+    assertEquals("The original set should not change", new HashSet<>(Arrays.asList(1, 2, 3)),
+        set1);
+    assertEquals("The new set should contain the element",
+        new HashSet<>(Arrays.asList(1, 2, 3, 4)), set2);
+    assertSame("Adding an existing element should return the same set", set2, set2.plus(1));
+    assertSame("Adding existing elements should return the same set", set2,
+        set2.plusAll(set1));
+    assertSame("copyOf should not copy a PersistentHashSet", set2,
+        PersistentHashSet.copyOf(set2));
+  }
+
+  /**
+   * Test elements whose hash codes collide, including {@code null}.
+   */
+  @Test
+  public void testPlus_Collisions() {
+    LOGGER.log(Level.INFO, "testPlus_Collisions");
+    final Set<Object> expected = new HashSet<>();
+    PersistentHashSet<Object> set = PersistentHashSet.empty();
+
+    for (int i = 0; i < 100; i++) {
+      // Ten elements for each of ten hash codes, which differ only in their highest bits.
+      Colliding element = new Colliding(i, (i % 10) << 28);
+      expected.add(element);
+      set = set.plus(element);
+    }
+    expected.add(null);
+    set = set.plus(null);
+
+    assertEquals("The sets should be equal", expected, set);
+    assertEquals("Iterating should return every element", expected, new HashSet<>(set));
+    assertTrue("The set should contain null", set.contains(null));
+    assertFalse("The set should not contain an element which was not added",
+        set.contains(new Colliding(100, 0)));
+  }
+
+  /**
+   * Test that the set behaves like a {@link HashSet} when elements are removed.
+   */
+  @Test
+  public void testMinus_Random() {
+    LOGGER.log(Level.INFO, "testMinus_Random");
+    final Random random = new Random(0);
+    final Set<Integer> expected = new HashSet<>();
+    PersistentHashSet<Integer> set = PersistentHashSet.empty();
+    for (int i = 0; i < ELEMENTS; i++) {
+      int element = random.nextInt(ELEMENTS * 2);
+      expected.add(element);
+      set = set.plus(element);
+    }
+
+    for (int i = 0; i < ELEMENTS; i++) {
+      int element = random.nextInt(ELEMENTS * 2);
+      assertEquals("minus should only change the set for existing elements",
+          expected.remove(element), set != (set = set.minus(element)));
+    }
+
+    assertEquals("The sets should be the same size", expected.size(), set.size());
+    assertEquals("The sets should be equal", expected, set);
+    assertEquals("The hash codes should be equal", expected.hashCode(), set.hashCode());
+    assertEquals("Iterating should return every element", expected, new HashSet<>(set));
+
+    set = set.minusAll(expected);
+    assertTrue("Removing every element should give an empty set", set.isEmpty());
+    assertSame("Removing every element should give the empty set", PersistentHashSet.empty(), set);
+  }
+
+  /**
+   * Test that removing from a set does not change the original set.
+   */
+  @Test
+  public void testMinus_Persistent() {
+    LOGGER.log(Level.INFO, "testMinus_Persistent");
+    final PersistentHashSet<Integer> set1 = PersistentHashSet.copyOf(Arrays.asList(1, 2, 3));
+    final PersistentHashSet<Integer> set2 = set1.minus(2);
+
+    assertEquals("The original set should not change", new HashSet<>(Arrays.asList(1, 2, 3)),
+        set1);
+    assertEquals("The new set should not contain the element", new HashSet<>(Arrays.asList(1, 3)),
+        set2);
+    assertSame("Removing a missing element should return the same set", set2, set2.minus(2));
+    assertSame("Removing missing elements should return the same set", set2,
+        set2.minusAll(Arrays.asList(2, 4)));
+  }
+
+  /**
+   * Test removing elements whose hash codes collide, including {@code null}.
+   */
+  @Test
+  public void testMinus_Collisions() {
+    LOGGER.log(Level.INFO, "testMinus_Collisions");
+    final Set<Object> expected = new HashSet<>();
+    PersistentHashSet<Object> set = PersistentHashSet.empty();
+    for (int i = 0; i < 100; i++) {
+      Colliding element = new Colliding(i, (i % 10) << 28);
+      expected.add(element);
+      set = set.plus(element);
+    }
+    expected.add(null);
+    set = set.plus(null);
+
+    for (int i = 0; i < 100; i += 3) {
+      Colliding element = new Colliding(i, (i % 10) << 28);
+      expected.remove(element);
+      set = set.minus(element);
+    }
+    expected.remove(null);
+    set = set.minus(null);
+
+    assertEquals("The sets should be equal", expected, set);
+    assertEquals("Iterating should return every element", expected, new HashSet<>(set));
+    assertFalse("The set should not contain null", set.contains(null));
+    assertFalse("The set should not contain a removed element",
+        set.contains(new Colliding(3, 3 << 28)));
+  }
+
+  /**
+   * Test that the set cannot be modified.
+   */
+  @Test(expected = UnsupportedOperationException.class)
+  public void testAdd() {
+    LOGGER.log(Level.INFO, "testAdd");
+    PersistentHashSet.<Integer>empty().add(1);
+  }
+
+  /**
+   * Test that the set cannot be modified by its iterator.
+   */
+  @Test(expected = UnsupportedOperationException.class)
+  public void testIterator_Remove() {
+    LOGGER.log(Level.INFO, "testIterator_Remove");
+    Iterator<Integer> iterator = PersistentHashSet.<Integer>empty().plus(1).iterator();
+    iterator.next();
+    iterator.remove();
+  }
+
+}